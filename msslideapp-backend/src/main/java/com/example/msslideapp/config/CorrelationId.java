@@ -0,0 +1,104 @@
+package com.example.msslideapp.config;
+
+import org.slf4j.MDC;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * The correlation id that ties log lines to the request (or background job) they
+ * belong to. It lives in the SLF4J MDC of the thread doing the work; tasks handed
+ * to an executor wrapped with {@link #propagating} run with the MDC of the thread
+ * that submitted them, so fan-out stages log under their request's id.
+ */
+public final class CorrelationId {
+
+    public static final String MDC_KEY = "correlationId";
+
+    private CorrelationId() {
+    }
+
+    public static String newId() {
+        return UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /** Runs {@code task} with the submitting thread's MDC and restores the worker's own afterwards. */
+    public static Runnable wrap(final Runnable task) {
+        final Map<String, String> context = MDC.getCopyOfContextMap();
+        return () -> {
+            Map<String, String> previous = MDC.getCopyOfContextMap();
+            set(context);
+            try {
+                task.run();
+            } finally {
+                set(previous);
+            }
+        };
+    }
+
+    /** {@link #wrap(Runnable)} for a step applied later on another thread, e.g. in a reactive pipeline. */
+    public static <T, R> Function<T, R> wrap(final Function<T, R> step) {
+        final Map<String, String> context = MDC.getCopyOfContextMap();
+        return value -> {
+            Map<String, String> previous = MDC.getCopyOfContextMap();
+            set(context);
+            try {
+                return step.apply(value);
+            } finally {
+                set(previous);
+            }
+        };
+    }
+
+    private static void set(Map<String, String> context) {
+        if (context == null)
+            MDC.clear();
+        else
+            MDC.setContextMap(context);
+    }
+
+    public static Executor propagating(final Executor delegate) {
+        return command -> delegate.execute(wrap(command));
+    }
+
+    /** An executor service whose tasks inherit the submitter's MDC; lifecycle calls go to {@code delegate}. */
+    public static ExecutorService propagating(final ExecutorService delegate) {
+        return new AbstractExecutorService() {
+            @Override
+            public void execute(Runnable command) {
+                delegate.execute(wrap(command));
+            }
+
+            @Override
+            public void shutdown() {
+                delegate.shutdown();
+            }
+
+            @Override
+            public List<Runnable> shutdownNow() {
+                return delegate.shutdownNow();
+            }
+
+            @Override
+            public boolean isShutdown() {
+                return delegate.isShutdown();
+            }
+
+            @Override
+            public boolean isTerminated() {
+                return delegate.isTerminated();
+            }
+
+            @Override
+            public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+                return delegate.awaitTermination(timeout, unit);
+            }
+        };
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.msslideapp.config;
+
+import org.apache.coyote.ProtocolHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for the pipeline. The plain executor services propagate the submitting
+ * thread's correlation id (see {@link CorrelationId}); the diff pool is a raw
+ * ForkJoinPool, so callers wrap it where they hand it tasks that log.
+ * <p>
+ * With execution.virtual-threads=true (and a Java 21+ runtime) requests and the
+ * GitHub fan-out run on virtual threads, so blocking GitHub calls no longer tie
+ * up one of Tomcat's platform threads each. CPU-bound pools stay as they are.
+ */
+@Configuration
+@EnableScheduling
+public class ExecutorConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(ExecutorConfig.class);
+
+    @Value("${execution.virtual-threads:false}")
+    private boolean virtualThreads;
+
+    /** Runs each servlet request on its own virtual thread instead of Tomcat's worker pool. */
+    @Bean
+    @ConditionalOnProperty(name = "execution.virtual-threads", havingValue = "true")
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadRequests() {
+        if (!useVirtualThreads())
+            return handler -> {
+            };
+        ExecutorService executor = VirtualThreads.newPerTaskExecutor("http-virtual-");
+        log.info("Serving requests on virtual threads");
+        return handler -> handler.setExecutor(executor);
+    }
+
+    /**
+     * Shared pool for CPU-bound diff work. Kept separate from the common pool so
+     * parallel streams elsewhere cannot starve it; 0 means one worker per core.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool diffPool(@Value("${diff.parallelism:0}") int parallelism) {
+        int size = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        return new ForkJoinPool(size);
+    }
+
+    /** Parses workbook sheets in parallel during Excel → JSON conversion; 0 means one thread per core. */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService conversionExecutor(@Value("${converter.parallelism:0}") int parallelism) {
+        int size = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        return CorrelationId.propagating(Executors.newFixedThreadPool(size));
+    }
+
+    /**
+     * Bounded pool for blocking GitHub calls, so a PR with many files fans out
+     * its content fetches without opening an unbounded number of connections.
+     * On virtual threads every fetch gets its own thread and the connection pool
+     * (github.max-connections) is the only bound.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService githubIoExecutor(@Value("${github.io-concurrency:8}") int concurrency) {
+        if (useVirtualThreads())
+            return CorrelationId.propagating(VirtualThreads.newPerTaskExecutor("github-io-"));
+        return CorrelationId.propagating(Executors.newFixedThreadPool(Math.max(1, concurrency)));
+    }
+
+    /**
+     * Background diff precomputation: the GitHub fetches of a warming task. Kept
+     * small and at low thread priority so warming only uses capacity interactive
+     * requests leave idle.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService diffWarmingExecutor(@Value("${diff.warm.concurrency:1}") int concurrency,
+            @Value("${diff.warm.thread-priority:1}") int priority) {
+        final int threadPriority = threadPriority(priority);
+        final AtomicInteger count = new AtomicInteger();
+        return CorrelationId.propagating(Executors.newFixedThreadPool(Math.max(1, concurrency), r -> {
+            Thread t = new Thread(r, "diff-warm-" + count.incrementAndGet());
+            t.setDaemon(true);
+            t.setPriority(threadPriority);
+            return t;
+        }));
+    }
+
+    /**
+     * Diffs of warming tasks, so precomputation never occupies a worker of the
+     * shared diff pool; same size and thread priority as the warming executor.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ForkJoinPool diffWarmingPool(@Value("${diff.warm.concurrency:1}") int concurrency,
+            @Value("${diff.warm.thread-priority:1}") int priority) {
+        final int threadPriority = threadPriority(priority);
+        final AtomicInteger count = new AtomicInteger();
+        return new ForkJoinPool(Math.max(1, concurrency), pool -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            t.setName("diff-warm-worker-" + count.incrementAndGet());
+            t.setDaemon(true);
+            t.setPriority(threadPriority);
+            return t;
+        }, null, false);
+    }
+
+    /** One thread, so merges to main happen one batch at a time in approval order. */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService mergeQueueExecutor() {
+        return CorrelationId.propagating(Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "merge-queue");
+            t.setDaemon(true);
+            return t;
+        }));
+    }
+
+    private static int threadPriority(int priority) {
+        return Math.max(Thread.MIN_PRIORITY, Math.min(Thread.MAX_PRIORITY, priority));
+    }
+
+    private synchronized boolean useVirtualThreads() {
+        if (virtualThreads && !VirtualThreads.available()) {
+            log.warn("execution.virtual-threads is set but Java {} has no virtual threads; using platform threads",
+                    System.getProperty("java.version"));
+            virtualThreads = false;
+        }
+        return virtualThreads;
+    }
+}
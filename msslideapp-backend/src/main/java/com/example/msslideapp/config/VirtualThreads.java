@@ -0,0 +1,63 @@
+package com.example.msslideapp.config;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Virtual-thread executors, looked up reflectively: the build targets Java 17
+ * (the newest release Spring Boot 2.5 reads), while virtual threads are final
+ * only from Java 21. On older runtimes {@link #available()} is false and
+ * callers keep their platform-thread pools.
+ */
+public final class VirtualThreads {
+
+    private static final Method OF_VIRTUAL;
+    private static final Method NAME;
+    private static final Method FACTORY;
+    private static final Method PER_TASK_EXECUTOR;
+
+    static {
+        Method ofVirtual = null, name = null, factory = null, perTask = null;
+        try {
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            name = Class.forName("java.lang.Thread$Builder").getMethod("name", String.class, long.class);
+            factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+            perTask = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+        } catch (ReflectiveOperationException e) {
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        FACTORY = factory;
+        PER_TASK_EXECUTOR = perTask;
+    }
+
+    private VirtualThreads() {
+    }
+
+    public static boolean available() {
+        // on Java 19/20 ofVirtual() exists but throws unless preview features are enabled
+        if (OF_VIRTUAL == null)
+            return false;
+        try {
+            OF_VIRTUAL.invoke(null);
+            return true;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    /** Starts one virtual thread per task, named {@code prefix} followed by a counter. */
+    public static ExecutorService newPerTaskExecutor(String prefix) {
+        if (OF_VIRTUAL == null)
+            throw new IllegalStateException("Virtual threads need Java 21 or later");
+        try {
+            Object builder = NAME.invoke(OF_VIRTUAL.invoke(null), prefix, 0L);
+            return (ExecutorService) PER_TASK_EXECUTOR.invoke(null, FACTORY.invoke(builder));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads are not available", e);
+        }
+    }
+}
@@ -1,11 +1,27 @@
 package com.example.msslideapp.config;
 
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.util.List;
+
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
+
+    private final Jackson2ObjectMapperBuilder mapperBuilder;
+
+    public WebConfig(Jackson2ObjectMapperBuilder mapperBuilder) {
+        this.mapperBuilder = mapperBuilder;
+    }
+
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/**")
@@ -13,4 +29,36 @@ public class WebConfig implements WebMvcConfigurer {
           .allowedMethods("GET","POST","PUT","DELETE","OPTIONS")
           .allowedHeaders("*");
     }
+
+    /**
+     * Binary encodings for clients that ask for them in Accept. Boot already registers
+     * default Smile and CBOR converters after JSON when the dataformat modules are on
+     * the classpath, and the first converter that can write a type wins, so ours
+     * replace those at the same index; Accept: *&#47;* still gets JSON. Smile refers
+     * back to property names and short strings it has already written, so repeated
+     * meta keys (oldFontColor, newBorders, ...) and values (colors, border specs) cost
+     * a byte or two after their first use.
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        SmileFactory smile = SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_NAMES)
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build();
+        replaceOrAdd(converters, MappingJackson2SmileHttpMessageConverter.class,
+                new MappingJackson2SmileHttpMessageConverter(mapperBuilder.factory(smile).build()));
+        replaceOrAdd(converters, MappingJackson2CborHttpMessageConverter.class,
+                new MappingJackson2CborHttpMessageConverter(mapperBuilder.factory(new CBORFactory()).build()));
+    }
+
+    private static void replaceOrAdd(List<HttpMessageConverter<?>> converters,
+                                     Class<?> type, HttpMessageConverter<?> converter) {
+        for (int i = 0; i < converters.size(); i++) {
+            if (type.isInstance(converters.get(i))) {
+                converters.set(i, converter);
+                return;
+            }
+        }
+        converters.add(converter);
+    }
 }
@@ -1,9 +1,17 @@
 package com.example.msslideapp.controller;
 
 import com.example.msslideapp.model.ApproveRequest;
+import com.example.msslideapp.model.ChangeItem;
+import com.example.msslideapp.model.DiffOptions;
+import com.example.msslideapp.model.MergeStatus;
+import com.example.msslideapp.model.PullRequestPage;
 import com.example.msslideapp.service.ExcelService;
 import com.example.msslideapp.service.GitHubService;
+import com.example.msslideapp.service.MergeQueueService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
 import java.util.Map;
@@ -13,10 +21,13 @@ import java.util.Map;
 public class ApprovalController {
     private ExcelService excelService;
     private GitHubService gitHubService;
+    private MergeQueueService mergeQueue;
 
-    public ApprovalController(ExcelService excelService, GitHubService gitHubService) {
+    public ApprovalController(ExcelService excelService, GitHubService gitHubService,
+            MergeQueueService mergeQueue) {
         this.excelService = excelService;
         this.gitHubService = gitHubService;
+        this.mergeQueue = mergeQueue;
     }
 
     @PostMapping("/approve")
@@ -37,30 +48,54 @@ public class ApprovalController {
     }
 
     @GetMapping("/approvals/pending")
-    public List<Map<String, Object>> getPendingApprovals() throws Exception {
-        // Get all open PRs
-        return gitHubService.getPullRequests("open");
+    public PullRequestPage getPendingApprovals(
+            @RequestParam(value = "first", required = false) Integer first,
+            @RequestParam(value = "after", required = false) String after) throws Exception {
+        // One page of open PRs, with review state in the same round-trip
+        return gitHubService.getPullRequestsWithReviews("open", first, after);
     }
 
     @GetMapping("/approvals/sent")
-    public List<Map<String, Object>> getSentApprovals() throws Exception {
-        // Get all PRs (open and closed)
-        return gitHubService.getPullRequests("all");
+    public PullRequestPage getSentApprovals(
+            @RequestParam(value = "first", required = false) Integer first,
+            @RequestParam(value = "after", required = false) String after) throws Exception {
+        // One page of all PRs (open, closed and merged)
+        return gitHubService.getPullRequestsWithReviews("all", first, after);
     }
 
     @PostMapping("/approvals/{prNumber}/approve")
-    public Map<String, String> approvePR(
+    public Map<String, Object> approvePR(
             @PathVariable int prNumber,
             @RequestBody(required = false) Map<String, String> body) throws Exception {
         String comment = body != null ? body.get("comment") : null;
-        String message = excelService.handlePrApproval(prNumber, comment);
+        // merged later by the merge queue; poll /approvals/{prNumber}/merge for the outcome
+        MergeStatus merge = mergeQueue.approve(prNumber, comment);
 
-        Map<String, String> response = new java.util.HashMap<>();
+        Map<String, Object> response = new java.util.HashMap<>();
         response.put("status", "approved");
-        response.put("message", message);
+        response.put("message", merge.getMessage());
+        response.put("mergeState", merge.getState());
+        response.put("position", merge.getPosition());
         return response;
     }
 
+    @GetMapping("/approvals/{prNumber}/merge")
+    public ResponseEntity<Object> getMergeStatus(@PathVariable int prNumber) {
+        MergeStatus status = mergeQueue.status(prNumber);
+        if (status == null) {
+            Map<String, Object> body = new java.util.HashMap<>();
+            body.put("status", "error");
+            body.put("message", "PR " + prNumber + " was not queued for merge");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(body);
+        }
+        return ResponseEntity.ok(status);
+    }
+
+    @GetMapping("/approvals/queue")
+    public List<MergeStatus> getMergeQueue() {
+        return mergeQueue.pending();
+    }
+
     @PostMapping("/approvals/{prNumber}/reject")
     public Map<String, String> rejectPR(
             @PathVariable int prNumber,
@@ -75,7 +110,17 @@ public class ApprovalController {
     }
 
     @GetMapping("/approvals/{prNumber}/changes")
-    public Object getPRChanges(@PathVariable int prNumber) throws Exception {
-        return excelService.getPRChanges(prNumber);
+    public Mono<List<ChangeItem>> getPRChanges(
+            @PathVariable int prNumber,
+            @RequestParam(value = "align", required = false) Boolean align,
+            @RequestParam(value = "keyColumn", required = false) Integer keyColumn,
+            @RequestParam(value = "columnsByHeader", required = false) Boolean columnsByHeader,
+            @RequestParam(value = "headerRow", required = false) Integer headerRow) {
+        DiffOptions options = new DiffOptions();
+        options.setAlignRows(align);
+        options.setRowKeyColumn(keyColumn);
+        options.setMatchColumnsByHeader(columnsByHeader);
+        options.setHeaderRow(headerRow);
+        return excelService.getPRChangesAsync(prNumber, options);
     }
 }
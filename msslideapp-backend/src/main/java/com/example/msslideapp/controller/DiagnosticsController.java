@@ -0,0 +1,92 @@
+package com.example.msslideapp.controller;
+
+import com.example.msslideapp.service.FlightRecorderService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Flight recordings on demand: start one, reproduce the slow upload or PR view,
+ * then download the dump, e.g.
+ * {@code curl -X POST -H "Authorization: Bearer $DIAGNOSTICS_TOKEN" localhost:8080/api/diagnostics/jfr/dump
+ * -o msslide.jfr}.
+ * Only registered with diagnostics.jfr.enabled=true, and every call needs
+ * diagnostics.token as a bearer token (none is accepted while it is unset).
+ */
+@RestController
+@RequestMapping("/api/diagnostics/jfr")
+@ConditionalOnProperty(name = "diagnostics.jfr.enabled", havingValue = "true")
+public class DiagnosticsController {
+
+    private final FlightRecorderService flightRecorder;
+
+    @Value("${diagnostics.token:}")
+    private String token;
+
+    public DiagnosticsController(FlightRecorderService flightRecorder) {
+        this.flightRecorder = flightRecorder;
+    }
+
+    @GetMapping
+    public ResponseEntity<Object> status(HttpServletRequest request) {
+        if (!authorized(request))
+            return unauthorized();
+        return ResponseEntity.ok(flightRecorder.status());
+    }
+
+    @PostMapping("/start")
+    public ResponseEntity<Object> start(HttpServletRequest request) throws Exception {
+        if (!authorized(request))
+            return unauthorized();
+        return ResponseEntity.ok(flightRecorder.start());
+    }
+
+    @PostMapping("/dump")
+    public ResponseEntity<Object> dump(HttpServletRequest request) throws Exception {
+        if (!authorized(request))
+            return unauthorized();
+        if (!Boolean.TRUE.equals(flightRecorder.status().get("running")))
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        File file = flightRecorder.dump();
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getName() + "\"")
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .body(new FileSystemResource(file));
+    }
+
+    @PostMapping("/stop")
+    public ResponseEntity<Object> stop(HttpServletRequest request) {
+        if (!authorized(request))
+            return unauthorized();
+        flightRecorder.stop();
+        return ResponseEntity.ok(flightRecorder.status());
+    }
+
+    /** The bearer token matches diagnostics.token; always false while that is unset. */
+    private boolean authorized(HttpServletRequest request) {
+        String auth = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (token == null || token.isEmpty() || auth == null || !auth.startsWith("Bearer "))
+            return false;
+        return MessageDigest.isEqual(auth.substring("Bearer ".length()).getBytes(StandardCharsets.UTF_8),
+                token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static ResponseEntity<Object> unauthorized() {
+        Map<String, Object> body = new HashMap<>();
+        body.put("status", "error");
+        body.put("message", "Diagnostics need Authorization: Bearer <diagnostics.token>");
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(body);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.msslideapp.controller;
+
+import com.example.msslideapp.model.SheetWindow;
+import com.example.msslideapp.service.SheetWindowService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/files")
+public class FileController {
+
+    private static final int DEFAULT_ROWS = 100;
+
+    private final SheetWindowService sheetWindows;
+
+    public FileController(SheetWindowService sheetWindows) {
+        this.sheetWindows = sheetWindows;
+    }
+
+    /**
+     * A window of a sheet at a commit, e.g.
+     * {@code /api/files/Budget.xlsx/at/3f2c.../sheets/Q1?rows=200..299&cols=0..25}.
+     * Ranges are inclusive and 0-based; either end may be left open ("200..").
+     * Without rows the first 100 rows are returned, without cols every column.
+     */
+    @GetMapping("/{name}/at/{sha}/sheets/{sheet}")
+    public ResponseEntity<Object> getSheetWindow(
+            @PathVariable String name,
+            @PathVariable String sha,
+            @PathVariable String sheet,
+            @RequestParam(value = "rows", required = false) String rows,
+            @RequestParam(value = "cols", required = false) String cols) throws Exception {
+        SheetWindow window;
+        try {
+            int[] rowRange = range(rows, 0, DEFAULT_ROWS - 1);
+            int[] colRange = range(cols, 0, Integer.MAX_VALUE);
+            window = sheetWindows.getWindow(name, sha, sheet, rowRange[0], rowRange[1], colRange[0], colRange[1]);
+        } catch (IllegalArgumentException e) {
+            return error(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        if (window == null)
+            return error(HttpStatus.NOT_FOUND, "No sheet " + sheet + " in " + name + " at " + sha);
+        return ResponseEntity.ok(window);
+    }
+
+    /** Parses "a..b", "a.." or "..b"; a missing spec gives the defaults. */
+    private static int[] range(String spec, int defaultFirst, int defaultLast) {
+        if (spec == null || spec.trim().isEmpty())
+            return new int[] { defaultFirst, defaultLast };
+        int dots = spec.indexOf("..");
+        if (dots < 0)
+            throw new IllegalArgumentException("Range must look like a..b: " + spec);
+        String first = spec.substring(0, dots).trim();
+        String last = spec.substring(dots + 2).trim();
+        try {
+            return new int[] { first.isEmpty() ? 0 : Integer.parseInt(first),
+                    last.isEmpty() ? Integer.MAX_VALUE : Integer.parseInt(last) };
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Range must look like a..b: " + spec);
+        }
+    }
+
+    private static ResponseEntity<Object> error(HttpStatus status, String message) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("status", "error");
+        body.put("message", message);
+        return ResponseEntity.status(status).body(body);
+    }
+}
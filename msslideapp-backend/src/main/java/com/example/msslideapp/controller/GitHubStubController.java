@@ -0,0 +1,70 @@
+package com.example.msslideapp.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Offline stand-in for the GitHub GraphQL endpoint, active with the
+ * "github-stub" profile. Answers the pull request query from canned data in
+ * github-stub/pull-requests.json, honouring the states filter and cursor
+ * paging; the query text itself is not interpreted.
+ */
+@RestController
+@Profile("github-stub")
+@RequestMapping("/stub/github")
+public class GitHubStubController {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final JsonNode pullRequests;
+
+    public GitHubStubController() throws Exception {
+        try (InputStream in = new ClassPathResource("github-stub/pull-requests.json").getInputStream()) {
+            this.pullRequests = mapper.readTree(in);
+        }
+    }
+
+    @PostMapping("/graphql")
+    public JsonNode graphql(@RequestBody JsonNode request) {
+        JsonNode variables = request.path("variables");
+
+        Set<String> states = new HashSet<String>();
+        for (JsonNode state : variables.path("states"))
+            states.add(state.asText());
+        int first = variables.path("first").asInt(50);
+        int start = variables.path("after").isTextual() ? Integer.parseInt(variables.get("after").asText()) : 0;
+
+        ArrayNode nodes = mapper.createArrayNode();
+        int seen = 0;
+        boolean hasNextPage = false;
+        for (JsonNode pr : pullRequests) {
+            if (!states.isEmpty() && !states.contains(pr.path("state").asText()))
+                continue;
+            if (seen++ < start)
+                continue;
+            if (nodes.size() == first) {
+                hasNextPage = true;
+                break;
+            }
+            nodes.add(pr);
+        }
+
+        ObjectNode page = mapper.createObjectNode();
+        page.putObject("pageInfo")
+                .put("hasNextPage", hasNextPage)
+                .put("endCursor", String.valueOf(start + nodes.size()));
+        page.set("nodes", nodes);
+
+        ObjectNode response = mapper.createObjectNode();
+        response.putObject("data").putObject("repository").set("pullRequests", page);
+        return response;
+    }
+}
@@ -1,11 +1,14 @@
 package com.example.msslideapp.controller;
 
+import com.example.msslideapp.model.ChangeItem;
+import com.example.msslideapp.model.DiffOptions;
 import com.example.msslideapp.model.UploadResponse;
 import com.example.msslideapp.service.ExcelService;
 import com.example.msslideapp.service.GitHubService;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
 import java.util.Map;
@@ -52,7 +55,17 @@ public class UploadController {
     }
 
     @GetMapping("/commits/{sha}/changes")
-    public Object getCommitChanges(@PathVariable String sha) throws Exception {
-        return excelService.getCommitChanges(sha);
+    public Mono<List<ChangeItem>> getCommitChanges(
+            @PathVariable String sha,
+            @RequestParam(value = "align", required = false) Boolean align,
+            @RequestParam(value = "keyColumn", required = false) Integer keyColumn,
+            @RequestParam(value = "columnsByHeader", required = false) Boolean columnsByHeader,
+            @RequestParam(value = "headerRow", required = false) Integer headerRow) {
+        DiffOptions options = new DiffOptions();
+        options.setAlignRows(align);
+        options.setRowKeyColumn(keyColumn);
+        options.setMatchColumnsByHeader(columnsByHeader);
+        options.setHeaderRow(headerRow);
+        return excelService.getCommitChangesAsync(sha, options);
     }
 }
@@ -0,0 +1,46 @@
+package com.example.msslideapp.controller;
+
+import com.example.msslideapp.service.WebhookService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * GitHub webhook receiver (push, pull_request, pull_request_review). Deliveries
+ * must be signed with github.webhook.secret. Recorded payloads can be replayed
+ * offline by signing them with the same secret, e.g.
+ * {@code openssl dgst -sha256 -hmac "$SECRET" push.json}.
+ */
+@RestController
+@RequestMapping("/api/webhooks")
+public class WebhookController {
+
+    private final WebhookService webhookService;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    public WebhookController(WebhookService webhookService) {
+        this.webhookService = webhookService;
+    }
+
+    @PostMapping("/github")
+    public ResponseEntity<Map<String, Object>> github(
+            @RequestHeader(value = "X-GitHub-Event", required = false) String event,
+            @RequestHeader(value = "X-Hub-Signature-256", required = false) String signature,
+            @RequestBody byte[] body) throws Exception {
+        Map<String, Object> response = new HashMap<>();
+        if (!webhookService.verifySignature(body, signature)) {
+            response.put("status", "rejected");
+            response.put("message", "Invalid or missing signature");
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(response);
+        }
+
+        response.put("status", "ok");
+        response.put("event", event);
+        response.put("invalidated", webhookService.handle(event, mapper.readTree(body)));
+        return ResponseEntity.ok(response);
+    }
+}
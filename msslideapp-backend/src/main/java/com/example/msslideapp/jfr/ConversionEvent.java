@@ -0,0 +1,29 @@
+package com.example.msslideapp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** One workbook converted between .xlsx and its JSON snapshot. */
+@Name("msslide.Conversion")
+@Label("Workbook Conversion")
+@Category({ "MsSlide", "Conversion" })
+public class ConversionEvent extends jdk.jfr.Event {
+
+    @Label("File")
+    public String fileName;
+
+    @Label("Direction")
+    @Description("excel_to_json or json_to_excel")
+    public String direction;
+
+    @Label("Sheets")
+    public int sheets;
+
+    @Label("Cells")
+    public long cells;
+
+    @Label("Snapshot Characters")
+    public long snapshotChars;
+}
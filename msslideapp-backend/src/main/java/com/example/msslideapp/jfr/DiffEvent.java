@@ -0,0 +1,24 @@
+package com.example.msslideapp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** One snapshot diff, from parsing both versions to the joined change list. */
+@Name("msslide.Diff")
+@Label("Snapshot Diff")
+@Category({ "MsSlide", "Diff" })
+public class DiffEvent extends jdk.jfr.Event {
+
+    @Label("File")
+    public String fileName;
+
+    @Label("Sheets")
+    public int sheets;
+
+    @Label("Cells")
+    public long cells;
+
+    @Label("Changes")
+    public long changes;
+}
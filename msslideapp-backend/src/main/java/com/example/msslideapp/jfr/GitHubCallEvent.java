@@ -0,0 +1,33 @@
+package com.example.msslideapp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One GitHub API call. Unlike the metrics timer, the event lasts until the
+ * response body has been read and closed, so slow downloads show up too.
+ */
+@Name("msslide.GitHubCall")
+@Label("GitHub API Call")
+@Category({ "MsSlide", "GitHub" })
+public class GitHubCallEvent extends jdk.jfr.Event {
+
+    @Label("Endpoint")
+    public String endpoint;
+
+    @Label("Method")
+    public String method;
+
+    @Label("Status")
+    public String status;
+
+    @Label("Bytes Sent")
+    @DataAmount
+    public long bytesSent;
+
+    @Label("Bytes Received")
+    @DataAmount
+    public long bytesReceived;
+}
@@ -0,0 +1,21 @@
+package com.example.msslideapp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** One sheet parsed out of a workbook; nested in time inside a {@link ConversionEvent}. */
+@Name("msslide.SheetConversion")
+@Label("Sheet Conversion")
+@Category({ "MsSlide", "Conversion" })
+public class SheetConversionEvent extends jdk.jfr.Event {
+
+    @Label("File")
+    public String fileName;
+
+    @Label("Sheet")
+    public String sheet;
+
+    @Label("Cells")
+    public long cells;
+}
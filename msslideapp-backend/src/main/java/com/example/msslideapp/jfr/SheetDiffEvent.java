@@ -0,0 +1,24 @@
+package com.example.msslideapp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** One sheet diffed on the diff pool; the thread shows which worker ran it. */
+@Name("msslide.SheetDiff")
+@Label("Sheet Diff")
+@Category({ "MsSlide", "Diff" })
+public class SheetDiffEvent extends jdk.jfr.Event {
+
+    @Label("File")
+    public String fileName;
+
+    @Label("Sheet")
+    public String sheet;
+
+    @Label("Cells")
+    public long cells;
+
+    @Label("Changes")
+    public long changes;
+}
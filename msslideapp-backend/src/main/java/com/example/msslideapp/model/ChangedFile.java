@@ -0,0 +1,72 @@
+package com.example.msslideapp.model;
+
+/**
+ * A path changed between two commits. Blob SHAs identify each side's content;
+ * when a SHA could not be resolved the side is fetched by its ref instead, and
+ * a side with neither does not exist (added or removed file).
+ */
+public class ChangedFile {
+    private String path;
+    private String previousPath;
+    private String status;
+    private String baseBlobSha;
+    private String headBlobSha;
+    private String baseRef;
+    private String headRef;
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public String getPreviousPath() {
+        return previousPath;
+    }
+
+    public void setPreviousPath(String previousPath) {
+        this.previousPath = previousPath;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getBaseBlobSha() {
+        return baseBlobSha;
+    }
+
+    public void setBaseBlobSha(String baseBlobSha) {
+        this.baseBlobSha = baseBlobSha;
+    }
+
+    public String getHeadBlobSha() {
+        return headBlobSha;
+    }
+
+    public void setHeadBlobSha(String headBlobSha) {
+        this.headBlobSha = headBlobSha;
+    }
+
+    public String getBaseRef() {
+        return baseRef;
+    }
+
+    public void setBaseRef(String baseRef) {
+        this.baseRef = baseRef;
+    }
+
+    public String getHeadRef() {
+        return headRef;
+    }
+
+    public void setHeadRef(String headRef) {
+        this.headRef = headRef;
+    }
+}
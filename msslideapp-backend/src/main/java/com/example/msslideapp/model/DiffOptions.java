@@ -0,0 +1,43 @@
+package com.example.msslideapp.model;
+
+/**
+ * Per-request diff settings. A null field means "use the configured default".
+ */
+public class DiffOptions {
+    private Boolean alignRows;
+    private Integer rowKeyColumn;
+    private Boolean matchColumnsByHeader;
+    private Integer headerRow;
+
+    public Boolean getAlignRows() {
+        return alignRows;
+    }
+
+    public void setAlignRows(Boolean alignRows) {
+        this.alignRows = alignRows;
+    }
+
+    public Integer getRowKeyColumn() {
+        return rowKeyColumn;
+    }
+
+    public void setRowKeyColumn(Integer rowKeyColumn) {
+        this.rowKeyColumn = rowKeyColumn;
+    }
+
+    public Boolean getMatchColumnsByHeader() {
+        return matchColumnsByHeader;
+    }
+
+    public void setMatchColumnsByHeader(Boolean matchColumnsByHeader) {
+        this.matchColumnsByHeader = matchColumnsByHeader;
+    }
+
+    public Integer getHeaderRow() {
+        return headerRow;
+    }
+
+    public void setHeaderRow(Integer headerRow) {
+        this.headerRow = headerRow;
+    }
+}
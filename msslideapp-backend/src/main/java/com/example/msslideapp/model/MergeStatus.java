@@ -0,0 +1,56 @@
+package com.example.msslideapp.model;
+
+import java.util.List;
+
+/**
+ * Where an approved PR is in the merge queue. state is QUEUED (position counts
+ * from 1, the batch being merged included), MERGING, MERGED, CONFLICT (main or
+ * an earlier PR of the batch changed the same cells; see conflicts) or FAILED.
+ */
+public class MergeStatus {
+    private int prNumber;
+    private String state;
+    private int position;
+    private String message;
+    private List<ChangeItem> conflicts;
+
+    public int getPrNumber() {
+        return prNumber;
+    }
+
+    public void setPrNumber(int prNumber) {
+        this.prNumber = prNumber;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public void setPosition(int position) {
+        this.position = position;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public List<ChangeItem> getConflicts() {
+        return conflicts;
+    }
+
+    public void setConflicts(List<ChangeItem> conflicts) {
+        this.conflicts = conflicts;
+    }
+}
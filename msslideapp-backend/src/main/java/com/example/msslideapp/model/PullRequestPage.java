@@ -0,0 +1,47 @@
+package com.example.msslideapp.model;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One page of an approval list. endCursor is passed back as after to get the
+ * next page; it is null when hasNextPage is false.
+ */
+public class PullRequestPage {
+    private List<Map<String, Object>> items;
+    private boolean hasNextPage;
+    private String endCursor;
+
+    public PullRequestPage() {
+    }
+
+    public PullRequestPage(List<Map<String, Object>> items, boolean hasNextPage, String endCursor) {
+        this.items = items;
+        this.hasNextPage = hasNextPage;
+        this.endCursor = hasNextPage ? endCursor : null;
+    }
+
+    public List<Map<String, Object>> getItems() {
+        return items;
+    }
+
+    public void setItems(List<Map<String, Object>> items) {
+        this.items = items;
+    }
+
+    public boolean isHasNextPage() {
+        return hasNextPage;
+    }
+
+    public void setHasNextPage(boolean hasNextPage) {
+        this.hasNextPage = hasNextPage;
+    }
+
+    public String getEndCursor() {
+        return endCursor;
+    }
+
+    public void setEndCursor(String endCursor) {
+        this.endCursor = endCursor;
+    }
+}
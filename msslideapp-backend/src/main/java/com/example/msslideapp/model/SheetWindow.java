@@ -0,0 +1,81 @@
+package com.example.msslideapp.model;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A rectangular window of one sheet of a snapshot at some commit: the cells in
+ * rows firstRow..lastRow and columns firstCol..lastCol (inclusive, 0-based), with
+ * the styles they reference. sheetRows, sheetLastRow and sheetLastCol size the
+ * whole sheet for a virtualized grid.
+ */
+public class SheetWindow {
+    private String file;
+    private String ref;
+    private String sheet;
+    private List<String> sheets;
+    private int firstRow;
+    private int lastRow;
+    private int firstCol;
+    private int lastCol;
+    private int sheetRows;
+    private int sheetLastRow;
+    private int sheetLastCol;
+    private List<Cell> cells;
+    private Map<Integer, JsonNode> styles;
+
+    public static class Cell {
+        private int row;
+        private int col;
+        private String value;
+        private Integer styleId;
+
+        public Cell() {
+        }
+
+        public Cell(int row, int col, String value, Integer styleId) {
+            this.row = row;
+            this.col = col;
+            this.value = value;
+            this.styleId = styleId;
+        }
+
+        public int getRow() { return row; }
+        public void setRow(int row) { this.row = row; }
+        public int getCol() { return col; }
+        public void setCol(int col) { this.col = col; }
+        public String getValue() { return value; }
+        public void setValue(String value) { this.value = value; }
+        public Integer getStyleId() { return styleId; }
+        public void setStyleId(Integer styleId) { this.styleId = styleId; }
+    }
+
+    public String getFile() { return file; }
+    public void setFile(String file) { this.file = file; }
+    public String getRef() { return ref; }
+    public void setRef(String ref) { this.ref = ref; }
+    public String getSheet() { return sheet; }
+    public void setSheet(String sheet) { this.sheet = sheet; }
+    public List<String> getSheets() { return sheets; }
+    public void setSheets(List<String> sheets) { this.sheets = sheets; }
+    public int getFirstRow() { return firstRow; }
+    public void setFirstRow(int firstRow) { this.firstRow = firstRow; }
+    public int getLastRow() { return lastRow; }
+    public void setLastRow(int lastRow) { this.lastRow = lastRow; }
+    public int getFirstCol() { return firstCol; }
+    public void setFirstCol(int firstCol) { this.firstCol = firstCol; }
+    public int getLastCol() { return lastCol; }
+    public void setLastCol(int lastCol) { this.lastCol = lastCol; }
+    public int getSheetRows() { return sheetRows; }
+    public void setSheetRows(int sheetRows) { this.sheetRows = sheetRows; }
+    public int getSheetLastRow() { return sheetLastRow; }
+    public void setSheetLastRow(int sheetLastRow) { this.sheetLastRow = sheetLastRow; }
+    public int getSheetLastCol() { return sheetLastCol; }
+    public void setSheetLastCol(int sheetLastCol) { this.sheetLastCol = sheetLastCol; }
+    public List<Cell> getCells() { return cells; }
+    public void setCells(List<Cell> cells) { this.cells = cells; }
+    public Map<Integer, JsonNode> getStyles() { return styles; }
+    public void setStyles(Map<Integer, JsonNode> styles) { this.styles = styles; }
+}
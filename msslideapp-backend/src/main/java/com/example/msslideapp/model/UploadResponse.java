@@ -5,8 +5,11 @@ import java.util.List;
 public class UploadResponse {
     private String id;
     private List<ChangeItem> changes;
+    private List<ValidationViolation> violations;
     public String getId() { return id; }
     public void setId(String id) { this.id = id; }
     public List<ChangeItem> getChanges() { return changes; }
     public void setChanges(List<ChangeItem> changes) { this.changes = changes; }
+    public List<ValidationViolation> getViolations() { return violations; }
+    public void setViolations(List<ValidationViolation> violations) { this.violations = violations; }
 }
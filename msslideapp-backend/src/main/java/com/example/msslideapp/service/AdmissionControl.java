@@ -0,0 +1,343 @@
+package com.example.msslideapp.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Heap-aware admission control for uploads and diffs. Each request's memory
+ * cost is estimated up front (cells for a workbook or a pair of converted
+ * snapshots, characters for a pair of JSON snapshots) and admitted against a
+ * byte budget. Requests that don't fit wait in arrival order, so a large
+ * upload is not starved by a stream of small diffs; once the queue is full or
+ * a wait times out the request is rejected with a Retry-After hint instead of
+ * risking an OutOfMemoryError. A request larger than the whole budget is
+ * admitted alone.
+ */
+@Service
+public class AdmissionControl {
+
+    private static final Logger log = LoggerFactory.getLogger(AdmissionControl.class);
+
+    private static final Pattern DIMENSION = Pattern.compile("<dimension ref=\"([A-Z]+)(\\d+)(?::([A-Z]+)(\\d+))?\"");
+    // the <dimension> element sits at the start of a worksheet part
+    private static final int DIMENSION_SCAN_BYTES = 4096;
+    // sheet XML per cell: ~57 bytes for typical styled cells, never less than ~20 (<c r="A1"><v>1</v></c>)
+    private static final int XML_BYTES_PER_CELL = 50;
+    private static final int MIN_XML_BYTES_PER_CELL = 20;
+
+    @Value("${admission.enabled:true}")
+    private boolean enabled;
+
+    // 0 = heap-fraction of the maximum heap
+    @Value("${admission.budget-mb:0}")
+    private long budgetMb;
+
+    @Value("${admission.heap-fraction:0.5}")
+    private double heapFraction;
+
+    @Value("${admission.max-queued:32}")
+    private int maxQueued;
+
+    @Value("${admission.max-wait-ms:30000}")
+    private long maxWaitMs;
+
+    @Value("${admission.bytes-per-cell:1536}")
+    private long bytesPerCell;
+
+    @Value("${admission.bytes-per-snapshot-char:6}")
+    private long bytesPerSnapshotChar;
+
+    @Value("${admission.bytes-per-snapshot-cell:200}")
+    private long bytesPerSnapshotCell;
+
+    private final PipelineMetrics metrics;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Deque<Waiter> waiters = new ArrayDeque<>();
+    private long budget;
+    private long inUse;
+    private int holders;
+    // moving average of how long a permit is held, for Retry-After
+    private double avgHoldNanos = TimeUnit.SECONDS.toNanos(2);
+
+    public AdmissionControl(PipelineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @PostConstruct
+    void init() {
+        budget = budgetMb > 0 ? budgetMb << 20 : (long) (Runtime.getRuntime().maxMemory() * heapFraction);
+        metrics.admissionGauges(this);
+        log.info("Admission control enabled={} budgetMb={} maxQueued={} maxWaitMs={}", enabled, budget >> 20,
+                maxQueued, maxWaitMs);
+    }
+
+    /** Estimated heap needed to convert (and diff) a saved workbook. */
+    public long estimateWorkbook(File excelFile) {
+        return countCells(excelFile) * bytesPerCell + excelFile.length();
+    }
+
+    /** Estimated heap needed to diff two snapshots of the given sizes. */
+    public long estimateDiff(long oldChars, long newChars) {
+        return (oldChars + newChars) * bytesPerSnapshotChar;
+    }
+
+    /**
+     * Estimated heap needed to diff two converted snapshots with the given cell
+     * counts. Their cells are read off-heap, so this covers what the diff builds:
+     * changes, and the cell maps of the aligned and header-matched modes.
+     */
+    public long estimateSnapshotDiff(long oldCells, long newCells) {
+        return (oldCells + newCells) * bytesPerSnapshotCell;
+    }
+
+    /**
+     * Reserves {@code bytes} of the budget, waiting in line if needed. The
+     * returned permit must be closed once the work's memory is released.
+     *
+     * @throws AdmissionRejectedException when the queue is full or the wait times out
+     */
+    public Permit acquire(String kind, long bytes) throws InterruptedException {
+        if (!enabled)
+            return new Permit(0);
+        long start = System.nanoTime();
+        long cost = Math.max(1, Math.min(bytes, budget));
+        Waiter waiter;
+        lock.lock();
+        try {
+            if (waiters.isEmpty() && inUse + cost <= budget) {
+                grant(cost);
+                metrics.recordAdmission(kind, "admitted", System.nanoTime() - start);
+                return new Permit(cost);
+            }
+            if (waiters.size() >= maxQueued) {
+                metrics.recordAdmission(kind, "rejected", System.nanoTime() - start);
+                throw reject(kind, bytes, "queue full");
+            }
+            waiter = new Waiter(cost, TimeUnit.MILLISECONDS.toNanos(maxWaitMs));
+            waiters.addLast(waiter);
+        } finally {
+            lock.unlock();
+        }
+
+        // diffs wait on diff pool threads; managedBlock lets the pool compensate meanwhile
+        try {
+            ForkJoinPool.managedBlock(waiter);
+        } catch (InterruptedException e) {
+            abandon(waiter);
+            throw e;
+        }
+        lock.lock();
+        try {
+            if (waiter.admitted) {
+                metrics.recordAdmission(kind, "queued", System.nanoTime() - start);
+                return new Permit(cost);
+            }
+            waiters.remove(waiter);
+            admitWaiters();
+            metrics.recordAdmission(kind, "rejected", System.nanoTime() - start);
+            throw reject(kind, bytes, "timed out");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long bytesInUse() {
+        lock.lock();
+        try {
+            return inUse;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int queued() {
+        lock.lock();
+        try {
+            return waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long budget() {
+        return budget;
+    }
+
+    private void grant(long cost) {
+        inUse += cost;
+        holders++;
+    }
+
+    /** Admits waiters from the head of the queue for as long as they fit. */
+    private void admitWaiters() {
+        Waiter head;
+        while ((head = waiters.peekFirst()) != null && inUse + head.cost <= budget) {
+            waiters.pollFirst();
+            grant(head.cost);
+            head.admitted = true;
+            head.signal.signal();
+        }
+    }
+
+    private void abandon(Waiter waiter) {
+        lock.lock();
+        try {
+            if (waiter.admitted) {
+                release(waiter.cost, 0);
+            } else {
+                waiters.remove(waiter);
+                admitWaiters();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(long cost, long heldNanos) {
+        lock.lock();
+        try {
+            inUse -= cost;
+            holders--;
+            if (heldNanos > 0)
+                avgHoldNanos = 0.8 * avgHoldNanos + 0.2 * heldNanos;
+            admitWaiters();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private AdmissionRejectedException reject(String kind, long bytes, String reason) {
+        // time for the work ahead of a retry to drain: queued requests spread over the current holders
+        double drainNanos = avgHoldNanos * (waiters.size() + 1) / Math.max(1, holders);
+        long retryAfter = Math.max(1, Math.min(120, (long) Math.ceil(drainNanos / 1e9)));
+        log.warn("Admission rejected kind={} reason={} costMb={} inUseMb={} queued={} retryAfter={}s", kind, reason,
+                bytes >> 20, inUse >> 20, waiters.size(), retryAfter);
+        return new AdmissionRejectedException("Server is busy (" + reason + "), retry in " + retryAfter + "s",
+                retryAfter);
+    }
+
+    /**
+     * Cells in a workbook from each worksheet's {@code <dimension>}, read from the
+     * first bytes of the part without parsing it. Sheets without one, and
+     * dimensions larger than the part could hold, are sized from the XML length.
+     */
+    long countCells(File excelFile) {
+        try (ZipFile zip = new ZipFile(excelFile)) {
+            long cells = 0;
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                String name = entry.getName();
+                if (!name.startsWith("xl/worksheets/") || !name.endsWith(".xml"))
+                    continue;
+                long declared = declaredCells(zip, entry);
+                long size = entry.getSize();
+                if (size > 0) {
+                    long upper = size / MIN_XML_BYTES_PER_CELL;
+                    cells += declared >= 0 ? Math.min(declared, upper) : size / XML_BYTES_PER_CELL;
+                } else {
+                    cells += Math.max(0, declared);
+                }
+            }
+            return cells;
+        } catch (IOException e) {
+            // not a zip; let the converter report it, sized as if it were all sheet XML
+            log.debug("Admission estimate failed file={}: {}", excelFile.getName(), e.getMessage());
+            return excelFile.length() / XML_BYTES_PER_CELL;
+        }
+    }
+
+    private static long declaredCells(ZipFile zip, ZipEntry entry) throws IOException {
+        byte[] head = new byte[DIMENSION_SCAN_BYTES];
+        int n = 0;
+        try (InputStream in = zip.getInputStream(entry)) {
+            int r;
+            while (n < head.length && (r = in.read(head, n, head.length - n)) > 0)
+                n += r;
+        }
+        Matcher m = DIMENSION.matcher(new String(head, 0, n, StandardCharsets.US_ASCII));
+        if (!m.find())
+            return -1;
+        if (m.group(3) == null)
+            return 1;
+        long rows = Long.parseLong(m.group(4)) - Long.parseLong(m.group(2)) + 1;
+        long cols = column(m.group(3)) - column(m.group(1)) + 1;
+        return Math.max(1, rows) * Math.max(1, cols);
+    }
+
+    private static long column(String letters) {
+        long col = 0;
+        for (int i = 0; i < letters.length(); i++)
+            col = col * 26 + (letters.charAt(i) - 'A' + 1);
+        return col;
+    }
+
+    /** A queued request; blocks until admitted or its wait runs out. */
+    private final class Waiter implements ForkJoinPool.ManagedBlocker {
+        final long cost;
+        final Condition signal = lock.newCondition();
+        volatile boolean admitted;
+        volatile long remainingNanos;
+
+        Waiter(long cost, long waitNanos) {
+            this.cost = cost;
+            this.remainingNanos = waitNanos;
+        }
+
+        @Override
+        public boolean block() throws InterruptedException {
+            lock.lock();
+            try {
+                while (!admitted && remainingNanos > 0)
+                    remainingNanos = signal.awaitNanos(remainingNanos);
+            } finally {
+                lock.unlock();
+            }
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            return admitted || remainingNanos <= 0;
+        }
+    }
+
+    /** Reserved budget; closing it returns the bytes and admits whoever is next. */
+    public final class Permit implements AutoCloseable {
+        private final long cost;
+        private final long start = System.nanoTime();
+        private boolean closed;
+
+        private Permit(long cost) {
+            this.cost = cost;
+        }
+
+        @Override
+        public void close() {
+            if (closed || cost == 0)
+                return;
+            closed = true;
+            release(cost, System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.msslideapp.service;
+
+/**
+ * Thrown when {@link AdmissionControl} turns work away because the memory
+ * budget is exhausted and the wait queue is full or the wait timed out.
+ * Answered with 429 Too Many Requests and a Retry-After header.
+ */
+public class AdmissionRejectedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public AdmissionRejectedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
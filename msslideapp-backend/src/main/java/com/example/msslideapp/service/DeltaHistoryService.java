@@ -0,0 +1,193 @@
+package com.example.msslideapp.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Delta history: with history.delta.enabled an upload commits {@code <name>.patch},
+ * the cell changes against the version it replaces ({@link SnapshotPatch}),
+ * instead of rewriting the full {@code <name>.json}. The JSON file stays the
+ * checkpoint; a new one is committed every history.delta.checkpoint-interval
+ * patches, or when a patch would outgrow history.delta.max-patch-ratio of the
+ * snapshot. Commit payloads and PR diffs are then proportional to the change.
+ * <p>
+ * A version is rebuilt by replaying its patch chain onto the checkpoint. Each
+ * rebuilt version is kept in the {@link SnapshotStore} under its patch's blob
+ * SHA, so usually only the newest patch is applied. A patch whose checkpoint is
+ * no longer the JSON file beside it (a later checkpoint, or an upload without
+ * delta history) is ignored.
+ */
+@Service
+public class DeltaHistoryService {
+
+    private static final Logger log = LoggerFactory.getLogger(DeltaHistoryService.class);
+
+    static final String PATCH_SUFFIX = ".patch";
+    // store keys of rebuilt versions; the patch's own blob is never stored as a snapshot
+    private static final String VERSION_PREFIX = "v-";
+
+    @Value("${history.delta.enabled:false}")
+    private boolean enabled;
+
+    @Value("${history.delta.checkpoint-interval:20}")
+    private int checkpointInterval;
+
+    @Value("${history.delta.max-patch-ratio:0.25}")
+    private double maxPatchRatio;
+
+    private final GitHubService gitHubService;
+    private final SnapshotStore snapshots;
+
+    public DeltaHistoryService(GitHubService gitHubService, SnapshotStore snapshots) {
+        this.gitHubService = gitHubService;
+        this.snapshots = snapshots;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public static boolean isPatchPath(String path) {
+        return path.endsWith(PATCH_SUFFIX);
+    }
+
+    /** The checkpoint ({@code .json}) path of a workbook, from either of its paths. */
+    public static String snapshotPath(String path) {
+        return isPatchPath(path) ? path.substring(0, path.length() - PATCH_SUFFIX.length()) + ".json" : path;
+    }
+
+    public static String patchPath(String snapshotPath) {
+        return snapshotPath.replaceAll("\\.json$", "") + PATCH_SUFFIX;
+    }
+
+    /** A version of a workbook: its checkpoint blob, and the patch on top of it if any. */
+    public static final class Version {
+        private final String checkpointSha;
+        private final String patchSha;
+        private final SnapshotPatch patch;
+
+        Version(String checkpointSha, String patchSha, SnapshotPatch patch) {
+            this.checkpointSha = checkpointSha;
+            this.patchSha = patchSha;
+            this.patch = patch;
+        }
+
+        /** Identifies the version: the patch's blob SHA, or the checkpoint's without one. */
+        public String getKey() {
+            return patchSha != null ? patchSha : checkpointSha;
+        }
+
+        public String getCheckpointSha() {
+            return checkpointSha;
+        }
+
+        /** The patch producing this version, or null for a checkpoint. */
+        public SnapshotPatch getPatch() {
+            return patch;
+        }
+    }
+
+    /** What an upload commits for one workbook. */
+    public static final class Commit {
+        private final String path;
+        private final String content;
+        private final SnapshotPatch patch;
+
+        Commit(String path, String content, SnapshotPatch patch) {
+            this.path = path;
+            this.content = content;
+            this.patch = patch;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public String getContent() {
+            return content;
+        }
+
+        /** The committed patch, or null when the full snapshot is committed. */
+        public SnapshotPatch getPatch() {
+            return patch;
+        }
+    }
+
+    /** The version of {@code snapshotPath} at {@code ref}, or null if the workbook doesn't exist there. */
+    public Version versionAt(String snapshotPath, String ref) throws Exception {
+        Map<String, String> tree = gitHubService.getTreeBlobs(ref);
+        String checkpointSha = tree.get(snapshotPath);
+        if (checkpointSha == null)
+            return null;
+        String patchSha = tree.get(patchPath(snapshotPath));
+        if (patchSha != null) {
+            SnapshotPatch patch = patch(patchSha);
+            if (patch != null && checkpointSha.equals(patch.getCheckpoint()))
+                return new Version(checkpointSha, patchSha, patch);
+        }
+        return new Version(checkpointSha, null, null);
+    }
+
+    /** The snapshot of a version, rebuilding it from its patch chain if it isn't stored yet. */
+    public MappedSnapshot snapshot(Version version) throws Exception {
+        if (version.patch == null)
+            return snapshots.get(version.checkpointSha, () -> gitHubService.getBlobContent(version.checkpointSha));
+        return rebuild(version.patchSha, version.patch);
+    }
+
+    private MappedSnapshot rebuild(String patchSha, SnapshotPatch known) throws Exception {
+        return snapshots.get(VERSION_PREFIX + patchSha, () -> {
+            SnapshotPatch patch = known != null ? known : patch(patchSha);
+            if (patch == null)
+                return null;
+            MappedSnapshot parent = patch.getParent().equals(patch.getCheckpoint())
+                    ? snapshots.get(patch.getCheckpoint(), () -> gitHubService.getBlobContent(patch.getCheckpoint()))
+                    : rebuild(patch.getParent(), null);
+            if (parent == null) {
+                log.warn("Cannot rebuild version patch={}: parent={} is missing", patchSha, patch.getParent());
+                return null;
+            }
+            log.debug("Rebuilding version patch={} seq={} changes={}", patchSha, patch.getSeq(), patch.changeCount());
+            return patch.applyTo(parent);
+        });
+    }
+
+    private SnapshotPatch patch(String patchSha) throws Exception {
+        String json = gitHubService.getBlobContent(patchSha);
+        return json == null ? null : SnapshotPatch.parse(json);
+    }
+
+    /**
+     * What to commit for a new snapshot replacing {@code previous}: a patch, or the
+     * full snapshot when delta history is off, there's nothing to patch against,
+     * the chain is due a checkpoint or the patch would be too large. A patch's new
+     * version is stored right away, so viewing the PR doesn't rebuild it.
+     */
+    public Commit prepare(String snapshotPath, String json, MappedSnapshot snapshot, Version previous,
+            MappedSnapshot previousSnapshot) throws Exception {
+        Commit full = new Commit(snapshotPath, json, null);
+        if (!enabled || previous == null || previousSnapshot == null || snapshot == null)
+            return full;
+        int seq = previous.patch != null ? previous.patch.getSeq() + 1 : 1;
+        if (seq > checkpointInterval) {
+            log.debug("Checkpointing file={} after patches={}", snapshotPath, seq - 1);
+            return full;
+        }
+        SnapshotPatch patch = SnapshotPatch.between(previousSnapshot, snapshot, previous.checkpointSha,
+                previous.getKey(), seq);
+        String patchJson = patch.toJson();
+        if (patchJson.length() > json.length() * maxPatchRatio) {
+            log.debug("Checkpointing file={} patchChars={} jsonChars={}", snapshotPath, patchJson.length(),
+                    json.length());
+            return full;
+        }
+        String patchSha = SnapshotStore.blobSha(patchJson.getBytes(StandardCharsets.UTF_8));
+        snapshots.get(VERSION_PREFIX + patchSha, () -> json);
+        return new Commit(patchPath(snapshotPath), patchJson, patch);
+    }
+}
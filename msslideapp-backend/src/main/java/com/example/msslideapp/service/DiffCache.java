@@ -0,0 +1,135 @@
+package com.example.msslideapp.service;
+
+import com.example.msslideapp.model.ChangeItem;
+import com.example.msslideapp.model.DiffOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Computed change lists for PRs and commits, least recently used first.
+ *
+ * Each entry carries a version (a PR's head and base SHAs; commits never change),
+ * so a moved PR is recomputed rather than served stale. A computation in progress
+ * is shared: a request for a PR that is being warmed waits for that result
+ * instead of starting its own.
+ */
+@Service
+public class DiffCache {
+
+    @Value("${diff.cache.max-entries:256}")
+    private int maxEntries;
+
+    private static final class Entry {
+        final String version;
+        final CompletableFuture<List<ChangeItem>> changes;
+
+        Entry(String version, CompletableFuture<List<ChangeItem>> changes) {
+            this.version = version;
+            this.changes = changes;
+        }
+    }
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(64, 0.75f, true);
+
+    public static String prKey(int prNumber, DiffOptions options) {
+        return prPrefix(prNumber) + optionsKey(options);
+    }
+
+    /** Prefix shared by every option variant of a PR's entry, for {@link #invalidate}. */
+    public static String prPrefix(int prNumber) {
+        return "pr:" + prNumber + ":";
+    }
+
+    public static String commitKey(String sha, DiffOptions options) {
+        return "commit:" + sha + ":" + optionsKey(options);
+    }
+
+    // no options and options left unset both mean "configured defaults", and share one key
+    private static String optionsKey(DiffOptions o) {
+        if (o == null)
+            o = new DiffOptions();
+        return o.getAlignRows() + "," + o.getRowKeyColumn() + "," + o.getMatchColumnsByHeader() + ","
+                + o.getHeaderRow();
+    }
+
+    /**
+     * Returns the cached changes for {@code key} at {@code version}, computing them
+     * with {@code loader} on a miss. Failed computations are not cached.
+     */
+    public List<ChangeItem> get(String key, String version, Callable<List<ChangeItem>> loader) throws Exception {
+        CompletableFuture<List<ChangeItem>> future = getAsync(key, version, () -> {
+            try {
+                return CompletableFuture.completedFuture(loader.call());
+            } catch (Exception e) {
+                CompletableFuture<List<ChangeItem>> failed = new CompletableFuture<List<ChangeItem>>();
+                failed.completeExceptionally(e);
+                return failed;
+            }
+        });
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    /**
+     * {@link #get} for loaders that complete asynchronously: returns the cached or
+     * in-flight result, starting {@code loader} on a miss without waiting for it.
+     */
+    public CompletableFuture<List<ChangeItem>> getAsync(String key, String version,
+            Supplier<CompletableFuture<List<ChangeItem>>> loader) {
+        final CompletableFuture<List<ChangeItem>> future;
+        final Entry entry;
+        synchronized (entries) {
+            Entry cached = entries.get(key);
+            if (cached != null && cached.version.equals(version)) {
+                return cached.changes;
+            }
+            future = new CompletableFuture<List<ChangeItem>>();
+            entry = new Entry(version, future);
+            entries.put(key, entry);
+            evict();
+        }
+
+        CompletableFuture<List<ChangeItem>> loading;
+        try {
+            loading = loader.get();
+        } catch (RuntimeException e) {
+            loading = new CompletableFuture<List<ChangeItem>>();
+            loading.completeExceptionally(e);
+        }
+        loading.whenComplete((changes, e) -> {
+            if (e == null) {
+                future.complete(Collections.unmodifiableList(new ArrayList<ChangeItem>(changes)));
+                return;
+            }
+            synchronized (entries) {
+                entries.remove(key, entry);
+            }
+            future.completeExceptionally(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+        });
+        return future;
+    }
+
+    /** Drops every entry whose key starts with {@code prefix}. */
+    public void invalidate(String prefix) {
+        synchronized (entries) {
+            entries.keySet().removeIf(k -> k.startsWith(prefix));
+        }
+    }
+
+    private void evict() {
+        Iterator<String> eldest = entries.keySet().iterator();
+        while (entries.size() > Math.max(1, maxEntries) && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.msslideapp.service;
+
+import com.example.msslideapp.config.CorrelationId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Precomputes PR diffs into the DiffCache so an approver's first view is as fast
+ * as later ones. Runs when a PR is opened and on a periodic sweep of open PRs;
+ * each PR is queued at most once, and a warming task holds off while
+ * interactive diff requests are in flight. Its diffs run on the warming pool,
+ * never on the diff pool interactive requests use.
+ */
+@Service
+public class DiffWarmer {
+
+    private static final Logger log = LoggerFactory.getLogger(DiffWarmer.class);
+
+    @Value("${diff.warm.enabled:true}")
+    private boolean enabled;
+
+    @Value("${diff.warm.yield-to-interactive:true}")
+    private boolean yieldToInteractive;
+
+    // longest a warming task waits for interactive requests to drain before running anyway
+    @Value("${diff.warm.max-yield-ms:30000}")
+    private long maxYieldMs;
+
+    private final ExcelService excelService;
+    private final GitHubService gitHubService;
+    private final ExecutorService executor;
+    private final Set<Integer> queued = ConcurrentHashMap.newKeySet();
+
+    public DiffWarmer(ExcelService excelService, GitHubService gitHubService,
+            @Qualifier("diffWarmingExecutor") ExecutorService executor) {
+        this.excelService = excelService;
+        this.gitHubService = gitHubService;
+        this.executor = executor;
+    }
+
+    @EventListener
+    public void onPullRequestOpened(PullRequestOpenedEvent event) {
+        warm(event.getPrNumber());
+    }
+
+    @Scheduled(initialDelayString = "${diff.warm.initial-delay-ms:60000}",
+            fixedDelayString = "${diff.warm.sweep-interval-ms:300000}")
+    public void sweepOpenPullRequests() {
+        if (!enabled)
+            return;
+        MDC.put(CorrelationId.MDC_KEY, "sweep-" + CorrelationId.newId());
+        try {
+            List<Map<String, Object>> prs = gitHubService.getPullRequests("open");
+            for (Map<String, Object> pr : prs) {
+                warm((Integer) pr.get("number"));
+            }
+        } catch (Exception e) {
+            log.warn("Diff warming sweep failed: {}", e.getMessage());
+        } finally {
+            MDC.remove(CorrelationId.MDC_KEY);
+        }
+    }
+
+    /** Queues a PR for precomputation unless it is already queued. */
+    public void warm(final int prNumber) {
+        if (!enabled || !queued.add(prNumber))
+            return;
+        executor.submit(() -> {
+            try {
+                awaitIdle();
+                long start = System.currentTimeMillis();
+                excelService.warmPRChanges(prNumber);
+                log.info("Warmed diff pr={} ms={}", prNumber, System.currentTimeMillis() - start);
+            } catch (Exception e) {
+                log.warn("Diff warming failed pr={}: {}", prNumber, e.getMessage());
+            } finally {
+                queued.remove(prNumber);
+            }
+        });
+    }
+
+    private void awaitIdle() throws InterruptedException {
+        if (yieldToInteractive && !excelService.awaitNoInteractiveRequests(maxYieldMs))
+            log.debug("Interactive diffs still running after {} ms, warming anyway", maxYieldMs);
+    }
+}
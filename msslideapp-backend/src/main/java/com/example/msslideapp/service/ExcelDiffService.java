@@ -0,0 +1,938 @@
+package com.example.msslideapp.service;
+
+import com.example.msslideapp.jfr.DiffEvent;
+import com.example.msslideapp.jfr.SheetDiffEvent;
+import com.example.msslideapp.model.ChangeItem;
+import com.example.msslideapp.model.DiffOptions;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+@Service
+public class ExcelDiffService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExcelDiffService.class);
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Value("${diff.align-rows:false}")
+    private boolean alignRows;
+
+    @Value("${diff.row-key-column:-1}")
+    private int rowKeyColumn;
+
+    @Value("${diff.match-columns-by-header:false}")
+    private boolean matchColumnsByHeader;
+
+    @Value("${diff.header-row:0}")
+    private int headerRow;
+
+    @Value("${diff.parallel-block-size:4096}")
+    private int blockSize;
+
+    private final ForkJoinPool pool;
+    private final PipelineMetrics metrics;
+
+    public ExcelDiffService(@Qualifier("diffPool") ForkJoinPool pool, PipelineMetrics metrics) {
+        this.pool = pool;
+        this.metrics = metrics;
+    }
+
+    public List<ChangeItem> diffJson(String oldJson, String newJson) throws Exception {
+        return diffJson(oldJson, newJson, null);
+    }
+
+    public List<ChangeItem> diffJson(String oldJson, String newJson, DiffOptions options) throws Exception {
+        return diffJson(oldJson, newJson, options, null);
+    }
+
+    /**
+     * === Diff logic: detect added/deleted/value/style changes ===
+     * {@code fileName} only labels the diff in flight recordings and may be null.
+     */
+    public List<ChangeItem> diffJson(String oldJson, String newJson, DiffOptions options, String fileName)
+            throws Exception {
+        List<ChangeItem> diffs = metrics.time("diff", () -> {
+            if (newJson == null || newJson.trim().isEmpty())
+                return new ArrayList<ChangeItem>();
+            MappedSnapshot newSnapshot = MappedSnapshot.parse(newJson);
+            MappedSnapshot oldSnapshot = (oldJson == null || oldJson.trim().isEmpty()) ? null
+                    : MappedSnapshot.parse(oldJson);
+            return diff(oldSnapshot, newSnapshot, options, fileName, pool);
+        });
+        metrics.recordChanges("diff", diffs.size());
+        return diffs;
+    }
+
+    /**
+     * Diffs two converted snapshots, typically mapped from the {@link SnapshotStore}.
+     * Cells are read straight from the snapshots; {@code oldSnapshot} may be null
+     * when the file is new.
+     */
+    public List<ChangeItem> diffSnapshots(MappedSnapshot oldSnapshot, MappedSnapshot newSnapshot,
+            DiffOptions options, String fileName) throws Exception {
+        return diffSnapshots(oldSnapshot, newSnapshot, options, fileName, pool);
+    }
+
+    /** {@link #diffSnapshots} with its sheets diffed on {@code sheetPool} instead of the diff pool. */
+    public List<ChangeItem> diffSnapshots(MappedSnapshot oldSnapshot, MappedSnapshot newSnapshot,
+            DiffOptions options, String fileName, ForkJoinPool sheetPool) throws Exception {
+        List<ChangeItem> diffs = metrics.time("diff",
+                () -> diff(oldSnapshot, newSnapshot, options, fileName, sheetPool));
+        metrics.recordChanges("diff", diffs.size());
+        return diffs;
+    }
+
+    /** Whether {@code options} diff cells by position, the mode {@link #diffPatch} supports. */
+    public boolean isPositional(DiffOptions options) {
+        DiffOptions opts = resolve(options);
+        return !opts.getAlignRows() && !opts.getMatchColumnsByHeader();
+    }
+
+    /**
+     * The position-based diff of a patch's parent and the version it produces,
+     * read from the patch alone: the same changes as {@link #diffSnapshots} on the
+     * two versions, in the same order.
+     */
+    public List<ChangeItem> diffPatch(SnapshotPatch patch, String fileName) throws Exception {
+        List<ChangeItem> diffs = metrics.time("diff", () -> {
+            StyleContext styles = new StyleContext(patch.getStyles());
+            List<String> sheets = new ArrayList<String>(patch.getSheets());
+            sheets.addAll(patch.getRemovedSheets());
+            List<ChangeItem> out = new ArrayList<ChangeItem>();
+            for (String sheet : sheets) {
+                for (SnapshotPatch.Change c : patch.changes(sheet)) {
+                    Cell oldCell = c.oldValue == null ? null : new Cell(c.oldValue, styles.patchStyle(c.oldStyle));
+                    Cell newCell = c.newValue == null ? null : new Cell(c.newValue, styles.patchStyle(c.newStyle));
+                    ChangeItem item = diffCell(sheet, c.row, c.col, oldCell, newCell);
+                    if (item != null)
+                        out.add(item);
+                }
+            }
+            log.debug("Diffed patch file={} seq={} changes={}", fileName, patch.getSeq(), out.size());
+            return out;
+        });
+        metrics.recordChanges("diff", diffs.size());
+        return diffs;
+    }
+
+    private List<ChangeItem> diff(MappedSnapshot oldSnapshot, MappedSnapshot newSnapshot, DiffOptions options,
+            final String fileName, ForkJoinPool sheetPool) throws Exception {
+        List<ChangeItem> diffs = new ArrayList<ChangeItem>();
+        DiffEvent event = new DiffEvent();
+        event.begin();
+
+        if (newSnapshot == null)
+            return diffs;
+
+        DiffOptions opts = resolve(options);
+
+        Map<String, Integer> oldSheets = sheetIndexes(oldSnapshot);
+        Map<String, Integer> newSheets = sheetIndexes(newSnapshot);
+        final StyleContext styles = new StyleContext(oldSnapshot, newSnapshot);
+
+        // new workbook order first, then sheets that only exist in the old one
+        Set<String> allSheets = new LinkedHashSet<String>();
+        allSheets.addAll(newSheets.keySet());
+        allSheets.addAll(oldSheets.keySet());
+
+        long cells = 0;
+        for (Integer sheet : newSheets.values())
+            cells += newSnapshot.cellCount(sheet);
+        metrics.recordCells("diff", cells);
+
+        log.debug("Comparing sheets={} cells={}", allSheets.size(), cells);
+
+        // one task per sheet; joined in submission order so the output order is stable
+        List<ForkJoinTask<List<ChangeItem>>> tasks = new ArrayList<ForkJoinTask<List<ChangeItem>>>();
+        for (final String sheet : allSheets) {
+            final SheetSide oldSide = new SheetSide(oldSnapshot, oldSheets.get(sheet), styles.oldTable, styles.empty);
+            final SheetSide newSide = new SheetSide(newSnapshot, newSheets.get(sheet), styles.newTable, styles.empty);
+            final DiffOptions sheetOpts = opts;
+            tasks.add(sheetPool.submit(new RecursiveTask<List<ChangeItem>>() {
+                @Override
+                protected List<ChangeItem> compute() {
+                    SheetDiffEvent sheetEvent = new SheetDiffEvent();
+                    sheetEvent.begin();
+                    List<ChangeItem> sheetDiffs = diffSheet(sheet, oldSide, newSide, sheetOpts, styles);
+                    sheetEvent.end();
+                    if (sheetEvent.shouldCommit()) {
+                        sheetEvent.fileName = fileName;
+                        sheetEvent.sheet = sheet;
+                        sheetEvent.cells = newSide.cellCount();
+                        sheetEvent.changes = sheetDiffs.size();
+                        sheetEvent.commit();
+                    }
+                    return sheetDiffs;
+                }
+            }));
+        }
+        for (ForkJoinTask<List<ChangeItem>> task : tasks) {
+            diffs.addAll(task.join());
+        }
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.fileName = fileName;
+            event.sheets = allSheets.size();
+            event.cells = cells;
+            event.changes = diffs.size();
+            event.commit();
+        }
+        return diffs;
+    }
+
+    private List<ChangeItem> diffSheet(final String sheet, SheetSide oldSide, SheetSide newSide, DiffOptions opts,
+            final StyleContext styles) {
+        boolean byHeader = opts.getMatchColumnsByHeader() && !oldSide.isEmpty() && !newSide.isEmpty();
+        if (!byHeader && !opts.getAlignRows())
+            return diffSheetByPosition(sheet, oldSide, newSide);
+
+        // header matching and row alignment work on cell maps, built only for this sheet
+        List<ChangeItem> diffs = new ArrayList<ChangeItem>();
+        Map<String, Cell> oldCells = oldSide.cells();
+        Map<String, Cell> newCells = newSide.cells();
+
+        if (byHeader) {
+            Map<String, Cell> matchedOld = new HashMap<String, Cell>();
+            Map<String, Cell> matchedNew = new HashMap<String, Cell>();
+            diffColumnsByHeader(sheet, oldCells, newCells, opts.getHeaderRow(), matchedOld, matchedNew, diffs);
+            oldCells = matchedOld;
+            newCells = matchedNew;
+        }
+
+        if (opts.getAlignRows()) {
+            diffSheetAligned(sheet, oldCells, newCells, opts.getRowKeyColumn(), diffs);
+            return diffs;
+        }
+
+        Set<String> allKeys = new HashSet<String>();
+        allKeys.addAll(oldCells.keySet());
+        allKeys.addAll(newCells.keySet());
+
+        final String[] keys = allKeys.toArray(new String[0]);
+        Arrays.sort(keys, new Comparator<String>() {
+            @Override
+            public int compare(String a, String b) {
+                int byRow = Integer.compare(keyRow(a), keyRow(b));
+                return byRow != 0 ? byRow : Integer.compare(keyCol(a), keyCol(b));
+            }
+        });
+
+        final Map<String, Cell> oldMap = oldCells;
+        final Map<String, Cell> newMap = newCells;
+        diffs.addAll(new BlockTask(0, keys.length, blockSize, new BlockDiff() {
+            @Override
+            public void diff(int from, int to, List<ChangeItem> out) {
+                for (int k = from; k < to; k++) {
+                    String key = keys[k];
+                    ChangeItem item = diffCell(sheet, keyRow(key), keyCol(key), oldMap.get(key), newMap.get(key));
+                    if (item != null)
+                        out.add(item);
+                }
+            }
+        }).invoke());
+        return diffs;
+    }
+
+    /**
+     * Index-based diff that walks both sheets' sorted rows and cells side by side.
+     * Unchanged cells, usually nearly all of them, are recognised by their raw value
+     * bytes and style ids; only changed cells are decoded.
+     */
+    private List<ChangeItem> diffSheetByPosition(final String sheet, final SheetSide oldSide,
+            final SheetSide newSide) {
+        // union of the non-empty rows, with each row's index on either side (-1 where it has no cells)
+        int oldRowCount = oldSide.rowCount();
+        int newRowCount = newSide.rowCount();
+        final int[] rows = new int[oldRowCount + newRowCount];
+        final int[] oldRows = new int[rows.length];
+        final int[] newRows = new int[rows.length];
+        int n = 0;
+        for (int i = 0, j = 0; i < oldRowCount || j < newRowCount; n++) {
+            int oldRow = i < oldRowCount ? oldSide.rowAt(i) : Integer.MAX_VALUE;
+            int newRow = j < newRowCount ? newSide.rowAt(j) : Integer.MAX_VALUE;
+            rows[n] = Math.min(oldRow, newRow);
+            oldRows[n] = oldRow == rows[n] ? i++ : -1;
+            newRows[n] = newRow == rows[n] ? j++ : -1;
+        }
+
+        // blocks of rows holding about blockSize cells
+        long cells = (long) oldSide.cellCount() + newSide.cellCount();
+        int rowsPerBlock = (int) Math.max(1, (long) Math.max(1, blockSize) * n / Math.max(1, cells));
+        return new BlockTask(0, n, rowsPerBlock, new BlockDiff() {
+            @Override
+            public void diff(int from, int to, List<ChangeItem> out) {
+                for (int k = from; k < to; k++)
+                    diffRowByPosition(sheet, rows[k], oldSide, oldRows[k], newSide, newRows[k], out);
+            }
+        }).invoke();
+    }
+
+    private void diffRowByPosition(String sheet, int row, SheetSide oldSide, int oldRow, SheetSide newSide,
+            int newRow, List<ChangeItem> out) {
+        int a = oldRow < 0 ? 0 : oldSide.rowFirstCell(oldRow);
+        int aEnd = oldRow < 0 ? 0 : a + oldSide.rowCellCount(oldRow);
+        int b = newRow < 0 ? 0 : newSide.rowFirstCell(newRow);
+        int bEnd = newRow < 0 ? 0 : b + newSide.rowCellCount(newRow);
+        while (a < aEnd || b < bEnd) {
+            int oldCol = a < aEnd ? oldSide.col(a) : Integer.MAX_VALUE;
+            int newCol = b < bEnd ? newSide.col(b) : Integer.MAX_VALUE;
+            ChangeItem item;
+            if (oldCol == newCol) {
+                boolean unchanged = oldSide.style(a) == newSide.style(b) && oldSide.sameValue(a, newSide, b);
+                item = unchanged ? null : diffCell(sheet, row, newCol, oldSide.cell(a), newSide.cell(b));
+                a++;
+                b++;
+            } else if (oldCol < newCol) {
+                item = diffCell(sheet, row, oldCol, oldSide.cell(a++), null);
+            } else {
+                item = diffCell(sheet, row, newCol, null, newSide.cell(b++));
+            }
+            if (item != null)
+                out.add(item);
+        }
+    }
+
+    /** Diffs the index range [from, to) of some per-sheet work list. */
+    private interface BlockDiff {
+        void diff(int from, int to, List<ChangeItem> out);
+    }
+
+    /**
+     * Splits a large sheet into blocks of {@code grain} entries. Halves are
+     * concatenated left-to-right, so the result matches a sequential run.
+     */
+    private static class BlockTask extends RecursiveTask<List<ChangeItem>> {
+        private final int from;
+        private final int to;
+        private final int grain;
+        private final BlockDiff work;
+
+        BlockTask(int from, int to, int grain, BlockDiff work) {
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+            this.work = work;
+        }
+
+        @Override
+        protected List<ChangeItem> compute() {
+            if (to - from <= Math.max(1, grain)) {
+                List<ChangeItem> out = new ArrayList<ChangeItem>();
+                work.diff(from, to, out);
+                return out;
+            }
+            int mid = (from + to) >>> 1;
+            BlockTask left = new BlockTask(from, mid, grain, work);
+            BlockTask right = new BlockTask(mid, to, grain, work);
+            left.fork();
+            List<ChangeItem> result = right.compute();
+            List<ChangeItem> merged = left.join();
+            merged.addAll(result);
+            return merged;
+        }
+    }
+
+    private DiffOptions resolve(DiffOptions requested) {
+        DiffOptions opts = new DiffOptions();
+        opts.setAlignRows(requested != null && requested.getAlignRows() != null
+                ? requested.getAlignRows() : alignRows);
+        opts.setRowKeyColumn(requested != null && requested.getRowKeyColumn() != null
+                ? requested.getRowKeyColumn() : rowKeyColumn);
+        opts.setMatchColumnsByHeader(requested != null && requested.getMatchColumnsByHeader() != null
+                ? requested.getMatchColumnsByHeader() : matchColumnsByHeader);
+        opts.setHeaderRow(requested != null && requested.getHeaderRow() != null
+                ? requested.getHeaderRow() : headerRow);
+        return opts;
+    }
+
+    /**
+     * Matches columns by their header-row text instead of by index. Inserted,
+     * deleted and reordered columns are reported once as COLUMN_INSERTED,
+     * COLUMN_DELETED or COLUMN_MOVED; the cells of matched columns are copied into
+     * {@code matchedOld}/{@code matchedNew} under the new column index so the
+     * cell-level diff no longer sees the shift.
+     */
+    private void diffColumnsByHeader(String sheet, Map<String, Cell> oldCells, Map<String, Cell> newCells,
+            int headerRow, Map<String, Cell> matchedOld, Map<String, Cell> matchedNew,
+            List<ChangeItem> diffs) {
+        TreeMap<Integer, String> oldHeaders = headerColumns(oldCells, headerRow);
+        TreeMap<Integer, String> newHeaders = headerColumns(newCells, headerRow);
+
+        List<Integer> oldCols = new ArrayList<Integer>(oldHeaders.keySet());
+        List<Integer> newCols = new ArrayList<Integer>(newHeaders.keySet());
+
+        List<String> oldKeys = new ArrayList<String>(oldHeaders.values());
+        List<String> newKeys = new ArrayList<String>(newHeaders.values());
+        for (int k = 0; k < oldKeys.size(); k++)
+            oldKeys.set(k, oldKeys.get(k).isEmpty() ? null : oldKeys.get(k));
+        for (int k = 0; k < newKeys.size(); k++)
+            newKeys.set(k, newKeys.get(k).isEmpty() ? null : newKeys.get(k));
+
+        // renamed or blank headers left between matched columns are paired by position
+        SequenceAligner.Alignment alignment = SequenceAligner.align(oldKeys, newKeys, true);
+
+        Map<Integer, Integer> oldToNewCol = new HashMap<Integer, Integer>();
+        for (int i = 0; i < oldCols.size(); i++) {
+            int oldCol = oldCols.get(i);
+            int j = alignment.newIndexOf(i);
+            if (j == SequenceAligner.UNMATCHED) {
+                diffs.add(columnChange(sheet, "COLUMN_DELETED", headerRow, oldCol, oldCol, -1,
+                        oldHeaders.get(oldCol), ""));
+                continue;
+            }
+            int newCol = newCols.get(j);
+            oldToNewCol.put(oldCol, newCol);
+            if (alignment.isMoved(i)) {
+                diffs.add(columnChange(sheet, "COLUMN_MOVED", headerRow, newCol, oldCol, newCol,
+                        oldHeaders.get(oldCol), newHeaders.get(newCol)));
+            }
+        }
+        for (int j = 0; j < newCols.size(); j++) {
+            if (alignment.oldIndexOf(j) == SequenceAligner.UNMATCHED) {
+                int newCol = newCols.get(j);
+                diffs.add(columnChange(sheet, "COLUMN_INSERTED", headerRow, newCol, -1, newCol, "",
+                        newHeaders.get(newCol)));
+            }
+        }
+
+        Set<Integer> keptNewCols = new HashSet<Integer>(oldToNewCol.values());
+        for (Map.Entry<String, Cell> e : oldCells.entrySet()) {
+            int row = keyRow(e.getKey());
+            Integer newCol = oldToNewCol.get(keyCol(e.getKey()));
+            if (newCol != null)
+                matchedOld.put(row + ":" + newCol, e.getValue());
+        }
+        for (Map.Entry<String, Cell> e : newCells.entrySet()) {
+            if (keptNewCols.contains(keyCol(e.getKey())))
+                matchedNew.put(e.getKey(), e.getValue());
+        }
+    }
+
+    /** Every column that has a cell anywhere in the sheet, mapped to its header text ("" if none). */
+    private TreeMap<Integer, String> headerColumns(Map<String, Cell> cells, int headerRow) {
+        TreeMap<Integer, String> headers = new TreeMap<Integer, String>();
+        for (Map.Entry<String, Cell> e : cells.entrySet()) {
+            int col = keyCol(e.getKey());
+            if (keyRow(e.getKey()) == headerRow)
+                headers.put(col, normalizeText(normalize(value(e.getValue()))));
+            else if (!headers.containsKey(col))
+                headers.put(col, "");
+        }
+        return headers;
+    }
+
+    private ChangeItem columnChange(String sheet, String type, int row, int col, int oldCol, int newCol,
+            String oldVal, String newVal) {
+        ChangeItem item = new ChangeItem();
+        item.setSheet(sheet);
+        item.setRow(row);
+        item.setCol(col);
+        item.setOldValue(oldVal);
+        item.setNewValue(newVal);
+        item.setChangeType(type);
+        Map<String, Object> meta = new HashMap<String, Object>();
+        meta.put("oldCol", oldCol);
+        meta.put("newCol", newCol);
+        item.setMeta(meta);
+        return item;
+    }
+
+    /**
+     * Row-aligned diff: rows are matched by content (or by the key column) instead
+     * of by index, so an inserted row yields one ROW_INSERTED item rather than a
+     * MODIFIED item for every cell below it. Items follow the new sheet's rows,
+     * with each deleted row placed where it stood between them.
+     */
+    private void diffSheetAligned(final String sheet, Map<String, Cell> oldCells, Map<String, Cell> newCells,
+            int keyColumn, List<ChangeItem> diffs) {
+        final TreeMap<Integer, TreeMap<Integer, Cell>> oldRows = groupByRow(oldCells);
+        final TreeMap<Integer, TreeMap<Integer, Cell>> newRows = groupByRow(newCells);
+
+        final List<Integer> oldRowNums = new ArrayList<Integer>(oldRows.keySet());
+        final List<Integer> newRowNums = new ArrayList<Integer>(newRows.keySet());
+
+        List<String> oldKeys = new ArrayList<String>(oldRowNums.size());
+        for (Integer r : oldRowNums)
+            oldKeys.add(rowKey(oldRows.get(r), keyColumn));
+        List<String> newKeys = new ArrayList<String>(newRowNums.size());
+        for (Integer r : newRowNums)
+            newKeys.add(rowKey(newRows.get(r), keyColumn));
+
+        // with a key column, a row whose key changed is a different record, not an edit; rows with a blank key
+        // are still paired by position between the rows around them
+        final SequenceAligner.Alignment alignment = SequenceAligner.align(oldKeys, newKeys, keyColumn < 0);
+
+        List<ChangeItem> sheetDiffs = new BlockTask(0, oldRowNums.size(), blockSize, new BlockDiff() {
+            @Override
+            public void diff(int from, int to, List<ChangeItem> out) {
+                for (int i = from; i < to; i++)
+                    diffAlignedRow(sheet, i, alignment, oldRows, newRows, oldRowNums, newRowNums, out);
+            }
+        }).invoke();
+
+        for (int j = 0; j < newRowNums.size(); j++) {
+            if (alignment.oldIndexOf(j) == SequenceAligner.UNMATCHED) {
+                int newRow = newRowNums.get(j);
+                sheetDiffs.add(rowChange(sheet, "ROW_INSERTED", newRow, -1, newRow, "", rowPreview(newRows.get(newRow))));
+            }
+        }
+
+        // a deleted row is listed after the new row its nearest unmoved predecessor was paired with
+        final int[] deletedAfter = new int[oldRowNums.size()];
+        int anchor = -1;
+        for (int i = 0; i < deletedAfter.length; i++) {
+            deletedAfter[i] = anchor;
+            int j = alignment.newIndexOf(i);
+            if (j != SequenceAligner.UNMATCHED && !alignment.isMoved(i))
+                anchor = j;
+        }
+        // stable, so deletions in the same gap keep their old order
+        Collections.sort(sheetDiffs, new Comparator<ChangeItem>() {
+            @Override
+            public int compare(ChangeItem a, ChangeItem b) {
+                int byPosition = Integer.compare(position(a), position(b));
+                return byPosition != 0 ? byPosition : Integer.compare(a.getCol(), b.getCol());
+            }
+
+            private int position(ChangeItem item) {
+                if ("ROW_DELETED".equals(item.getChangeType()))
+                    return 2 * deletedAfter[Collections.binarySearch(oldRowNums, item.getRow())] + 2;
+                return 2 * Collections.binarySearch(newRowNums, item.getRow()) + 1;
+            }
+        });
+        diffs.addAll(sheetDiffs);
+    }
+
+    private void diffAlignedRow(String sheet, int i, SequenceAligner.Alignment alignment,
+            TreeMap<Integer, TreeMap<Integer, Cell>> oldRows, TreeMap<Integer, TreeMap<Integer, Cell>> newRows,
+            List<Integer> oldRowNums, List<Integer> newRowNums, List<ChangeItem> out) {
+        int oldRow = oldRowNums.get(i);
+        int j = alignment.newIndexOf(i);
+        if (j == SequenceAligner.UNMATCHED) {
+            out.add(rowChange(sheet, "ROW_DELETED", oldRow, oldRow, -1, rowPreview(oldRows.get(oldRow)), ""));
+            return;
+        }
+
+        int newRow = newRowNums.get(j);
+        if (alignment.isMoved(i)) {
+            out.add(rowChange(sheet, "ROW_MOVED", newRow, oldRow, newRow, rowPreview(oldRows.get(oldRow)),
+                    rowPreview(newRows.get(newRow))));
+        }
+
+        TreeMap<Integer, Cell> oldRowCells = oldRows.get(oldRow);
+        TreeMap<Integer, Cell> newRowCells = newRows.get(newRow);
+        Set<Integer> cols = new TreeSet<Integer>(oldRowCells.keySet());
+        cols.addAll(newRowCells.keySet());
+        for (Integer col : cols) {
+            ChangeItem item = diffCell(sheet, newRow, col, oldRowCells.get(col), newRowCells.get(col));
+            if (item != null) {
+                if (oldRow != newRow)
+                    item.getMeta().put("oldRow", oldRow);
+                out.add(item);
+            }
+        }
+    }
+
+    private ChangeItem rowChange(String sheet, String type, int row, int oldRow, int newRow, String oldVal,
+            String newVal) {
+        ChangeItem item = new ChangeItem();
+        item.setSheet(sheet);
+        item.setRow(row);
+        item.setCol(-1);
+        item.setOldValue(oldVal);
+        item.setNewValue(newVal);
+        item.setChangeType(type);
+        Map<String, Object> meta = new HashMap<String, Object>();
+        meta.put("oldRow", oldRow);
+        meta.put("newRow", newRow);
+        item.setMeta(meta);
+        return item;
+    }
+
+    private TreeMap<Integer, TreeMap<Integer, Cell>> groupByRow(Map<String, Cell> cells) {
+        TreeMap<Integer, TreeMap<Integer, Cell>> rows = new TreeMap<Integer, TreeMap<Integer, Cell>>();
+        for (Map.Entry<String, Cell> e : cells.entrySet()) {
+            int r = keyRow(e.getKey());
+            TreeMap<Integer, Cell> row = rows.get(r);
+            if (row == null) {
+                row = new TreeMap<Integer, Cell>();
+                rows.put(r, row);
+            }
+            row.put(keyCol(e.getKey()), e.getValue());
+        }
+        return rows;
+    }
+
+    /** Alignment key: the key column's value (null if blank), or the row's values when no key column is set. */
+    private String rowKey(TreeMap<Integer, Cell> row, int keyColumn) {
+        if (keyColumn >= 0) {
+            String key = normalizeText(normalize(value(row.get(keyColumn))));
+            return key.isEmpty() ? null : key;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<Integer, Cell> e : row.entrySet()) {
+            String val = normalizeText(normalize(value(e.getValue())));
+            if (!val.isEmpty())
+                sb.append(e.getKey()).append('=').append(val).append('\u0001');
+        }
+        return sb.toString();
+    }
+
+    private String rowPreview(TreeMap<Integer, Cell> row) {
+        List<String> values = new ArrayList<String>();
+        for (Cell c : row.values()) {
+            String val = normalize(value(c));
+            if (!val.isEmpty())
+                values.add(val);
+        }
+        return String.join(" | ", values);
+    }
+
+    /** Compares one cell's value and style; returns null when nothing changed. */
+    private ChangeItem diffCell(String sheet, int row, int col, Cell oldCell, Cell newCell) {
+        String oldVal = normalize(value(oldCell));
+        String newVal = normalize(value(newCell));
+
+        StyleInfo oldStyle = oldCell == null ? StyleInfo.NONE : oldCell.style;
+        StyleInfo newStyle = newCell == null ? StyleInfo.NONE : newCell.style;
+
+        boolean added = (oldCell == null && newCell != null);
+        boolean deleted = (oldCell != null && newCell == null);
+        boolean valueChanged = !normalizeText(oldVal).equals(normalizeText(newVal));
+
+        // styles are interned per diff, so equal formatting always shares one id
+        boolean formatChanged = oldStyle.id != newStyle.id;
+
+        if (!(added || deleted || valueChanged || formatChanged))
+            return null;
+
+        ChangeItem item = new ChangeItem();
+        item.setSheet(sheet);
+        item.setRow(row);
+        item.setCol(col);
+        item.setOldValue(oldVal);
+        item.setNewValue(newVal);
+
+        if (added)
+            item.setChangeType("ADDED");
+        else if (deleted)
+            item.setChangeType("DELETED");
+        else
+            item.setChangeType("MODIFIED");
+
+        // meta with old/new style pairs for frontend
+        Map<String, Object> meta = new HashMap<String, Object>();
+        meta.put("oldFontColor", oldStyle.fontColor);
+        meta.put("newFontColor", newStyle.fontColor);
+        meta.put("oldBgColor", oldStyle.bgColor);
+        meta.put("newBgColor", newStyle.bgColor);
+        meta.put("oldFontSize", oldStyle.fontSize);
+        meta.put("newFontSize", newStyle.fontSize);
+        meta.put("oldBold", oldStyle.bold);
+        meta.put("newBold", newStyle.bold);
+        meta.put("oldStrike", oldStyle.strike);
+        meta.put("newStrike", newStyle.strike);
+        meta.put("oldAlign", oldStyle.alignment);
+        meta.put("newAlign", newStyle.alignment);
+        meta.put("oldBorders", oldStyle.borders());
+        meta.put("newBorders", newStyle.borders());
+        item.setMeta(meta);
+
+        return item;
+    }
+
+    /** Normalized formatting of a cell, as compared by the diff. */
+    private static final class StyleInfo {
+        /** Formatting reported for the missing side of an added or deleted cell. */
+        static final StyleInfo NONE = new StyleInfo(false, false, 11, null, null, null, null, null, null, null);
+
+        final int id;
+        final boolean bold;
+        final boolean strike;
+        final int fontSize;
+        final String fontColor;
+        final String bgColor;
+        final String alignment;
+        final String borderTop;
+        final String borderBottom;
+        final String borderLeft;
+        final String borderRight;
+
+        StyleInfo(int id, StyleInfo s) {
+            this.id = id;
+            this.bold = s.bold;
+            this.strike = s.strike;
+            this.fontSize = s.fontSize;
+            this.fontColor = s.fontColor;
+            this.bgColor = s.bgColor;
+            this.alignment = s.alignment;
+            this.borderTop = s.borderTop;
+            this.borderBottom = s.borderBottom;
+            this.borderLeft = s.borderLeft;
+            this.borderRight = s.borderRight;
+        }
+
+        StyleInfo(boolean bold, boolean strike, int fontSize, String fontColor, String bgColor, String alignment,
+                String borderTop, String borderBottom, String borderLeft, String borderRight) {
+            this.id = -1;
+            this.bold = bold;
+            this.strike = strike;
+            this.fontSize = fontSize;
+            this.fontColor = fontColor;
+            this.bgColor = bgColor;
+            this.alignment = alignment;
+            this.borderTop = borderTop;
+            this.borderBottom = borderBottom;
+            this.borderLeft = borderLeft;
+            this.borderRight = borderRight;
+        }
+
+        String key() {
+            return bold + "\u0001" + strike + "\u0001" + fontSize + "\u0001" + fontColor + "\u0001" + bgColor
+                    + "\u0001" + alignment + "\u0001" + borderTop + "\u0001" + borderBottom + "\u0001" + borderLeft
+                    + "\u0001" + borderRight;
+        }
+
+        String borders() {
+            return String.join(", ", safe(borderTop), safe(borderBottom), safe(borderLeft), safe(borderRight));
+        }
+
+        private static String safe(String val) {
+            return val == null ? "" : val;
+        }
+    }
+
+    /**
+     * Resolves the style tables of both snapshots for one diff. Every distinct
+     * style gets one shared id, so most cells compare formatting with a single
+     * reference check; cells without a style get {@code empty}.
+     */
+    private final class StyleContext {
+        private final Map<String, StyleInfo> interned = new ConcurrentHashMap<String, StyleInfo>();
+        private final StyleInfo[] oldTable;
+        private final StyleInfo[] newTable;
+        private final StyleInfo empty;
+
+        StyleContext(MappedSnapshot oldSnapshot, MappedSnapshot newSnapshot) throws IOException {
+            this.empty = intern(null);
+            this.oldTable = table(styleJsons(oldSnapshot));
+            this.newTable = table(styleJsons(newSnapshot));
+        }
+
+        /** Both sides of a patch share its one table. */
+        StyleContext(List<String> patchStyles) throws IOException {
+            this.empty = intern(null);
+            this.oldTable = table(patchStyles);
+            this.newTable = oldTable;
+        }
+
+        StyleInfo patchStyle(int id) {
+            return id >= 0 ? oldTable[id] : empty;
+        }
+
+        private List<String> styleJsons(MappedSnapshot snapshot) {
+            List<String> jsons = new ArrayList<String>();
+            for (int i = 0; snapshot != null && i < snapshot.styleCount(); i++)
+                jsons.add(snapshot.styleJson(i));
+            return jsons;
+        }
+
+        private StyleInfo[] table(List<String> jsons) throws IOException {
+            StyleInfo[] table = new StyleInfo[jsons.size()];
+            for (int i = 0; i < table.length; i++)
+                table[i] = intern(mapper.readTree(jsons.get(i)));
+            return table;
+        }
+
+        private StyleInfo intern(JsonNode node) {
+            StyleInfo s = new StyleInfo(
+                    getSafeBool(node, "fontBold"),
+                    getSafeBool(node, "strike"),
+                    getSafeInt(node, "fontSize", 11),
+                    normalizeColor(getSafeText(node, "fontColor"), null),
+                    normalizeColor(getSafeText(node, "bgColor"), null),
+                    getSafeText(node, "alignment"),
+                    getSafeText(node, "borderTop"),
+                    getSafeText(node, "borderBottom"),
+                    getSafeText(node, "borderLeft"),
+                    getSafeText(node, "borderRight"));
+            String key = s.key();
+            StyleInfo known = interned.get(key);
+            if (known != null)
+                return known;
+            synchronized (interned) {
+                known = interned.get(key);
+                if (known == null) {
+                    known = new StyleInfo(interned.size(), s);
+                    interned.put(key, known);
+                }
+                return known;
+            }
+        }
+    }
+
+    /** A cell read out of a snapshot, for the diff modes that work on cell maps. */
+    private static final class Cell {
+        final String value;
+        final StyleInfo style;
+
+        Cell(String value, StyleInfo style) {
+            this.value = value;
+            this.style = style;
+        }
+    }
+
+    /**
+     * One sheet of a snapshot with its style ids resolved through the diff's style
+     * tables. A sheet missing from the snapshot (or a missing snapshot) has no rows.
+     */
+    private static final class SheetSide {
+        private final MappedSnapshot snapshot;
+        private final int sheet;
+        private final StyleInfo[] styles;
+        private final StyleInfo empty;
+
+        SheetSide(MappedSnapshot snapshot, Integer sheet, StyleInfo[] styles, StyleInfo empty) {
+            this.snapshot = sheet == null ? null : snapshot;
+            this.sheet = sheet == null ? -1 : sheet;
+            this.styles = styles;
+            this.empty = empty;
+        }
+
+        int rowCount() {
+            return snapshot == null ? 0 : snapshot.rowCount(sheet);
+        }
+
+        int cellCount() {
+            return snapshot == null ? 0 : snapshot.cellCount(sheet);
+        }
+
+        boolean isEmpty() {
+            return cellCount() == 0;
+        }
+
+        int rowAt(int index) {
+            return snapshot.rowAt(sheet, index);
+        }
+
+        int rowFirstCell(int index) {
+            return snapshot.rowFirstCell(sheet, index);
+        }
+
+        int rowCellCount(int index) {
+            return snapshot.rowCellCount(sheet, index);
+        }
+
+        int col(int cell) {
+            return snapshot.cellCol(sheet, cell);
+        }
+
+        StyleInfo style(int cell) {
+            int id = snapshot.cellStyle(sheet, cell);
+            return id >= 0 ? styles[id] : empty;
+        }
+
+        boolean sameValue(int cell, SheetSide other, int otherCell) {
+            return snapshot.sameValue(sheet, cell, other.snapshot, other.sheet, otherCell);
+        }
+
+        Cell cell(int cell) {
+            return new Cell(snapshot.cellValue(sheet, cell), style(cell));
+        }
+
+        /** The sheet's cells keyed "row:col". */
+        Map<String, Cell> cells() {
+            Map<String, Cell> cells = new HashMap<String, Cell>(Math.max(16, cellCount() * 4 / 3 + 1));
+            for (int r = 0; r < rowCount(); r++) {
+                int row = rowAt(r);
+                int first = rowFirstCell(r);
+                int end = first + rowCellCount(r);
+                for (int c = first; c < end; c++)
+                    cells.put(row + ":" + col(c), cell(c));
+            }
+            return cells;
+        }
+    }
+
+    /** === Helpers === */
+    /** Sheet name to index in workbook order; of duplicate names the last sheet wins. */
+    private Map<String, Integer> sheetIndexes(MappedSnapshot snapshot) {
+        Map<String, Integer> sheets = new LinkedHashMap<String, Integer>();
+        if (snapshot != null) {
+            for (int s = 0; s < snapshot.sheetCount(); s++)
+                sheets.put(snapshot.sheetName(s), s);
+        }
+        return sheets;
+    }
+
+    private String value(Cell cell) {
+        return cell == null ? null : cell.value;
+    }
+
+    private int keyRow(String key) {
+        return Integer.parseInt(key.substring(0, key.indexOf(':')));
+    }
+
+    private int keyCol(String key) {
+        return Integer.parseInt(key.substring(key.indexOf(':') + 1));
+    }
+
+    private String normalize(String s) {
+        if (s == null)
+            return "";
+        return s
+                .replace('\u00A0', ' ')
+                .replace("“", "\"")
+                .replace("”", "\"")
+                .replace("’", "'")
+                .replace("…", "...")
+                .replaceAll("[\\uFFFD]", "")
+                .trim();
+    }
+
+    private String getSafeText(JsonNode node, String key) {
+        return (node != null && node.has(key)) ? node.get(key).asText() : null;
+    }
+
+    private boolean getSafeBool(JsonNode node, String key) {
+        return node != null && node.has(key) && node.get(key).asBoolean();
+    }
+
+    private int getSafeInt(JsonNode node, String key, int def) {
+        return (node != null && node.has(key)) ? node.get(key).asInt(def) : def;
+    }
+
+    private String normalizeColor(String color, String def) {
+        if (color == null || color.trim().isEmpty())
+            return def;
+        color = color.trim().toUpperCase();
+        if (!color.startsWith("#"))
+            color = "#" + color;
+        if (color.length() == 7)
+            return color;
+        if (color.length() == 9)
+            return "#" + color.substring(3);
+        return def;
+    }
+
+    private String normalizeText(String s) {
+        if (s == null)
+            return "";
+        return s.replace('\u00A0', ' ')
+                .replaceAll("\\s+", " ")
+                .trim();
+    }
+}
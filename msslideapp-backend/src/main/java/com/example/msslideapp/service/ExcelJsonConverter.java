@@ -1,35 +1,131 @@
 package com.example.msslideapp.service;
 
+import com.example.msslideapp.jfr.ConversionEvent;
+import com.example.msslideapp.jfr.SheetConversionEvent;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.poi.ooxml.POIXMLTypeLoader;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
 import org.apache.poi.openxml4j.util.ZipSecureFile;
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.model.StylesTable;
 import org.apache.poi.xssf.usermodel.*;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTWorkbook;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.WorkbookDocument;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Service
 public class ExcelJsonConverter {
 
     private final ObjectMapper mapper = new ObjectMapper();
 
+    @Value("${converter.parallel-sheets:true}")
+    private boolean parallelSheets;
+
+    @Value("${converter.intern-styles:true}")
+    private boolean internStyles;
+
+    private final ExecutorService conversionExecutor;
+    private final PipelineMetrics metrics;
+
+    public ExcelJsonConverter(@Qualifier("conversionExecutor") ExecutorService conversionExecutor,
+            PipelineMetrics metrics) {
+        this.conversionExecutor = conversionExecutor;
+        this.metrics = metrics;
+    }
+
     /**
      * Converts Excel → JSON
      */
     public String excelToJson(File excelFile) throws Exception {
+        return excelToJson(excelFile, null);
+    }
+
+    /**
+     * Converts Excel → JSON, feeding every cell to {@code validation} (if not null)
+     * as it is read
+     */
+    public String excelToJson(File excelFile, ValidationRules.Workbook validation) throws Exception {
+        return metrics.time("convert.excel_to_json", () -> convertToJson(excelFile, validation));
+    }
+
+    private String convertToJson(File excelFile, ValidationRules.Workbook validation) throws Exception {
+        ConversionEvent event = new ConversionEvent();
+        event.begin();
         ZipSecureFile.setMinInflateRatio(0.0001);
+        Styles styles = new Styles();
+        List<Object> sheets = parallelSheets ? readSheetsParallel(excelFile, styles, validation)
+                : readSheets(excelFile, styles, validation);
+
+        Map<String, Object> root = new HashMap<String, Object>();
+        root.put("sheets", sheets);
+        if (internStyles) {
+            root.put("styles", styles.table);
+        }
+
+        String out = mapper.writerWithDefaultPrettyPrinter().writeValueAsString(root);
+
+        long cells = 0;
+        for (Object sheet : sheets) {
+            cells += ((List) ((Map) sheet).get("cells")).size();
+        }
+        metrics.recordCells("convert", cells);
+        metrics.recordSnapshotSize("convert", out.length());
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.fileName = excelFile.getName();
+            event.direction = "excel_to_json";
+            event.sheets = sheets.size();
+            event.cells = cells;
+            event.snapshotChars = out.length();
+            event.commit();
+        }
+
+        return out;
+    }
+
+    /** Single-threaded conversion over the POI usermodel. */
+    private List<Object> readSheets(File excelFile, Styles styles, ValidationRules.Workbook validation)
+            throws Exception {
         FileInputStream fis = new FileInputStream(excelFile);
         XSSFWorkbook wb = new XSSFWorkbook(fis);
         fis.close();
 
+        for (int s = 0; s < wb.getNumCellStyles(); s++) {
+            styles.add(wb.getCellStyleAt(s));
+        }
+
         List<Object> sheets = new ArrayList<Object>();
 
         for (int i = 0; i < wb.getNumberOfSheets(); i++) {
             XSSFSheet sheet = wb.getSheetAt(i);
+            SheetConversionEvent sheetEvent = new SheetConversionEvent();
+            sheetEvent.begin();
             Map<String, Object> sheetMap = new HashMap<String, Object>();
             String sheetName = sheet.getSheetName();
             sheetMap.put("name", sheetName != null ? sheetName : "Sheet1");
+            ValidationRules.Sheet check = validation != null ? validation.sheet((String) sheetMap.get("name")) : null;
 
             List<Map<String, Object>> cells = new ArrayList<Map<String, Object>>();
             for (Row row : sheet) {
@@ -41,86 +137,356 @@ public class ExcelJsonConverter {
                     cellMap.put("col", cell.getColumnIndex());
                     String rawVal = getCellString(cell);
                     cellMap.put("value", rawVal == null ? "" : rawVal);
+                    if (check != null) {
+                        check.cell(row.getRowNum(), cell.getColumnIndex(), rawVal == null ? "" : rawVal);
+                    }
 
                     CellStyle cs = cell.getCellStyle();
                     if (cs != null) {
-                        XSSFCellStyle xcs = (XSSFCellStyle) cs;
-                        XSSFFont font = xcs.getFont();
-
-                        // Font properties
-                        if (font != null) {
-                            cellMap.put("fontBold", font.getBold());
-                            // fontHeightInPoints might be short -> store as int
-                            cellMap.put("fontSize", font.getFontHeightInPoints());
-                            cellMap.put("italic", font.getItalic());
-                            // strikeout
-                            cellMap.put("strike", font.getStrikeout());
-                            // underline: convert to boolean
-                            try {
-                                cellMap.put("underline", font.getUnderline() != Font.U_NONE);
-                            } catch (Exception e) {
-                                // ignore if not available
-                            }
-                            // font color
-                            XSSFColor fColor = null;
-                            try {
-                                fColor = (font instanceof XSSFFont) ? ((XSSFFont) font).getXSSFColor() : null;
-                            } catch (Exception ignored) {}
-                            if (fColor != null) {
-                                String hex = fColor.getARGBHex();
-                                if (hex != null && hex.length() >= 6) {
-                                    cellMap.put("fontColor", "#" + hex.substring(hex.length() - 6));
-                                }
-                            }
-                        }
-
-                        // Background color (handle theme, index, ARGB)
-                        XSSFColor bg = null;
-                        try {
-                            bg = xcs.getFillForegroundXSSFColor();
-                        } catch (Exception ignored) {}
-                        if (bg != null) {
-                            String hex = bg.getARGBHex();
-                            if (hex != null && hex.length() >= 6) {
-                                cellMap.put("bgColor", "#" + hex.substring(hex.length() - 6));
-                            }
-                        }
-
-                        // Alignment
-                        try {
-                            HorizontalAlignment ha = xcs.getAlignment();
-                            cellMap.put("alignment", ha == null ? "GENERAL" : ha.name());
-                        } catch (Exception ignored) {}
-
-                        // Borders
-                        try {
-                            cellMap.put("borderTop", xcs.getBorderTop() == null ? "NONE" : xcs.getBorderTop().name());
-                            cellMap.put("borderBottom", xcs.getBorderBottom() == null ? "NONE" : xcs.getBorderBottom().name());
-                            cellMap.put("borderLeft", xcs.getBorderLeft() == null ? "NONE" : xcs.getBorderLeft().name());
-                            cellMap.put("borderRight", xcs.getBorderRight() == null ? "NONE" : xcs.getBorderRight().name());
-                        } catch (Exception ignored) {}
+                        styles.apply(cs.getIndex(), cellMap);
                     }
 
                     cells.add(cellMap);
                 }
             }
 
+            if (check != null) {
+                check.finish();
+            }
             sheetMap.put("cells", cells);
             sheets.add(sheetMap);
+            commitSheetEvent(sheetEvent, excelFile, sheetName, cells.size());
         }
 
         wb.close();
+        return sheets;
+    }
 
-        Map<String, Object> root = new HashMap<String, Object>();
-        root.put("sheets", sheets);
+    /**
+     * Parallel conversion: every sheet part is parsed by its own SAX reader on the
+     * conversion executor, sharing one read-only shared-strings table and one
+     * table of style descriptors. Sheets are assembled in workbook order. If one
+     * fails, sheets not started yet are skipped and the package is only closed
+     * once the ones being parsed are done with it.
+     */
+    private List<Object> readSheetsParallel(File excelFile, final Styles styles,
+            ValidationRules.Workbook validation) throws Exception {
+        OPCPackage pkg = OPCPackage.open(excelFile, PackageAccess.READ);
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        List<Future<List<Map<String, Object>>>> parts = new ArrayList<Future<List<Map<String, Object>>>>();
+        try {
+            XSSFReader reader = new XSSFReader(pkg);
+            final SharedStrings strings = new ReadOnlySharedStringsTable(pkg, false);
+            StylesTable stylesTable = reader.getStylesTable();
+            final boolean date1904 = isDate1904(reader);
+
+            int styleCount = stylesTable.getNumCellStyles();
+            final List<Boolean> dateStyles = new ArrayList<Boolean>(styleCount);
+            for (int s = 0; s < styleCount; s++) {
+                XSSFCellStyle xcs = stylesTable.getStyleAt(s);
+                styles.add(xcs);
+                ExcelNumberFormat nf = ExcelNumberFormat.from(xcs);
+                dateStyles.add(nf != null && DateUtil.isADateFormat(nf));
+            }
 
-        // PRINT JSON for debugging — useful to inspect the exact JSON the backend committed
-        String out = mapper.writerWithDefaultPrettyPrinter().writeValueAsString(root);
-        // System.out.println("=== EXTRACTED EXCEL JSON START ===");
-        // System.out.println(out);
-        // System.out.println("=== EXTRACTED EXCEL JSON END ===");
+            List<String> names = new ArrayList<String>();
+            XSSFReader.SheetIterator it = (XSSFReader.SheetIterator) reader.getSheetsData();
+            while (it.hasNext()) {
+                final InputStream sheetData = it.next();
+                final String sheetName = it.getSheetName();
+                names.add(sheetName);
+                final ValidationRules.Sheet check = validation != null
+                        ? validation.sheet(sheetName != null ? sheetName : "Sheet1") : null;
+                parts.add(conversionExecutor.submit(new Callable<List<Map<String, Object>>>() {
+                    @Override
+                    public List<Map<String, Object>> call() throws Exception {
+                        SheetConversionEvent sheetEvent = new SheetConversionEvent();
+                        sheetEvent.begin();
+                        try (InputStream in = sheetData) {
+                            if (cancelled.get())
+                                return null;
+                            SheetHandler handler = new SheetHandler(strings, styles, dateStyles, date1904, check);
+                            XMLReader parser = XMLHelper.newXMLReader();
+                            parser.setContentHandler(handler);
+                            parser.parse(new InputSource(in));
+                            if (check != null) {
+                                check.finish();
+                            }
+                            commitSheetEvent(sheetEvent, excelFile, sheetName, handler.cells.size());
+                            return handler.cells;
+                        }
+                    }
+                }));
+            }
 
-        return out;
+            List<Object> sheets = new ArrayList<Object>();
+            for (int i = 0; i < parts.size(); i++) {
+                Map<String, Object> sheetMap = new HashMap<String, Object>();
+                String sheetName = names.get(i);
+                sheetMap.put("name", sheetName != null ? sheetName : "Sheet1");
+                try {
+                    sheetMap.put("cells", parts.get(i).get());
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
+                sheets.add(sheetMap);
+            }
+            return sheets;
+        } finally {
+            cancelled.set(true);
+            awaitAll(parts);
+            pkg.revert();
+        }
+    }
+
+    /** Waits for every task to end, whatever its outcome; an interrupt is kept for after the wait. */
+    private static void awaitAll(List<? extends Future<?>> tasks) {
+        boolean interrupted = false;
+        for (Future<?> task : tasks) {
+            while (true) {
+                try {
+                    task.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException | CancellationException e) {
+                    break; // the first failure is what the caller reports
+                }
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    private static void commitSheetEvent(SheetConversionEvent event, File excelFile, String sheet, long cells) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.fileName = excelFile.getName();
+            event.sheet = sheet;
+            event.cells = cells;
+            event.commit();
+        }
+    }
+
+    private boolean isDate1904(XSSFReader reader) throws Exception {
+        try (InputStream in = reader.getWorkbookData()) {
+            CTWorkbook workbook = WorkbookDocument.Factory.parse(in, POIXMLTypeLoader.DEFAULT_XML_OPTIONS).getWorkbook();
+            return workbook.isSetWorkbookPr() && workbook.getWorkbookPr().getDate1904();
+        }
+    }
+
+    /**
+     * Style descriptors by cell style index. With interning on, equal descriptors
+     * share one entry in the snapshot's "styles" table and cells only carry a
+     * "styleId"; ids follow style index order, so they are stable for a workbook.
+     * Filled before any sheet is read and only read afterwards.
+     */
+    private class Styles {
+        private final List<Map<String, Object>> descriptors = new ArrayList<Map<String, Object>>();
+        private final List<Integer> ids = new ArrayList<Integer>();
+        private final List<Map<String, Object>> table = new ArrayList<Map<String, Object>>();
+        private final Map<Map<String, Object>, Integer> interned = new HashMap<Map<String, Object>, Integer>();
+
+        void add(XSSFCellStyle xcs) {
+            Map<String, Object> descriptor = describeStyle(xcs);
+            Integer id = interned.get(descriptor);
+            if (id == null) {
+                id = table.size();
+                table.add(descriptor);
+                interned.put(descriptor, id);
+            }
+            descriptors.add(descriptor);
+            ids.add(id);
+        }
+
+        void apply(int styleIndex, Map<String, Object> cellMap) {
+            if (styleIndex < 0 || styleIndex >= descriptors.size()) {
+                return;
+            }
+            if (internStyles) {
+                cellMap.put("styleId", ids.get(styleIndex));
+            } else {
+                cellMap.putAll(descriptors.get(styleIndex));
+            }
+        }
+    }
+
+    /**
+     * Style properties written for every cell with this style. Insertion order is
+     * kept so cells serialize exactly as they did before styles were cached.
+     */
+    private Map<String, Object> describeStyle(XSSFCellStyle xcs) {
+        Map<String, Object> cellMap = new LinkedHashMap<String, Object>();
+        XSSFFont font = xcs.getFont();
+
+        // Font properties
+        if (font != null) {
+            cellMap.put("fontBold", font.getBold());
+            // fontHeightInPoints might be short -> store as int
+            cellMap.put("fontSize", font.getFontHeightInPoints());
+            cellMap.put("italic", font.getItalic());
+            // strikeout
+            cellMap.put("strike", font.getStrikeout());
+            // underline: convert to boolean
+            try {
+                cellMap.put("underline", font.getUnderline() != Font.U_NONE);
+            } catch (Exception e) {
+                // ignore if not available
+            }
+            // font color
+            XSSFColor fColor = null;
+            try {
+                fColor = font.getXSSFColor();
+            } catch (Exception ignored) {}
+            if (fColor != null) {
+                String hex = fColor.getARGBHex();
+                if (hex != null && hex.length() >= 6) {
+                    cellMap.put("fontColor", "#" + hex.substring(hex.length() - 6));
+                }
+            }
+        }
+
+        // Background color (handle theme, index, ARGB)
+        XSSFColor bg = null;
+        try {
+            bg = xcs.getFillForegroundXSSFColor();
+        } catch (Exception ignored) {}
+        if (bg != null) {
+            String hex = bg.getARGBHex();
+            if (hex != null && hex.length() >= 6) {
+                cellMap.put("bgColor", "#" + hex.substring(hex.length() - 6));
+            }
+        }
+
+        // Alignment
+        try {
+            HorizontalAlignment ha = xcs.getAlignment();
+            cellMap.put("alignment", ha == null ? "GENERAL" : ha.name());
+        } catch (Exception ignored) {}
+
+        // Borders
+        try {
+            cellMap.put("borderTop", xcs.getBorderTop() == null ? "NONE" : xcs.getBorderTop().name());
+            cellMap.put("borderBottom", xcs.getBorderBottom() == null ? "NONE" : xcs.getBorderBottom().name());
+            cellMap.put("borderLeft", xcs.getBorderLeft() == null ? "NONE" : xcs.getBorderLeft().name());
+            cellMap.put("borderRight", xcs.getBorderRight() == null ? "NONE" : xcs.getBorderRight().name());
+        } catch (Exception ignored) {}
+
+        return Collections.unmodifiableMap(cellMap);
+    }
+
+    /**
+     * SAX handler for one sheet part. Produces the same cell maps as the
+     * usermodel path: values are rendered like {@link #getCellString(Cell)}.
+     */
+    private class SheetHandler extends DefaultHandler {
+        private final SharedStrings strings;
+        private final Styles styles;
+        private final List<Boolean> dateStyles;
+        private final boolean date1904;
+        private final ValidationRules.Sheet check;
+        private final List<Map<String, Object>> cells = new ArrayList<Map<String, Object>>();
+
+        private int rowNum = -1;
+        private int colNum = -1;
+        private int styleIndex;
+        private String type;
+        private boolean formula;
+        private boolean inValue;
+        private boolean inInlineText;
+        private final StringBuilder text = new StringBuilder();
+
+        SheetHandler(SharedStrings strings, Styles styles, List<Boolean> dateStyles,
+                boolean date1904, ValidationRules.Sheet check) {
+            this.strings = strings;
+            this.styles = styles;
+            this.dateStyles = dateStyles;
+            this.date1904 = date1904;
+            this.check = check;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attrs) {
+            String name = localName != null && !localName.isEmpty() ? localName : qName;
+            if ("row".equals(name)) {
+                String r = attrs.getValue("r");
+                rowNum = r != null ? Integer.parseInt(r) - 1 : rowNum + 1;
+                colNum = -1;
+            } else if ("c".equals(name)) {
+                String ref = attrs.getValue("r");
+                colNum = ref != null ? new CellReference(ref).getCol() : colNum + 1;
+                String s = attrs.getValue("s");
+                // like XSSFCell.getCellStyle(): no s is style 0, whatever the <col> style
+                styleIndex = s != null ? Integer.parseInt(s) : 0;
+                type = attrs.getValue("t");
+                formula = false;
+                text.setLength(0);
+            } else if ("f".equals(name)) {
+                formula = true;
+            } else if ("v".equals(name)) {
+                inValue = true;
+            } else if ("t".equals(name) && "inlineStr".equals(type)) {
+                inInlineText = true;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (inValue || inInlineText) {
+                text.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            String name = localName != null && !localName.isEmpty() ? localName : qName;
+            if ("v".equals(name)) {
+                inValue = false;
+            } else if ("t".equals(name)) {
+                inInlineText = false;
+            } else if ("c".equals(name)) {
+                Map<String, Object> cellMap = new HashMap<String, Object>();
+                String value = cellValue();
+                cellMap.put("row", rowNum);
+                cellMap.put("col", colNum);
+                cellMap.put("value", value);
+                styles.apply(styleIndex, cellMap);
+                cells.add(cellMap);
+                if (check != null) {
+                    check.cell(rowNum, colNum, value);
+                }
+            }
+        }
+
+        private String cellValue() {
+            String raw = text.toString();
+            try {
+                if ("s".equals(type)) {
+                    return raw.isEmpty() ? "" : normalizeCellText(strings.getItemAt(Integer.parseInt(raw)).getString());
+                }
+                if ("inlineStr".equals(type) || "str".equals(type)) {
+                    return normalizeCellText(raw);
+                }
+                if ("b".equals(type)) {
+                    // a cached boolean formula result is neither string nor numeric for getCellString
+                    return formula ? "" : normalizeCellText(String.valueOf("1".equals(raw)));
+                }
+                if ("e".equals(type) || raw.isEmpty()) {
+                    return "";
+                }
+                double numeric = Double.parseDouble(raw);
+                if (!formula && styleIndex < dateStyles.size() && dateStyles.get(styleIndex)
+                        && DateUtil.isValidExcelDate(numeric)) {
+                    return normalizeCellText(String.valueOf(DateUtil.getJavaDate(numeric, date1904)));
+                }
+                if (Math.floor(numeric) == numeric) {
+                    return normalizeCellText(String.valueOf((long) numeric));
+                }
+                return normalizeCellText(String.valueOf(numeric));
+            } catch (Exception e) {
+                return "";
+            }
+        }
     }
 
     private String getCellString(Cell cell) {
@@ -187,19 +553,43 @@ public class ExcelJsonConverter {
      * (Recreates fonts, fills, borders, alignments safely with caching)
      */
     public void jsonToExcel(String json, File outFile) throws Exception {
+        metrics.time("convert.json_to_excel", () -> {
+            ConversionEvent event = new ConversionEvent();
+            event.begin();
+            long cells = writeExcel(json, outFile, event);
+            event.end();
+            if (event.shouldCommit()) {
+                event.fileName = outFile.getName();
+                event.direction = "json_to_excel";
+                event.cells = cells;
+                event.snapshotChars = json.length();
+                event.commit();
+            }
+            return null;
+        });
+    }
+
+    /** Writes the workbook and returns its cell count; sheets are counted on {@code event}. */
+    private long writeExcel(String json, File outFile, ConversionEvent event) throws Exception {
         Map root = mapper.readValue(json, Map.class);
         XSSFWorkbook wb = new XSSFWorkbook();
 
         // Cache to prevent 64k style overflow
         Map<String, XSSFCellStyle> styleCache = new HashMap<String, XSSFCellStyle>();
 
+        // interned snapshots keep style properties in a table referenced by "styleId"
+        List styleTable = (List) root.get("styles");
+
+        long cellCount = 0;
         List sheets = (List) root.get("sheets");
+        event.sheets = sheets.size();
         for (Object s : sheets) {
             Map sMap = (Map) s;
             String name = (String) sMap.get("name");
             XSSFSheet sheet = wb.createSheet(name != null ? name : "Sheet1");
 
             List cells = (List) sMap.get("cells");
+            cellCount += cells.size();
             for (Object o : cells) {
                 Map cellMap = (Map) o;
                 int r = ((Number) cellMap.get("row")).intValue();
@@ -212,17 +602,21 @@ public class ExcelJsonConverter {
                 cell.setCellValue(value);
 
                 // Style properties
-                boolean fontBold = cellMap.get("fontBold") != null && (Boolean) cellMap.get("fontBold");
-                short fontSize = cellMap.get("fontSize") != null
-                        ? ((Number) cellMap.get("fontSize")).shortValue() : 11;
-                String fontColor = (String) cellMap.get("fontColor");
-                String bgColor = (String) cellMap.get("bgColor");
-                String alignment = (String) cellMap.get("alignment");
-
-                String borderTop = (String) cellMap.get("borderTop");
-                String borderBottom = (String) cellMap.get("borderBottom");
-                String borderLeft = (String) cellMap.get("borderLeft");
-                String borderRight = (String) cellMap.get("borderRight");
+                Map styleMap = cellMap;
+                if (styleTable != null && cellMap.get("styleId") != null) {
+                    styleMap = (Map) styleTable.get(((Number) cellMap.get("styleId")).intValue());
+                }
+                boolean fontBold = styleMap.get("fontBold") != null && (Boolean) styleMap.get("fontBold");
+                short fontSize = styleMap.get("fontSize") != null
+                        ? ((Number) styleMap.get("fontSize")).shortValue() : 11;
+                String fontColor = (String) styleMap.get("fontColor");
+                String bgColor = (String) styleMap.get("bgColor");
+                String alignment = (String) styleMap.get("alignment");
+
+                String borderTop = (String) styleMap.get("borderTop");
+                String borderBottom = (String) styleMap.get("borderBottom");
+                String borderLeft = (String) styleMap.get("borderLeft");
+                String borderRight = (String) styleMap.get("borderRight");
 
                 // Create a unique key for caching styles
                 String styleKey = fontBold + "_" + fontSize + "_" + fontColor + "_" + bgColor + "_" + alignment + "_"
@@ -276,6 +670,7 @@ public class ExcelJsonConverter {
             wb.write(fos);
         }
         wb.close();
+        return cellCount;
     }
 
     private void setBorder(java.util.function.Consumer<BorderStyle> setter, String borderName) {
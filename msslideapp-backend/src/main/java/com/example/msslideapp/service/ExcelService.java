@@ -1,44 +1,142 @@
 package com.example.msslideapp.service;
 
+import com.example.msslideapp.config.CorrelationId;
 import com.example.msslideapp.model.ChangeItem;
+import com.example.msslideapp.model.ChangedFile;
+import com.example.msslideapp.model.DiffOptions;
 import com.example.msslideapp.model.UploadResponse;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.msslideapp.model.ValidationViolation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.function.Tuple3;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 
 @Service
 public class ExcelService {
 
+    private static final Logger log = LoggerFactory.getLogger(ExcelService.class);
+
     private final ExcelJsonConverter converter;
     private final GitService gitService;
     private final SharePointSimulator sharePointSimulator;
     private final GitHubService gitHubService;
-    private final ObjectMapper mapper = new ObjectMapper();
+    private final ExcelDiffService diffService;
+    private final ExecutorService ioExecutor;
+    private final ForkJoinPool diffPool;
+    private final ForkJoinPool warmingPool;
+    private final DiffCache diffCache;
+    private final ApplicationEventPublisher events;
+    private final PipelineMetrics metrics;
+    private final AdmissionControl admission;
+    private final ReactiveGitHubService reactiveGitHub;
+    private final SnapshotStore snapshots;
+    private final DeltaHistoryService history;
+    private final ValidationRules validationRules;
+    private final Scheduler diffScheduler;
+
+    // PR/commit change views fetch through the non-blocking GitHub client
+    @Value("${github.reactive.enabled:false}")
+    private boolean reactiveEnabled;
+
+    @Value("${github.io-concurrency:8}")
+    private int ioConcurrency;
+
+    // PR/commit diff requests currently being served; background warming waits for idle while this is non-zero
+    private final ReentrantLock interactiveLock = new ReentrantLock();
+    private final Condition interactiveIdle = interactiveLock.newCondition();
+    private int interactiveRequests;
 
     public ExcelService(ExcelJsonConverter converter, GitService gitService, SharePointSimulator sharePointSimulator,
-            GitHubService gitHubService) {
+            GitHubService gitHubService, ExcelDiffService diffService,
+            @Qualifier("githubIoExecutor") ExecutorService ioExecutor, @Qualifier("diffPool") ForkJoinPool diffPool,
+            @Qualifier("diffWarmingPool") ForkJoinPool warmingPool, DiffCache diffCache,
+            ApplicationEventPublisher events, PipelineMetrics metrics, AdmissionControl admission,
+            ReactiveGitHubService reactiveGitHub, SnapshotStore snapshots, DeltaHistoryService history,
+            ValidationRules validationRules) {
         this.converter = converter;
         this.gitService = gitService;
         this.sharePointSimulator = sharePointSimulator;
         this.gitHubService = gitHubService;
+        this.diffService = diffService;
+        this.ioExecutor = ioExecutor;
+        this.diffPool = diffPool;
+        this.warmingPool = warmingPool;
+        this.diffCache = diffCache;
+        this.events = events;
+        this.metrics = metrics;
+        this.admission = admission;
+        this.reactiveGitHub = reactiveGitHub;
+        this.snapshots = snapshots;
+        this.history = history;
+        this.validationRules = validationRules;
+        this.diffScheduler = Schedulers.fromExecutor(CorrelationId.propagating(diffPool));
     }
 
     public UploadResponse handleUpload(List<MultipartFile> files, String commitMessage, List<String> approvers)
             throws Exception {
+        return metrics.time("upload", () -> upload(files, commitMessage, approvers));
+    }
+
+    private UploadResponse upload(List<MultipartFile> files, String commitMessage, List<String> approvers)
+            throws Exception {
         String basePath = System.getProperty("user.dir") + File.separator + "storage" + File.separator + "uploads";
         File uploadDir = new File(basePath);
         if (!uploadDir.exists() && !uploadDir.mkdirs()) {
             throw new IOException("❌ Failed to create upload directory: " + uploadDir.getAbsolutePath());
         }
 
+        List<File> savedFiles = new ArrayList<>();
+        for (MultipartFile file : files) {
+            File saved = new File(uploadDir, UUID.randomUUID() + "-" + file.getOriginalFilename());
+            metrics.time("upload.save", () -> {
+                file.transferTo(saved);
+                return null;
+            });
+            metrics.recordUploadSize(saved.length());
+            savedFiles.add(saved);
+
+            log.debug("Upload saved file={} path={}", file.getOriginalFilename(), saved.getAbsolutePath());
+        }
+        return publish(files, savedFiles, commitMessage, approvers);
+    }
+
+    /**
+     * Converts, diffs and commits the saved files to a new branch and opens its PR.
+     * Each file's conversion holds an upload admission permit and its diff a diff
+     * permit; neither is held while waiting on GitHub.
+     */
+    private UploadResponse publish(List<MultipartFile> files, List<File> savedFiles, String commitMessage,
+            List<String> approvers) throws Exception {
         List<ChangeItem> allChanges = new ArrayList<>();
+        List<ValidationViolation> violations = new ArrayList<>();
         String branchName = "feature/" + UUID.randomUUID().toString().substring(0, 8);
-        gitHubService.createBranch(branchName);
+        metrics.time("upload.create_branch", () -> {
+            gitHubService.createBranch(branchName);
+            return null;
+        });
 
         StringBuilder commitMsgBuilder = new StringBuilder();
         if (commitMessage != null && !commitMessage.isEmpty()) {
@@ -47,28 +145,57 @@ public class ExcelService {
             commitMsgBuilder.append("Upload: ");
         }
 
-        for (MultipartFile file : files) {
-            File saved = new File(uploadDir, UUID.randomUUID() + "-" + file.getOriginalFilename());
-            file.transferTo(saved);
-
-            System.out.println("✅ File saved to: " + saved.getAbsolutePath());
-
-            String newJson = converter.excelToJson(saved);
+        for (int i = 0; i < files.size(); i++) {
+            MultipartFile file = files.get(i);
+            // validated by the conversion itself, cell by cell, so the file is read once
+            ValidationRules.Workbook validation = validationRules.forFile(file.getOriginalFilename());
+            String newJson;
+            AdmissionControl.Permit permit = admission.acquire("upload", admission.estimateWorkbook(savedFiles.get(i)));
+            try {
+                newJson = converter.excelToJson(savedFiles.get(i), validation);
+            } finally {
+                permit.close();
+            }
+            if (validation != null) {
+                violations.addAll(validation.getViolations());
+                if (validation.getViolationCount() > 0)
+                    log.info("Upload has validation violations file={} count={}", file.getOriginalFilename(),
+                            validation.getViolationCount());
+            }
             String filename = file.getOriginalFilename().replaceAll("\\.xlsx?$", "") + ".json";
 
-            // Get previous JSON from GitHub main branch to compare
-            String prevJson = gitHubService.getFileContent(filename, "main");
-
-            if (prevJson != null && !prevJson.trim().isEmpty()) {
-                List<ChangeItem> fileChanges = diffJson(prevJson, newJson);
+            // Get the previous version (main, as the new branch was created from it) to compare;
+            // the new snapshot is stored under the blob SHA it will have in git, so the PR view
+            // diffs it without fetching it
+            DeltaHistoryService.Version previous = metrics.time("upload.fetch_previous",
+                    () -> history.versionAt(filename, branchName));
+            MappedSnapshot prevSnapshot = previous != null ? history.snapshot(previous) : null;
+            MappedSnapshot newSnapshot = snapshots.put(newJson);
+            DeltaHistoryService.Commit commit = history.prepare(filename, newJson, newSnapshot, previous,
+                    prevSnapshot);
+
+            if (prevSnapshot != null) {
+                // a committed patch holds exactly the position-based changes; no need to walk
+                // both snapshots unless rows or columns are aligned, as in the PR view
+                SnapshotPatch patch = commit.getPatch();
+                boolean fromPatch = patch != null && diffService.isPositional(null);
+                List<ChangeItem> fileChanges;
+                long cost = fromPatch ? admission.estimateSnapshotDiff(0, patch.changeCount())
+                        : admission.estimateSnapshotDiff(prevSnapshot.totalCells(), newSnapshot.totalCells());
+                permit = admission.acquire("diff", cost);
+                try {
+                    fileChanges = fromPatch ? diffService.diffPatch(patch, file.getOriginalFilename())
+                            : diffService.diffSnapshots(prevSnapshot, newSnapshot, null, file.getOriginalFilename());
+                } finally {
+                    permit.close();
+                }
                 for (ChangeItem item : fileChanges) {
                     item.setFileName(file.getOriginalFilename());
                 }
                 allChanges.addAll(fileChanges);
-                System.out.println(
-                        "ℹ️ Found previous version for " + filename + ". Detected " + fileChanges.size() + " changes.");
+                log.debug("Upload diffed against main file={} changes={}", filename, fileChanges.size());
             } else {
-                System.out.println("ℹ️ No previous version found for " + filename + " — first upload.");
+                log.debug("Upload has no previous version file={}", filename);
             }
 
             if (commitMsgBuilder.length() > (commitMessage == null ? 8 : commitMessage.length())) {
@@ -77,15 +204,19 @@ public class ExcelService {
             commitMsgBuilder.append(file.getOriginalFilename());
 
             // Commit to the new branch
-            gitHubService.commitFile(newJson, filename, "Update " + file.getOriginalFilename(), "uploader", branchName);
+            metrics.time("upload.commit", () -> gitHubService.commitFile(commit.getContent(), commit.getPath(),
+                    "Update " + file.getOriginalFilename(), "uploader", branchName));
         }
 
         String finalMessage = commitMsgBuilder.toString();
 
         // Create Pull Request
-        gitHubService.createPullRequest(finalMessage, "Changes uploaded via MsManager", branchName, approvers);
+        int prNumber = metrics.time("upload.create_pr", () -> gitHubService.createPullRequest(finalMessage,
+                "Changes uploaded via MsManager", branchName, approvers));
+        events.publishEvent(new PullRequestOpenedEvent(prNumber));
 
-        System.out.println("✅ Aggregated " + allChanges.size() + " total changes across " + files.size() + " files.");
+        log.info("Upload opened pr={} branch={} files={} changes={}", prNumber, branchName, files.size(),
+                allChanges.size());
 
         UploadResponse resp = new UploadResponse();
         // Since we have multiple files, using a single ID might be ambiguous, but let's
@@ -93,6 +224,7 @@ public class ExcelService {
         // Or we just return the first file's name or a generic ID.
         resp.setId(branchName);
         resp.setChanges(allChanges);
+        resp.setViolations(violations);
         return resp;
     }
 
@@ -106,31 +238,6 @@ public class ExcelService {
         return false;
     }
 
-    public String handlePrApproval(int prNumber, String comment) throws Exception {
-        // 1. Approve PR
-        gitHubService.approvePullRequest(prNumber, comment);
-
-        // 2. Merge PR
-        gitHubService.mergePullRequest(prNumber, "Approved and merged");
-
-        // 3. Get files in PR to push to SharePoint
-        // We need to know which files were modified to convert them back to Excel and
-        // push.
-        // For simplicity, we'll fetch the commit details of the merge commit or just
-        // list files in PR.
-        // GitHubService.getCommitDetails requires SHA.
-        // Let's assume we can get the file content from the main branch after merge.
-        // We need a method in GitHubService to get file content.
-
-        // For now, let's just return a success message.
-        // TODO: Implement fetching file content and pushing to SharePoint.
-        // Since I can't easily get the file content without adding more methods to
-        // GitHubService,
-        // I will add a method to GitHubService to get file content.
-
-        return "Approved and Merged";
-    }
-
     public void handlePrRejection(int prNumber, String comment) throws Exception {
         gitHubService.rejectPullRequest(prNumber, comment);
     }
@@ -145,301 +252,445 @@ public class ExcelService {
     }
 
     public List<ChangeItem> getPRChanges(int prNumber) throws Exception {
-        try {
-            // Get PR details to find the head and base branches
-            Map<String, Object> prDetails = gitHubService.getPullRequestDetails(prNumber);
-            String headBranch = (String) prDetails.get("head_branch");
-            String baseBranch = (String) prDetails.get("base_branch");
-            String headSha = (String) prDetails.get("head_sha");
-            String baseSha = (String) prDetails.get("base_sha");
+        return getPRChanges(prNumber, null);
+    }
 
-            // Get files changed in this PR
-            List<String> changedFiles = gitHubService.getPullRequestFiles(prNumber);
-            System.out.println("DEBUG: PR #" + prNumber + " files: " + changedFiles);
+    public List<ChangeItem> getPRChanges(int prNumber, DiffOptions options) throws Exception {
+        interactiveStarted();
+        try {
+            return metrics.time("pr_changes", () -> loadPRChanges(prNumber, options, ioExecutor, diffPool));
+        } catch (AdmissionRejectedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Failed to load PR changes pr={}", prNumber, e);
+            return new ArrayList<>();
+        } finally {
+            interactiveEnded();
+        }
+    }
 
-            List<ChangeItem> allChanges = new ArrayList<>();
+    /**
+     * Precomputes a PR's diff with default options into the cache. Fetches run on
+     * the calling thread and diffs on the warming pool, so warming never takes
+     * interactive I/O threads or diff workers. Unlike {@link #getPRChanges}, a
+     * failure is thrown rather than logged and served as no changes.
+     */
+    public void warmPRChanges(int prNumber) throws Exception {
+        metrics.time("pr_changes.warm", () -> loadPRChanges(prNumber, null, Runnable::run, warmingPool));
+    }
 
-            for (String file : changedFiles) {
-                if (file.endsWith(".json")) {
-                    String originalExcelName = file.replaceAll("\\.json$", ".xlsx");
-
-                    // Get content from head and base via SHA (safer for merged PRs where branch is
-                    // deleted)
-                    String targetHead = (headSha != null) ? headSha : headBranch;
-                    String targetBase = (baseSha != null) ? baseSha : baseBranch;
-
-                    System.out.println("DEBUG: Fetching " + file + " from head: " + targetHead);
-                    String headJson = gitHubService.getFileContent(file, targetHead);
-                    System.out.println("DEBUG: Head content len: " + (headJson == null ? "null" : headJson.length()));
-
-                    System.out.println("DEBUG: Fetching " + file + " from base: " + targetBase);
-                    String baseJson = gitHubService.getFileContent(file, targetBase);
-                    System.out.println("DEBUG: Base content len: " + (baseJson == null ? "null" : baseJson.length()));
-
-                    // Calculate diff
-                    if (headJson != null) {
-                        List<ChangeItem> fileChanges = diffJson(baseJson, headJson);
-                        System.out.println("DEBUG: File " + file + " has " + fileChanges.size() + " diffs");
-                        for (ChangeItem item : fileChanges) {
-                            item.setFileName(originalExcelName);
-                        }
-                        allChanges.addAll(fileChanges);
-                    }
-                }
+    /**
+     * Waits until no PR or commit diff request is being served, or for at most
+     * {@code maxWaitMs}. Returns whether none is.
+     */
+    public boolean awaitNoInteractiveRequests(long maxWaitMs) throws InterruptedException {
+        long nanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        interactiveLock.lock();
+        try {
+            while (interactiveRequests > 0) {
+                if (nanos <= 0)
+                    return false;
+                nanos = interactiveIdle.awaitNanos(nanos);
             }
+            return true;
+        } finally {
+            interactiveLock.unlock();
+        }
+    }
 
-            return allChanges;
-        } catch (Exception e) {
-            System.err.println("Error fetching PR changes: " + e.getMessage());
-            e.printStackTrace();
-            return new ArrayList<>();
+    private void interactiveStarted() {
+        interactiveLock.lock();
+        try {
+            interactiveRequests++;
+        } finally {
+            interactiveLock.unlock();
         }
     }
 
-    public List<ChangeItem> getCommitChanges(String sha) throws Exception {
+    private void interactiveEnded() {
+        interactiveLock.lock();
         try {
-            // Get commit details
-            Map<String, Object> details = gitHubService.getCommitDetails(sha);
+            if (--interactiveRequests == 0)
+                interactiveIdle.signalAll();
+        } finally {
+            interactiveLock.unlock();
+        }
+    }
+
+    private List<ChangeItem> loadPRChanges(int prNumber, DiffOptions options, Executor io, ForkJoinPool pool)
+            throws Exception {
+        // Get PR details to find the head and base branches
+        Map<String, Object> prDetails = gitHubService.getPullRequestDetails(prNumber);
+        String headBranch = (String) prDetails.get("head_branch");
+        String baseBranch = (String) prDetails.get("base_branch");
+        String headSha = (String) prDetails.get("head_sha");
+        String baseSha = (String) prDetails.get("base_sha");
+
+        // Compare head and base via SHA (safer for merged PRs where branch is deleted)
+        String targetHead = (headSha != null) ? headSha : headBranch;
+        String targetBase = (baseSha != null) ? baseSha : baseBranch;
+
+        // Cached until the PR's head or base moves
+        return diffCache.get(DiffCache.prKey(prNumber, options), targetHead + ".." + targetBase, () -> {
+            // Get files changed in this PR, with the blob SHA of each side
+            List<ChangedFile> changedFiles = gitHubService.getChangedFiles(targetBase, targetHead);
+            log.debug("PR changes pr={} files={}", prNumber, changedFiles.size());
 
-            // Find all JSON files that were changed
-            List<Map<String, String>> files = (List<Map<String, String>>) details.get("files");
             List<ChangeItem> allChanges = new ArrayList<>();
+            for (CompletableFuture<List<ChangeItem>> fileChanges : diffChangedFiles(changedFiles, targetBase,
+                    targetHead, options, io, pool)) {
+                allChanges.addAll(join(fileChanges));
+            }
+            return allChanges;
+        });
+    }
 
-            List<String> parents = (List<String>) details.get("parents");
-            String parentSha = (parents != null && !parents.isEmpty()) ? parents.get(0) : null;
+    /**
+     * Fetches both sides of every changed snapshot at once on {@code io}; each file
+     * is diffed on {@code pool} as soon as both sides arrive. Futures are returned
+     * in changed-file order.
+     * Workbooks kept as delta history are diffed once per workbook between the
+     * two refs (base null for a root commit), see {@link #diffVersionsAsync}.
+     */
+    private List<CompletableFuture<List<ChangeItem>>> diffChangedFiles(List<ChangedFile> changedFiles,
+            String baseRef, String headRef, DiffOptions options, Executor io, ForkJoinPool pool) {
+        List<CompletableFuture<List<ChangeItem>>> pending = new ArrayList<>();
+        Set<String> workbooks = new HashSet<>();
+        for (ChangedFile file : changedFiles) {
+            if (isVersioned(file)) {
+                String path = DeltaHistoryService.snapshotPath(file.getPath());
+                if (workbooks.add(path))
+                    pending.add(diffVersionsAsync(path, baseRef, headRef, options, io, pool));
+            } else if (file.getPath().endsWith(".json")) {
+                String basePath = file.getPreviousPath() != null ? file.getPreviousPath() : file.getPath();
+                pending.add(diffAsync(file.getPath(),
+                        fetchAsync(file.getPath(), file.getHeadBlobSha(), file.getHeadRef(), io, pool),
+                        fetchAsync(basePath, file.getBaseBlobSha(), file.getBaseRef(), io, pool), options, pool));
+            }
+        }
+        return pending;
+    }
 
-            for (Map<String, String> file : files) {
-                String filename = file.get("filename");
-                if (filename != null && filename.endsWith(".json")) {
-                    String originalExcelName = filename.replaceAll("\\.json$", ".xlsx");
+    /**
+     * Whether a changed file is diffed through delta history: its patch, or with
+     * delta history on any snapshot, since a patch beside it may supersede it.
+     */
+    private boolean isVersioned(ChangedFile file) {
+        return DeltaHistoryService.isPatchPath(file.getPath())
+                || (history.isEnabled() && file.getPath().endsWith(".json"));
+    }
 
-                    // Get content at current SHA
-                    String currentJson = gitHubService.getFileContent(filename, sha);
+    /**
+     * Diffs one delta-history workbook between two refs. When the head version is
+     * one patch on top of the base version (a PR of a single upload), the changes
+     * are read from the patch; otherwise both versions are rebuilt and diffed.
+     */
+    private CompletableFuture<List<ChangeItem>> diffVersionsAsync(String path, String baseRef, String headRef,
+            DiffOptions options, Executor io, ForkJoinPool pool) {
+        CompletableFuture<DeltaHistoryService.Version> head = supplyAsync(() -> history.versionAt(path, headRef), io);
+        CompletableFuture<DeltaHistoryService.Version> base = baseRef == null ? CompletableFuture.completedFuture(null)
+                : supplyAsync(() -> history.versionAt(path, baseRef), io);
+        return head.thenCombine(base, (headVersion, baseVersion) -> {
+            if (headVersion == null)
+                return CompletableFuture.completedFuture(Collections.<ChangeItem>emptyList());
+            SnapshotPatch patch = headVersion.getPatch();
+            if (patch != null && baseVersion != null && patch.getParent().equals(baseVersion.getKey())
+                    && diffService.isPositional(options))
+                return supplyAsync(() -> diffPatchFile(path, patch), CorrelationId.propagating(pool));
+            return diffAsync(path, supplyAsync(() -> history.snapshot(headVersion), io),
+                    baseVersion == null ? CompletableFuture.<MappedSnapshot>completedFuture(null)
+                            : supplyAsync(() -> history.snapshot(baseVersion), io),
+                    options, pool);
+        }).thenCompose(Function.identity());
+    }
 
-                    // Get content at parent SHA
-                    String parentJson = null;
-                    if (parentSha != null) {
-                        parentJson = gitHubService.getFileContent(filename, parentSha);
-                    }
+    /** {@link #diffFile} for a version read as its patch. */
+    private List<ChangeItem> diffPatchFile(String file, SnapshotPatch patch) throws Exception {
+        String originalExcelName = file.replaceAll("\\.json$", ".xlsx");
+        long cost = admission.estimateSnapshotDiff(0, patch.changeCount());
+        List<ChangeItem> fileChanges;
+        AdmissionControl.Permit permit = admission.acquire("diff", cost);
+        try {
+            fileChanges = diffService.diffPatch(patch, originalExcelName);
+        } finally {
+            permit.close();
+        }
+        for (ChangeItem item : fileChanges) {
+            item.setFileName(originalExcelName);
+        }
+        return fileChanges;
+    }
 
-                    // Calculate diff
-                    if (currentJson != null) {
-                        List<ChangeItem> fileChanges = diffJson(parentJson, currentJson);
-                        for (ChangeItem item : fileChanges) {
-                            item.setFileName(originalExcelName);
-                        }
-                        allChanges.addAll(fileChanges);
-                    }
-                }
+    /** {@link CompletableFuture#supplyAsync} for work that throws checked exceptions. */
+    private static <T> CompletableFuture<T> supplyAsync(Callable<T> work, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return work.call();
+            } catch (Exception e) {
+                throw new CompletionException(e);
             }
+        }, executor);
+    }
 
-            return allChanges;
-        } catch (Exception e) {
-            System.err.println("Error fetching commit changes: " + e.getMessage());
-            return new ArrayList<>();
-        }
+    /**
+     * One side of a change as a snapshot. A blob already in the snapshot store is
+     * used as is; otherwise the JSON is fetched on {@code io} (through the blob
+     * cache, or by ref for a side without a blob SHA) and converted on {@code pool}.
+     */
+    private CompletableFuture<MappedSnapshot> fetchAsync(final String file, final String blobSha, final String ref,
+            Executor io, ForkJoinPool pool) {
+        if (blobSha == null && ref == null)
+            return CompletableFuture.completedFuture(null);
+        MappedSnapshot stored = blobSha != null ? snapshots.getIfPresent(blobSha) : null;
+        if (stored != null)
+            return CompletableFuture.completedFuture(stored);
+        return CompletableFuture.supplyAsync(() -> blobSha != null ? gitHubService.getBlobContent(blobSha)
+                : gitHubService.getFileContent(file, ref), io)
+                .thenCompose(json -> supplyAsync(() -> toSnapshot(blobSha, json), CorrelationId.propagating(pool)));
     }
 
-    /** === Diff logic: detect added/deleted/value/style changes === */
-    private List<ChangeItem> diffJson(String oldJson, String newJson) throws Exception {
-        List<ChangeItem> diffs = new ArrayList<ChangeItem>();
-
-        if (newJson == null || newJson.trim().isEmpty())
-            return diffs;
-
-        JsonNode newRoot = mapper.readTree(newJson);
-        JsonNode oldRoot = (oldJson == null || oldJson.trim().isEmpty()) ? null : mapper.readTree(oldJson);
-
-        Map<String, Map<String, JsonNode>> oldSheets = buildSheetMap(oldRoot);
-        Map<String, Map<String, JsonNode>> newSheets = buildSheetMap(newRoot);
-
-        Set<String> allSheets = new HashSet<String>();
-        allSheets.addAll(oldSheets.keySet());
-        allSheets.addAll(newSheets.keySet());
-
-        System.out.println("Comparing " + allSheets.size() + " sheets...");
-
-        for (String sheet : allSheets) {
-            Map<String, JsonNode> oldCells = oldSheets.getOrDefault(sheet, Collections.<String, JsonNode>emptyMap());
-            Map<String, JsonNode> newCells = newSheets.getOrDefault(sheet, Collections.<String, JsonNode>emptyMap());
-
-            Set<String> allKeys = new HashSet<String>();
-            allKeys.addAll(oldCells.keySet());
-            allKeys.addAll(newCells.keySet());
-
-            // System.out.println("Sheet " + sheet + ": comparing " + allKeys.size() + "
-            // cells");
-
-            for (String key : allKeys) {
-                JsonNode oldCell = oldCells.get(key);
-                JsonNode newCell = newCells.get(key);
-
-                int row = Integer.parseInt(key.split(":")[0]);
-                int col = Integer.parseInt(key.split(":")[1]);
-
-                String oldVal = normalize(getSafeText(oldCell, "value"));
-                String newVal = normalize(getSafeText(newCell, "value"));
-
-                boolean oldBold = getSafeBool(oldCell, "fontBold");
-                boolean newBold = getSafeBool(newCell, "fontBold");
-                boolean oldStrike = getSafeBool(oldCell, "strike");
-                boolean newStrike = getSafeBool(newCell, "strike");
-                int oldFontSize = getSafeInt(oldCell, "fontSize", 11);
-                int newFontSize = getSafeInt(newCell, "fontSize", 11);
-
-                String oldColor = normalizeColor(getSafeText(oldCell, "fontColor"), null);
-                String newColor = normalizeColor(getSafeText(newCell, "fontColor"), null);
-
-                String oldBg = normalizeColor(getSafeText(oldCell, "bgColor"), null);
-                String newBg = normalizeColor(getSafeText(newCell, "bgColor"), null);
-
-                String oldAlign = getSafeText(oldCell, "alignment");
-                String newAlign = getSafeText(newCell, "alignment");
-
-                String oldBorderTop = getSafeText(oldCell, "borderTop");
-                String newBorderTop = getSafeText(newCell, "borderTop");
-                String oldBorderBottom = getSafeText(oldCell, "borderBottom");
-                String newBorderBottom = getSafeText(newCell, "borderBottom");
-                String oldBorderLeft = getSafeText(oldCell, "borderLeft");
-                String newBorderLeft = getSafeText(newCell, "borderLeft");
-                String oldBorderRight = getSafeText(oldCell, "borderRight");
-                String newBorderRight = getSafeText(newCell, "borderRight");
-
-                boolean added = (oldCell == null && newCell != null);
-                boolean deleted = (oldCell != null && newCell == null);
-                boolean valueChanged = !normalizeText(oldVal).equals(normalizeText(newVal));
-
-                boolean formatChanged = oldBold != newBold ||
-                        oldStrike != newStrike ||
-                        oldFontSize != newFontSize ||
-                        !Objects.equals(oldColor, newColor) ||
-                        !Objects.equals(oldBg, newBg) ||
-                        !Objects.equals(oldAlign, newAlign) ||
-                        !Objects.equals(oldBorderTop, newBorderTop) ||
-                        !Objects.equals(oldBorderBottom, newBorderBottom) ||
-                        !Objects.equals(oldBorderLeft, newBorderLeft) ||
-                        !Objects.equals(oldBorderRight, newBorderRight);
-
-                if (added || deleted || valueChanged || formatChanged) {
-                    ChangeItem item = new ChangeItem();
-                    item.setSheet(sheet);
-                    item.setRow(row);
-                    item.setCol(col);
-                    item.setOldValue(oldVal);
-                    item.setNewValue(newVal);
-
-                    if (added)
-                        item.setChangeType("ADDED");
-                    else if (deleted)
-                        item.setChangeType("DELETED");
-                    else
-                        item.setChangeType("MODIFIED");
-
-                    // meta with old/new style pairs for frontend
-                    Map<String, Object> meta = new HashMap<String, Object>();
-                    meta.put("oldFontColor", oldColor);
-                    meta.put("newFontColor", newColor);
-                    meta.put("oldBgColor", oldBg);
-                    meta.put("newBgColor", newBg);
-                    meta.put("oldFontSize", oldFontSize);
-                    meta.put("newFontSize", newFontSize);
-                    meta.put("oldBold", oldBold);
-                    meta.put("newBold", newBold);
-                    meta.put("oldStrike", oldStrike);
-                    meta.put("newStrike", newStrike);
-                    meta.put("oldAlign", oldAlign);
-                    meta.put("newAlign", newAlign);
-                    meta.put("oldBorders", String.join(", ",
-                            safeVal(oldBorderTop), safeVal(oldBorderBottom),
-                            safeVal(oldBorderLeft), safeVal(oldBorderRight)));
-                    meta.put("newBorders", String.join(", ",
-                            safeVal(newBorderTop), safeVal(newBorderBottom),
-                            safeVal(newBorderLeft), safeVal(newBorderRight)));
-                    item.setMeta(meta);
-
-                    diffs.add(item);
-                }
+    /** Converts fetched JSON: into the snapshot store under its blob SHA, or on the heap without one. */
+    private MappedSnapshot toSnapshot(String blobSha, String json) throws Exception {
+        if (json == null || json.trim().isEmpty())
+            return null;
+        return blobSha != null ? snapshots.get(blobSha, () -> json) : MappedSnapshot.parse(json);
+    }
+
+    /**
+     * Diffs one snapshot file once both of its versions are fetched. The diff runs
+     * on {@code pool} so I/O threads are free for the remaining fetches.
+     */
+    private CompletableFuture<List<ChangeItem>> diffAsync(final String file, CompletableFuture<MappedSnapshot> head,
+            CompletableFuture<MappedSnapshot> base, final DiffOptions options, final ForkJoinPool pool) {
+        return head.thenCombineAsync(base, (headSnapshot, baseSnapshot) -> {
+            try {
+                return diffFile(file, headSnapshot, baseSnapshot, options, pool);
+            } catch (Exception e) {
+                throw new CompletionException(e);
             }
+        }, CorrelationId.propagating(pool));
+    }
+
+    /** Diffs one snapshot file's fetched versions under a diff admission permit; no head means no changes. */
+    private List<ChangeItem> diffFile(String file, MappedSnapshot head, MappedSnapshot base, DiffOptions options,
+            ForkJoinPool pool) throws Exception {
+        if (head == null)
+            return Collections.<ChangeItem>emptyList();
+        AdmissionControl.Permit permit = admission.acquire("diff", diffCost(head, base));
+        try {
+            return diffAdmitted(file, head, base, options, pool);
+        } finally {
+            permit.close();
         }
+    }
 
-        return diffs;
-    }
-
-    /** === Helpers === */
-    private Map<String, Map<String, JsonNode>> buildSheetMap(JsonNode root) {
-        Map<String, Map<String, JsonNode>> sheets = new HashMap<String, Map<String, JsonNode>>();
-        if (root != null && root.has("sheets")) {
-            for (JsonNode s : root.get("sheets")) {
-                String sheetName = s.has("name") ? s.get("name").asText() : "Sheet1";
-                Map<String, JsonNode> cellMap = new HashMap<String, JsonNode>();
-                if (s.has("cells")) {
-                    for (JsonNode c : s.get("cells")) {
-                        // skip completely empty cells (helps reduce noise)
-                        boolean hasValue = c.has("value") && c.get("value") != null
-                                && !c.get("value").asText().trim().isEmpty();
-                        boolean hasStyle = c.has("fontColor") || c.has("bgColor") || c.has("fontBold")
-                                || c.has("fontSize") || c.has("strike");
-                        if (!hasValue && !hasStyle) {
-                            // still include if you want full map, but skipping reduces false-positive noise
-                            // continue;
-                        }
-                        String key = c.get("row").asInt() + ":" + c.get("col").asInt();
-                        cellMap.put(key, c);
-                    }
+    private long diffCost(MappedSnapshot head, MappedSnapshot base) {
+        return admission.estimateSnapshotDiff(base != null ? base.totalCells() : 0, head.totalCells());
+    }
+
+    /** {@link #diffFile} once its permit is held; sheets are diffed on {@code pool}. */
+    private List<ChangeItem> diffAdmitted(String file, MappedSnapshot head, MappedSnapshot base, DiffOptions options,
+            ForkJoinPool pool) throws Exception {
+        String originalExcelName = file.replaceAll("\\.json$", ".xlsx");
+        List<ChangeItem> fileChanges = diffService.diffSnapshots(base, head, options, originalExcelName, pool);
+        log.debug("Diffed file={} changes={}", file, fileChanges.size());
+        for (ChangeItem item : fileChanges) {
+            item.setFileName(originalExcelName);
+        }
+        return fileChanges;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    /**
+     * Positional cell changes of the given changed files between two refs, on the
+     * calling thread's behalf (the merge queue's overlap check); not cached.
+     */
+    public List<ChangeItem> diffFiles(List<ChangedFile> changedFiles, String baseRef, String headRef)
+            throws Exception {
+        List<ChangeItem> allChanges = new ArrayList<>();
+        for (CompletableFuture<List<ChangeItem>> fileChanges : diffChangedFiles(changedFiles, baseRef, headRef,
+                null, ioExecutor, diffPool)) {
+            allChanges.addAll(join(fileChanges));
+        }
+        return allChanges;
+    }
+
+    public List<ChangeItem> getCommitChanges(String sha) throws Exception {
+        return getCommitChanges(sha, null);
+    }
+
+    public List<ChangeItem> getCommitChanges(String sha, DiffOptions options) throws Exception {
+        interactiveStarted();
+        try {
+            // A commit never changes, so its diff is cached under a fixed version
+            return metrics.time("commit_changes", () -> diffCache.get(DiffCache.commitKey(sha, options), "", () -> {
+                // Diff against the first parent; a root commit adds every file
+                List<String> parents = gitHubService.getCommitParents(sha);
+                String parentSha = !parents.isEmpty() ? parents.get(0) : null;
+
+                List<ChangedFile> changedFiles = gitHubService.getChangedFiles(parentSha, sha);
+
+                List<ChangeItem> allChanges = new ArrayList<>();
+                for (CompletableFuture<List<ChangeItem>> fileChanges : diffChangedFiles(changedFiles, parentSha,
+                        sha, options, ioExecutor, diffPool)) {
+                    allChanges.addAll(join(fileChanges));
                 }
-                sheets.put(sheetName, cellMap);
-            }
+                return allChanges;
+            }));
+        } catch (AdmissionRejectedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Failed to load commit changes sha={}: {}", sha, e.getMessage());
+            return new ArrayList<>();
+        } finally {
+            interactiveEnded();
         }
-        return sheets;
     }
 
-    private String normalize(String s) {
-        if (s == null)
-            return "";
-        return s
-                .replace('\u00A0', ' ')
-                .replace("“", "\"")
-                .replace("”", "\"")
-                .replace("’", "'")
-                .replace("…", "...")
-                .replaceAll("[\\uFFFD]", "")
-                .trim();
+    /**
+     * Non-blocking {@link #getPRChanges(int, DiffOptions)}: with github.reactive.enabled
+     * the fetches go through {@link ReactiveGitHubService} and no thread waits on
+     * GitHub, up to github.io-concurrency files at a time; diffs still run on the
+     * diff pool. Otherwise the blocking path runs when the result is subscribed.
+     */
+    public Mono<List<ChangeItem>> getPRChangesAsync(int prNumber, DiffOptions options) {
+        if (!reactiveEnabled)
+            return Mono.fromCallable(() -> getPRChanges(prNumber, options));
+        Function<Tuple3<String, Optional<MappedSnapshot>, Optional<MappedSnapshot>>, List<ChangeItem>> diff = diffStep(options);
+        Mono<List<ChangeItem>> changes = reactiveGitHub.getPullRequestDetails(prNumber).flatMap(prDetails -> {
+            String headSha = (String) prDetails.get("head_sha");
+            String baseSha = (String) prDetails.get("base_sha");
+            String targetHead = headSha != null ? headSha : (String) prDetails.get("head_branch");
+            String targetBase = baseSha != null ? baseSha : (String) prDetails.get("base_branch");
+            return cached(DiffCache.prKey(prNumber, options), targetHead + ".." + targetBase,
+                    reactiveGitHub.getChangedFiles(targetBase, targetHead)
+                            .flatMap(files -> diffChangedFilesAsync(files, targetBase, targetHead, options, diff)));
+        });
+        return interactive(metrics.time("pr_changes", changes)).onErrorResume(
+                e -> !(e instanceof AdmissionRejectedException), e -> {
+                    log.error("Failed to load PR changes pr={}", prNumber, e);
+                    return Mono.just(new ArrayList<>());
+                });
+    }
+
+    /** Non-blocking {@link #getCommitChanges(String, DiffOptions)}, see {@link #getPRChangesAsync}. */
+    public Mono<List<ChangeItem>> getCommitChangesAsync(String sha, DiffOptions options) {
+        if (!reactiveEnabled)
+            return Mono.fromCallable(() -> getCommitChanges(sha, options));
+        Function<Tuple3<String, Optional<MappedSnapshot>, Optional<MappedSnapshot>>, List<ChangeItem>> diff = diffStep(options);
+        Mono<List<ChangeItem>> changes = cached(DiffCache.commitKey(sha, options), "",
+                reactiveGitHub.getCommitParents(sha).flatMap(parents -> {
+                    String parentSha = !parents.isEmpty() ? parents.get(0) : null;
+                    return reactiveGitHub.getChangedFiles(parentSha, sha)
+                            .flatMap(files -> diffChangedFilesAsync(files, parentSha, sha, options, diff));
+                }));
+        return interactive(metrics.time("commit_changes", changes)).onErrorResume(
+                e -> !(e instanceof AdmissionRejectedException), e -> {
+                    log.error("Failed to load commit changes sha={}: {}", sha, e.getMessage());
+                    return Mono.just(new ArrayList<>());
+                });
     }
 
-    private String getSafeText(JsonNode node, String key) {
-        return (node != null && node.has(key)) ? node.get(key).asText() : null;
+    private Mono<List<ChangeItem>> cached(String key, String version, Mono<List<ChangeItem>> loader) {
+        // a copy, so a cancelled request doesn't cancel the computation other requests share
+        return Mono.defer(() -> Mono.fromFuture(diffCache.getAsync(key, version, loader::toFuture).copy()));
     }
 
-    private boolean getSafeBool(JsonNode node, String key) {
-        return node != null && node.has(key) && node.get(key).asBoolean();
+    private <T> Mono<T> interactive(Mono<T> work) {
+        return Mono.defer(() -> {
+            interactiveStarted();
+            return work.doFinally(signal -> interactiveEnded());
+        });
     }
 
-    private int getSafeInt(JsonNode node, String key, int def) {
-        return (node != null && node.has(key)) ? node.get(key).asInt(def) : def;
+    /**
+     * Diff step for {@link #diffChangedFilesAsync}: (file, head, base) to changes, run
+     * once {@link #admitted} holds its permit. Built on the request thread so diffs log
+     * under its correlation id wherever they run.
+     */
+    private Function<Tuple3<String, Optional<MappedSnapshot>, Optional<MappedSnapshot>>, List<ChangeItem>> diffStep(
+            DiffOptions options) {
+        return CorrelationId.wrap(sides -> {
+            try {
+                return diffAdmitted(sides.getT1(), sides.getT2().get(), sides.getT3().orElse(null), options,
+                        diffPool);
+            } catch (Exception e) {
+                throw Exceptions.propagate(e);
+            }
+        });
     }
 
-    private String normalizeColor(String color, String def) {
-        if (color == null || color.trim().isEmpty())
-            return def;
-        color = color.trim().toUpperCase();
-        if (!color.startsWith("#"))
-            color = "#" + color;
-        if (color.length() == 7)
-            return color;
-        if (color.length() == 9)
-            return "#" + color.substring(3);
-        return def;
+    /**
+     * {@link #diffChangedFiles} on the reactive client; changes are kept in changed-file
+     * order. Delta-history workbooks are resolved through the blocking client on the
+     * I/O executor.
+     */
+    private Mono<List<ChangeItem>> diffChangedFilesAsync(List<ChangedFile> changedFiles, String baseRef,
+            String headRef, DiffOptions options,
+            Function<Tuple3<String, Optional<MappedSnapshot>, Optional<MappedSnapshot>>, List<ChangeItem>> diff) {
+        Set<String> workbooks = new HashSet<>();
+        return Flux.fromIterable(changedFiles)
+                .filter(file -> isVersioned(file) ? workbooks.add(DeltaHistoryService.snapshotPath(file.getPath()))
+                        : file.getPath().endsWith(".json"))
+                .flatMapSequential(file -> {
+                    if (isVersioned(file)) {
+                        String path = DeltaHistoryService.snapshotPath(file.getPath());
+                        return Mono.fromFuture(() -> diffVersionsAsync(path, baseRef, headRef, options, ioExecutor,
+                                diffPool));
+                    }
+                    String basePath = file.getPreviousPath() != null ? file.getPreviousPath() : file.getPath();
+                    return Mono.zip(Mono.just(file.getPath()),
+                            fetchReactive(file.getPath(), file.getHeadBlobSha(), file.getHeadRef()),
+                            fetchReactive(basePath, file.getBaseBlobSha(), file.getBaseRef()))
+                            .flatMap(sides -> admitted(sides, diff));
+                }, ioConcurrency)
+                .flatMapIterable(fileChanges -> fileChanges)
+                .collectList();
     }
 
-    private String normalizeText(String s) {
-        if (s == null)
-            return "";
-        return s.replace('\u00A0', ' ')
-                .replaceAll("\\s+", " ")
-                .trim();
+    /**
+     * Runs the diff step on the diff scheduler under a diff admission permit; no head
+     * means no changes. Waiting for the permit blocks, so it is taken on the elastic
+     * scheduler before switching to the diff scheduler, and returned however the diff
+     * ends.
+     */
+    private Mono<List<ChangeItem>> admitted(Tuple3<String, Optional<MappedSnapshot>, Optional<MappedSnapshot>> sides,
+            Function<Tuple3<String, Optional<MappedSnapshot>, Optional<MappedSnapshot>>, List<ChangeItem>> diff) {
+        if (!sides.getT2().isPresent())
+            return Mono.just(Collections.<ChangeItem>emptyList());
+        long cost = diffCost(sides.getT2().get(), sides.getT3().orElse(null));
+        return Mono.using(() -> admission.acquire("diff", cost),
+                permit -> Mono.fromSupplier(() -> diff.apply(sides)).subscribeOn(diffScheduler),
+                AdmissionControl.Permit::close)
+                .subscribeOn(Schedulers.boundedElastic());
     }
 
-    private String safeVal(String val) {
-        return val == null ? "" : val;
+    /** {@link #fetchAsync} on the reactive client; conversion runs on the diff scheduler. */
+    private Mono<Optional<MappedSnapshot>> fetchReactive(String file, String blobSha, String ref) {
+        if (blobSha == null && ref == null)
+            return Mono.just(Optional.empty());
+        return Mono.defer(() -> {
+            MappedSnapshot stored = blobSha != null ? snapshots.getIfPresent(blobSha) : null;
+            if (stored != null)
+                return Mono.just(Optional.of(stored));
+            Mono<String> content = blobSha != null ? reactiveGitHub.getBlobContent(blobSha)
+                    : reactiveGitHub.getFileContent(file, ref);
+            return content.publishOn(diffScheduler)
+                    .map(json -> {
+                        try {
+                            return Optional.ofNullable(toSnapshot(blobSha, json));
+                        } catch (Exception e) {
+                            throw Exceptions.propagate(e);
+                        }
+                    })
+                    .defaultIfEmpty(Optional.empty());
+        });
     }
 }
@@ -0,0 +1,106 @@
+package com.example.msslideapp.service;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.time.Duration;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * On-demand JDK Flight Recorder session. The msslide.* events (conversion, diff,
+ * GitHub calls) are recorded together with the JDK's own CPU, allocation, GC and
+ * lock events, so one dump from a live instance shows where an upload or a PR
+ * view spent its time. Open dumps in JDK Mission Control or with {@code jfr print}.
+ * <p>
+ * Recordings use the bundled jfr/msslide.jfc, the JDK profile settings without the
+ * initial environment variable and system property events: those would put
+ * GITHUB_TOKEN and the webhook secret into every dump. They are switched off on
+ * the recording too, whatever settings file is configured.
+ */
+@Service
+public class FlightRecorderService {
+
+    private static final Logger log = LoggerFactory.getLogger(FlightRecorderService.class);
+
+    private static final String[] SECRET_EVENTS = { "jdk.InitialEnvironmentVariable", "jdk.InitialSystemProperty" };
+
+    @Value("${diagnostics.jfr.settings:classpath:jfr/msslide.jfc}")
+    private Resource settings;
+
+    @Value("${diagnostics.jfr.max-age-minutes:30}")
+    private long maxAgeMinutes;
+
+    @Value("${diagnostics.jfr.dir:storage/jfr}")
+    private String dumpDir;
+
+    private Recording recording;
+
+    /** Starts a recording; a recording that is already running is kept. */
+    public synchronized Map<String, Object> start() throws Exception {
+        if (recording == null || recording.getState() != RecordingState.RUNNING) {
+            Configuration configuration;
+            try (Reader in = new InputStreamReader(settings.getInputStream(), StandardCharsets.UTF_8)) {
+                configuration = Configuration.create(in);
+            }
+            Recording r = new Recording(configuration);
+            for (String event : SECRET_EVENTS)
+                r.disable(event);
+            r.setName("msslide");
+            r.setToDisk(true);
+            r.setMaxAge(Duration.ofMinutes(maxAgeMinutes));
+            r.start();
+            recording = r;
+            log.info("Flight recording started name={}", r.getName());
+        }
+        return status();
+    }
+
+    /** Writes everything recorded so far to a new file; the recording keeps running. */
+    public synchronized File dump() throws Exception {
+        if (recording == null || recording.getState() != RecordingState.RUNNING)
+            throw new IllegalStateException("No flight recording is running");
+        Path dir = new File(dumpDir).toPath();
+        Files.createDirectories(dir);
+        Path file = dir.resolve("msslide-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".jfr");
+        recording.dump(file);
+        log.info("Flight recording dumped file={}", file.toAbsolutePath());
+        return file.toFile();
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+            log.info("Flight recording stopped");
+        }
+    }
+
+    public synchronized Map<String, Object> status() {
+        Map<String, Object> status = new HashMap<>();
+        boolean running = recording != null && recording.getState() == RecordingState.RUNNING;
+        status.put("running", running);
+        if (running) {
+            status.put("name", recording.getName());
+            status.put("startTime", recording.getStartTime().toString());
+            status.put("maxAgeMinutes", recording.getMaxAge().toMinutes());
+        }
+        return status;
+    }
+}
@@ -1,22 +1,44 @@
 package com.example.msslideapp.service;
 
+import com.example.msslideapp.jfr.GitHubCallEvent;
+import com.example.msslideapp.model.ChangedFile;
+import com.example.msslideapp.model.PullRequestPage;
+import com.fasterxml.jackson.core.Base64Variants;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.http.impl.client.HttpClients;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Service
 public class GitHubService {
 
+    private static final Logger log = LoggerFactory.getLogger(GitHubService.class);
+
     @Value("${github.token}")
     private String token;
 
@@ -26,15 +48,193 @@ public class GitHubService {
     @Value("${github.repo.name}")
     private String repoName;
 
+    @Value("${github.blob-cache-mb:256}")
+    private long blobCacheMb;
+
+    // reads that can change (PR lists, commit history, branch trees); the webhook invalidates them early
+    @Value("${github.cache.ttl-seconds:60}")
+    private long cacheTtlSeconds;
+
+    @Value("${github.cache.max-entries:1024}")
+    private int cacheMaxEntries;
+
+    // REST API root; pointed at a local stand-in for load tests (msslideapp-loadtest)
+    @Value("${github.api-base:https://api.github.com}")
+    private String apiBase;
+
+    @Value("${github.graphql.enabled:true}")
+    private boolean graphqlEnabled;
+
+    @Value("${github.graphql.url:https://api.github.com/graphql}")
+    private String graphqlUrl;
+
+    @Value("${github.graphql.page-size:50}")
+    private int graphqlPageSize;
+
     private final RestTemplate restTemplate;
     private final ObjectMapper mapper = new ObjectMapper();
 
-    public GitHubService() {
-        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory();
+    // blob SHA -> decoded content, least recently used first
+    private final LinkedHashMap<String, String> blobCache = new LinkedHashMap<String, String>(64, 0.75f, true);
+    private long blobCacheChars;
+
+    private static final class CachedRead {
+        final Object value;
+        final long expiresAt;
+
+        CachedRead(Object value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    // least recently used first; bounded by github.cache.max-entries, expired entries are dropped when read
+    private final LinkedHashMap<String, CachedRead> readCache = new LinkedHashMap<String, CachedRead>(64, 0.75f, true);
+
+    public GitHubService(@Value("${github.max-connections:16}") int maxConnections, PipelineMetrics metrics) {
+        // the system-property default allows only 5 connections per host, too few for concurrent fetches
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(
+                HttpClients.custom()
+                        .useSystemProperties()
+                        .setMaxConnPerRoute(maxConnections)
+                        .setMaxConnTotal(maxConnections)
+                        .build());
         this.restTemplate = new RestTemplate(requestFactory);
+        this.restTemplate.getInterceptors().add((request, body, execution) -> {
+            long start = System.nanoTime();
+            String status = "IO_ERROR";
+            GitHubCallEvent event = new GitHubCallEvent();
+            event.begin();
+            try {
+                ClientHttpResponse response = execution.execute(request, body);
+                status = String.valueOf(response.getRawStatusCode());
+                return event.isEnabled() ? new RecordedResponse(response, event) : response;
+            } finally {
+                String endpoint = endpointOf(request.getURI());
+                metrics.recordGitHubRequest(endpoint, request.getMethodValue(), status, System.nanoTime() - start);
+                event.endpoint = endpoint;
+                event.method = request.getMethodValue();
+                event.status = status;
+                event.bytesSent = body.length;
+                if ("IO_ERROR".equals(status)) {
+                    event.commit();
+                }
+            }
+        });
     }
 
-    private static final String GITHUB_API_BASE = "https://api.github.com";
+    /**
+     * Counts the bytes read from a response body and commits its flight recorder
+     * event when RestTemplate closes the response, i.e. after the body was read.
+     */
+    private static final class RecordedResponse implements ClientHttpResponse {
+        private final ClientHttpResponse delegate;
+        private final GitHubCallEvent event;
+        private InputStream body;
+        private long received;
+
+        RecordedResponse(ClientHttpResponse delegate, GitHubCallEvent event) {
+            this.delegate = delegate;
+            this.event = event;
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                body = new FilterInputStream(delegate.getBody()) {
+                    @Override
+                    public int read() throws IOException {
+                        int b = super.read();
+                        if (b >= 0)
+                            received++;
+                        return b;
+                    }
+
+                    @Override
+                    public int read(byte[] buf, int off, int len) throws IOException {
+                        int n = super.read(buf, off, len);
+                        if (n > 0)
+                            received += n;
+                        return n;
+                    }
+                };
+            }
+            return body;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public HttpStatus getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public int getRawStatusCode() throws IOException {
+            return delegate.getRawStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+            event.bytesReceived = received;
+            event.commit();
+        }
+    }
+
+    /**
+     * Metric name for a GitHub API URL, with SHAs, numbers, branches and paths
+     * left out so the tag stays low-cardinality (e.g. "pulls/{number}/files").
+     */
+    static String endpointOf(URI uri) {
+        String path = uri.getPath();
+        if (path.endsWith("/graphql"))
+            return "graphql";
+        Matcher m = REPO_PATH.matcher(path);
+        if (!m.matches())
+            return "other";
+        // pagination links use the /repositories/{id} form
+        String[] segments = (m.group(1) != null ? m.group(1) : m.group(2)).split("/");
+        switch (segments[0]) {
+            case "git":
+                return segments.length > 1 ? "git/" + segments[1] : "git";
+            case "pulls":
+                if (segments.length == 1)
+                    return "pulls";
+                return "pulls/{number}" + (segments.length > 2 ? "/" + segments[2] : "");
+            case "commits":
+                return segments.length == 1 ? "commits" : "commits/{sha}";
+            default:
+                return segments[0];
+        }
+    }
+
+    // GitHub's largest page, for both the GraphQL connection and the REST list
+    static final int MAX_PAGE_SIZE = 100;
+    // REST fallback cursors are the next page number, so they can't pass for GraphQL cursors
+    static final String REST_CURSOR = "page:";
+    // a compare response lists at most this many files; past it the list is cut short
+    static final int COMPARE_MAX_FILES = 300;
+    private static final Pattern REPO_PATH = Pattern.compile("^/repos/[^/]+/[^/]+/(.+)$|^/repositories/\\d+/(.+)$");
+
+    private static final String PULL_REQUESTS_QUERY = "query($owner: String!, $name: String!, "
+            + "$states: [PullRequestState!], $first: Int!, $after: String) {"
+            + " repository(owner: $owner, name: $name) {"
+            + " pullRequests(states: $states, first: $first, after: $after,"
+            + " orderBy: {field: CREATED_AT, direction: DESC}) {"
+            + " pageInfo { hasNextPage endCursor }"
+            + " nodes { number title body state createdAt url changedFiles"
+            + " author { login } headRefName baseRefName headRefOid baseRefOid reviewDecision"
+            + " reviewRequests(first: 20) { nodes { requestedReviewer {"
+            + " ... on User { login } ... on Team { slug } } } } } } } }";
 
     private HttpHeaders createHeaders() {
         HttpHeaders headers = new HttpHeaders();
@@ -44,11 +244,85 @@ public class GitHubService {
         return headers;
     }
 
+    private <T> T cachedRead(String key, Callable<T> loader) throws Exception {
+        T cached = getCachedRead(key);
+        if (cached != null)
+            return cached;
+        T value = loader.call();
+        putCachedRead(key, value);
+        return value;
+    }
+
+    /** A still-valid cached read, or null; shared with {@link ReactiveGitHubService}. */
+    @SuppressWarnings("unchecked")
+    <T> T getCachedRead(String key) {
+        synchronized (readCache) {
+            CachedRead cached = readCache.get(key);
+            if (cached == null)
+                return null;
+            if (cached.expiresAt <= System.currentTimeMillis()) {
+                readCache.remove(key);
+                return null;
+            }
+            return (T) cached.value;
+        }
+    }
+
+    void putCachedRead(String key, Object value) {
+        CachedRead read = new CachedRead(value, System.currentTimeMillis() + cacheTtlSeconds * 1000);
+        synchronized (readCache) {
+            readCache.put(key, read);
+            Iterator<String> eldest = readCache.keySet().iterator();
+            while (readCache.size() > Math.max(1, cacheMaxEntries) && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+
+    private List<String> invalidateReads(String prefix) {
+        List<String> dropped = new ArrayList<>();
+        synchronized (readCache) {
+            for (Iterator<String> keys = readCache.keySet().iterator(); keys.hasNext();) {
+                String key = keys.next();
+                if (key.startsWith(prefix)) {
+                    keys.remove();
+                    dropped.add(key);
+                }
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * Drop cached reads of a branch (its tree, and so file contents by branch name)
+     */
+    public List<String> invalidateBranch(String branch) {
+        String key = "tree:" + branch;
+        synchronized (readCache) {
+            return readCache.remove(key) != null ? Collections.singletonList(key) : Collections.<String>emptyList();
+        }
+    }
+
+    /**
+     * Drop cached pull request lists (with and without review state)
+     */
+    public List<String> invalidatePullRequestLists() {
+        return invalidateReads("pulls");
+    }
+
+    /**
+     * Drop cached commit history of the default branch
+     */
+    public List<String> invalidateCommitHistory() {
+        return invalidateReads("commits:");
+    }
+
     /**
      * Get the SHA of a specific branch
      */
     private String getBranchSha(String branchName) throws Exception {
-        String url = String.format("%s/repos/%s/%s/git/refs/heads/%s", GITHUB_API_BASE, repoOwner, repoName,
+        String url = String.format("%s/repos/%s/%s/git/refs/heads/%s", apiBase, repoOwner, repoName,
                 branchName);
 
         HttpEntity<String> entity = new HttpEntity<>(createHeaders());
@@ -65,7 +339,7 @@ public class GitHubService {
     /**
      * Get the default branch SHA
      */
-    private String getDefaultBranchSha() throws Exception {
+    public String getDefaultBranchSha() throws Exception {
         return getBranchSha("main");
     }
 
@@ -74,7 +348,7 @@ public class GitHubService {
      */
     public void createBranch(String branchName) throws Exception {
         String baseSha = getDefaultBranchSha();
-        String url = String.format("%s/repos/%s/%s/git/refs", GITHUB_API_BASE, repoOwner, repoName);
+        String url = String.format("%s/repos/%s/%s/git/refs", apiBase, repoOwner, repoName);
 
         ObjectNode payload = mapper.createObjectNode();
         payload.put("ref", "refs/heads/" + branchName);
@@ -92,7 +366,7 @@ public class GitHubService {
      * Create a new blob (file content) in GitHub
      */
     private String createBlob(byte[] content) throws Exception {
-        String url = String.format("%s/repos/%s/%s/git/blobs", GITHUB_API_BASE, repoOwner, repoName);
+        String url = String.format("%s/repos/%s/%s/git/blobs", apiBase, repoOwner, repoName);
 
         String base64Content = Base64.getEncoder().encodeToString(content);
 
@@ -115,18 +389,26 @@ public class GitHubService {
      * Create a new tree with the file
      */
     private String createTree(String baseSha, String filePath, String blobSha) throws Exception {
-        String url = String.format("%s/repos/%s/%s/git/trees", GITHUB_API_BASE, repoOwner, repoName);
+        return createTree(baseSha, Collections.singletonMap(filePath, blobSha));
+    }
 
-        ObjectNode treeItem = mapper.createObjectNode();
-        treeItem.put("path", filePath);
-        treeItem.put("mode", "100644");
-        treeItem.put("type", "blob");
-        treeItem.put("sha", blobSha);
+    /**
+     * Create a new tree with the files (path to blob SHA; a null SHA deletes the path)
+     */
+    private String createTree(String baseSha, Map<String, String> blobs) throws Exception {
+        String url = String.format("%s/repos/%s/%s/git/trees", apiBase, repoOwner, repoName);
+
+        ArrayNode treeArray = mapper.createArrayNode();
+        for (Map.Entry<String, String> blob : blobs.entrySet()) {
+            ObjectNode treeItem = treeArray.addObject();
+            treeItem.put("path", blob.getKey());
+            treeItem.put("mode", "100644");
+            treeItem.put("type", "blob");
+            treeItem.put("sha", blob.getValue());
+        }
 
         ObjectNode payload = mapper.createObjectNode();
         payload.put("base_tree", baseSha);
-        ArrayNode treeArray = mapper.createArrayNode();
-        treeArray.add(treeItem);
         payload.set("tree", treeArray);
 
         HttpEntity<String> entity = new HttpEntity<>(mapper.writeValueAsString(payload), createHeaders());
@@ -144,14 +426,20 @@ public class GitHubService {
      * Create a commit
      */
     private String createCommit(String message, String treeSha, String parentSha, String author) throws Exception {
-        String url = String.format("%s/repos/%s/%s/git/commits", GITHUB_API_BASE, repoOwner, repoName);
+        return createCommit(message, treeSha, Collections.singletonList(parentSha), author);
+    }
+
+    private String createCommit(String message, String treeSha, List<String> parents, String author)
+            throws Exception {
+        String url = String.format("%s/repos/%s/%s/git/commits", apiBase, repoOwner, repoName);
 
         ObjectNode authorNode = mapper.createObjectNode();
         authorNode.put("name", author == null ? "System" : author);
         authorNode.put("email", (author == null ? "system" : author) + "@example.com");
 
         ArrayNode parentsArray = mapper.createArrayNode();
-        parentsArray.add(parentSha);
+        for (String parent : parents)
+            parentsArray.add(parent);
 
         ObjectNode payload = mapper.createObjectNode();
         payload.put("message", message);
@@ -175,7 +463,7 @@ public class GitHubService {
      * Update branch reference to point to new commit
      */
     private void updateBranchRef(String branch, String commitSha) throws Exception {
-        String url = String.format("%s/repos/%s/%s/git/refs/heads/%s", GITHUB_API_BASE, repoOwner, repoName, branch);
+        String url = String.format("%s/repos/%s/%s/git/refs/heads/%s", apiBase, repoOwner, repoName, branch);
 
         ObjectNode payload = mapper.createObjectNode();
         payload.put("sha", commitSha);
@@ -190,35 +478,336 @@ public class GitHubService {
     }
 
     /**
-     * Get file content from a specific branch
+     * Get file content from a specific branch; null if the file doesn't exist there.
+     * Any other failure to fetch it is thrown, so it isn't mistaken for a missing file.
+     * <p>
+     * The path is looked up in the ref's cached tree, so for a branch name the content
+     * can be up to github.cache.ttl-seconds old unless the webhook invalidates the tree
+     * on push; keep that TTL short without the webhook. Content read by commit SHA
+     * never goes stale.
      */
     public String getFileContent(String filePath, String branchName) {
+        // the (cached) tree maps the path to a blob, whose content is cached by SHA
+        String blobSha = null;
+        try {
+            blobSha = getTreeBlobs(branchName).get(filePath);
+        } catch (HttpClientErrorException.NotFound e) {
+            // no such ref as a tree-ish; the contents API answers for it
+            log.debug("No tree for ref={}, fetching path={} by contents", branchName, filePath);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to get tree for " + branchName + ": " + e.getMessage(), e);
+        }
+        if (blobSha != null)
+            return getBlobContent(blobSha);
         try {
             String url = String.format("%s/repos/%s/%s/contents/{path}?ref={ref}",
-                    GITHUB_API_BASE, repoOwner, repoName);
-
-            HttpEntity<String> entity = new HttpEntity<>(createHeaders());
+                    apiBase, repoOwner, repoName);
 
             Map<String, String> uriVariables = new HashMap<>();
             uriVariables.put("path", filePath);
             uriVariables.put("ref", branchName);
 
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class,
+            // decoded straight off the response stream; no intermediate String or JsonNode
+            ContentsResponse contents = restTemplate.execute(url, HttpMethod.GET,
+                    request -> request.getHeaders().addAll(createHeaders()),
+                    response -> readContents(response.getBody(), response.getHeaders().getContentLength()),
                     uriVariables);
+            // files over 1 MB come back with an empty content ("encoding": "none"); fetch their blob raw
+            if (contents != null && contents.sha != null && (contents.content == null || contents.content.isEmpty()))
+                return getBlobContent(contents.sha);
+            return contents != null ? contents.content : null;
+        } catch (HttpClientErrorException.NotFound e) {
+            log.debug("No file content path={} ref={}", filePath, branchName);
+            return null;
+        }
+    }
 
-            if (response.getStatusCode() == HttpStatus.OK) {
-                JsonNode json = mapper.readTree(response.getBody());
-                String content = json.get("content").asText();
-                // Content is base64 encoded with newlines
-                content = content.replaceAll("\\n", "").replaceAll("\\r", "");
-                return new String(Base64.getDecoder().decode(content));
+    private static final class ContentsResponse {
+        String sha;
+        String content;
+    }
+
+    /**
+     * Reads a contents API response as a token stream, base64-decoding the
+     * (line-wrapped) "content" value directly from the response into a buffer
+     * sized from its length. The encoded text is never materialised, so a fetch
+     * peaks at about the decoded bytes plus the returned String.
+     */
+    ContentsResponse readContents(InputStream body, long contentLength) throws IOException {
+        ContentsResponse contents = new ContentsResponse();
+        try (JsonParser parser = mapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT)
+                throw new IOException("Unexpected contents response (not an object)");
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.VALUE_STRING && "sha".equals(field)) {
+                    contents.sha = parser.getText();
+                } else if (value == JsonToken.VALUE_STRING && "content".equals(field)) {
+                    // 4 base64 chars per 3 bytes; the rest of the envelope is a few hundred bytes
+                    int expected = contentLength > 0
+                            ? (int) Math.min(Integer.MAX_VALUE - 8, contentLength / 4 * 3) : 8192;
+                    ByteArrayOutputStream decoded = new ByteArrayOutputStream(expected);
+                    parser.readBinaryValue(Base64Variants.MIME, decoded);
+                    contents.content = decoded.toString(StandardCharsets.UTF_8);
+                } else {
+                    parser.skipChildren();
+                }
             }
-        } catch (Exception e) {
-            // File might not exist
-            System.err.println("Error fetching file content for " + filePath + ": " + e.getMessage());
+        }
+        return contents;
+    }
+
+    /**
+     * Get a blob's content by SHA; null if there is no such blob, and thrown if it
+     * can't be fetched. Blobs are content-addressed, so cached entries never go
+     * stale; the cache is only bounded by github.blob-cache-mb.
+     */
+    public String getBlobContent(String blobSha) {
+        String cached = getCachedBlob(blobSha);
+        if (cached != null)
+            return cached;
+        try {
+            String url = String.format("%s/repos/%s/%s/git/blobs/%s", apiBase, repoOwner, repoName, blobSha);
+
+            // raw media type: the body is the file itself, no base64 envelope
+            HttpHeaders headers = createHeaders();
+            headers.set("Accept", "application/vnd.github.v3.raw");
+            ResponseEntity<byte[]> response = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers),
+                    byte[].class);
+
+            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
+                String content = new String(response.getBody(), StandardCharsets.UTF_8);
+                cacheBlob(blobSha, content);
+                return content;
+            }
+            throw new RuntimeException("Failed to fetch blob " + blobSha + ": " + response.getStatusCode());
+        } catch (HttpClientErrorException.NotFound e) {
+            log.debug("No blob sha={}", blobSha);
             return null;
         }
-        return null;
+    }
+
+    String getCachedBlob(String blobSha) {
+        synchronized (blobCache) {
+            return blobCache.get(blobSha);
+        }
+    }
+
+    void cacheBlob(String blobSha, String content) {
+        long budget = blobCacheMb * 1024 * 1024 / 2; // chars, two bytes each
+        if (content.length() > budget)
+            return;
+        synchronized (blobCache) {
+            String previous = blobCache.put(blobSha, content);
+            if (previous != null)
+                blobCacheChars -= previous.length();
+            blobCacheChars += content.length();
+            Iterator<String> eldest = blobCache.values().iterator();
+            while (blobCacheChars > budget && eldest.hasNext()) {
+                blobCacheChars -= eldest.next().length();
+                eldest.remove();
+            }
+        }
+    }
+
+    /**
+     * Resolve every file changed between two commits, with blob SHAs for both
+     * sides. Uses one compare call plus one recursive tree call for the base,
+     * instead of listing files and then fetching contents by ref. A compare lists
+     * at most {@link #COMPARE_MAX_FILES} files (all on its first page; later pages
+     * only page through commits), so a full list is replaced by a diff of the two
+     * trees. A null base means a root commit: every file in the head tree is added.
+     */
+    public List<ChangedFile> getChangedFiles(String baseRef, String headRef) throws Exception {
+        if (baseRef == null)
+            return addedFiles(getTreeBlobs(headRef), headRef);
+
+        // per_page only pages the commits, which aren't needed
+        String url = String.format("%s/repos/%s/%s/compare/%s...%s?per_page=1",
+                apiBase, repoOwner, repoName, baseRef, headRef);
+        HttpEntity<String> entity = new HttpEntity<>(createHeaders());
+        ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
+        if (response.getStatusCode() != HttpStatus.OK)
+            throw new RuntimeException("Failed to compare " + baseRef + "..." + headRef + ": " + response.getBody());
+
+        JsonNode compare = mapper.readTree(response.getBody());
+        if (compare.path("files").size() >= COMPARE_MAX_FILES) {
+            log.warn("Compare lists {}+ files base={} head={}; diffing their trees instead", COMPARE_MAX_FILES,
+                    baseRef, headRef);
+            return treeChanges(getTreeBlobs(baseRef), getTreeBlobs(headRef), baseRef, headRef);
+        }
+
+        List<ChangedFile> changed = compareFiles(compare, headRef);
+        // the compare payload only carries head blob SHAs; base ones come from the base tree
+        if (needsBaseTree(changed))
+            setBaseBlobs(changed, getTreeBlobs(baseRef), baseRef);
+        return changed;
+    }
+
+    /**
+     * The merge base of two commits: where {@code headRef} forked from {@code baseRef}'s history
+     */
+    public String getMergeBase(String baseRef, String headRef) throws Exception {
+        String url = String.format("%s/repos/%s/%s/compare/%s...%s?per_page=1",
+                apiBase, repoOwner, repoName, baseRef, headRef);
+
+        HttpEntity<String> entity = new HttpEntity<>(createHeaders());
+        ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
+
+        if (response.getStatusCode() == HttpStatus.OK) {
+            return mapper.readTree(response.getBody()).path("merge_base_commit").path("sha").asText(null);
+        }
+
+        throw new RuntimeException("Failed to compare " + baseRef + "..." + headRef + ": " + response.getBody());
+    }
+
+    /** The files of a compare response, with their head blob SHAs. */
+    static List<ChangedFile> compareFiles(JsonNode compare, String headRef) {
+        List<ChangedFile> changed = new ArrayList<>();
+        for (JsonNode f : compare.path("files")) {
+            ChangedFile file = new ChangedFile();
+            file.setPath(f.get("filename").asText());
+            file.setStatus(f.get("status").asText());
+            if (f.has("previous_filename"))
+                file.setPreviousPath(f.get("previous_filename").asText());
+            if (!"removed".equals(file.getStatus())) {
+                file.setHeadBlobSha(f.has("sha") && !f.get("sha").isNull() ? f.get("sha").asText() : null);
+                file.setHeadRef(headRef);
+            }
+            changed.add(file);
+        }
+        return changed;
+    }
+
+    static boolean needsBaseTree(List<ChangedFile> changed) {
+        for (ChangedFile file : changed) {
+            if (!"added".equals(file.getStatus()))
+                return true;
+        }
+        return false;
+    }
+
+    static void setBaseBlobs(List<ChangedFile> changed, Map<String, String> baseBlobs, String baseRef) {
+        for (ChangedFile file : changed) {
+            if ("added".equals(file.getStatus()))
+                continue;
+            String basePath = file.getPreviousPath() != null ? file.getPreviousPath() : file.getPath();
+            file.setBaseBlobSha(baseBlobs.get(basePath));
+            file.setBaseRef(baseRef);
+        }
+    }
+
+    /** Every file of a root commit's tree, as added. */
+    static List<ChangedFile> addedFiles(Map<String, String> headBlobs, String headRef) {
+        List<ChangedFile> changed = new ArrayList<>();
+        for (Map.Entry<String, String> blob : headBlobs.entrySet()) {
+            ChangedFile file = new ChangedFile();
+            file.setPath(blob.getKey());
+            file.setStatus("added");
+            file.setHeadBlobSha(blob.getValue());
+            file.setHeadRef(headRef);
+            changed.add(file);
+        }
+        return changed;
+    }
+
+    /**
+     * Files whose blob differs between two trees, as added, modified or removed
+     * (renames show as a removal and an addition). Paths missing from a truncated
+     * tree are missed.
+     */
+    static List<ChangedFile> treeChanges(Map<String, String> baseBlobs, Map<String, String> headBlobs,
+            String baseRef, String headRef) {
+        List<ChangedFile> changed = new ArrayList<>();
+        for (Map.Entry<String, String> blob : headBlobs.entrySet()) {
+            String baseSha = baseBlobs.get(blob.getKey());
+            if (blob.getValue().equals(baseSha))
+                continue;
+            ChangedFile file = new ChangedFile();
+            file.setPath(blob.getKey());
+            file.setStatus(baseSha == null ? "added" : "modified");
+            file.setHeadBlobSha(blob.getValue());
+            file.setHeadRef(headRef);
+            if (baseSha != null) {
+                file.setBaseBlobSha(baseSha);
+                file.setBaseRef(baseRef);
+            }
+            changed.add(file);
+        }
+        for (Map.Entry<String, String> blob : baseBlobs.entrySet()) {
+            if (headBlobs.containsKey(blob.getKey()))
+                continue;
+            ChangedFile file = new ChangedFile();
+            file.setPath(blob.getKey());
+            file.setStatus("removed");
+            file.setBaseBlobSha(blob.getValue());
+            file.setBaseRef(baseRef);
+            changed.add(file);
+        }
+        return changed;
+    }
+
+    /**
+     * Map every blob path in a commit's tree to its SHA, in one recursive call.
+     * If GitHub truncates the tree the map is partial and missing paths fall back
+     * to the contents API.
+     */
+    public Map<String, String> getTreeBlobs(String ref) throws Exception {
+        return cachedRead("tree:" + ref, () -> fetchTreeBlobs(ref));
+    }
+
+    private Map<String, String> fetchTreeBlobs(String ref) throws Exception {
+        String url = String.format("%s/repos/%s/%s/git/trees/%s?recursive=1",
+                apiBase, repoOwner, repoName, ref);
+
+        HttpEntity<String> entity = new HttpEntity<>(createHeaders());
+        ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
+
+        if (response.getStatusCode() == HttpStatus.OK) {
+            return parseTreeBlobs(mapper.readTree(response.getBody()), ref);
+        }
+
+        throw new RuntimeException("Failed to get tree for " + ref + ": " + response.getBody());
+    }
+
+    static Map<String, String> parseTreeBlobs(JsonNode json, String ref) {
+        if (json.path("truncated").asBoolean()) {
+            log.warn("Tree is truncated ref={}, some files will be fetched by ref", ref);
+        }
+        Map<String, String> blobs = new LinkedHashMap<>();
+        for (JsonNode entry : json.get("tree")) {
+            if ("blob".equals(entry.get("type").asText())) {
+                blobs.put(entry.get("path").asText(), entry.get("sha").asText());
+            }
+        }
+        return blobs;
+    }
+
+    /**
+     * Parent SHAs of a commit, without the file diff getCommitDetails computes
+     */
+    public List<String> getCommitParents(String sha) throws Exception {
+        String url = String.format("%s/repos/%s/%s/git/commits/%s", apiBase, repoOwner, repoName, sha);
+
+        HttpEntity<String> entity = new HttpEntity<>(createHeaders());
+        ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
+
+        if (response.getStatusCode() == HttpStatus.OK) {
+            return parseParents(mapper.readTree(response.getBody()));
+        }
+
+        throw new RuntimeException("Failed to get commit " + sha + ": " + response.getBody());
+    }
+
+    static List<String> parseParents(JsonNode commit) {
+        List<String> parents = new ArrayList<>();
+        for (JsonNode parent : commit.path("parents")) {
+            parents.add(parent.get("sha").asText());
+        }
+        return parents;
     }
 
     /**
@@ -226,7 +815,7 @@ public class GitHubService {
      */
     public List<String> getRepositoryFiles(String path) {
         try {
-            String url = String.format("%s/repos/%s/%s/contents/{path}", GITHUB_API_BASE, repoOwner, repoName);
+            String url = String.format("%s/repos/%s/%s/contents/{path}", apiBase, repoOwner, repoName);
             Map<String, String> uriVariables = new HashMap<>();
             uriVariables.put("path", path);
 
@@ -245,7 +834,7 @@ public class GitHubService {
                 return files;
             }
         } catch (Exception e) {
-            System.err.println("Error listing repo files: " + e.getMessage());
+            log.warn("Failed to list repo files: {}", e.getMessage());
         }
         return Collections.emptyList();
     }
@@ -286,16 +875,39 @@ public class GitHubService {
 
         // Update branch ref
         updateBranchRef(branchName, commitSha);
+        invalidateBranch(branchName);
 
         return commitSha;
     }
 
+    /**
+     * Commit a merge of {@code mergedRef} into a branch: the tree is mergedRef's
+     * with the given files on top (path to blob SHA; null deletes the path), and the
+     * parents are the branch head and mergedRef
+     */
+    public String commitMerge(String branchName, String mergedRef, Map<String, String> blobs, String message,
+            String author) throws Exception {
+        String headSha = getBranchSha(branchName);
+        String treeSha = createTree(mergedRef, blobs);
+        String commitSha = createCommit(message, treeSha, Arrays.asList(headSha, mergedRef), author);
+        updateBranchRef(branchName, commitSha);
+        invalidateBranch(branchName);
+        return commitSha;
+    }
+
+    /**
+     * Create a blob for content to commit with {@link #commitMerge}
+     */
+    public String createBlob(String content) throws Exception {
+        return createBlob(content.getBytes(StandardCharsets.UTF_8));
+    }
+
     /**
      * Create a Pull Request
      */
     public int createPullRequest(String title, String body, String headBranch, List<String> reviewers)
             throws Exception {
-        String url = String.format("%s/repos/%s/%s/pulls", GITHUB_API_BASE, repoOwner, repoName);
+        String url = String.format("%s/repos/%s/%s/pulls", apiBase, repoOwner, repoName);
 
         ObjectNode payload = mapper.createObjectNode();
         payload.put("title", title);
@@ -309,6 +921,7 @@ public class GitHubService {
         if (response.getStatusCode() == HttpStatus.CREATED) {
             JsonNode json = mapper.readTree(response.getBody());
             int prNumber = json.get("number").asInt();
+            invalidatePullRequestLists();
 
             // Request reviewers if provided
             if (reviewers != null && !reviewers.isEmpty()) {
@@ -326,7 +939,7 @@ public class GitHubService {
      */
     private void requestReviewers(int prNumber, List<String> reviewers) throws Exception {
         String url = String.format("%s/repos/%s/%s/pulls/%d/requested_reviewers",
-                GITHUB_API_BASE, repoOwner, repoName, prNumber);
+                apiBase, repoOwner, repoName, prNumber);
 
         ObjectNode payload = mapper.createObjectNode();
         payload.set("reviewers", mapper.valueToTree(reviewers));
@@ -339,7 +952,7 @@ public class GitHubService {
      * Get repository collaborators
      */
     public List<Map<String, String>> getCollaborators() throws Exception {
-        String url = String.format("%s/repos/%s/%s/collaborators", GITHUB_API_BASE, repoOwner, repoName);
+        String url = String.format("%s/repos/%s/%s/collaborators", apiBase, repoOwner, repoName);
 
         HttpEntity<String> entity = new HttpEntity<>(createHeaders());
         ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
@@ -365,7 +978,11 @@ public class GitHubService {
      * Get commit history with optional search
      */
     public List<Map<String, Object>> getCommitHistory(String searchQuery) throws Exception {
-        String url = String.format("%s/repos/%s/%s/commits", GITHUB_API_BASE, repoOwner, repoName);
+        return cachedRead("commits:" + searchQuery, () -> fetchCommitHistory(searchQuery));
+    }
+
+    private List<Map<String, Object>> fetchCommitHistory(String searchQuery) throws Exception {
+        String url = String.format("%s/repos/%s/%s/commits", apiBase, repoOwner, repoName);
 
         HttpEntity<String> entity = new HttpEntity<>(createHeaders());
         ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
@@ -403,7 +1020,7 @@ public class GitHubService {
      * Get commit details (files changed)
      */
     public Map<String, Object> getCommitDetails(String sha) throws Exception {
-        String url = String.format("%s/repos/%s/%s/commits/%s", GITHUB_API_BASE, repoOwner, repoName, sha);
+        String url = String.format("%s/repos/%s/%s/commits/%s", apiBase, repoOwner, repoName, sha);
 
         HttpEntity<String> entity = new HttpEntity<>(createHeaders());
         ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
@@ -449,56 +1066,40 @@ public class GitHubService {
      */
     public Map<String, Object> getPullRequestDetails(int prNumber) throws Exception {
         String url = String.format("%s/repos/%s/%s/pulls/%d",
-                GITHUB_API_BASE, repoOwner, repoName, prNumber);
+                apiBase, repoOwner, repoName, prNumber);
 
         HttpEntity<String> entity = new HttpEntity<>(createHeaders());
         ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
 
         if (response.getStatusCode() == HttpStatus.OK) {
-            JsonNode json = mapper.readTree(response.getBody());
-            Map<String, Object> prDetails = new HashMap<>();
-            prDetails.put("number", json.get("number").asInt());
-            prDetails.put("title", json.get("title").asText());
-            prDetails.put("head_branch", json.get("head").get("ref").asText());
-            prDetails.put("base_branch", json.get("base").get("ref").asText());
-            prDetails.put("head_sha", json.get("head").get("sha").asText());
-            prDetails.put("base_sha", json.get("base").get("sha").asText());
-            return prDetails;
+            return parsePullRequestDetails(mapper.readTree(response.getBody()));
         }
 
         throw new RuntimeException("Failed to get PR details: " + response.getBody());
     }
 
-    /**
-     * Get files changed in a Pull Request
-     */
-    public List<String> getPullRequestFiles(int prNumber) throws Exception {
-        String url = String.format("%s/repos/%s/%s/pulls/%d/files",
-                GITHUB_API_BASE, repoOwner, repoName, prNumber);
-
-        HttpEntity<String> entity = new HttpEntity<>(createHeaders());
-        ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
-
-        if (response.getStatusCode() == HttpStatus.OK) {
-            JsonNode json = mapper.readTree(response.getBody());
-            List<String> files = new ArrayList<>();
-
-            for (JsonNode file : json) {
-                files.add(file.get("filename").asText());
-            }
-
-            return files;
-        }
-
-        throw new RuntimeException("Failed to get PR files: " + response.getBody());
+    static Map<String, Object> parsePullRequestDetails(JsonNode json) {
+        Map<String, Object> prDetails = new HashMap<>();
+        prDetails.put("number", json.get("number").asInt());
+        prDetails.put("title", json.get("title").asText());
+        prDetails.put("head_branch", json.get("head").get("ref").asText());
+        prDetails.put("base_branch", json.get("base").get("ref").asText());
+        prDetails.put("head_sha", json.get("head").get("sha").asText());
+        prDetails.put("base_sha", json.get("base").get("sha").asText());
+        return prDetails;
     }
 
     /**
      * Get Pull Requests (for approvals)
      */
     public List<Map<String, Object>> getPullRequests(String state) throws Exception {
-        String url = String.format("%s/repos/%s/%s/pulls?state=%s",
-                GITHUB_API_BASE, repoOwner, repoName, state);
+        // GitHub's default page of 30, newest first
+        return cachedRead("pulls:" + state, () -> fetchPullRequestPage(state, 30, 1).getItems());
+    }
+
+    private PullRequestPage fetchPullRequestPage(String state, int perPage, int page) throws Exception {
+        String url = String.format("%s/repos/%s/%s/pulls?state=%s&per_page=%d&page=%d",
+                apiBase, repoOwner, repoName, state, perPage, page);
 
         HttpEntity<String> entity = new HttpEntity<>(createHeaders());
         ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
@@ -520,18 +1121,124 @@ public class GitHubService {
                 prs.add(prData);
             }
 
-            return prs;
+            String link = response.getHeaders().getFirst(HttpHeaders.LINK);
+            boolean hasNextPage = link != null && link.contains("rel=\"next\"");
+            return new PullRequestPage(prs, hasNextPage, REST_CURSOR + (page + 1));
         }
 
         throw new RuntimeException("Failed to get pull requests: " + response.getBody());
     }
 
+    /**
+     * Get one page of Pull Requests with review state for the approval lists,
+     * newest first. One GraphQL round-trip returns review decisions, requested
+     * reviewers, changed-file counts and head/base SHAs that would otherwise take
+     * several REST calls per PR. Falls back to a REST page of the same size when
+     * GraphQL is disabled or fails (e.g. a token without GraphQL access); a list
+     * started on REST goes on with REST cursors, a GraphQL cursor can't be
+     * continued there.
+     *
+     * @param first page size, graphqlPageSize when null, at most MAX_PAGE_SIZE
+     * @param after endCursor of the previous page, null for the first page
+     */
+    public PullRequestPage getPullRequestsWithReviews(String state, Integer first, String after) throws Exception {
+        int size = first == null || first <= 0 ? graphqlPageSize : Math.min(first, MAX_PAGE_SIZE);
+        boolean restCursor = after != null && after.startsWith(REST_CURSOR);
+        if (graphqlEnabled && !restCursor) {
+            try {
+                return cachedRead("pulls-reviews:" + state + ":" + size + ":" + after,
+                        () -> queryPullRequests(state, size, after));
+            } catch (Exception e) {
+                if (after != null)
+                    throw e;
+                log.warn("GraphQL pull request query failed state={}, using REST: {}", state, e.getMessage());
+            }
+        }
+        int page = restCursor ? restPage(after) : 1;
+        return cachedRead("pulls-page:" + state + ":" + size + ":" + page,
+                () -> fetchPullRequestPage(state, size, page));
+    }
+
+    private static int restPage(String cursor) {
+        try {
+            return Math.max(1, Integer.parseInt(cursor.substring(REST_CURSOR.length())));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid page cursor: " + cursor);
+        }
+    }
+
+    private PullRequestPage queryPullRequests(String state, int first, String after) throws Exception {
+        List<String> states = new ArrayList<>();
+        if (!"closed".equals(state))
+            states.add("OPEN");
+        if (!"open".equals(state)) {
+            states.add("CLOSED");
+            states.add("MERGED");
+        }
+
+        ObjectNode variables = mapper.createObjectNode();
+        variables.put("owner", repoOwner);
+        variables.put("name", repoName);
+        variables.set("states", mapper.valueToTree(states));
+        variables.put("first", first);
+        variables.put("after", after);
+
+        ObjectNode payload = mapper.createObjectNode();
+        payload.put("query", PULL_REQUESTS_QUERY);
+        payload.set("variables", variables);
+
+        HttpEntity<String> entity = new HttpEntity<>(mapper.writeValueAsString(payload), createHeaders());
+        ResponseEntity<String> response = restTemplate.exchange(graphqlUrl, HttpMethod.POST, entity, String.class);
+
+        JsonNode json = mapper.readTree(response.getBody());
+        if (json.has("errors")) {
+            throw new RuntimeException("GraphQL errors: " + json.get("errors"));
+        }
+        JsonNode pullRequests = json.path("data").path("repository").path("pullRequests");
+
+        List<Map<String, Object>> prs = new ArrayList<Map<String, Object>>();
+        for (JsonNode pr : pullRequests.path("nodes")) {
+            Map<String, Object> prData = new HashMap<String, Object>();
+            prData.put("number", pr.get("number").asInt());
+            prData.put("title", pr.get("title").asText());
+            prData.put("body", pr.path("body").asText(""));
+            // same lower-case states as the REST API, plus "merged"
+            prData.put("state", pr.get("state").asText().toLowerCase());
+            prData.put("created_at", pr.get("createdAt").asText());
+            prData.put("user", pr.path("author").path("login").asText("ghost"));
+            prData.put("html_url", pr.get("url").asText());
+            prData.put("changed_files", pr.path("changedFiles").asInt());
+            prData.put("head_branch", pr.path("headRefName").asText());
+            prData.put("base_branch", pr.path("baseRefName").asText());
+            prData.put("head_sha", pr.path("headRefOid").asText());
+            prData.put("base_sha", pr.path("baseRefOid").asText());
+            prData.put("review_decision", pr.path("reviewDecision").isNull() ? null
+                    : pr.path("reviewDecision").asText(null));
+
+            List<String> reviewers = new ArrayList<>();
+            for (JsonNode request : pr.path("reviewRequests").path("nodes")) {
+                JsonNode reviewer = request.path("requestedReviewer");
+                String name = reviewer.has("login") ? reviewer.get("login").asText()
+                        : reviewer.path("slug").asText(null);
+                if (name != null)
+                    reviewers.add(name);
+            }
+            prData.put("requested_reviewers", reviewers);
+
+            prs.add(prData);
+        }
+
+        JsonNode pageInfo = pullRequests.path("pageInfo");
+        return new PullRequestPage(prs, pageInfo.path("hasNextPage").asBoolean(),
+                pageInfo.path("endCursor").asText(null));
+    }
+
     /**
      * Approve a Pull Request
      */
     public void approvePullRequest(int prNumber, String comment) throws Exception {
         String url = String.format("%s/repos/%s/%s/pulls/%d/reviews",
-                GITHUB_API_BASE, repoOwner, repoName, prNumber);
+                apiBase, repoOwner, repoName, prNumber);
 
         ObjectNode payload = mapper.createObjectNode();
         payload.put("event", "APPROVE");
@@ -546,9 +1253,10 @@ public class GitHubService {
             if (response.getStatusCode() != HttpStatus.OK) {
                 throw new RuntimeException("Failed to approve PR: " + response.getBody());
             }
+            invalidatePullRequestLists();
         } catch (org.springframework.web.client.HttpClientErrorException.UnprocessableEntity e) {
             if (e.getResponseBodyAsString().contains("Can not approve your own pull request")) {
-                System.out.println("Warning: Cannot approve own PR. Proceeding...");
+                log.warn("Cannot approve own PR pr={}, proceeding", prNumber);
                 return;
             }
             throw e;
@@ -560,7 +1268,7 @@ public class GitHubService {
      */
     public void rejectPullRequest(int prNumber, String comment) throws Exception {
         String url = String.format("%s/repos/%s/%s/pulls/%d/reviews",
-                GITHUB_API_BASE, repoOwner, repoName, prNumber);
+                apiBase, repoOwner, repoName, prNumber);
 
         ObjectNode payload = mapper.createObjectNode();
         payload.put("event", "REQUEST_CHANGES");
@@ -571,14 +1279,13 @@ public class GitHubService {
         try {
             ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.POST, entity, String.class);
             if (response.getStatusCode() != HttpStatus.OK) {
-                System.err.println("Failed to submit rejection review: " + response.getBody());
+                log.warn("Failed to submit rejection review pr={}: {}", prNumber, response.getBody());
             }
         } catch (Exception e) {
             // Ignore errors when rejecting (e.g. rejecting own PR), but still proceed to
             // close
-            System.out
-                    .println("Warning: Could not submit rejection review (likely own PR). Proceeding to close. Error: "
-                            + e.getMessage());
+            log.warn("Could not submit rejection review pr={} (likely own PR), closing anyway: {}", prNumber,
+                    e.getMessage());
         }
 
         // Close the PR
@@ -590,13 +1297,14 @@ public class GitHubService {
      */
     private void closePullRequest(int prNumber) throws Exception {
         String url = String.format("%s/repos/%s/%s/pulls/%d",
-                GITHUB_API_BASE, repoOwner, repoName, prNumber);
+                apiBase, repoOwner, repoName, prNumber);
 
         ObjectNode payload = mapper.createObjectNode();
         payload.put("state", "closed");
 
         HttpEntity<String> entity = new HttpEntity<>(mapper.writeValueAsString(payload), createHeaders());
         restTemplate.exchange(url, HttpMethod.PATCH, entity, String.class);
+        invalidatePullRequestLists();
     }
 
     /**
@@ -604,7 +1312,7 @@ public class GitHubService {
      */
     public void mergePullRequest(int prNumber, String commitMessage) throws Exception {
         String url = String.format("%s/repos/%s/%s/pulls/%d/merge",
-                GITHUB_API_BASE, repoOwner, repoName, prNumber);
+                apiBase, repoOwner, repoName, prNumber);
 
         ObjectNode payload = mapper.createObjectNode();
         payload.put("commit_message", commitMessage);
@@ -616,5 +1324,8 @@ public class GitHubService {
         if (response.getStatusCode() != HttpStatus.OK) {
             throw new RuntimeException("Failed to merge PR: " + response.getBody());
         }
+        invalidatePullRequestLists();
+        invalidateBranch("main");
+        invalidateCommitHistory();
     }
 }
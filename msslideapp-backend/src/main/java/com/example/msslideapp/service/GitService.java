@@ -1,11 +1,16 @@
 package com.example.msslideapp.service;
 
+import org.eclipse.jgit.api.FetchCommand;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
+import org.eclipse.jgit.transport.RefSpec;
 import org.eclipse.jgit.transport.URIish;
+import org.eclipse.jgit.lib.RefUpdate;
 import org.eclipse.jgit.lib.StoredConfig;
 import org.eclipse.jgit.revwalk.RevCommit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Value;
 
@@ -15,6 +20,8 @@ import java.util.*;
 
 @Service
 public class GitService {
+
+    private static final Logger log = LoggerFactory.getLogger(GitService.class);
     private File repoDir = new File("storage/json-repo");
    
     @Value("${git.remote.url:}")   // read from application.properties (fallback = empty)
@@ -66,7 +73,7 @@ public class GitService {
             }
         } catch (org.eclipse.jgit.api.errors.NoHeadException e) {
             // 🩹 fix: empty repo, so no history yet
-            System.out.println("ℹ️ No commits yet, returning empty history.");
+            log.info("No commits yet, returning empty history");
         }
         git.close();
         return history;
@@ -93,6 +100,34 @@ public class GitService {
         return true;
     }
 
+    /**
+     * Bring the local mirror's remote-tracking ref for a branch up to date after it
+     * moved on the remote, or drop it when the branch was deleted. Returns the ref
+     * touched, or null when no remote is configured.
+     */
+    public String refreshRemoteRef(String branch, boolean deleted) throws Exception {
+        if (remoteUrl == null || remoteUrl.isEmpty()) return null;
+        String trackingRef = "refs/remotes/origin/" + branch;
+        Git git = open();
+        try {
+            if (deleted) {
+                RefUpdate update = git.getRepository().updateRef(trackingRef);
+                update.setForceUpdate(true);
+                update.delete();
+            } else {
+                FetchCommand fetch = git.fetch().setRemote(remoteUrl)
+                        .setRefSpecs(new RefSpec("+refs/heads/" + branch + ":" + trackingRef));
+                if (token != null && !token.isEmpty()) {
+                    fetch.setCredentialsProvider(new UsernamePasswordCredentialsProvider(token, ""));
+                }
+                fetch.call();
+            }
+        } finally {
+            git.close();
+        }
+        return trackingRef;
+    }
+
     public File getRepoDir() {
         return repoDir;
     }
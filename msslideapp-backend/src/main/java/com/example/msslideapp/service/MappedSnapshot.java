@@ -0,0 +1,600 @@
+package com.example.msslideapp.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A JSON snapshot converted to an indexed binary file and memory-mapped, so a
+ * window of a sheet is read in O(log rows + window) without parsing the rest.
+ * <p>
+ * Layout (big-endian ints, offsets from the start of the file):
+ * <pre>
+ * header      magic, version, sheetCount, styleCount, stringCount,
+ *             sheetDirOffset, stringIndexOffset, stringDataOffset
+ * styles      styleCount x string id of the style's JSON object
+ * sheet dir   sheetCount x (nameId, rowCount, cellCount, maxCol, rowIndexOffset, cellsOffset)
+ * per sheet   row index: rowCount x (row, firstCell, cellCount), ascending by row,
+ *             then cells: cellCount x (col, valueId, styleId or -1), by row then column
+ * strings     (stringCount + 1) x start offset, then the UTF-8 bytes; values are stored once
+ * </pre>
+ * Cells with inline style properties (snapshots from before style interning)
+ * get an entry in the style table like interned ones, so every cell's formatting
+ * is a style id. Instances are immutable and safe to share between threads.
+ * <p>
+ * The diff walks these directly ({@link ExcelDiffService#diffSnapshots}), and
+ * {@link SnapshotStore} keeps them on disk, so hot snapshots are served from the
+ * page cache rather than re-parsed.
+ */
+public final class MappedSnapshot {
+
+    static final int MAGIC = 0x4D534E50; // "MSNP"
+    static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 32;
+    private static final int SHEET_DIR_BYTES = 24;
+    private static final int ROW_BYTES = 12;
+    private static final int CELL_BYTES = 12;
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final ByteBuffer buf;
+    private final int sheetCount;
+    private final int styleCount;
+    private final int sheetDir;
+    private final int stringIndex;
+    private final int stringData;
+
+    private MappedSnapshot(ByteBuffer buf) throws IOException {
+        this.buf = buf;
+        if (buf.capacity() < HEADER_BYTES || buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION)
+            throw new IOException("Not a version " + VERSION + " snapshot file");
+        this.sheetCount = buf.getInt(8);
+        this.styleCount = buf.getInt(12);
+        this.sheetDir = buf.getInt(20);
+        this.stringIndex = buf.getInt(24);
+        this.stringData = buf.getInt(28);
+    }
+
+    /** Maps a file written by {@link #write}; the mapping stays valid after the channel is closed. */
+    public static MappedSnapshot open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MappedSnapshot(map);
+        }
+    }
+
+    public int sheetCount() {
+        return sheetCount;
+    }
+
+    /** Cells across all sheets. */
+    public long totalCells() {
+        long cells = 0;
+        for (int s = 0; s < sheetCount; s++)
+            cells += cellCount(s);
+        return cells;
+    }
+
+    public String sheetName(int sheet) {
+        return string(dir(sheet, 0));
+    }
+
+    /** Index of the sheet called {@code name}, or -1. */
+    public int sheetIndex(String name) {
+        for (int s = 0; s < sheetCount; s++) {
+            if (sheetName(s).equals(name))
+                return s;
+        }
+        return -1;
+    }
+
+    /** Rows of the sheet that have at least one cell. */
+    public int rowCount(int sheet) {
+        return dir(sheet, 4);
+    }
+
+    public int cellCount(int sheet) {
+        return dir(sheet, 8);
+    }
+
+    /** Highest column index with a cell, -1 for an empty sheet. */
+    public int maxCol(int sheet) {
+        return dir(sheet, 12);
+    }
+
+    /** Row number of the sheet's {@code index}-th non-empty row. */
+    public int rowAt(int sheet, int index) {
+        return buf.getInt(rowEntry(sheet, index));
+    }
+
+    /** Index of the first cell of the {@code index}-th row within the sheet's cells. */
+    public int rowFirstCell(int sheet, int index) {
+        return buf.getInt(rowEntry(sheet, index) + 4);
+    }
+
+    public int rowCellCount(int sheet, int index) {
+        return buf.getInt(rowEntry(sheet, index) + 8);
+    }
+
+    /** Index of the first non-empty row numbered {@code row} or later (rowCount if none). */
+    public int findRow(int sheet, int row) {
+        int lo = 0, hi = rowCount(sheet);
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (rowAt(sheet, mid) < row)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    public int cellCol(int sheet, int cell) {
+        return buf.getInt(cellEntry(sheet, cell));
+    }
+
+    public String cellValue(int sheet, int cell) {
+        return string(buf.getInt(cellEntry(sheet, cell) + 4));
+    }
+
+    /** Id into the style table, or -1 for a cell without formatting. */
+    public int cellStyle(int sheet, int cell) {
+        return buf.getInt(cellEntry(sheet, cell) + 8);
+    }
+
+    /**
+     * Whether two cells, of this snapshot and {@code other}, hold the same value.
+     * The UTF-8 bytes are compared in place, so nothing is decoded or allocated.
+     */
+    public boolean sameValue(int sheet, int cell, MappedSnapshot other, int otherSheet, int otherCell) {
+        int a = buf.getInt(cellEntry(sheet, cell) + 4);
+        int b = other.buf.getInt(other.cellEntry(otherSheet, otherCell) + 4);
+        if (other == this && a == b)
+            return true;
+        int aStart = buf.getInt(stringIndex + 4 * a);
+        int bStart = other.buf.getInt(other.stringIndex + 4 * b);
+        int length = buf.getInt(stringIndex + 4 * (a + 1)) - aStart;
+        if (other.buf.getInt(other.stringIndex + 4 * (b + 1)) - bStart != length)
+            return false;
+        int i = 0;
+        for (; i + 8 <= length; i += 8) {
+            if (buf.getLong(stringData + aStart + i) != other.buf.getLong(other.stringData + bStart + i))
+                return false;
+        }
+        for (; i < length; i++) {
+            if (buf.get(stringData + aStart + i) != other.buf.get(other.stringData + bStart + i))
+                return false;
+        }
+        return true;
+    }
+
+    public int styleCount() {
+        return styleCount;
+    }
+
+    /** The style's properties as a JSON object, as they appear in the snapshot. */
+    public String styleJson(int style) {
+        return string(buf.getInt(HEADER_BYTES + 4 * style));
+    }
+
+    /** Receives the cells of a window, row by row and left to right. */
+    public interface CellVisitor {
+        void cell(int row, int col, String value, int style);
+    }
+
+    /**
+     * Visits the cells in rows [firstRow, lastRow] and columns [firstCol, lastCol]
+     * (inclusive); both ranges are found by binary search. Returns the number of
+     * cells visited.
+     */
+    public int window(int sheet, int firstRow, int lastRow, int firstCol, int lastCol, CellVisitor visitor) {
+        int visited = 0;
+        int rows = rowCount(sheet);
+        for (int r = findRow(sheet, firstRow); r < rows; r++) {
+            int row = rowAt(sheet, r);
+            if (row > lastRow)
+                break;
+            int first = rowFirstCell(sheet, r);
+            int end = first + rowCellCount(sheet, r);
+            for (int c = findCol(sheet, first, end, firstCol); c < end; c++) {
+                int col = cellCol(sheet, c);
+                if (col > lastCol)
+                    break;
+                visitor.cell(row, col, cellValue(sheet, c), cellStyle(sheet, c));
+                visited++;
+            }
+        }
+        return visited;
+    }
+
+    private int findCol(int sheet, int lo, int hi, int col) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (cellCol(sheet, mid) < col)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    private int dir(int sheet, int field) {
+        if (sheet < 0 || sheet >= sheetCount)
+            throw new IndexOutOfBoundsException("sheet " + sheet);
+        return buf.getInt(sheetDir + sheet * SHEET_DIR_BYTES + field);
+    }
+
+    private int rowEntry(int sheet, int index) {
+        return dir(sheet, 16) + index * ROW_BYTES;
+    }
+
+    private int cellEntry(int sheet, int cell) {
+        return dir(sheet, 20) + cell * CELL_BYTES;
+    }
+
+    private String string(int id) {
+        int start = buf.getInt(stringIndex + 4 * id);
+        int end = buf.getInt(stringIndex + 4 * (id + 1));
+        byte[] bytes = new byte[end - start];
+        buf.get(stringData + start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Converts a JSON snapshot to the binary layout in {@code out}. The JSON is read
+     * as a token stream, so no tree of the whole snapshot is built.
+     */
+    public static void write(Reader json, File out) throws IOException {
+        Builder builder = read(json);
+        try (DataOutputStream data = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(out),
+                1 << 16))) {
+            builder.writeTo(data);
+        }
+    }
+
+    /** Converts a JSON snapshot to the binary layout on the heap, for snapshots that aren't stored. */
+    public static MappedSnapshot parse(String json) throws IOException {
+        Builder builder = read(new StringReader(json));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(256, json.length() / 4));
+        try (DataOutputStream data = new DataOutputStream(bytes)) {
+            builder.writeTo(data);
+        }
+        return new MappedSnapshot(ByteBuffer.wrap(bytes.toByteArray()));
+    }
+
+    private static Builder read(Reader json) throws IOException {
+        Builder builder = new Builder();
+        try (JsonParser parser = JSON.createParser(json)) {
+            builder.read(parser);
+        }
+        return builder;
+    }
+
+    /** Collects a snapshot's sheets, styles and strings while its JSON is read. */
+    private static final class Builder {
+        final Map<String, Integer> stringIds = new HashMap<>();
+        final List<byte[]> strings = new ArrayList<>();
+        // style JSON -> style id; snapshot table entries keep their ids, inline styles follow
+        final Map<String, Integer> styleIds = new HashMap<>();
+        final List<Integer> styles = new ArrayList<>();
+        final List<SheetCells> sheets = new ArrayList<>();
+
+        void read(JsonParser parser) throws IOException {
+            if (parser.nextToken() != JsonToken.START_OBJECT)
+                throw new IOException("Snapshot is not a JSON object");
+            List<String> tableStyles = new ArrayList<>();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("sheets".equals(field) && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT)
+                        sheets.add(readSheet(parser));
+                } else if ("styles".equals(field) && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT)
+                        tableStyles.add(copyObject(parser));
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            // the style table must take ids 0..n-1 before any inline style is interned, but may come after
+            // the sheets in the JSON; cells referring to inline styles were given provisional negative ids
+            for (String style : tableStyles) {
+                styleIds.putIfAbsent(style, styles.size());
+                styles.add(intern(style));
+            }
+            for (SheetCells sheet : sheets)
+                sheet.resolveInlineStyles(this, tableStyles.size());
+        }
+
+        private SheetCells readSheet(JsonParser parser) throws IOException {
+            SheetCells sheet = new SheetCells();
+            String name = "Sheet1";
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("name".equals(field) && value.isScalarValue()) {
+                    name = parser.getText();
+                } else if ("cells".equals(field) && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT)
+                        readCell(parser, sheet);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            sheet.nameId = intern(name);
+            return sheet;
+        }
+
+        private void readCell(JsonParser parser, SheetCells sheet) throws IOException {
+            int row = 0, col = 0, style = -1;
+            String value = "";
+            TreeMap<String, String> inline = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if ("row".equals(field)) {
+                    row = parser.getValueAsInt();
+                } else if ("col".equals(field)) {
+                    col = parser.getValueAsInt();
+                } else if ("value".equals(field)) {
+                    value = token == JsonToken.VALUE_NULL ? "" : parser.getValueAsString("");
+                } else if ("styleId".equals(field)) {
+                    style = parser.getValueAsInt(-1);
+                } else if (token.isScalarValue()) {
+                    if (inline == null)
+                        inline = new TreeMap<>();
+                    inline.put(field, JsonToken.VALUE_STRING == token ? quote(parser.getText()) : parser.getText());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (inline != null && style < 0)
+                style = -2 - sheet.inline(styleJson(inline));
+            sheet.add(row, col, intern(value), style);
+        }
+
+        int intern(String s) {
+            Integer id = stringIds.get(s);
+            if (id == null) {
+                id = strings.size();
+                stringIds.put(s, id);
+                strings.add(s.getBytes(StandardCharsets.UTF_8));
+            }
+            return id;
+        }
+
+        int internStyle(String json) {
+            Integer id = styleIds.get(json);
+            if (id == null) {
+                id = styles.size();
+                styleIds.put(json, id);
+                styles.add(intern(json));
+            }
+            return id;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            int stylesBytes = 4 * styles.size();
+            int sheetDir = HEADER_BYTES + stylesBytes;
+            long offset = sheetDir + (long) SHEET_DIR_BYTES * sheets.size();
+            int[] rowIndex = new int[sheets.size()];
+            int[] cells = new int[sheets.size()];
+            for (int s = 0; s < sheets.size(); s++) {
+                SheetCells sheet = sheets.get(s);
+                sheet.sort();
+                rowIndex[s] = checked(offset);
+                offset += (long) ROW_BYTES * sheet.rowCount;
+                cells[s] = checked(offset);
+                offset += (long) CELL_BYTES * sheet.size;
+            }
+            int stringIndex = checked(offset);
+            long stringBytes = 0;
+            for (byte[] s : strings)
+                stringBytes += s.length;
+            int stringData = checked(offset + 4L * (strings.size() + 1));
+            checked(stringData + stringBytes);
+
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(sheets.size());
+            out.writeInt(styles.size());
+            out.writeInt(strings.size());
+            out.writeInt(sheetDir);
+            out.writeInt(stringIndex);
+            out.writeInt(stringData);
+            for (int style : styles)
+                out.writeInt(style);
+            for (int s = 0; s < sheets.size(); s++) {
+                SheetCells sheet = sheets.get(s);
+                out.writeInt(sheet.nameId);
+                out.writeInt(sheet.rowCount);
+                out.writeInt(sheet.size);
+                out.writeInt(sheet.maxCol);
+                out.writeInt(rowIndex[s]);
+                out.writeInt(cells[s]);
+            }
+            for (SheetCells sheet : sheets) {
+                sheet.writeRows(out);
+                sheet.writeCells(out);
+            }
+            int start = 0;
+            for (byte[] s : strings) {
+                out.writeInt(start);
+                start += s.length;
+            }
+            out.writeInt(start);
+            for (byte[] s : strings)
+                out.write(s);
+        }
+
+        private static int checked(long offset) throws IOException {
+            if (offset > Integer.MAX_VALUE)
+                throw new IOException("Snapshot too large for the binary layout");
+            return (int) offset;
+        }
+
+        private static String copyObject(JsonParser parser) throws IOException {
+            StringWriter json = new StringWriter();
+            try (JsonGenerator gen = JSON.createGenerator(json)) {
+                gen.copyCurrentStructure(parser);
+            }
+            return json.toString();
+        }
+
+        private static String styleJson(TreeMap<String, String> properties) {
+            StringBuilder json = new StringBuilder("{");
+            for (Map.Entry<String, String> p : properties.entrySet()) {
+                if (json.length() > 1)
+                    json.append(',');
+                json.append(quote(p.getKey())).append(':').append(p.getValue());
+            }
+            return json.append('}').toString();
+        }
+
+        private static String quote(String s) {
+            StringBuilder quoted = new StringBuilder(s.length() + 2).append('"');
+            char[] chars = new char[s.length()];
+            s.getChars(0, s.length(), chars, 0);
+            for (char ch : chars) {
+                if (ch == '"' || ch == '\\')
+                    quoted.append('\\').append(ch);
+                else if (ch < 0x20)
+                    quoted.append(String.format("\\u%04x", (int) ch));
+                else
+                    quoted.append(ch);
+            }
+            return quoted.append('"').toString();
+        }
+    }
+
+    /** One sheet's cells as parallel int arrays, sorted by row and column before writing. */
+    private static final class SheetCells {
+        static final int INDEX_MASK = (1 << 27) - 1;
+
+        int nameId;
+        int size;
+        int rowCount;
+        int maxCol = -1;
+        int[] rows = new int[64];
+        int[] cols = new int[64];
+        int[] values = new int[64];
+        int[] styles = new int[64];
+        final List<String> inlineStyles = new ArrayList<>();
+        final Map<String, Integer> inlineIds = new HashMap<>();
+
+        void add(int row, int col, int value, int style) {
+            if (size == rows.length) {
+                int n = size * 2;
+                rows = Arrays.copyOf(rows, n);
+                cols = Arrays.copyOf(cols, n);
+                values = Arrays.copyOf(values, n);
+                styles = Arrays.copyOf(styles, n);
+            }
+            rows[size] = row;
+            cols[size] = col;
+            values[size] = value;
+            styles[size] = style;
+            size++;
+        }
+
+        int inline(String json) {
+            Integer id = inlineIds.get(json);
+            if (id == null) {
+                id = inlineStyles.size();
+                inlineIds.put(json, id);
+                inlineStyles.add(json);
+            }
+            return id;
+        }
+
+        void resolveInlineStyles(Builder builder, int tableSize) {
+            int[] ids = new int[inlineStyles.size()];
+            for (int i = 0; i < ids.length; i++)
+                ids[i] = builder.internStyle(inlineStyles.get(i));
+            for (int i = 0; i < size; i++) {
+                if (styles[i] <= -2)
+                    styles[i] = ids[-2 - styles[i]];
+                else if (styles[i] >= tableSize)
+                    styles[i] = -1;
+            }
+        }
+
+        /** Sorts by (row, col); of duplicate positions the last one read wins, as in the JSON diff. */
+        void sort() throws IOException {
+            if (size > INDEX_MASK)
+                throw new IOException("Sheet has too many cells for the binary layout");
+            long[] order = new long[size];
+            for (int i = 0; i < size; i++) {
+                // 21 bits of row and 15 of column cover Excel's limits; the index breaks ties in reading order
+                order[i] = ((long) (rows[i] & 0x1FFFFF) << 42) | ((long) (cols[i] & 0x7FFF) << 27) | i;
+            }
+            Arrays.sort(order);
+            int[] r = new int[size], c = new int[size], v = new int[size], s = new int[size];
+            int n = 0;
+            for (int k = 0; k < size; k++) {
+                int i = (int) (order[k] & INDEX_MASK);
+                if (n > 0 && r[n - 1] == rows[i] && c[n - 1] == cols[i])
+                    n--;
+                r[n] = rows[i];
+                c[n] = cols[i];
+                v[n] = values[i];
+                s[n] = styles[i];
+                n++;
+            }
+            rows = r;
+            cols = c;
+            values = v;
+            styles = s;
+            size = n;
+            rowCount = 0;
+            for (int i = 0; i < size; i++) {
+                if (i == 0 || rows[i] != rows[i - 1])
+                    rowCount++;
+                maxCol = Math.max(maxCol, cols[i]);
+            }
+        }
+
+        void writeRows(DataOutputStream out) throws IOException {
+            int first = 0;
+            for (int i = 1; i <= size; i++) {
+                if (i == size || rows[i] != rows[first]) {
+                    out.writeInt(rows[first]);
+                    out.writeInt(first);
+                    out.writeInt(i - first);
+                    first = i;
+                }
+            }
+        }
+
+        void writeCells(DataOutputStream out) throws IOException {
+            for (int i = 0; i < size; i++) {
+                out.writeInt(cols[i]);
+                out.writeInt(values[i]);
+                out.writeInt(styles[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package com.example.msslideapp.service;
+
+import com.example.msslideapp.model.ChangeItem;
+import com.example.msslideapp.model.ChangedFile;
+import com.example.msslideapp.model.MergeStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Serializes merges of approved PRs into main. Approving queues the PR and
+ * returns its position; one worker drains the queue a batch at a time. Each PR
+ * in a batch is merged into main as it is after the PRs before it: workbooks
+ * changed both on the PR's branch and on main since it forked are three-way
+ * merged cell by cell ({@link SnapshotMerge}), so edits to different cells of
+ * one workbook both land. Only a PR that changes a cell main changed to
+ * something else is held back as CONFLICT for another review.
+ */
+@Service
+public class MergeQueueService {
+
+    private static final Logger log = LoggerFactory.getLogger(MergeQueueService.class);
+
+    public static final String QUEUED = "QUEUED";
+    public static final String MERGING = "MERGING";
+    public static final String MERGED = "MERGED";
+    public static final String CONFLICT = "CONFLICT";
+    public static final String FAILED = "FAILED";
+
+    // outcomes kept for status requests after a PR leaves the queue
+    private static final int MAX_FINISHED = 500;
+
+    @Value("${merge.queue.max-batch:10}")
+    private int maxBatch;
+
+    private final GitHubService gitHubService;
+    private final DeltaHistoryService history;
+    private final SnapshotStore snapshots;
+    private final AdmissionControl admission;
+    private final PipelineMetrics metrics;
+    private final ExecutorService executor;
+
+    // guarded by this
+    private final Deque<Integer> queue = new ArrayDeque<>();
+    private final List<Integer> merging = new ArrayList<>();
+    private final Map<Integer, MergeStatus> finished = new LinkedHashMap<Integer, MergeStatus>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, MergeStatus> eldest) {
+            return size() > MAX_FINISHED;
+        }
+    };
+
+    public MergeQueueService(GitHubService gitHubService, DeltaHistoryService history, SnapshotStore snapshots,
+            AdmissionControl admission, PipelineMetrics metrics,
+            @Qualifier("mergeQueueExecutor") ExecutorService executor) {
+        this.gitHubService = gitHubService;
+        this.history = history;
+        this.snapshots = snapshots;
+        this.admission = admission;
+        this.metrics = metrics;
+        this.executor = executor;
+    }
+
+    /** Approves a PR and queues it for merging. */
+    public MergeStatus approve(int prNumber, String comment) throws Exception {
+        gitHubService.approvePullRequest(prNumber, comment);
+        return enqueue(prNumber);
+    }
+
+    /** Queues a PR unless it is already queued or being merged; a PR held back before is queued again. */
+    public synchronized MergeStatus enqueue(int prNumber) {
+        if (!queue.contains(prNumber) && !merging.contains(prNumber)) {
+            queue.addLast(prNumber);
+            finished.remove(prNumber);
+            // one drain per queued PR, so there is always one left for the last batch
+            executor.submit(this::drain);
+            log.info("Queued merge pr={} position={}", prNumber, merging.size() + queue.size());
+        }
+        return status(prNumber);
+    }
+
+    /** Where a PR is in the queue, or its outcome; null if it was never queued (or long ago). */
+    public synchronized MergeStatus status(int prNumber) {
+        int index = merging.indexOf(prNumber);
+        if (index >= 0)
+            return status(prNumber, MERGING, index + 1, "Checking against main and merging");
+        index = 0;
+        for (int queued : queue) {
+            index++;
+            if (queued == prNumber)
+                return status(prNumber, QUEUED, merging.size() + index, "Queued for merge");
+        }
+        return finished.get(prNumber);
+    }
+
+    /** The PRs being merged and waiting, in merge order. */
+    public synchronized List<MergeStatus> pending() {
+        List<MergeStatus> pending = new ArrayList<>();
+        for (int prNumber : merging)
+            pending.add(status(prNumber));
+        for (int prNumber : queue)
+            pending.add(status(prNumber));
+        return pending;
+    }
+
+    private static MergeStatus status(int prNumber, String state, int position, String message) {
+        MergeStatus status = new MergeStatus();
+        status.setPrNumber(prNumber);
+        status.setState(state);
+        status.setPosition(position);
+        status.setMessage(message);
+        return status;
+    }
+
+    private void drain() {
+        List<Integer> batch;
+        synchronized (this) {
+            while (!queue.isEmpty() && merging.size() < Math.max(1, maxBatch))
+                merging.add(queue.pollFirst());
+            batch = new ArrayList<>(merging);
+        }
+        if (batch.isEmpty())
+            return;
+        try {
+            metrics.time("merge_queue.batch", () -> {
+                mergeBatch(batch);
+                return null;
+            });
+        } catch (Exception e) {
+            // main couldn't be read; nothing in the batch was merged
+            log.warn("Merge batch failed prs={}: {}", batch, e.getMessage());
+            for (int prNumber : batch)
+                finish(prNumber, FAILED, "Could not read main: " + e.getMessage(), null);
+        } finally {
+            synchronized (this) {
+                merging.clear();
+            }
+        }
+    }
+
+    private void mergeBatch(List<Integer> batch) throws Exception {
+        String main = gitHubService.getDefaultBranchSha();
+        int mergedCount = 0;
+        for (int prNumber : batch) {
+            String mainSha = main;
+            try {
+                List<ChangeItem> conflicts = metrics.time("merge_queue.pr", () -> merge(prNumber, mainSha));
+                if (conflicts.isEmpty()) {
+                    finish(prNumber, MERGED, "Approved and merged", null);
+                    mergedCount++;
+                    main = gitHubService.getDefaultBranchSha();
+                } else {
+                    log.info("Merge held back pr={} conflicts={}", prNumber, conflicts.size());
+                    finish(prNumber, CONFLICT, conflicts.size() + " cells were changed differently on main",
+                            conflicts);
+                }
+            } catch (Exception e) {
+                log.warn("Merge failed pr={}: {}", prNumber, e.getMessage());
+                finish(prNumber, FAILED, "Could not merge the PR: " + e.getMessage(), null);
+            }
+        }
+        log.info("Merge batch done prs={} merged={}", batch.size(), mergedCount);
+    }
+
+    /**
+     * Merges one PR into main at {@code main}; returns the conflicting cells if it
+     * was held back. Workbooks main also changed since the PR forked are merged
+     * cell by cell first, and the result is committed to the PR's branch as a
+     * merge of main, so GitHub's merge only has to apply the branch.
+     */
+    private List<ChangeItem> merge(int prNumber, String main) throws Exception {
+        Map<String, Object> details = gitHubService.getPullRequestDetails(prNumber);
+        String head = (String) details.get("head_sha");
+        String base = gitHubService.getMergeBase(main, head);
+        if (base == null)
+            throw new IllegalStateException("PR head " + head + " shares no history with main");
+        if (!base.equals(main)) {
+            List<ChangedFile> ourFiles = gitHubService.getChangedFiles(base, head);
+            Map<String, String> ourWorkbooks = workbooks(ourFiles);
+            Map<String, String> theirWorkbooks = workbooks(gitHubService.getChangedFiles(base, main));
+            Set<String> shared = new LinkedHashSet<>(ourWorkbooks.keySet());
+            shared.retainAll(theirWorkbooks.keySet());
+            if (!shared.isEmpty()) {
+                List<ChangeItem> conflicts = new ArrayList<>();
+                Map<String, String> blobs = new LinkedHashMap<>();
+                Set<String> merged = new HashSet<>();
+                for (String workbook : shared) {
+                    String ourPath = ourWorkbooks.get(workbook);
+                    mergeWorkbook(workbook, ourPath, theirWorkbooks.get(workbook), base, head, main, blobs,
+                            conflicts);
+                    merged.add(ourPath);
+                }
+                if (!conflicts.isEmpty())
+                    return conflicts;
+                // the branch's own changes to every other file, on top of main; a renamed
+                // file is also removed from its old path
+                for (ChangedFile file : ourFiles) {
+                    if (merged.contains(workbook(file.getPath())))
+                        continue;
+                    blobs.put(file.getPath(), "removed".equals(file.getStatus()) ? null : file.getHeadBlobSha());
+                    if (file.getPreviousPath() != null)
+                        blobs.put(file.getPreviousPath(), null);
+                }
+                gitHubService.commitMerge((String) details.get("head_branch"), main, blobs,
+                        "Merge main into PR #" + prNumber, "merge-queue");
+                log.info("Merged main into pr={} workbooks={}", prNumber, shared.size());
+            }
+        }
+        gitHubService.mergePullRequest(prNumber, "Approved and merged");
+        return Collections.emptyList();
+    }
+
+    /**
+     * Three-way merges one workbook: the PR's version at {@code head} into main's,
+     * from their common version at {@code base}. Either side may have renamed it
+     * since {@code base}: the merged workbook keeps a rename (the PR's if both
+     * renamed it), and main's copy under another path is removed. Adds the files
+     * to commit, or the conflicting cells.
+     */
+    private void mergeWorkbook(String basePath, String ourPath, String theirPath, String base, String head,
+            String main, Map<String, String> blobs, List<ChangeItem> conflicts) throws Exception {
+        DeltaHistoryService.Version ourVersion = history.versionAt(ourPath, head);
+        DeltaHistoryService.Version theirVersion = history.versionAt(theirPath, main);
+        DeltaHistoryService.Version baseVersion = history.versionAt(basePath, base);
+        MappedSnapshot ours = ourVersion != null ? history.snapshot(ourVersion) : null;
+        MappedSnapshot theirs = theirVersion != null ? history.snapshot(theirVersion) : null;
+        if (ours == null || theirs == null)
+            throw new IllegalStateException(basePath + " was removed on one side");
+        MappedSnapshot common = baseVersion != null ? history.snapshot(baseVersion) : null;
+        String path = ourPath.equals(basePath) ? theirPath : ourPath;
+        boolean moved = !path.equals(theirPath);
+
+        String excelName = path.replaceAll("\\.json$", ".xlsx");
+        long cost = admission.estimateSnapshotDiff(ours.totalCells(), theirs.totalCells());
+        // held for the merge itself, not for the upload of its blob
+        AdmissionControl.Permit permit = admission.acquire("merge", cost);
+        SnapshotMerge merge;
+        DeltaHistoryService.Commit commit;
+        try {
+            merge = SnapshotMerge.of(common, ours, theirs);
+            if (merge.hasConflicts()) {
+                for (SnapshotMerge.Conflict conflict : merge.getConflicts())
+                    conflicts.add(conflict(excelName, conflict));
+                return;
+            }
+            String json = merge.toJson();
+            // a patch only applies to the checkpoint beside it, so a moved workbook starts a new one
+            commit = history.prepare(path, json, snapshots.put(json), moved ? null : theirVersion, theirs);
+        } finally {
+            permit.close();
+        }
+        if (moved) {
+            Map<String, String> mainBlobs = gitHubService.getTreeBlobs(main);
+            for (String theirFile : Arrays.asList(theirPath, DeltaHistoryService.patchPath(theirPath))) {
+                if (mainBlobs.containsKey(theirFile))
+                    blobs.put(theirFile, null);
+            }
+        }
+        blobs.put(commit.getPath(), gitHubService.createBlob(commit.getContent()));
+        log.debug("Merged workbook file={} cells={}", path, merge.getMergedCount());
+    }
+
+    private static ChangeItem conflict(String fileName, SnapshotMerge.Conflict conflict) {
+        ChangeItem item = new ChangeItem();
+        item.setFileName(fileName);
+        item.setSheet(conflict.sheet);
+        item.setRow(conflict.row);
+        item.setCol(conflict.col);
+        item.setOldValue(conflict.baseValue);
+        item.setNewValue(conflict.ourValue);
+        item.setChangeType("CONFLICT");
+        Map<String, Object> meta = new HashMap<>();
+        meta.put("conflictsWith", "main");
+        meta.put("theirValue", conflict.theirValue);
+        item.setMeta(meta);
+        return item;
+    }
+
+    private synchronized void finish(int prNumber, String state, String message, List<ChangeItem> conflicts) {
+        MergeStatus status = status(prNumber, state, 0, message);
+        status.setConflicts(conflicts);
+        finished.put(prNumber, status);
+        merging.remove(Integer.valueOf(prNumber));
+    }
+
+    /** The workbook a snapshot or patch path belongs to, or null for other files. */
+    private static String workbook(String path) {
+        if (!path.endsWith(".json") && !DeltaHistoryService.isPatchPath(path))
+            return null;
+        return DeltaHistoryService.snapshotPath(path);
+    }
+
+    /**
+     * The workbooks among changed files: each one's path before the change (where
+     * a rename started) to its path after it.
+     */
+    private static Map<String, String> workbooks(List<ChangedFile> files) {
+        Map<String, String> workbooks = new HashMap<>();
+        for (ChangedFile file : files) {
+            String workbook = workbook(file.getPath());
+            String before = file.getPreviousPath() != null ? workbook(file.getPreviousPath()) : workbook;
+            if (workbook != null && before != null)
+                workbooks.put(before, workbook);
+        }
+        return workbooks;
+    }
+}
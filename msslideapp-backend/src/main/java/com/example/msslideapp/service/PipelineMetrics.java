@@ -0,0 +1,106 @@
+package com.example.msslideapp.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Micrometer meters for the upload/convert/diff pipeline, exported through
+ * Actuator (/actuator/prometheus). Every stage is one "msslide.stage" timer
+ * tagged with the stage name, so a slow request can be split into POI parsing,
+ * GitHub I/O and diffing. Histogram buckets are enabled per meter prefix in
+ * application.properties.
+ */
+@Service
+public class PipelineMetrics {
+
+    private final MeterRegistry registry;
+
+    // most recent values, for dashboards that want "what just happened"
+    private final AtomicLong lastCells = new AtomicLong();
+    private final AtomicLong lastChanges = new AtomicLong();
+    private final AtomicLong lastSnapshotChars = new AtomicLong();
+
+    public PipelineMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        registry.gauge("msslide.last.cells", lastCells);
+        registry.gauge("msslide.last.changes", lastChanges);
+        registry.gauge("msslide.last.snapshot.chars", lastSnapshotChars);
+    }
+
+    /** Runs {@code work} under the stage timer; failures are tagged outcome=error. */
+    public <T> T time(String stage, Callable<T> work) throws Exception {
+        Timer.Sample sample = Timer.start(registry);
+        String outcome = "error";
+        try {
+            T result = work.call();
+            outcome = "success";
+            return result;
+        } finally {
+            sample.stop(registry.timer("msslide.stage", "stage", stage, "outcome", outcome));
+        }
+    }
+
+    /** {@link #time(String, Callable)} for a reactive stage, timed from subscription until it completes. */
+    public <T> Mono<T> time(String stage, Mono<T> work) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(registry);
+            return work.doOnEach(signal -> {
+                if (signal.isOnComplete() || signal.isOnError())
+                    sample.stop(registry.timer("msslide.stage", "stage", stage, "outcome",
+                            signal.isOnError() ? "error" : "success"));
+            });
+        });
+    }
+
+    /** Cells in a converted or diffed workbook. */
+    public void recordCells(String source, long cells) {
+        DistributionSummary.builder("msslide.cells").tag("source", source).register(registry).record(cells);
+        lastCells.set(cells);
+    }
+
+    /** Change items produced by a diff. */
+    public void recordChanges(String source, long changes) {
+        DistributionSummary.builder("msslide.changes").tag("source", source).register(registry).record(changes);
+        lastChanges.set(changes);
+    }
+
+    /** Size of a JSON snapshot in characters (close to bytes; snapshots are mostly ASCII). */
+    public void recordSnapshotSize(String source, long chars) {
+        DistributionSummary.builder("msslide.snapshot.size").baseUnit("chars").tag("source", source)
+                .register(registry).record(chars);
+        lastSnapshotChars.set(chars);
+    }
+
+    /** Size of an uploaded workbook file. */
+    public void recordUploadSize(long bytes) {
+        DistributionSummary.builder("msslide.upload.size").baseUnit("bytes").register(registry).record(bytes);
+    }
+
+    /** One GitHub API call, timed until its response headers arrived. */
+    public void recordGitHubRequest(String endpoint, String method, String status, long nanos) {
+        registry.timer("msslide.github.requests", "endpoint", endpoint, "method", method, "status", status)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** Time a request waited for admission, tagged admitted/queued/rejected. */
+    public void recordAdmission(String kind, String outcome, long nanos) {
+        registry.timer("msslide.admission.wait", "kind", kind, "outcome", outcome).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** Budget, admitted bytes and queue length of the admission controller. */
+    public void admissionGauges(AdmissionControl admission) {
+        Gauge.builder("msslide.admission.budget", admission, AdmissionControl::budget).baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("msslide.admission.in.use", admission, AdmissionControl::bytesInUse).baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("msslide.admission.queued", admission, AdmissionControl::queued).register(registry);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.msslideapp.service;
+
+/**
+ * Published when a pull request is created or gets new commits, so its diff can
+ * be precomputed before anyone opens it.
+ */
+public class PullRequestOpenedEvent {
+    private final int prNumber;
+
+    public PullRequestOpenedEvent(int prNumber) {
+        this.prNumber = prNumber;
+    }
+
+    public int getPrNumber() {
+        return prNumber;
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.msslideapp.service;
+
+import com.example.msslideapp.jfr.GitHubCallEvent;
+import com.example.msslideapp.model.ChangedFile;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.util.retry.Retry;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Non-blocking counterpart of the {@link GitHubService} reads behind PR and
+ * commit change views, on WebClient over Reactor Netty. No thread waits for
+ * GitHub: responses are handled on Netty's event loops and JSON is decoded
+ * incrementally by Jackson's non-blocking parser as buffers arrive, so a
+ * request only occupies a thread while it is actually computing.
+ * <p>
+ * Connections are bounded by github.max-connections (further calls wait for
+ * one without holding a thread); 5xx, 429 and connection failures are retried
+ * with exponential backoff. Blob and tree caches and the JSON mapping are
+ * shared with GitHubService, so both paths see the same data and webhook
+ * invalidation covers both.
+ */
+@Service
+public class ReactiveGitHubService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveGitHubService.class);
+
+    private static final MediaType RAW_TYPE = MediaType.parseMediaType("application/vnd.github.v3.raw");
+
+    @Value("${github.token}")
+    private String token;
+
+    @Value("${github.repo.owner}")
+    private String repoOwner;
+
+    @Value("${github.repo.name}")
+    private String repoName;
+
+    @Value("${github.api-base:https://api.github.com}")
+    private String apiBase;
+
+    @Value("${github.reactive.max-retries:3}")
+    private int maxRetries;
+
+    @Value("${github.reactive.min-backoff-ms:200}")
+    private long minBackoffMs;
+
+    // largest response body (JSON or raw snapshot) decoded in memory
+    @Value("${github.reactive.max-in-memory-mb:64}")
+    private int maxInMemoryMb;
+
+    private final GitHubService gitHubService;
+    private final PipelineMetrics metrics;
+    private final ConnectionProvider connections;
+    private WebClient webClient;
+
+    public ReactiveGitHubService(@Value("${github.max-connections:16}") int maxConnections,
+            GitHubService gitHubService, PipelineMetrics metrics) {
+        this.gitHubService = gitHubService;
+        this.metrics = metrics;
+        // callers beyond the pool wait for a connection instead of failing (the default caps that queue)
+        this.connections = ConnectionProvider.builder("github").maxConnections(maxConnections)
+                .pendingAcquireMaxCount(-1).build();
+    }
+
+    @PostConstruct
+    void init() {
+        webClient = WebClient.builder()
+                .baseUrl(apiBase + "/repos/" + repoOwner + "/" + repoName)
+                .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .defaultHeader(HttpHeaders.ACCEPT, "application/vnd.github.v3+json")
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(maxInMemoryMb * 1024 * 1024))
+                .filter(this::record)
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connections)))
+                .build();
+    }
+
+    @PreDestroy
+    void close() {
+        connections.dispose();
+    }
+
+    public Mono<Map<String, Object>> getPullRequestDetails(int prNumber) {
+        return retrying(webClient.get().uri("/pulls/{number}", prNumber).retrieve().bodyToMono(JsonNode.class))
+                .map(GitHubService::parsePullRequestDetails);
+    }
+
+    public Mono<List<String>> getCommitParents(String sha) {
+        return retrying(webClient.get().uri("/git/commits/{sha}", sha).retrieve().bodyToMono(JsonNode.class))
+                .map(GitHubService::parseParents);
+    }
+
+    /** Blob paths of a commit's tree, through GitHubService's tree cache. */
+    public Mono<Map<String, String>> getTreeBlobs(String ref) {
+        String key = "tree:" + ref;
+        Map<String, String> cached = gitHubService.getCachedRead(key);
+        if (cached != null)
+            return Mono.just(cached);
+        return retrying(webClient.get().uri("/git/trees/{ref}?recursive=1", ref).retrieve()
+                .bodyToMono(JsonNode.class))
+                .map(json -> GitHubService.parseTreeBlobs(json, ref))
+                .doOnNext(blobs -> gitHubService.putCachedRead(key, blobs));
+    }
+
+    /** See {@link GitHubService#getChangedFiles}: one compare call, or a diff of the two trees past its file limit. */
+    public Mono<List<ChangedFile>> getChangedFiles(String baseRef, String headRef) {
+        if (baseRef == null)
+            return getTreeBlobs(headRef).map(blobs -> GitHubService.addedFiles(blobs, headRef));
+
+        return retrying(webClient.get().uri("/compare/{base}...{head}?per_page=1", baseRef, headRef).retrieve()
+                .bodyToMono(JsonNode.class))
+                .flatMap(compare -> {
+                    if (compare.path("files").size() >= GitHubService.COMPARE_MAX_FILES) {
+                        log.warn("Compare lists {}+ files base={} head={}; diffing their trees instead",
+                                GitHubService.COMPARE_MAX_FILES, baseRef, headRef);
+                        return Mono.zip(getTreeBlobs(baseRef), getTreeBlobs(headRef),
+                                (baseBlobs, headBlobs) -> GitHubService.treeChanges(baseBlobs, headBlobs, baseRef,
+                                        headRef));
+                    }
+                    List<ChangedFile> changed = GitHubService.compareFiles(compare, headRef);
+                    if (!GitHubService.needsBaseTree(changed))
+                        return Mono.just(changed);
+                    return getTreeBlobs(baseRef).map(baseBlobs -> {
+                        GitHubService.setBaseBlobs(changed, baseBlobs, baseRef);
+                        return changed;
+                    });
+                });
+    }
+
+    /**
+     * Content by blob SHA through the shared blob cache: empty if there is no such
+     * blob, an error if it can't be fetched.
+     */
+    public Mono<String> getBlobContent(String blobSha) {
+        String cached = gitHubService.getCachedBlob(blobSha);
+        if (cached != null)
+            return Mono.just(cached);
+        return retrying(webClient.get().uri("/git/blobs/{sha}", blobSha).accept(RAW_TYPE).retrieve()
+                .bodyToMono(String.class))
+                .doOnNext(content -> gitHubService.cacheBlob(blobSha, content))
+                .onErrorResume(WebClientResponseException.NotFound.class, e -> {
+                    log.debug("No blob sha={}", blobSha);
+                    return Mono.empty();
+                })
+                .doOnError(e -> log.warn("Failed to fetch blob sha={}: {}", blobSha, e.getMessage()));
+    }
+
+    /**
+     * Content of a path at a ref: its tree's blob if listed, else the contents API
+     * (raw). Empty if the file is missing; any other failure is an error. Reads by
+     * branch name share the blocking client's cached trees, with the same staleness.
+     */
+    public Mono<String> getFileContent(String filePath, String ref) {
+        Mono<String> byContents = retrying(webClient.get().uri("/contents/{path}?ref={ref}", filePath, ref)
+                .accept(RAW_TYPE).retrieve().bodyToMono(String.class))
+                .onErrorResume(WebClientResponseException.NotFound.class, e -> {
+                    log.debug("No file content path={} ref={}", filePath, ref);
+                    return Mono.empty();
+                });
+        return getTreeBlobs(ref)
+                .onErrorResume(WebClientResponseException.NotFound.class, e -> {
+                    log.debug("No tree for ref={}, fetching path={} by contents", ref, filePath);
+                    return Mono.just(new LinkedHashMap<>());
+                })
+                .flatMap(blobs -> blobs.containsKey(filePath) ? getBlobContent(blobs.get(filePath)) : byContents);
+    }
+
+    private <T> Mono<T> retrying(Mono<T> call) {
+        return call.retryWhen(Retry.backoff(maxRetries, Duration.ofMillis(minBackoffMs))
+                .filter(ReactiveGitHubService::isRetryable)
+                .doBeforeRetry(signal -> log.debug("Retrying GitHub call attempt={}: {}",
+                        signal.totalRetries() + 1, signal.failure().getMessage()))
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+    }
+
+    static boolean isRetryable(Throwable e) {
+        if (e instanceof WebClientResponseException) {
+            int status = ((WebClientResponseException) e).getRawStatusCode();
+            return status == HttpStatus.TOO_MANY_REQUESTS.value() || status >= 500;
+        }
+        return e instanceof WebClientRequestException;
+    }
+
+    /**
+     * Same metric and flight recorder event as the blocking client's interceptor,
+     * taken when the response headers arrive (received bytes from Content-Length).
+     */
+    private Mono<ClientResponse> record(ClientRequest request, ExchangeFunction next) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            GitHubCallEvent event = new GitHubCallEvent();
+            event.begin();
+            return next.exchange(request)
+                    .doOnNext(response -> recorded(request, event, String.valueOf(response.rawStatusCode()),
+                            response.headers().contentLength().orElse(0), start))
+                    .doOnError(e -> recorded(request, event, "IO_ERROR", 0, start));
+        });
+    }
+
+    private void recorded(ClientRequest request, GitHubCallEvent event, String status, long received, long start) {
+        String endpoint = GitHubService.endpointOf(request.url());
+        String method = request.method().name();
+        metrics.recordGitHubRequest(endpoint, method, status, System.nanoTime() - start);
+        event.endpoint = endpoint;
+        event.method = method;
+        event.status = status;
+        event.bytesReceived = received;
+        event.commit();
+    }
+}
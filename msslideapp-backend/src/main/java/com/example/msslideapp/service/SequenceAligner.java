@@ -0,0 +1,161 @@
+package com.example.msslideapp.service;
+
+import java.util.*;
+
+/**
+ * Aligns two key sequences (e.g. the rows of an old and a new sheet) so that
+ * inserted or deleted entries do not shift everything after them.
+ *
+ * Patience-style: equal keys are paired in occurrence order, the longest
+ * increasing run of those pairs is kept as in-order anchors, and any pair
+ * outside it is reported as moved. Runs in O(n log n).
+ */
+public class SequenceAligner {
+
+    public static final int UNMATCHED = -1;
+
+    public static class Alignment {
+        private final int[] oldToNew;
+        private final int[] newToOld;
+        private final boolean[] moved;
+        private final boolean[] keyMatch;
+
+        Alignment(int oldSize, int newSize) {
+            oldToNew = new int[oldSize];
+            newToOld = new int[newSize];
+            moved = new boolean[oldSize];
+            keyMatch = new boolean[oldSize];
+            Arrays.fill(oldToNew, UNMATCHED);
+            Arrays.fill(newToOld, UNMATCHED);
+        }
+
+        /** Index in the new sequence matched to old index {@code i}, or {@link #UNMATCHED}. */
+        public int newIndexOf(int i) {
+            return oldToNew[i];
+        }
+
+        /** Index in the old sequence matched to new index {@code j}, or {@link #UNMATCHED}. */
+        public int oldIndexOf(int j) {
+            return newToOld[j];
+        }
+
+        /** True when old index {@code i} matched by key but out of order. */
+        public boolean isMoved(int i) {
+            return moved[i];
+        }
+
+        /** True when old index {@code i} matched by equal key, false when it was paired by position. */
+        public boolean isKeyMatch(int i) {
+            return keyMatch[i];
+        }
+
+        private void pair(int i, int j, boolean byKey) {
+            oldToNew[i] = j;
+            newToOld[j] = i;
+            keyMatch[i] = byKey;
+        }
+    }
+
+    /**
+     * @param oldKeys    keys of the old sequence; null keys never match by key
+     * @param newKeys    keys of the new sequence; null keys never match by key
+     * @param pairByGaps when true, unmatched entries left between two anchors are
+     *                   paired by position (treated as edited rather than replaced);
+     *                   when false, only null-key entries are, with each other
+     */
+    public static Alignment align(List<String> oldKeys, List<String> newKeys, boolean pairByGaps) {
+        Alignment result = new Alignment(oldKeys.size(), newKeys.size());
+
+        // 1. pair k-th occurrence of a key in old with its k-th occurrence in new
+        Map<String, ArrayDeque<Integer>> positions = new HashMap<String, ArrayDeque<Integer>>();
+        for (int j = 0; j < newKeys.size(); j++) {
+            String key = newKeys.get(j);
+            if (key == null)
+                continue;
+            ArrayDeque<Integer> q = positions.get(key);
+            if (q == null) {
+                q = new ArrayDeque<Integer>();
+                positions.put(key, q);
+            }
+            q.add(j);
+        }
+
+        int[] pairOld = new int[Math.min(oldKeys.size(), newKeys.size())];
+        int[] pairNew = new int[pairOld.length];
+        int pairs = 0;
+        for (int i = 0; i < oldKeys.size(); i++) {
+            String key = oldKeys.get(i);
+            ArrayDeque<Integer> q = key == null ? null : positions.get(key);
+            if (q != null && !q.isEmpty()) {
+                pairOld[pairs] = i;
+                pairNew[pairs] = q.poll();
+                pairs++;
+            }
+        }
+
+        // 2. longest increasing subsequence over the new indices (pairs are already sorted by old index)
+        boolean[] inOrder = longestIncreasing(pairNew, pairs);
+        for (int p = 0; p < pairs; p++) {
+            result.pair(pairOld[p], pairNew[p], true);
+            result.moved[pairOld[p]] = !inOrder[p];
+        }
+
+        // 3. pair leftovers between consecutive anchors by position (only keyless ones unless pairByGaps)
+        int prevOld = -1;
+        int prevNew = -1;
+        for (int p = 0; p <= pairs; p++) {
+            if (p < pairs && !inOrder[p])
+                continue;
+            int nextOld = p < pairs ? pairOld[p] : oldKeys.size();
+            int nextNew = p < pairs ? pairNew[p] : newKeys.size();
+            pairGap(result, oldKeys, newKeys, !pairByGaps, prevOld + 1, nextOld, prevNew + 1, nextNew);
+            prevOld = nextOld;
+            prevNew = nextNew;
+        }
+
+        return result;
+    }
+
+    private static void pairGap(Alignment result, List<String> oldKeys, List<String> newKeys, boolean keylessOnly,
+            int oldFrom, int oldTo, int newFrom, int newTo) {
+        int i = oldFrom;
+        int j = newFrom;
+        while (true) {
+            while (i < oldTo && (result.oldToNew[i] != UNMATCHED || keylessOnly && oldKeys.get(i) != null))
+                i++;
+            while (j < newTo && (result.newToOld[j] != UNMATCHED || keylessOnly && newKeys.get(j) != null))
+                j++;
+            if (i >= oldTo || j >= newTo)
+                return;
+            result.pair(i++, j++, false);
+        }
+    }
+
+    /** Patience sorting LIS; returns a membership mask over the first {@code n} values. */
+    private static boolean[] longestIncreasing(int[] values, int n) {
+        int[] tails = new int[n];
+        int[] prev = new int[n];
+        int length = 0;
+        for (int k = 0; k < n; k++) {
+            int lo = 0;
+            int hi = length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (values[tails[mid]] < values[k])
+                    lo = mid + 1;
+                else
+                    hi = mid;
+            }
+            prev[k] = lo > 0 ? tails[lo - 1] : -1;
+            tails[lo] = k;
+            if (lo == length)
+                length++;
+        }
+
+        boolean[] mask = new boolean[n];
+        for (int k = length > 0 ? tails[length - 1] : -1; k >= 0; k = prev[k]) {
+            mask[k] = true;
+        }
+        return mask;
+    }
+}
@@ -10,12 +10,18 @@ import java.util.Date;
 public class SharePointSimulator {
 
     private File spFolder = new File("simulated-sharepoint");
+    private final PipelineMetrics metrics;
 
-    public SharePointSimulator() {
+    public SharePointSimulator(PipelineMetrics metrics) {
+        this.metrics = metrics;
         if (!spFolder.exists()) spFolder.mkdirs();
     }
 
     public String pushToSharePoint(File excelFile, String originalName) throws Exception {
+        return metrics.time("sharepoint.push", () -> copyToSharePoint(excelFile, originalName));
+    }
+
+    private String copyToSharePoint(File excelFile, String originalName) throws Exception {
         String t = new SimpleDateFormat("yyyyMMddHHmmss").format(new Date());
         File dest = new File(spFolder, originalName + "-" + t + ".xlsx");
         java.nio.file.Files.copy(excelFile.toPath(), dest.toPath());
@@ -0,0 +1,106 @@
+package com.example.msslideapp.service;
+
+import com.example.msslideapp.model.SheetWindow;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Windows of a workbook's sheets at any commit, for reviewers who need the
+ * context around a change. Reads go to the snapshot's mapped binary copy
+ * ({@link SnapshotStore}, rebuilt first for a delta-history version), so a
+ * window costs O(window) however large the sheet.
+ */
+@Service
+public class SheetWindowService {
+
+    @Value("${snapshot.window.max-cells:100000}")
+    private long maxCells;
+
+    private final DeltaHistoryService history;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    public SheetWindowService(DeltaHistoryService history) {
+        this.history = history;
+    }
+
+    /**
+     * Cells of {@code sheet} of workbook {@code fileName} at {@code ref} (a commit SHA
+     * or branch) in the given inclusive ranges; a last row or column past the sheet's
+     * end is clamped to it. Null if the file or sheet doesn't exist at that ref.
+     *
+     * @throws IllegalArgumentException for an empty range or one over snapshot.window.max-cells
+     */
+    public SheetWindow getWindow(String fileName, String ref, String sheet, int firstRow, int lastRow,
+            int firstCol, int lastCol) throws Exception {
+        String path = fileName.replaceAll("\\.(xlsx?|json)$", "") + ".json";
+        DeltaHistoryService.Version version;
+        try {
+            version = history.versionAt(path, ref);
+        } catch (HttpClientErrorException.NotFound e) {
+            return null;
+        }
+        if (version == null)
+            return null;
+        MappedSnapshot snapshot = history.snapshot(version);
+        if (snapshot == null)
+            return null;
+        int s = snapshot.sheetIndex(sheet);
+        if (s < 0)
+            return null;
+
+        int rows = snapshot.rowCount(s);
+        int sheetLastRow = rows > 0 ? snapshot.rowAt(s, rows - 1) : -1;
+        int sheetLastCol = snapshot.maxCol(s);
+        lastRow = Math.min(lastRow, Math.max(firstRow, sheetLastRow));
+        lastCol = Math.min(lastCol, Math.max(firstCol, sheetLastCol));
+        if (firstRow < 0 || firstCol < 0 || lastRow < firstRow || lastCol < firstCol)
+            throw new IllegalArgumentException("Empty window");
+        long area = (long) (lastRow - firstRow + 1) * (lastCol - firstCol + 1);
+        if (area > maxCells)
+            throw new IllegalArgumentException("Window of " + area + " cells exceeds the limit of " + maxCells);
+
+        List<SheetWindow.Cell> cells = new ArrayList<>();
+        TreeMap<Integer, JsonNode> styles = new TreeMap<>();
+        snapshot.window(s, firstRow, lastRow, firstCol, lastCol, (row, col, value, style) -> {
+            cells.add(new SheetWindow.Cell(row, col, value, style >= 0 ? style : null));
+            if (style >= 0 && !styles.containsKey(style))
+                styles.put(style, readStyle(snapshot.styleJson(style)));
+        });
+
+        List<String> sheetNames = new ArrayList<>(snapshot.sheetCount());
+        for (int i = 0; i < snapshot.sheetCount(); i++)
+            sheetNames.add(snapshot.sheetName(i));
+
+        SheetWindow window = new SheetWindow();
+        window.setFile(fileName);
+        window.setRef(ref);
+        window.setSheet(sheet);
+        window.setSheets(sheetNames);
+        window.setFirstRow(firstRow);
+        window.setLastRow(lastRow);
+        window.setFirstCol(firstCol);
+        window.setLastCol(lastCol);
+        window.setSheetRows(rows);
+        window.setSheetLastRow(sheetLastRow);
+        window.setSheetLastCol(sheetLastCol);
+        window.setCells(cells);
+        window.setStyles(styles);
+        return window;
+    }
+
+    private JsonNode readStyle(String json) {
+        try {
+            return mapper.readTree(json);
+        } catch (Exception e) {
+            throw new IllegalStateException("Corrupt style in snapshot: " + json, e);
+        }
+    }
+}
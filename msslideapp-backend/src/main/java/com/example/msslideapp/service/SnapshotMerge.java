@@ -0,0 +1,128 @@
+package com.example.msslideapp.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Cell-level three-way merge of snapshots: our changes since the common base
+ * ({@link SnapshotPatch#between}) are replayed onto theirs. A cell only one side
+ * changed takes that side's content, and a cell both sides changed to the same
+ * value and formatting stays as it is. A cell both sides changed differently is a
+ * conflict and keeps their content. Adding a cell to a sheet the other side
+ * removed is a conflict too.
+ * <p>
+ * Sheets keep their order, with the sheets only we added at the end. A sheet we
+ * removed is dropped unless they changed it.
+ */
+public final class SnapshotMerge {
+
+    private static final String EMPTY = "{\"sheets\":[],\"styles\":[]}";
+
+    /** A cell both sides changed differently; values are null where the cell doesn't exist. */
+    public static final class Conflict {
+        public final String sheet;
+        public final int row;
+        public final int col;
+        public final String baseValue;
+        public final String ourValue;
+        public final String theirValue;
+
+        Conflict(String sheet, int row, int col, String baseValue, String ourValue, String theirValue) {
+            this.sheet = sheet;
+            this.row = row;
+            this.col = col;
+            this.baseValue = baseValue;
+            this.ourValue = ourValue;
+            this.theirValue = theirValue;
+        }
+    }
+
+    private final MappedSnapshot theirs;
+    private final SnapshotPatch rebased = new SnapshotPatch(null, null, 0);
+    private final List<Conflict> conflicts = new ArrayList<>();
+    private int merged;
+
+    private SnapshotMerge(MappedSnapshot theirs) {
+        this.theirs = theirs;
+    }
+
+    /** Merges {@code ours} into {@code theirs}; a null base means both sides added the workbook. */
+    public static SnapshotMerge of(MappedSnapshot base, MappedSnapshot ours, MappedSnapshot theirs)
+            throws IOException {
+        if (base == null)
+            base = MappedSnapshot.parse(EMPTY);
+        SnapshotPatch ourChanges = SnapshotPatch.between(base, ours, null, null, 0);
+        SnapshotPatch theirChanges = SnapshotPatch.between(base, theirs, null, null, 0);
+        SnapshotMerge merge = new SnapshotMerge(theirs);
+
+        Set<String> baseSheets = new HashSet<>();
+        for (int s = 0; s < base.sheetCount(); s++)
+            baseSheets.add(base.sheetName(s));
+        Set<String> ourRemoved = new HashSet<>(ourChanges.getRemovedSheets());
+        Set<String> sheets = new HashSet<>();
+        for (String name : theirChanges.getSheets()) {
+            if (!ourRemoved.contains(name) || !theirChanges.changes(name).isEmpty()) {
+                merge.rebased.addSheet(name);
+                sheets.add(name);
+            }
+        }
+        for (String name : ourChanges.getSheets()) {
+            if (!baseSheets.contains(name) && sheets.add(name))
+                merge.rebased.addSheet(name);
+        }
+
+        List<String> changedSheets = new ArrayList<>(ourChanges.getSheets());
+        changedSheets.addAll(ourChanges.getRemovedSheets());
+        for (String name : changedSheets)
+            merge.mergeSheet(name, sheets.contains(name) || ourRemoved.contains(name), ourChanges, theirChanges);
+        return merge;
+    }
+
+    private void mergeSheet(String sheet, boolean kept, SnapshotPatch ourChanges, SnapshotPatch theirChanges) {
+        Map<Long, SnapshotPatch.Change> theirCells = new HashMap<>();
+        for (SnapshotPatch.Change change : theirChanges.changes(sheet))
+            theirCells.put(position(change), change);
+        for (SnapshotPatch.Change ours : ourChanges.changes(sheet)) {
+            SnapshotPatch.Change their = theirCells.get(position(ours));
+            String ourStyle = ourChanges.styleJson(ours.newStyle);
+            if (their == null && kept) {
+                rebased.addChange(sheet, ours, ourStyle);
+                merged++;
+            } else if (their == null) {
+                // they removed the sheet we changed
+                conflicts.add(new Conflict(sheet, ours.row, ours.col, ours.oldValue, ours.newValue, null));
+            } else if (!Objects.equals(ours.newValue, their.newValue)
+                    || !Objects.equals(ourStyle, theirChanges.styleJson(their.newStyle))) {
+                conflicts.add(new Conflict(sheet, ours.row, ours.col, ours.oldValue, ours.newValue, their.newValue));
+            }
+        }
+    }
+
+    public boolean hasConflicts() {
+        return !conflicts.isEmpty();
+    }
+
+    public List<Conflict> getConflicts() {
+        return conflicts;
+    }
+
+    /** Our changed cells carried onto theirs. */
+    public int getMergedCount() {
+        return merged;
+    }
+
+    /** The merged snapshot as JSON; conflicting cells keep their content. */
+    public String toJson() throws IOException {
+        return rebased.applyTo(theirs);
+    }
+
+    private static long position(SnapshotPatch.Change change) {
+        return ((long) change.row << 32) | (change.col & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,393 @@
+package com.example.msslideapp.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The cell-level changes between two versions of a snapshot, as committed by
+ * delta history ({@link DeltaHistoryService}). A patch names the checkpoint its
+ * chain starts from and its parent (the checkpoint, or the previous patch), both
+ * by blob SHA, so a patch's own blob SHA identifies the version it produces.
+ * <p>
+ * JSON form, with changed cells as {@code [row, col, oldValue, oldStyle, newValue, newStyle]}
+ * sorted by row then column; a null value means the cell doesn't exist on that
+ * side, and styles index the patch's own table (-1 for none):
+ * <pre>
+ * {"checkpoint": sha, "parent": sha, "seq": n,
+ *  "sheets": [new sheet order], "removedSheets": [sheets only in the parent],
+ *  "styles": [{...}], "changes": {"Sheet1": [[3, 1, "old", 0, "new", 2], ...]}}
+ * </pre>
+ */
+public final class SnapshotPatch {
+
+    private static final JsonFactory JSON = new JsonFactory();
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /** One changed cell; values are null where the cell doesn't exist. */
+    public static final class Change {
+        public final int row;
+        public final int col;
+        public final String oldValue;
+        public final int oldStyle;
+        public final String newValue;
+        public final int newStyle;
+
+        Change(int row, int col, String oldValue, int oldStyle, String newValue, int newStyle) {
+            this.row = row;
+            this.col = col;
+            this.oldValue = oldValue;
+            this.oldStyle = oldStyle;
+            this.newValue = newValue;
+            this.newStyle = newStyle;
+        }
+    }
+
+    private final String checkpoint;
+    private final String parent;
+    private final int seq;
+    private final List<String> sheets = new ArrayList<>();
+    private final List<String> removedSheets = new ArrayList<>();
+    private final List<String> styles = new ArrayList<>();
+    private final Map<String, Integer> styleIds = new HashMap<>();
+    private final Map<String, List<Change>> changes = new LinkedHashMap<>();
+
+    /** An empty patch; {@link SnapshotMerge} fills one in with {@link #addSheet} and {@link #addChange}. */
+    SnapshotPatch(String checkpoint, String parent, int seq) {
+        this.checkpoint = checkpoint;
+        this.parent = parent;
+        this.seq = seq;
+    }
+
+    /**
+     * The changes that turn {@code base} into {@code target}. A cell is changed when
+     * its value bytes or its style's properties differ; whether that is a visible
+     * change is left to the diff.
+     */
+    public static SnapshotPatch between(MappedSnapshot base, MappedSnapshot target, String checkpoint, String parent,
+            int seq) {
+        SnapshotPatch patch = new SnapshotPatch(checkpoint, parent, seq);
+        Map<String, Integer> baseSheets = sheetIndexes(base);
+        Map<String, Integer> targetSheets = sheetIndexes(target);
+
+        // one id per distinct style JSON across both tables, so formatting compares as an int
+        Map<String, Integer> canonical = new HashMap<>();
+        int[] baseStyles = canonicalStyles(base, canonical);
+        int[] targetStyles = canonicalStyles(target, canonical);
+
+        for (Map.Entry<String, Integer> sheet : targetSheets.entrySet()) {
+            patch.sheets.add(sheet.getKey());
+            patch.diffSheet(sheet.getKey(), base, baseSheets.get(sheet.getKey()), baseStyles, target,
+                    sheet.getValue(), targetStyles);
+        }
+        for (Map.Entry<String, Integer> sheet : baseSheets.entrySet()) {
+            if (!targetSheets.containsKey(sheet.getKey())) {
+                patch.removedSheets.add(sheet.getKey());
+                patch.diffSheet(sheet.getKey(), base, sheet.getValue(), baseStyles, target, null, targetStyles);
+            }
+        }
+        return patch;
+    }
+
+    public static SnapshotPatch parse(String json) throws IOException {
+        JsonNode root = MAPPER.readTree(json);
+        SnapshotPatch patch = new SnapshotPatch(root.path("checkpoint").asText(null), root.path("parent").asText(null),
+                root.path("seq").asInt());
+        for (JsonNode name : root.path("sheets"))
+            patch.sheets.add(name.asText());
+        for (JsonNode name : root.path("removedSheets"))
+            patch.removedSheets.add(name.asText());
+        for (JsonNode style : root.path("styles"))
+            patch.style(style.toString());
+        root.path("changes").fields().forEachRemaining(sheet -> {
+            List<Change> list = new ArrayList<>(sheet.getValue().size());
+            for (JsonNode c : sheet.getValue()) {
+                list.add(new Change(c.get(0).asInt(), c.get(1).asInt(), c.get(2).isNull() ? null : c.get(2).asText(),
+                        c.get(3).asInt(-1), c.get(4).isNull() ? null : c.get(4).asText(), c.get(5).asInt(-1)));
+            }
+            patch.changes.put(sheet.getKey(), list);
+        });
+        return patch;
+    }
+
+    public String toJson() throws IOException {
+        StringWriter out = new StringWriter();
+        try (JsonGenerator gen = JSON.createGenerator(out)) {
+            gen.writeStartObject();
+            gen.writeStringField("checkpoint", checkpoint);
+            gen.writeStringField("parent", parent);
+            gen.writeNumberField("seq", seq);
+            gen.writeArrayFieldStart("sheets");
+            for (String name : sheets)
+                gen.writeString(name);
+            gen.writeEndArray();
+            gen.writeArrayFieldStart("removedSheets");
+            for (String name : removedSheets)
+                gen.writeString(name);
+            gen.writeEndArray();
+            gen.writeArrayFieldStart("styles");
+            for (String style : styles)
+                gen.writeRawValue(style);
+            gen.writeEndArray();
+            gen.writeObjectFieldStart("changes");
+            for (Map.Entry<String, List<Change>> sheet : changes.entrySet()) {
+                gen.writeArrayFieldStart(sheet.getKey());
+                for (Change c : sheet.getValue()) {
+                    gen.writeStartArray();
+                    gen.writeNumber(c.row);
+                    gen.writeNumber(c.col);
+                    gen.writeString(c.oldValue);
+                    gen.writeNumber(c.oldStyle);
+                    gen.writeString(c.newValue);
+                    gen.writeNumber(c.newStyle);
+                    gen.writeEndArray();
+                }
+                gen.writeEndArray();
+            }
+            gen.writeEndObject();
+            gen.writeEndObject();
+        }
+        return out.toString();
+    }
+
+    /**
+     * The JSON snapshot of the version this patch produces from {@code base}, its
+     * parent. The parent's style table is kept as is; patch styles it already has
+     * map to its ids and only new ones are appended, so replaying a chain doesn't
+     * grow the table with every patch.
+     */
+    public String applyTo(MappedSnapshot base) throws IOException {
+        Map<String, Integer> baseSheets = sheetIndexes(base);
+        Map<String, Integer> baseStyles = new HashMap<>();
+        for (int i = 0; i < base.styleCount(); i++)
+            baseStyles.putIfAbsent(base.styleJson(i), i);
+        List<String> addedStyles = new ArrayList<>();
+        int[] styleIds = new int[styles.size()];
+        for (int i = 0; i < styleIds.length; i++) {
+            Integer id = baseStyles.get(styles.get(i));
+            if (id == null) {
+                id = base.styleCount() + addedStyles.size();
+                addedStyles.add(styles.get(i));
+            }
+            styleIds[i] = id;
+        }
+        StringWriter out = new StringWriter();
+        try (JsonGenerator gen = JSON.createGenerator(out)) {
+            gen.writeStartObject();
+            gen.writeArrayFieldStart("sheets");
+            for (String name : sheets) {
+                gen.writeStartObject();
+                gen.writeStringField("name", name);
+                gen.writeArrayFieldStart("cells");
+                List<Change> sheetChanges = changes(name);
+                Integer s = baseSheets.get(name);
+                int k = 0;
+                if (s != null) {
+                    for (int r = 0; r < base.rowCount(s); r++) {
+                        int row = base.rowAt(s, r);
+                        int first = base.rowFirstCell(s, r);
+                        int end = first + base.rowCellCount(s, r);
+                        for (int c = first; c < end; c++) {
+                            long position = position(row, base.cellCol(s, c));
+                            while (k < sheetChanges.size() && position(sheetChanges.get(k)) < position)
+                                writeCell(gen, sheetChanges.get(k++), styleIds);
+                            if (k < sheetChanges.size() && position(sheetChanges.get(k)) == position) {
+                                writeCell(gen, sheetChanges.get(k++), styleIds);
+                                continue;
+                            }
+                            writeCell(gen, row, base.cellCol(s, c), base.cellValue(s, c), base.cellStyle(s, c));
+                        }
+                    }
+                }
+                while (k < sheetChanges.size())
+                    writeCell(gen, sheetChanges.get(k++), styleIds);
+                gen.writeEndArray();
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+            gen.writeArrayFieldStart("styles");
+            for (int i = 0; i < base.styleCount(); i++)
+                gen.writeRawValue(base.styleJson(i));
+            for (String style : addedStyles)
+                gen.writeRawValue(style);
+            gen.writeEndArray();
+            gen.writeEndObject();
+        }
+        return out.toString();
+    }
+
+    public String getCheckpoint() {
+        return checkpoint;
+    }
+
+    public String getParent() {
+        return parent;
+    }
+
+    /** Position in the chain: 1 for a patch on the checkpoint itself. */
+    public int getSeq() {
+        return seq;
+    }
+
+    /** Sheets of the new version, in workbook order. */
+    public List<String> getSheets() {
+        return sheets;
+    }
+
+    /** Sheets of the parent that the new version no longer has. */
+    public List<String> getRemovedSheets() {
+        return removedSheets;
+    }
+
+    /** The patch's style table, as JSON objects. */
+    public List<String> getStyles() {
+        return styles;
+    }
+
+    /** Changed cells of one sheet, by row then column. */
+    public List<Change> changes(String sheet) {
+        return changes.getOrDefault(sheet, Collections.<Change>emptyList());
+    }
+
+    public int changeCount() {
+        int count = 0;
+        for (List<Change> sheet : changes.values())
+            count += sheet.size();
+        return count;
+    }
+
+    void addSheet(String name) {
+        sheets.add(name);
+    }
+
+    /** Appends a change (after any other of the sheet's, in row then column order) with its new style as JSON. */
+    void addChange(String sheet, Change change, String newStyleJson) {
+        changes.computeIfAbsent(sheet, k -> new ArrayList<>()).add(new Change(change.row, change.col, change.oldValue,
+                -1, change.newValue, newStyleJson == null ? -1 : style(newStyleJson)));
+    }
+
+    /** The JSON of one of the patch's style ids, or null for -1. */
+    String styleJson(int style) {
+        return style < 0 ? null : styles.get(style);
+    }
+
+    private void diffSheet(String name, MappedSnapshot base, Integer baseSheet, int[] baseStyles,
+            MappedSnapshot target, Integer targetSheet, int[] targetStyles) {
+        List<Change> out = new ArrayList<>();
+        int baseRows = baseSheet != null ? base.rowCount(baseSheet) : 0;
+        int targetRows = targetSheet != null ? target.rowCount(targetSheet) : 0;
+        for (int i = 0, j = 0; i < baseRows || j < targetRows;) {
+            int baseRow = i < baseRows ? base.rowAt(baseSheet, i) : Integer.MAX_VALUE;
+            int targetRow = j < targetRows ? target.rowAt(targetSheet, j) : Integer.MAX_VALUE;
+            int row = Math.min(baseRow, targetRow);
+            int a = 0, aEnd = 0, b = 0, bEnd = 0;
+            if (baseRow == row) {
+                a = base.rowFirstCell(baseSheet, i);
+                aEnd = a + base.rowCellCount(baseSheet, i++);
+            }
+            if (targetRow == row) {
+                b = target.rowFirstCell(targetSheet, j);
+                bEnd = b + target.rowCellCount(targetSheet, j++);
+            }
+            while (a < aEnd || b < bEnd) {
+                int baseCol = a < aEnd ? base.cellCol(baseSheet, a) : Integer.MAX_VALUE;
+                int targetCol = b < bEnd ? target.cellCol(targetSheet, b) : Integer.MAX_VALUE;
+                if (baseCol == targetCol) {
+                    if (canonical(baseStyles, base.cellStyle(baseSheet, a)) != canonical(targetStyles,
+                            target.cellStyle(targetSheet, b))
+                            || !base.sameValue(baseSheet, a, target, targetSheet, b)) {
+                        out.add(new Change(row, baseCol, base.cellValue(baseSheet, a),
+                                style(base, base.cellStyle(baseSheet, a)), target.cellValue(targetSheet, b),
+                                style(target, target.cellStyle(targetSheet, b))));
+                    }
+                    a++;
+                    b++;
+                } else if (baseCol < targetCol) {
+                    out.add(new Change(row, baseCol, base.cellValue(baseSheet, a),
+                            style(base, base.cellStyle(baseSheet, a)), null, -1));
+                    a++;
+                } else {
+                    out.add(new Change(row, targetCol, null, -1, target.cellValue(targetSheet, b),
+                            style(target, target.cellStyle(targetSheet, b))));
+                    b++;
+                }
+            }
+        }
+        if (!out.isEmpty())
+            changes.put(name, out);
+    }
+
+    /** The patch's id for a snapshot's style, adding it to the patch's table on first use. */
+    private int style(MappedSnapshot snapshot, int style) {
+        return style < 0 ? -1 : style(snapshot.styleJson(style));
+    }
+
+    private int style(String json) {
+        Integer id = styleIds.get(json);
+        if (id == null) {
+            id = styles.size();
+            styleIds.put(json, id);
+            styles.add(json);
+        }
+        return id;
+    }
+
+    private void writeCell(JsonGenerator gen, Change change, int[] styleIds) throws IOException {
+        if (change.newValue != null)
+            writeCell(gen, change.row, change.col, change.newValue,
+                    change.newStyle >= 0 ? styleIds[change.newStyle] : -1);
+    }
+
+    private static void writeCell(JsonGenerator gen, int row, int col, String value, int style) throws IOException {
+        gen.writeStartObject();
+        gen.writeNumberField("row", row);
+        gen.writeNumberField("col", col);
+        gen.writeStringField("value", value);
+        if (style >= 0)
+            gen.writeNumberField("styleId", style);
+        gen.writeEndObject();
+    }
+
+    private static long position(Change change) {
+        return position(change.row, change.col);
+    }
+
+    private static long position(int row, int col) {
+        return ((long) row << 32) | (col & 0xFFFFFFFFL);
+    }
+
+    private static int canonical(int[] styles, int style) {
+        return style < 0 ? -1 : styles[style];
+    }
+
+    private static int[] canonicalStyles(MappedSnapshot snapshot, Map<String, Integer> canonical) {
+        int[] ids = new int[snapshot.styleCount()];
+        for (int i = 0; i < ids.length; i++) {
+            Integer id = canonical.get(snapshot.styleJson(i));
+            if (id == null) {
+                id = canonical.size();
+                canonical.put(snapshot.styleJson(i), id);
+            }
+            ids[i] = id;
+        }
+        return ids;
+    }
+
+    /** Sheet name to index in workbook order; of duplicate names the last sheet wins, as in the diff. */
+    private static Map<String, Integer> sheetIndexes(MappedSnapshot snapshot) {
+        Map<String, Integer> sheets = new LinkedHashMap<>();
+        for (int s = 0; s < snapshot.sheetCount(); s++)
+            sheets.put(snapshot.sheetName(s), s);
+        return sheets;
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.msslideapp.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Binary, memory-mapped copies of JSON snapshots on local disk, keyed by the
+ * snapshot's blob SHA. Blobs are content-addressed, so a stored file never goes
+ * stale; it is built once from the JSON on first use. Mapped snapshots stay open
+ * for reuse (up to snapshot.store.max-open), and the least recently used files
+ * are deleted once the directory outgrows snapshot.store.max-disk-mb. Its size
+ * is kept as files come and go, so the directory is only listed to trim it.
+ * Versions rebuilt from delta history ({@link DeltaHistoryService}) are kept
+ * here too, under a key derived from their patch's blob SHA.
+ */
+@Service
+public class SnapshotStore {
+
+    private static final Logger log = LoggerFactory.getLogger(SnapshotStore.class);
+
+    @Value("${snapshot.store.dir:storage/snapshots}")
+    private String dir;
+
+    @Value("${snapshot.store.max-open:64}")
+    private int maxOpen;
+
+    @Value("${snapshot.store.max-disk-mb:1024}")
+    private long maxDiskMb;
+
+    private final PipelineMetrics metrics;
+    private File storeDir;
+    // bytes of .snap files; set from a listing at startup and on every trim, tracked in between
+    private final AtomicLong diskBytes = new AtomicLong();
+
+    // blob SHA -> mapped snapshot, least recently used first
+    private final LinkedHashMap<String, MappedSnapshot> open = new LinkedHashMap<String, MappedSnapshot>(16, 0.75f,
+            true);
+
+    public SnapshotStore(PipelineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @PostConstruct
+    void init() {
+        storeDir = new File(dir);
+        if (!storeDir.isDirectory() && !storeDir.mkdirs())
+            log.warn("Cannot create snapshot store dir={}", storeDir.getAbsolutePath());
+        File[] files = snapFiles();
+        long total = 0;
+        for (File f : files)
+            total += f.length();
+        diskBytes.set(total);
+    }
+
+    /**
+     * The mapped snapshot of blob {@code blobSha}, converting the JSON returned by
+     * {@code json} on first use. Returns null if the loader returns null or blank.
+     */
+    public MappedSnapshot get(String blobSha, Callable<String> json) throws Exception {
+        MappedSnapshot snapshot = getIfPresent(blobSha);
+        if (snapshot != null)
+            return snapshot;
+        String content = json.call();
+        if (content == null || content.trim().isEmpty())
+            return null;
+        File file = new File(storeDir, blobSha + ".snap");
+        return remember(blobSha, metrics.time("snapshot.store", () -> store(file, content)));
+    }
+
+    /**
+     * The snapshot of blob {@code blobSha} if it is already open or on disk,
+     * otherwise null. A file that can't be read is deleted, to be rebuilt.
+     */
+    public MappedSnapshot getIfPresent(String blobSha) {
+        synchronized (open) {
+            MappedSnapshot cached = open.get(blobSha);
+            if (cached != null)
+                return cached;
+        }
+        File file = new File(storeDir, blobSha + ".snap");
+        if (!file.isFile())
+            return null;
+        MappedSnapshot snapshot;
+        try {
+            snapshot = MappedSnapshot.open(file);
+        } catch (IOException e) {
+            log.warn("Discarding unreadable snapshot file={}: {}", file.getName(), e.getMessage());
+            long length = file.length();
+            if (file.delete())
+                diskBytes.addAndGet(-length);
+            return null;
+        }
+        // access order for disk eviction
+        file.setLastModified(System.currentTimeMillis());
+        return remember(blobSha, snapshot);
+    }
+
+    /**
+     * Stores a snapshot we're about to commit under the blob SHA git will give it,
+     * so later diffs against that commit find it locally instead of fetching it.
+     */
+    public MappedSnapshot put(String json) throws Exception {
+        if (json == null || json.trim().isEmpty())
+            return null;
+        String blobSha = blobSha(json.getBytes(StandardCharsets.UTF_8));
+        return get(blobSha, () -> json);
+    }
+
+    /** The git blob SHA of {@code content}: SHA-1 over "blob <length>\0" and the bytes. */
+    static String blobSha(byte[] content) throws NoSuchAlgorithmException {
+        MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+        sha1.update(("blob " + content.length + "\0").getBytes(StandardCharsets.US_ASCII));
+        byte[] digest = sha1.digest(content);
+        StringBuilder hex = new StringBuilder(digest.length * 2);
+        for (byte b : digest)
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        return hex.toString();
+    }
+
+    private MappedSnapshot remember(String blobSha, MappedSnapshot snapshot) {
+        synchronized (open) {
+            MappedSnapshot raced = open.putIfAbsent(blobSha, snapshot);
+            if (raced != null)
+                return raced;
+            Iterator<MappedSnapshot> eldest = open.values().iterator();
+            while (open.size() > Math.max(1, maxOpen) && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+            }
+            return snapshot;
+        }
+    }
+
+    private MappedSnapshot store(File file, String content) throws IOException {
+        // written aside and moved into place, so readers never map a partial file
+        File tmp = File.createTempFile(file.getName(), ".tmp", storeDir);
+        long replaced = file.length();
+        try {
+            MappedSnapshot.write(new StringReader(content), tmp);
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp.toPath());
+        }
+        log.debug("Stored snapshot file={} jsonChars={} bytes={}", file.getName(), content.length(), file.length());
+        MappedSnapshot snapshot = MappedSnapshot.open(file);
+        if (diskBytes.addAndGet(file.length() - replaced) > maxDiskMb * 1024 * 1024)
+            trim();
+        return snapshot;
+    }
+
+    /**
+     * Deletes the least recently used files while the store is over its disk budget,
+     * and resets the tracked size from the listing.
+     */
+    private synchronized void trim() {
+        File[] files = snapFiles();
+        long total = 0;
+        for (File f : files)
+            total += f.length();
+        long budget = maxDiskMb * 1024 * 1024;
+        if (total > budget) {
+            Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+            for (File f : files) {
+                if (total <= budget)
+                    break;
+                long length = f.length();
+                // a mapped file stays readable after deletion until its mapping is collected
+                if (f.delete())
+                    total -= length;
+            }
+        }
+        diskBytes.set(total);
+    }
+
+    private File[] snapFiles() {
+        File[] files = storeDir.listFiles((d, name) -> name.endsWith(".snap"));
+        return files != null ? files : new File[0];
+    }
+}
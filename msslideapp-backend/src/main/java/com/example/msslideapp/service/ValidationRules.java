@@ -0,0 +1,321 @@
+package com.example.msslideapp.service;
+
+import com.example.msslideapp.model.ValidationViolation;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.poi.ss.util.CellReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Declarative checks on uploaded workbooks, evaluated in the converter's cell
+ * loop, so validating an upload costs no second read of the file. Rule sets are
+ * read from validation.rules (see validation-rules.json). Each applies to the
+ * files and sheets its patterns match, and lists checks per column, found by
+ * header text in the rule set's header row or by column letter: required,
+ * minLength, maxLength, oneOf (a code list) and pattern.
+ * <p>
+ * Rule sets are compiled once at startup. A sheet's checks are laid out by
+ * column index as soon as its header row has been read, so each cell costs an
+ * array lookup. Only rows below the header row with a non-empty cell are
+ * checked, and only required looks at empty cells.
+ */
+@Service
+public class ValidationRules {
+
+    private static final Logger log = LoggerFactory.getLogger(ValidationRules.class);
+
+    private final boolean enabled;
+    private final int maxViolations;
+    private final List<RuleSet> ruleSets = new ArrayList<>();
+
+    public ValidationRules(@Value("${validation.enabled:true}") boolean enabled,
+            @Value("${validation.max-violations:1000}") int maxViolations,
+            @Value("${validation.rules:classpath:validation-rules.json}") Resource rules) throws IOException {
+        this.enabled = enabled;
+        this.maxViolations = maxViolations;
+        if (!enabled)
+            return;
+        if (!rules.exists()) {
+            log.info("No validation rules at {}", rules.getDescription());
+            return;
+        }
+        try (InputStream in = rules.getInputStream()) {
+            for (JsonNode ruleSet : new ObjectMapper().readTree(in).path("ruleSets"))
+                ruleSets.add(RuleSet.compile(ruleSet));
+        }
+        log.info("Loaded validation ruleSets={} from {}", ruleSets.size(), rules.getDescription());
+    }
+
+    /** The validation of one uploaded file, or null if no rule set applies to it. */
+    public Workbook forFile(String fileName) {
+        if (!enabled || fileName == null)
+            return null;
+        List<RuleSet> matching = new ArrayList<>();
+        for (RuleSet ruleSet : ruleSets) {
+            if (ruleSet.files.matcher(fileName).matches())
+                matching.add(ruleSet);
+        }
+        return matching.isEmpty() ? null : new Workbook(fileName, matching, maxViolations);
+    }
+
+    /**
+     * The validation of one file. Sheets are created on the converting thread in
+     * workbook order and may then be fed on different threads; violations are read
+     * once all sheets are finished.
+     */
+    public static final class Workbook {
+        private final String fileName;
+        private final List<RuleSet> ruleSets;
+        private final int maxViolations;
+        private final AtomicInteger found = new AtomicInteger();
+        private final List<Sheet> sheets = new ArrayList<>();
+
+        Workbook(String fileName, List<RuleSet> ruleSets, int maxViolations) {
+            this.fileName = fileName;
+            this.ruleSets = ruleSets;
+            this.maxViolations = maxViolations;
+        }
+
+        /** The checks for a sheet, from the first rule set matching its name; null if none does. */
+        public Sheet sheet(String name) {
+            for (RuleSet ruleSet : ruleSets) {
+                if (ruleSet.sheets.matcher(name).matches()) {
+                    Sheet sheet = new Sheet(this, name, ruleSet);
+                    sheets.add(sheet);
+                    return sheet;
+                }
+            }
+            return null;
+        }
+
+        /** Violations by sheet in workbook order, up to validation.max-violations for the file. */
+        public List<ValidationViolation> getViolations() {
+            List<ValidationViolation> violations = new ArrayList<>();
+            for (Sheet sheet : sheets)
+                violations.addAll(sheet.violations);
+            return violations;
+        }
+
+        /** Violations found, including any beyond the limit. */
+        public int getViolationCount() {
+            return found.get();
+        }
+    }
+
+    /** The checks of one sheet; fed by one thread, row by row. */
+    public static final class Sheet {
+        private final Workbook workbook;
+        private final String name;
+        private final RuleSet rules;
+        private final List<ValidationViolation> violations = new ArrayList<>();
+        private final Map<String, Integer> headers = new HashMap<>();
+
+        // laid out once the header row is read: checks by column index, required columns' indexes (-1 if missing)
+        private Column[][] byCol;
+        private int[] requiredCols;
+        private boolean[] requiredSeen;
+        private int row = -1;
+        private boolean rowHasValue;
+
+        Sheet(Workbook workbook, String name, RuleSet rules) {
+            this.workbook = workbook;
+            this.name = name;
+            this.rules = rules;
+        }
+
+        /** Checks one cell; cells come row by row. */
+        public void cell(int row, int col, String value) {
+            if (row <= rules.headerRow) {
+                if (row == rules.headerRow && !value.isEmpty())
+                    headers.putIfAbsent(header(value), col);
+                return;
+            }
+            if (byCol == null)
+                layOut();
+            if (row != this.row) {
+                endRow();
+                this.row = row;
+            }
+            if (value.isEmpty())
+                return;
+            rowHasValue = true;
+            if (col >= byCol.length || byCol[col] == null)
+                return;
+            for (Column column : byCol[col]) {
+                if (column.required >= 0)
+                    requiredSeen[column.required] = true;
+                for (Check check : column.checks) {
+                    if (!check.test.test(value))
+                        add(row, col, column.label, check.rule, value, check.message);
+                }
+            }
+        }
+
+        /** Checks the last row, and the header row if no rows followed it. */
+        public void finish() {
+            if (byCol == null)
+                layOut();
+            endRow();
+        }
+
+        private void layOut() {
+            int width = 0;
+            int[] cols = new int[rules.columns.size()];
+            requiredCols = new int[rules.requiredCount];
+            requiredSeen = new boolean[rules.requiredCount];
+            for (int i = 0; i < cols.length; i++) {
+                Column column = rules.columns.get(i);
+                Integer col = column.col >= 0 ? Integer.valueOf(column.col) : headers.get(column.header);
+                cols[i] = col != null ? col : -1;
+                if (column.required >= 0)
+                    requiredCols[column.required] = cols[i];
+                if (col == null && column.required >= 0)
+                    add(rules.headerRow, -1, column.label, "missingColumn", null,
+                            "Required column is missing from header row " + (rules.headerRow + 1));
+                width = Math.max(width, cols[i] + 1);
+            }
+            byCol = new Column[width][];
+            for (int i = 0; i < cols.length; i++) {
+                if (cols[i] < 0)
+                    continue;
+                Column[] at = byCol[cols[i]];
+                at = at == null ? new Column[1] : Arrays.copyOf(at, at.length + 1);
+                at[at.length - 1] = rules.columns.get(i);
+                byCol[cols[i]] = at;
+            }
+        }
+
+        private void endRow() {
+            if (rowHasValue) {
+                for (int i = 0; i < requiredCols.length; i++) {
+                    if (requiredCols[i] >= 0 && !requiredSeen[i])
+                        add(row, requiredCols[i], rules.requiredLabels.get(i), "required", null,
+                                "Required value is missing");
+                }
+            }
+            Arrays.fill(requiredSeen, false);
+            rowHasValue = false;
+        }
+
+        private void add(int row, int col, String column, String rule, String value, String message) {
+            if (workbook.found.incrementAndGet() > workbook.maxViolations)
+                return;
+            ValidationViolation violation = new ValidationViolation();
+            violation.setFileName(workbook.fileName);
+            violation.setSheet(name);
+            violation.setRow(row);
+            violation.setCol(col);
+            violation.setColumn(column);
+            violation.setRule(rule);
+            violation.setValue(value);
+            violation.setMessage(message);
+            violations.add(violation);
+        }
+    }
+
+    /** A rule set as compiled from the rules file. */
+    private static final class RuleSet {
+        final Pattern files;
+        final Pattern sheets;
+        final int headerRow;
+        final List<Column> columns = new ArrayList<>();
+        final List<String> requiredLabels = new ArrayList<>();
+        int requiredCount;
+
+        RuleSet(Pattern files, Pattern sheets, int headerRow) {
+            this.files = files;
+            this.sheets = sheets;
+            this.headerRow = headerRow;
+        }
+
+        static RuleSet compile(JsonNode json) {
+            RuleSet ruleSet = new RuleSet(Pattern.compile(json.path("files").asText(".*")),
+                    Pattern.compile(json.path("sheets").asText(".*")), json.path("headerRow").asInt(0));
+            for (JsonNode rule : json.path("columns")) {
+                String header = rule.path("header").asText(null);
+                String letter = rule.path("column").asText(null);
+                if ((header == null) == (letter == null))
+                    throw new IllegalArgumentException("Validation rule needs either a header or a column: " + rule);
+
+                List<Check> checks = new ArrayList<>();
+                if (rule.has("minLength")) {
+                    int min = rule.get("minLength").asInt();
+                    checks.add(new Check("minLength", "Shorter than " + min + " characters", v -> v.length() >= min));
+                }
+                if (rule.has("maxLength")) {
+                    int max = rule.get("maxLength").asInt();
+                    checks.add(new Check("maxLength", "Longer than " + max + " characters", v -> v.length() <= max));
+                }
+                if (rule.has("oneOf")) {
+                    Set<String> codes = new HashSet<>();
+                    for (JsonNode code : rule.get("oneOf"))
+                        codes.add(code.asText());
+                    checks.add(new Check("oneOf", "Not in the code list", codes::contains));
+                }
+                if (rule.has("pattern")) {
+                    Pattern pattern = Pattern.compile(rule.get("pattern").asText());
+                    checks.add(new Check("pattern", "Does not match " + pattern.pattern(),
+                            v -> pattern.matcher(v).matches()));
+                }
+
+                int required = -1;
+                String label = header != null ? header : letter;
+                if (rule.path("required").asBoolean(false)) {
+                    required = ruleSet.requiredCount++;
+                    ruleSet.requiredLabels.add(label);
+                }
+                ruleSet.columns.add(new Column(header != null ? header(header) : null,
+                        letter != null ? CellReference.convertColStringToIndex(letter) : -1, label, required,
+                        checks.toArray(new Check[0])));
+            }
+            return ruleSet;
+        }
+    }
+
+    /** The checks of one column. */
+    private static final class Column {
+        final String header;
+        final int col;
+        final String label;
+        // index among the rule set's required columns, or -1
+        final int required;
+        final Check[] checks;
+
+        Column(String header, int col, String label, int required, Check[] checks) {
+            this.header = header;
+            this.col = col;
+            this.label = label;
+            this.required = required;
+            this.checks = checks;
+        }
+    }
+
+    /** A predicate on non-empty cell values. */
+    private static final class Check {
+        final String rule;
+        final String message;
+        final Predicate<String> test;
+
+        Check(String rule, String message, Predicate<String> test) {
+            this.rule = rule;
+            this.message = message;
+            this.test = test;
+        }
+    }
+
+    /** Header text as matched: converted cell text is already whitespace-normalized. */
+    private static String header(String text) {
+        return text.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.msslideapp.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Turns GitHub webhook deliveries into cache invalidation: push drops the moved
+ * branch's cached tree (and commit history for the default branch) and refreshes
+ * the local mirror ref; pull_request drops that PR's diffs and the PR lists, and
+ * re-warms the diff on new commits; pull_request_review drops the PR lists.
+ */
+@Service
+public class WebhookService {
+
+    private static final Logger log = LoggerFactory.getLogger(WebhookService.class);
+
+    @Value("${github.webhook.secret:}")
+    private String secret;
+
+    private final GitHubService gitHubService;
+    private final GitService gitService;
+    private final DiffCache diffCache;
+    private final ApplicationEventPublisher events;
+    private final ExecutorService ioExecutor;
+
+    public WebhookService(GitHubService gitHubService, GitService gitService, DiffCache diffCache,
+            ApplicationEventPublisher events, @Qualifier("githubIoExecutor") ExecutorService ioExecutor) {
+        this.gitHubService = gitHubService;
+        this.gitService = gitService;
+        this.diffCache = diffCache;
+        this.events = events;
+        this.ioExecutor = ioExecutor;
+    }
+
+    /**
+     * Checks the X-Hub-Signature-256 header (HMAC-SHA256 of the raw body). Always
+     * false when no secret is configured, so unsigned deliveries are never trusted.
+     */
+    public boolean verifySignature(byte[] body, String signatureHeader) throws Exception {
+        if (secret == null || secret.isEmpty() || signatureHeader == null || !signatureHeader.startsWith("sha256="))
+            return false;
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        byte[] expected = mac.doFinal(body);
+        StringBuilder hex = new StringBuilder("sha256=");
+        for (byte b : expected)
+            hex.append(String.format("%02x", b));
+        return MessageDigest.isEqual(hex.toString().getBytes(StandardCharsets.US_ASCII),
+                signatureHeader.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /** Applies one delivery; returns what was invalidated, for the response and the log. */
+    public List<String> handle(String event, JsonNode payload) {
+        List<String> actions = new ArrayList<>();
+        if (event == null)
+            return actions;
+
+        switch (event) {
+            case "push":
+                handlePush(payload, actions);
+                break;
+            case "pull_request":
+                handlePullRequest(payload, actions);
+                break;
+            case "pull_request_review":
+                actions.addAll(gitHubService.invalidatePullRequestLists());
+                break;
+            default:
+                // ping and anything we did not subscribe to
+                break;
+        }
+        log.info("Webhook event={} invalidated={}", event, actions);
+        return actions;
+    }
+
+    private void handlePush(JsonNode payload, List<String> actions) {
+        String ref = payload.path("ref").asText();
+        if (!ref.startsWith("refs/heads/"))
+            return; // tags do not affect anything we cache
+        final String branch = ref.substring("refs/heads/".length());
+        final boolean deleted = payload.path("deleted").asBoolean();
+
+        actions.addAll(gitHubService.invalidateBranch(branch));
+        if (branch.equals(payload.path("repository").path("default_branch").asText("main")))
+            actions.addAll(gitHubService.invalidateCommitHistory());
+
+        // fetching can be slow; GitHub expects an answer within 10 seconds
+        ioExecutor.submit(() -> {
+            try {
+                String mirrorRef = gitService.refreshRemoteRef(branch, deleted);
+                if (mirrorRef != null)
+                    log.info("Mirror ref {} ref={}", deleted ? "deleted" : "refreshed", mirrorRef);
+            } catch (Exception e) {
+                log.warn("Failed to refresh mirror ref branch={}: {}", branch, e.getMessage());
+            }
+        });
+        actions.add("mirror:" + branch);
+    }
+
+    private void handlePullRequest(JsonNode payload, List<String> actions) {
+        int prNumber = payload.path("number").asInt(payload.path("pull_request").path("number").asInt());
+        String action = payload.path("action").asText();
+
+        diffCache.invalidate(DiffCache.prPrefix(prNumber));
+        actions.add("diffs:pr:" + prNumber);
+        actions.addAll(gitHubService.invalidatePullRequestLists());
+
+        if ("opened".equals(action) || "reopened".equals(action) || "synchronize".equals(action)) {
+            events.publishEvent(new PullRequestOpenedEvent(prNumber));
+            actions.add("warm:pr:" + prNumber);
+        }
+    }
+}
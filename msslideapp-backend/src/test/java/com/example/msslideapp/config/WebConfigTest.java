@@ -0,0 +1,81 @@
+package com.example.msslideapp.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebConfigTest {
+
+    private static final String COLOR = "#FF0000";
+
+    @Test
+    void defaultBinaryConvertersAreReplacedInPlaceBehindJson() {
+        HttpMessageConverter<?> defaultSmile = new MappingJackson2SmileHttpMessageConverter();
+        HttpMessageConverter<?> defaultCbor = new MappingJackson2CborHttpMessageConverter();
+        List<HttpMessageConverter<?>> converters = defaults(defaultSmile, defaultCbor);
+
+        new WebConfig(new Jackson2ObjectMapperBuilder()).extendMessageConverters(converters);
+
+        assertEquals(3, converters.size());
+        assertTrue(converters.get(0) instanceof MappingJackson2HttpMessageConverter);
+        assertTrue(converters.get(1) instanceof MappingJackson2SmileHttpMessageConverter);
+        assertTrue(converters.get(2) instanceof MappingJackson2CborHttpMessageConverter);
+        assertNotSame(defaultSmile, converters.get(1));
+        assertNotSame(defaultCbor, converters.get(2));
+    }
+
+    @Test
+    void smileResponsesBackReferenceRepeatedValues() throws Exception {
+        HttpMessageConverter<?> defaultSmile = new MappingJackson2SmileHttpMessageConverter();
+        List<HttpMessageConverter<?>> converters = defaults(defaultSmile, new MappingJackson2CborHttpMessageConverter());
+        new WebConfig(new Jackson2ObjectMapperBuilder()).extendMessageConverters(converters);
+
+        List<Map<String, String>> items = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+            items.add(Collections.singletonMap("oldFontColor", COLOR));
+
+        byte[] shared = write(firstSmileWriter(converters), items);
+        byte[] plain = write(defaultSmile, items);
+
+        assertTrue(shared.length < items.size() * COLOR.length(),
+                "smile wrote " + shared.length + " bytes, so the color was not back-referenced");
+        assertTrue(shared.length < plain.length);
+    }
+
+    private static List<HttpMessageConverter<?>> defaults(HttpMessageConverter<?> smile, HttpMessageConverter<?> cbor) {
+        List<HttpMessageConverter<?>> converters = new ArrayList<>();
+        converters.add(new MappingJackson2HttpMessageConverter(new ObjectMapper()));
+        converters.add(smile);
+        converters.add(cbor);
+        return converters;
+    }
+
+    /** The converter Spring would pick for Accept: application/x-jackson-smile. */
+    private static HttpMessageConverter<?> firstSmileWriter(List<HttpMessageConverter<?>> converters) {
+        MediaType smile = MediaType.parseMediaType("application/x-jackson-smile");
+        for (HttpMessageConverter<?> converter : converters)
+            if (converter.canWrite(ArrayList.class, smile))
+                return converter;
+        throw new AssertionError("no converter writes " + smile);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static byte[] write(HttpMessageConverter<?> converter, Object body) throws Exception {
+        MockHttpOutputMessage out = new MockHttpOutputMessage();
+        ((HttpMessageConverter<Object>) converter).write(body, MediaType.parseMediaType("application/x-jackson-smile"), out);
+        return out.getBodyAsBytes();
+    }
+}
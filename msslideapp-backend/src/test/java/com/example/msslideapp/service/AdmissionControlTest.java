@@ -0,0 +1,210 @@
+package com.example.msslideapp.service;
+
+import com.example.msslideapp.controller.ApiExceptionHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionControlTest {
+
+    private static final long KB = 1024;
+
+    private AdmissionControl admission;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        admission = new AdmissionControl(new PipelineMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(admission, "enabled", true);
+        ReflectionTestUtils.setField(admission, "budgetMb", 1L);
+        ReflectionTestUtils.setField(admission, "maxQueued", 4);
+        ReflectionTestUtils.setField(admission, "maxWaitMs", 10000L);
+        ReflectionTestUtils.setField(admission, "bytesPerCell", 1L);
+        admission.init();
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void waitersAreAdmittedInArrivalOrder() throws Exception {
+        AdmissionControl.Permit held = admission.acquire("diff", 500 * KB);
+        CompletableFuture<AdmissionControl.Permit> large = acquireAsync(600 * KB);
+        awaitQueued(1);
+        // fits next to the held permit, but doesn't jump the queue
+        CompletableFuture<AdmissionControl.Permit> small = acquireAsync(100 * KB);
+        awaitQueued(2);
+        assertFalse(small.isDone());
+
+        held.close();
+
+        large.get(5, TimeUnit.SECONDS).close();
+        small.get(5, TimeUnit.SECONDS).close();
+        assertEquals(0, admission.bytesInUse());
+        assertEquals(0, admission.queued());
+    }
+
+    @Test
+    void headOfQueueBlocksWaitersBehindItUntilItFits() throws Exception {
+        AdmissionControl.Permit held = admission.acquire("diff", 1024 * KB);
+        CompletableFuture<AdmissionControl.Permit> first = acquireAsync(900 * KB);
+        awaitQueued(1);
+        CompletableFuture<AdmissionControl.Permit> second = acquireAsync(200 * KB);
+        awaitQueued(2);
+
+        held.close();
+        AdmissionControl.Permit firstPermit = first.get(5, TimeUnit.SECONDS);
+        assertEquals(1, admission.queued());
+        assertFalse(second.isDone());
+
+        firstPermit.close();
+        second.get(5, TimeUnit.SECONDS).close();
+    }
+
+    @Test
+    void requestLargerThanTheBudgetIsAdmittedAlone() throws Exception {
+        AdmissionControl.Permit permit = admission.acquire("upload", 10 * 1024 * KB);
+
+        assertEquals(admission.budget(), admission.bytesInUse());
+        permit.close();
+        assertEquals(0, admission.bytesInUse());
+    }
+
+    @Test
+    void waitThatTimesOutIsRejected() throws Exception {
+        ReflectionTestUtils.setField(admission, "maxWaitMs", 50L);
+        AdmissionControl.Permit held = admission.acquire("diff", 1024 * KB);
+
+        AdmissionRejectedException e = assertThrows(AdmissionRejectedException.class,
+                () -> admission.acquire("diff", KB));
+        assertTrue(e.getMessage().contains("timed out"), e.getMessage());
+        assertEquals(0, admission.queued());
+        held.close();
+    }
+
+    @Test
+    void fullQueueIsRejectedWithRetryAfter() throws Exception {
+        ReflectionTestUtils.setField(admission, "maxQueued", 0);
+        AdmissionControl.Permit held = admission.acquire("diff", 1024 * KB);
+
+        AdmissionRejectedException e = assertThrows(AdmissionRejectedException.class,
+                () -> admission.acquire("upload", KB));
+        assertTrue(e.getMessage().contains("queue full"), e.getMessage());
+        // one holder and nobody queued: one average hold time, 2 s before any permit was returned
+        assertEquals(2, e.getRetryAfterSeconds());
+
+        ResponseEntity<Map<String, Object>> response = new ApiExceptionHandler().admissionRejected(e);
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, response.getStatusCode());
+        assertEquals("2", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        held.close();
+    }
+
+    @Test
+    void disabledAdmissionNeverWaits() throws Exception {
+        ReflectionTestUtils.setField(admission, "enabled", false);
+        admission.acquire("diff", 1024 * KB);
+
+        admission.acquire("diff", 1024 * KB).close();
+        assertEquals(0, admission.bytesInUse());
+    }
+
+    @Test
+    void cellsAreCountedFromEachSheetsDimension() throws Exception {
+        File workbook = workbook(
+                sheet("<dimension ref=\"A1:C10\"/>", 2000),
+                sheet("<dimension ref=\"B2\"/>", 2000),
+                // a dimension larger than the part could hold is capped by its size
+                sheet("<dimension ref=\"A1:ZZ100000\"/>", 2000));
+        try {
+            long capped = sheet("<dimension ref=\"A1:ZZ100000\"/>", 2000).length / 20;
+            assertEquals(30 + 1 + capped, admission.countCells(workbook));
+        } finally {
+            Files.delete(workbook.toPath());
+        }
+    }
+
+    @Test
+    void sheetsWithoutDimensionAreSizedFromTheirXml() throws Exception {
+        byte[] sheet = sheet("", 5000);
+        File workbook = workbook(sheet);
+        try {
+            assertEquals(sheet.length / 50, admission.countCells(workbook));
+            assertEquals(sheet.length / 50 + workbook.length(), admission.estimateWorkbook(workbook));
+        } finally {
+            Files.delete(workbook.toPath());
+        }
+    }
+
+    @Test
+    void fileThatIsNotAZipIsSizedFromItsLength() throws Exception {
+        File notAZip = File.createTempFile("workbook", ".xlsx");
+        try {
+            Files.write(notAZip.toPath(), new byte[1000]);
+            assertEquals(20, admission.countCells(notAZip));
+        } finally {
+            Files.delete(notAZip.toPath());
+        }
+    }
+
+    private CompletableFuture<AdmissionControl.Permit> acquireAsync(long bytes) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return admission.acquire("diff", bytes);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }, executor);
+    }
+
+    private void awaitQueued(int waiters) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (admission.queued() < waiters) {
+            assertTrue(System.nanoTime() < deadline, "expected " + waiters + " waiters");
+            Thread.sleep(5);
+        }
+    }
+
+    /** Worksheet XML of about {@code size} bytes, with the given dimension element at its start. */
+    private static byte[] sheet(String dimension, int size) {
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\"?><worksheet>").append(dimension)
+                .append("<sheetData>");
+        while (xml.length() < size - 20)
+            xml.append("<row/>");
+        return xml.append("</sheetData></worksheet>").toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static File workbook(byte[]... sheets) throws Exception {
+        File file = File.createTempFile("workbook", ".xlsx");
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(file))) {
+            zip.putNextEntry(new ZipEntry("xl/workbook.xml"));
+            zip.write("<workbook/>".getBytes(StandardCharsets.US_ASCII));
+            for (int i = 0; i < sheets.length; i++) {
+                zip.putNextEntry(new ZipEntry("xl/worksheets/sheet" + (i + 1) + ".xml"));
+                zip.write(sheets[i]);
+            }
+        }
+        return file;
+    }
+}
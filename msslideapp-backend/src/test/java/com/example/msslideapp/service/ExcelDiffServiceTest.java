@@ -0,0 +1,178 @@
+package com.example.msslideapp.service;
+
+import com.example.msslideapp.model.ChangeItem;
+import com.example.msslideapp.model.DiffOptions;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.example.msslideapp.service.SnapshotPatchTest.cell;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExcelDiffServiceTest {
+
+    private ForkJoinPool pool;
+    private ExcelDiffService diff;
+
+    @BeforeEach
+    void setUp() {
+        pool = new ForkJoinPool(4);
+        diff = new ExcelDiffService(pool, new PipelineMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(diff, "rowKeyColumn", -1);
+        ReflectionTestUtils.setField(diff, "blockSize", 4096);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void insertedRowIsOneItem() throws Exception {
+        List<String> changes = diff(aligned(-1),
+                sheet(row("A", "1"), row("B", "2"), row("C", "3")),
+                sheet(row("A", "1"), row("X", "9"), row("B", "2"), row("C", "3")));
+
+        assertEquals(Collections.singletonList("ROW_INSERTED 1,-1 [->X | 9] rows -1->1"), changes);
+    }
+
+    @Test
+    void deletedRowsFollowTheRowTheyStoodAfter() throws Exception {
+        List<String> changes = diff(aligned(-1),
+                sheet(row("A"), row("B"), row("C"), row("D"), row("E")),
+                sheet(row("I1"), row("I2"), row("I3"), row("I4"), row("A"), row("E")));
+
+        // old rows 1-3 sat between A and E, now new rows 4 and 5; not among the rows inserted above A
+        assertEquals(Arrays.asList("ROW_INSERTED 0,-1 [->I1] rows -1->0", "ROW_INSERTED 1,-1 [->I2] rows -1->1",
+                "ROW_INSERTED 2,-1 [->I3] rows -1->2", "ROW_INSERTED 3,-1 [->I4] rows -1->3",
+                "ROW_DELETED 1,-1 [B->] rows 1->-1", "ROW_DELETED 2,-1 [C->] rows 2->-1",
+                "ROW_DELETED 3,-1 [D->] rows 3->-1"), changes);
+    }
+
+    @Test
+    void rowOutsideTheLongestUnmovedRunIsMoved() throws Exception {
+        List<String> changes = diff(aligned(-1),
+                sheet(row("A"), row("B"), row("C"), row("D")),
+                sheet(row("A"), row("C"), row("D"), row("B")));
+
+        assertEquals(Collections.singletonList("ROW_MOVED 3,-1 [B->B] rows 1->3"), changes);
+    }
+
+    @Test
+    void rowsAreMatchedByTheKeyColumn() throws Exception {
+        List<String> changes = diff(aligned(0),
+                sheet(row("ID", "Amount"), row("1", "10"), row("2", "20"), row("3", "30")),
+                sheet(row("ID", "Amount"), row("1", "10"), row("3", "35"), row("4", "40")));
+
+        assertEquals(Arrays.asList("ROW_DELETED 2,-1 [2 | 20->] rows 2->-1", "MODIFIED 2,1 [30->35] rows 3->",
+                "ROW_INSERTED 3,-1 [->4 | 40] rows -1->3"), changes);
+    }
+
+    @Test
+    void columnsAreMatchedByHeader() throws Exception {
+        DiffOptions options = new DiffOptions();
+        options.setMatchColumnsByHeader(true);
+        options.setHeaderRow(0);
+
+        List<String> changes = diff(options,
+                sheet(row("Name", "Amount", "Ref"), row("a", "1", "r1"), row("b", "2", "r2")),
+                sheet(row("Ref", "Name", "Currency", "Amount"), row("r1", "a", "EUR", "1"),
+                        row("r2", "b", "USD", "3")));
+
+        assertEquals(Arrays.asList("COLUMN_MOVED 0,0 [Ref->Ref] cols 2->0",
+                "COLUMN_INSERTED 0,2 [->Currency] cols -1->2", "MODIFIED 2,3 [2->3]"), changes);
+    }
+
+    @Test
+    void blocksDiffedInParallelComeOutInSequentialOrder() throws Exception {
+        Random random = new Random(42);
+        List<String[]> oldRows = new ArrayList<>();
+        for (int r = 0; r < 400; r++)
+            oldRows.add(row("K" + r, "v" + r, "w" + (r % 7), r % 5 == 0 ? "" : "x"));
+        List<String[]> newRows = new ArrayList<>(oldRows);
+        for (int k = 0; k < 40; k++) {
+            int r = random.nextInt(newRows.size());
+            switch (k % 4) {
+                case 0:
+                    newRows.remove(r);
+                    break;
+                case 1:
+                    newRows.add(r, row("N" + k, "new"));
+                    break;
+                case 2:
+                    newRows.add(random.nextInt(newRows.size()), newRows.remove(r));
+                    break;
+                default:
+                    String[] edited = newRows.get(r).clone();
+                    edited[1] = "edited" + k;
+                    newRows.set(r, edited);
+            }
+        }
+        String oldJson = sheet(oldRows.toArray(new String[0][]));
+        String newJson = sheet(newRows.toArray(new String[0][]));
+        DiffOptions header = new DiffOptions();
+        header.setMatchColumnsByHeader(true);
+
+        for (DiffOptions options : Arrays.asList(new DiffOptions(), aligned(-1), aligned(0), header)) {
+            ReflectionTestUtils.setField(diff, "blockSize", Integer.MAX_VALUE);
+            List<String> sequential = diff(options, oldJson, newJson);
+            ReflectionTestUtils.setField(diff, "blockSize", 3);
+            List<String> parallel = diff(options, oldJson, newJson);
+
+            assertFalse(sequential.isEmpty());
+            assertEquals(sequential, parallel);
+        }
+    }
+
+    private List<String> diff(DiffOptions options, String oldJson, String newJson) throws Exception {
+        List<String> changes = new ArrayList<>();
+        for (ChangeItem item : diff.diffJson(oldJson, newJson, options))
+            changes.add(describe(item));
+        return changes;
+    }
+
+    /** type row,col [old->new], then the old and new row or column of row and column items. */
+    private static String describe(ChangeItem item) {
+        String described = item.getChangeType() + " " + item.getRow() + "," + item.getCol() + " ["
+                + item.getOldValue() + "->" + item.getNewValue() + "]";
+        if (item.getMeta().containsKey("newRow"))
+            return described + " rows " + item.getMeta().get("oldRow") + "->" + item.getMeta().get("newRow");
+        if (item.getMeta().containsKey("newCol"))
+            return described + " cols " + item.getMeta().get("oldCol") + "->" + item.getMeta().get("newCol");
+        if (item.getMeta().containsKey("oldRow"))
+            return described + " rows " + item.getMeta().get("oldRow") + "->";
+        return described;
+    }
+
+    private static DiffOptions aligned(int keyColumn) {
+        DiffOptions options = new DiffOptions();
+        options.setAlignRows(true);
+        options.setRowKeyColumn(keyColumn);
+        return options;
+    }
+
+    private static String[] row(String... values) {
+        return values;
+    }
+
+    /** One sheet with a row per array; empty values are left out. */
+    private static String sheet(String[]... rows) {
+        List<String> cells = new ArrayList<>();
+        for (int r = 0; r < rows.length; r++) {
+            for (int c = 0; c < rows[r].length; c++) {
+                if (!rows[r][c].isEmpty())
+                    cells.add(cell(r, c, rows[r][c], -1));
+            }
+        }
+        return "{\"sheets\":[{\"name\":\"S\",\"cells\":[" + String.join(",", cells) + "]}],\"styles\":[]}";
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.msslideapp.service;
+
+import com.example.msslideapp.model.ValidationViolation;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.apache.poi.xssf.usermodel.XSSFFont;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExcelJsonConverterTest {
+
+    private static final double SERIAL = 45000.5;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private ExecutorService executor;
+    private ExcelJsonConverter converter;
+    private File workbook;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        executor = Executors.newFixedThreadPool(2);
+        converter = new ExcelJsonConverter(executor, new PipelineMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(converter, "internStyles", true);
+        workbook = workbook();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        executor.shutdownNow();
+        Files.deleteIfExists(workbook.toPath());
+    }
+
+    @Test
+    void saxReaderRendersValuesLikeTheUsermodel() throws Exception {
+        JsonNode sax = convert(true);
+        JsonNode usermodel = convert(false);
+
+        assertEquals(usermodel, sax);
+        Map<String, String> values = values(sax, 0);
+        assertEquals("a b \"c\"", values.get("0,0"));
+        assertEquals("42", values.get("0,1"));
+        assertEquals("2.5", values.get("0,2"));
+        assertEquals(String.valueOf(DateUtil.getJavaDate(SERIAL)), values.get("0,3"));
+        assertEquals("true", values.get("0,4"));
+        assertEquals("", values.get("0,5"));
+        // formulas: cached string and numeric results, never read as dates; boolean and error results are blank
+        assertEquals("ab", values.get("1,0"));
+        assertEquals("44", values.get("1,1"));
+        assertEquals(String.valueOf(SERIAL + 1), values.get("1,2"));
+        assertEquals("", values.get("1,3"));
+        assertEquals("", values.get("1,4"));
+        assertEquals("", values.get("1,5"));
+        assertEquals("tail", values(sax, 1).get("3,7"));
+    }
+
+    @Test
+    void stylesAreTheSameOnBothPaths() throws Exception {
+        JsonNode sax = convert(true);
+
+        JsonNode bold = null;
+        for (JsonNode cell : sax.path("sheets").get(0).path("cells")) {
+            if (cell.path("row").asInt() == 0 && cell.path("col").asInt() == 0)
+                bold = sax.path("styles").get(cell.path("styleId").asInt());
+        }
+        assertNotNull(bold);
+        assertTrue(bold.path("fontBold").asBoolean(), bold.toString());
+        assertEquals(convert(false).path("styles"), sax.path("styles"));
+    }
+
+    @Test
+    void bothPathsReportTheSameViolations() throws Exception {
+        ValidationRules rules = new ValidationRules(true, 1000, new ByteArrayResource(("{\"ruleSets\":[{"
+                + "\"sheets\":\"pacs.*\",\"columns\":["
+                + "{\"header\":\"a b \\\"c\\\"\",\"pattern\":\"[a-z]\"},"
+                + "{\"column\":\"B\",\"required\":true,\"maxLength\":1},"
+                + "{\"column\":\"E\",\"oneOf\":[\"false\"]},"
+                + "{\"header\":\"Missing\",\"required\":true}]}]}").getBytes(StandardCharsets.UTF_8)));
+
+        List<String> sax = violations(rules, true);
+
+        assertEquals(Arrays.asList("0,-1 Missing missingColumn null", "1,0 a b \"c\" pattern ab",
+                "1,1 B maxLength 44"), sax);
+        assertEquals(violations(rules, false), sax);
+    }
+
+    private List<String> violations(ValidationRules rules, boolean parallelSheets) throws Exception {
+        ReflectionTestUtils.setField(converter, "parallelSheets", parallelSheets);
+        ValidationRules.Workbook validation = rules.forFile(workbook.getName());
+        converter.excelToJson(workbook, validation);
+        List<String> violations = new ArrayList<>();
+        for (ValidationViolation v : validation.getViolations())
+            violations.add(v.getRow() + "," + v.getCol() + " " + v.getColumn() + " " + v.getRule() + " " + v.getValue());
+        return violations;
+    }
+
+    private JsonNode convert(boolean parallelSheets) throws Exception {
+        ReflectionTestUtils.setField(converter, "parallelSheets", parallelSheets);
+        return mapper.readTree(converter.excelToJson(workbook));
+    }
+
+    /** A sheet's cell values by "row,col". */
+    private static Map<String, String> values(JsonNode snapshot, int sheet) {
+        Map<String, String> values = new HashMap<>();
+        for (JsonNode cell : snapshot.path("sheets").get(sheet).path("cells"))
+            values.put(cell.path("row").asInt() + "," + cell.path("col").asInt(), cell.path("value").asText());
+        return values;
+    }
+
+    private static File workbook() throws Exception {
+        File file = File.createTempFile("converter", ".xlsx");
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFCellStyle bold = wb.createCellStyle();
+            XSSFFont font = wb.createFont();
+            font.setBold(true);
+            bold.setFont(font);
+            XSSFCellStyle date = wb.createCellStyle();
+            date.setDataFormat(wb.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd"));
+
+            XSSFSheet sheet = wb.createSheet("pacs.008");
+            XSSFRow row = sheet.createRow(0);
+            row.createCell(0).setCellValue("  a\u00A0b   \u201Cc\u201D ");
+            row.getCell(0).setCellStyle(bold);
+            row.createCell(1).setCellValue(42);
+            row.createCell(2).setCellValue(2.5);
+            row.createCell(3).setCellValue(SERIAL);
+            row.getCell(3).setCellStyle(date);
+            row.createCell(4).setCellValue(true);
+            row.createCell(5).setCellErrorValue(FormulaError.NA.getCode());
+
+            row = sheet.createRow(1);
+            row.createCell(0).setCellFormula("\"a\"&\"b\"");
+            row.createCell(1).setCellFormula("B1+2");
+            row.createCell(2).setCellFormula("D1+1");
+            row.getCell(2).setCellStyle(date);
+            row.createCell(3).setCellFormula("E1");
+            row.createCell(4).setCellFormula("1/0");
+            // styled but empty
+            row.createCell(5).setCellStyle(bold);
+            wb.getCreationHelper().createFormulaEvaluator().evaluateAll();
+
+            wb.createSheet("Notes").createRow(3).createCell(7).setCellValue("tail");
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                wb.write(out);
+            }
+        }
+        return file;
+    }
+}
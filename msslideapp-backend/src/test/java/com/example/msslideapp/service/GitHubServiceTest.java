@@ -0,0 +1,180 @@
+package com.example.msslideapp.service;
+
+import com.example.msslideapp.model.ChangedFile;
+import com.example.msslideapp.model.PullRequestPage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.jsonPath;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class GitHubServiceTest {
+
+    private GitHubService gitHub;
+
+    @BeforeEach
+    void setUp() {
+        gitHub = new GitHubService(1, new PipelineMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(gitHub, "cacheTtlSeconds", 60L);
+        ReflectionTestUtils.setField(gitHub, "cacheMaxEntries", 2);
+    }
+
+    @Test
+    void readCacheDropsLeastRecentlyUsedPastItsLimit() {
+        gitHub.putCachedRead("tree:a", "A");
+        gitHub.putCachedRead("tree:b", "B");
+        assertEquals("A", gitHub.getCachedRead("tree:a"));
+        gitHub.putCachedRead("tree:c", "C");
+
+        assertEquals("A", gitHub.getCachedRead("tree:a"));
+        assertNull(gitHub.getCachedRead("tree:b"));
+        assertEquals("C", gitHub.getCachedRead("tree:c"));
+    }
+
+    @Test
+    void expiredReadsAreDropped() {
+        ReflectionTestUtils.setField(gitHub, "cacheTtlSeconds", 0L);
+        gitHub.putCachedRead("commits:main", "history");
+
+        assertNull(gitHub.getCachedRead("commits:main"));
+    }
+
+    @Test
+    void invalidateBranchDropsOnlyThatBranch() {
+        gitHub.putCachedRead("tree:main", "main");
+        gitHub.putCachedRead("tree:main-x", "main-x");
+
+        assertEquals(Collections.singletonList("tree:main"), gitHub.invalidateBranch("main"));
+        assertNull(gitHub.getCachedRead("tree:main"));
+        assertEquals("main-x", gitHub.getCachedRead("tree:main-x"));
+    }
+
+    @Test
+    void treeChangesListsAddedModifiedAndRemovedBlobs() {
+        Map<String, String> base = new LinkedHashMap<>();
+        base.put("same.json", "s1");
+        base.put("edited.json", "e1");
+        base.put("gone.json", "g1");
+        Map<String, String> head = new LinkedHashMap<>();
+        head.put("same.json", "s1");
+        head.put("edited.json", "e2");
+        head.put("new.json", "n1");
+
+        List<ChangedFile> changed = GitHubService.treeChanges(base, head, "base", "head");
+
+        assertEquals(3, changed.size());
+        assertEquals("edited.json", changed.get(0).getPath());
+        assertEquals("modified", changed.get(0).getStatus());
+        assertEquals("e1", changed.get(0).getBaseBlobSha());
+        assertEquals("e2", changed.get(0).getHeadBlobSha());
+        assertEquals("new.json", changed.get(1).getPath());
+        assertEquals("added", changed.get(1).getStatus());
+        assertNull(changed.get(1).getBaseRef());
+        assertEquals("gone.json", changed.get(2).getPath());
+        assertEquals("removed", changed.get(2).getStatus());
+        assertNull(changed.get(2).getHeadRef());
+    }
+
+    @Test
+    void approvalListsFetchOneGraphQLPagePerCall() throws Exception {
+        ReflectionTestUtils.setField(gitHub, "graphqlEnabled", true);
+        ReflectionTestUtils.setField(gitHub, "graphqlUrl", "http://github.test/graphql");
+        ReflectionTestUtils.setField(gitHub, "graphqlPageSize", 50);
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate()).build();
+        server.expect(requestTo("http://github.test/graphql"))
+                .andExpect(jsonPath("$.variables.first").value(2))
+                .andExpect(jsonPath("$.variables.after").value("c1"))
+                .andRespond(withSuccess("{\"data\":{\"repository\":{\"pullRequests\":{"
+                        + "\"pageInfo\":{\"hasNextPage\":true,\"endCursor\":\"c2\"},\"nodes\":["
+                        + pullRequestNode(3) + "," + pullRequestNode(2) + "]}}}}", MediaType.APPLICATION_JSON));
+
+        PullRequestPage page = gitHub.getPullRequestsWithReviews("all", 2, "c1");
+
+        server.verify();
+        assertEquals(2, page.getItems().size());
+        assertEquals(3, page.getItems().get(0).get("number"));
+        assertTrue(page.isHasNextPage());
+        assertEquals("c2", page.getEndCursor());
+    }
+
+    @Test
+    void restFallbackPagesWithTheSameSize() throws Exception {
+        ReflectionTestUtils.setField(gitHub, "graphqlEnabled", false);
+        ReflectionTestUtils.setField(gitHub, "apiBase", "http://github.test");
+        ReflectionTestUtils.setField(gitHub, "repoOwner", "o");
+        ReflectionTestUtils.setField(gitHub, "repoName", "r");
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate()).build();
+        HttpHeaders link = new HttpHeaders();
+        link.set(HttpHeaders.LINK, "<http://github.test/repos/o/r/pulls?page=3>; rel=\"next\"");
+        server.expect(requestTo("http://github.test/repos/o/r/pulls?state=open&per_page=2&page=2"))
+                .andRespond(withSuccess("[" + restPullRequest(3) + "," + restPullRequest(2) + "]",
+                        MediaType.APPLICATION_JSON).headers(link));
+
+        PullRequestPage page = gitHub.getPullRequestsWithReviews("open", 2, GitHubService.REST_CURSOR + 2);
+
+        server.verify();
+        assertEquals(2, page.getItems().size());
+        assertEquals(GitHubService.REST_CURSOR + 3, page.getEndCursor());
+    }
+
+    @Test
+    void fileOnARefWithoutATreeIsFetchedByContents() throws Exception {
+        repo();
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate()).build();
+        server.expect(requestTo("http://github.test/repos/o/r/git/trees/gone?recursive=1"))
+                .andRespond(withStatus(HttpStatus.NOT_FOUND));
+        server.expect(requestTo("http://github.test/repos/o/r/contents/a.json?ref=gone"))
+                .andRespond(withStatus(HttpStatus.NOT_FOUND));
+
+        assertNull(gitHub.getFileContent("a.json", "gone"));
+        server.verify();
+    }
+
+    @Test
+    void failedTreeReadIsThrownNotTakenForAMissingFile() {
+        repo();
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate()).build();
+        server.expect(requestTo("http://github.test/repos/o/r/git/trees/main?recursive=1"))
+                .andRespond(withServerError());
+
+        assertThrows(HttpServerErrorException.class, () -> gitHub.getFileContent("a.json", "main"));
+        server.verify();
+    }
+
+    private void repo() {
+        ReflectionTestUtils.setField(gitHub, "apiBase", "http://github.test");
+        ReflectionTestUtils.setField(gitHub, "repoOwner", "o");
+        ReflectionTestUtils.setField(gitHub, "repoName", "r");
+    }
+
+    private RestTemplate restTemplate() {
+        return (RestTemplate) ReflectionTestUtils.getField(gitHub, "restTemplate");
+    }
+
+    private static String pullRequestNode(int number) {
+        return "{\"number\":" + number + ",\"title\":\"t\",\"state\":\"OPEN\",\"createdAt\":\"2024-01-01T00:00:00Z\","
+                + "\"url\":\"u\",\"author\":{\"login\":\"a\"},\"reviewRequests\":{\"nodes\":[]}}";
+    }
+
+    private static String restPullRequest(int number) {
+        return "{\"number\":" + number + ",\"title\":\"t\",\"state\":\"open\",\"created_at\":\"2024-01-01T00:00:00Z\","
+                + "\"user\":{\"login\":\"a\"},\"html_url\":\"u\"}";
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.msslideapp.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.example.msslideapp.service.SnapshotPatchTest.BOLD;
+import static com.example.msslideapp.service.SnapshotPatchTest.RED;
+import static com.example.msslideapp.service.SnapshotPatchTest.cell;
+import static com.example.msslideapp.service.SnapshotPatchTest.cells;
+import static com.example.msslideapp.service.SnapshotPatchTest.snapshot;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedSnapshotTest {
+
+    @Test
+    void inlineStylesAreInternedAfterTheTable() throws Exception {
+        MappedSnapshot s = MappedSnapshot.parse("{\"sheets\":[{\"name\":\"S\",\"cells\":["
+                + "{\"row\":0,\"col\":0,\"value\":\"a\",\"styleId\":1},"
+                // same properties as table entry 0: shares its id
+                + "{\"row\":0,\"col\":1,\"value\":\"b\",\"bold\":true},"
+                + "{\"row\":0,\"col\":2,\"value\":\"c\",\"italic\":true,\"fontSize\":11},"
+                + "{\"row\":0,\"col\":3,\"value\":\"d\",\"fontSize\":11,\"italic\":true},"
+                // past the end of the table
+                + "{\"row\":0,\"col\":4,\"value\":\"e\",\"styleId\":7},"
+                + "{\"row\":0,\"col\":5,\"value\":null}]}],"
+                + "\"styles\":[" + BOLD + "," + RED + "]}");
+
+        assertEquals(3, s.styleCount());
+        assertEquals(BOLD, s.styleJson(0));
+        assertEquals(RED, s.styleJson(1));
+        assertEquals("{\"fontSize\":11,\"italic\":true}", s.styleJson(2));
+        assertEquals(Arrays.asList(1, 0, 2, 2, -1, -1), styles(s));
+        assertEquals("", s.cellValue(0, 5));
+    }
+
+    @Test
+    void styleTableAfterTheSheetsKeepsItsIds() throws Exception {
+        MappedSnapshot s = MappedSnapshot.parse("{\"sheets\":[{\"cells\":["
+                + "{\"row\":0,\"col\":0,\"value\":\"a\",\"fontColor\":\"#00B050\"},"
+                + cell(0, 1, "b", 1) + "]}],"
+                + "\"styles\":[" + BOLD + "," + RED + "]}");
+
+        assertEquals("Sheet1", s.sheetName(0));
+        assertEquals(Arrays.asList(2, 1), styles(s));
+        assertEquals("{\"fontColor\":\"#00B050\"}", s.styleJson(2));
+    }
+
+    @Test
+    void lastOfDuplicateCellsWins() {
+        MappedSnapshot s = snapshot("[{\"name\":\"S\",\"cells\":["
+                + cell(2, 3, "first", 0) + "," + cell(0, 0, "x", -1) + ","
+                + cell(2, 3, "second", -1) + "," + cell(2, 3, "third", 1) + "]}]", BOLD, RED);
+
+        assertEquals(2, s.cellCount(0));
+        assertEquals(2, s.rowCount(0));
+        assertEquals(3, s.maxCol(0));
+        assertEquals(Arrays.asList("S!0,0=x", "S!2,3=third " + RED), cells(s));
+    }
+
+    @Test
+    void cellsAreOrderedByRowThenColumnUpToExcelsLimits() {
+        MappedSnapshot s = snapshot("[{\"name\":\"S\",\"cells\":["
+                + cell(1048575, 0, "last row", -1) + "," + cell(2, 0, "c", -1) + ","
+                + cell(1, 16383, "last col", -1) + "," + cell(1048575, 16383, "corner", -1) + ","
+                + cell(40000, 5, "past 2^15", -1) + "," + cell(1, 0, "a", -1) + "]}]");
+
+        assertEquals(Arrays.asList("S!1,0=a", "S!1,16383=last col", "S!2,0=c", "S!40000,5=past 2^15",
+                "S!1048575,0=last row", "S!1048575,16383=corner"), cells(s));
+        assertEquals(4, s.rowCount(0));
+        assertEquals(16383, s.maxCol(0));
+        assertEquals(2, s.findRow(0, 3));
+        assertEquals(4, s.findRow(0, 1048576));
+    }
+
+    @Test
+    void windowBoundsAreInclusive() {
+        MappedSnapshot s = grid(5, 5);
+
+        List<String> seen = new ArrayList<>();
+        assertEquals(4, s.window(0, 1, 2, 1, 2, (row, col, value, style) -> seen.add(value)));
+        assertEquals(Arrays.asList("11", "12", "21", "22"), seen);
+        assertEquals(1, s.window(0, 4, 4, 4, 4, (row, col, value, style) -> { }));
+        assertEquals(25, s.window(0, 0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE, (row, col, value, style) -> { }));
+    }
+
+    @Test
+    void windowOutsideTheCellsVisitsNothing() {
+        MappedSnapshot s = grid(3, 3);
+
+        assertEquals(0, s.window(0, 3, 10, 0, 2, (row, col, value, style) -> fail()));
+        assertEquals(0, s.window(0, 0, 2, 3, 10, (row, col, value, style) -> fail()));
+        assertEquals(0, s.window(0, 2, 1, 0, 2, (row, col, value, style) -> fail()));
+    }
+
+    @Test
+    void windowStartsAtTheNextNonEmptyRowAndColumn() {
+        MappedSnapshot s = snapshot("[{\"name\":\"S\",\"cells\":["
+                + cell(0, 0, "a", -1) + "," + cell(10, 2, "b", -1) + "," + cell(10, 8, "c", -1) + ","
+                + cell(20, 4, "d", 1) + "]}]", BOLD, RED);
+
+        List<String> seen = new ArrayList<>();
+        assertEquals(2, s.window(0, 5, 25, 3, 9,
+                (row, col, value, style) -> seen.add(row + "," + col + "=" + value + "/" + style)));
+        assertEquals(Arrays.asList("10,8=c/-1", "20,4=d/1"), seen);
+    }
+
+    @Test
+    void sameValueComparesAcrossSnapshots() {
+        MappedSnapshot a = snapshot("[{\"cells\":[" + cell(0, 0, "12345678901", -1) + ","
+                + cell(0, 1, "12345678902", -1) + "," + cell(0, 2, "\u00e4\u00f6", -1) + "]}]");
+        MappedSnapshot b = snapshot("[{\"cells\":[" + cell(0, 0, "12345678901", -1) + ","
+                + cell(0, 1, "1234567890", -1) + "," + cell(0, 2, "\u00e4\u00f6", -1) + "]}]");
+
+        assertTrue(a.sameValue(0, 0, b, 0, 0));
+        assertFalse(a.sameValue(0, 1, b, 0, 1));
+        assertFalse(a.sameValue(0, 1, a, 0, 0));
+        assertTrue(a.sameValue(0, 2, b, 0, 2));
+    }
+
+    private static MappedSnapshot grid(int rows, int cols) {
+        List<String> cells = new ArrayList<>();
+        for (int r = rows - 1; r >= 0; r--) {
+            for (int c = cols - 1; c >= 0; c--)
+                cells.add(cell(r, c, "" + r + c, -1));
+        }
+        return snapshot("[{\"name\":\"S\",\"cells\":[" + String.join(",", cells) + "]}]");
+    }
+
+    private static List<Integer> styles(MappedSnapshot s) {
+        List<Integer> styles = new ArrayList<>();
+        for (int c = 0; c < s.cellCount(0); c++)
+            styles.add(s.cellStyle(0, c));
+        return styles;
+    }
+}
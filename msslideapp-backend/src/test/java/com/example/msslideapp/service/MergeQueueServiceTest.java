@@ -0,0 +1,196 @@
+package com.example.msslideapp.service;
+
+import com.example.msslideapp.model.ChangedFile;
+import com.example.msslideapp.model.MergeStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.FileSystemUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.msslideapp.service.SnapshotPatchTest.cell;
+import static com.example.msslideapp.service.SnapshotPatchTest.cells;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MergeQueueServiceTest {
+
+    private static final String BASE = sheet(cell(0, 0, "MsgId", -1), cell(0, 1, "A1", -1),
+            cell(1, 0, "Amount", -1), cell(1, 1, "100", -1));
+    private static final String OURS = sheet(cell(0, 0, "MsgId", -1), cell(0, 1, "A2", -1),
+            cell(1, 0, "Amount", -1), cell(1, 1, "100", -1));
+    private static final String THEIRS = sheet(cell(0, 0, "MsgId", -1), cell(0, 1, "A1", -1),
+            cell(1, 0, "Amount", -1), cell(1, 1, "250", -1));
+    private static final String MERGED = sheet(cell(0, 0, "MsgId", -1), cell(0, 1, "A2", -1),
+            cell(1, 0, "Amount", -1), cell(1, 1, "250", -1));
+
+    private Path dir;
+    private FakeGitHub gitHub;
+    private ExecutorService executor;
+    private MergeQueueService queue;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dir = Files.createTempDirectory("snapshots");
+        PipelineMetrics metrics = new PipelineMetrics(new SimpleMeterRegistry());
+        SnapshotStore store = new SnapshotStore(metrics);
+        ReflectionTestUtils.setField(store, "dir", dir.toString());
+        ReflectionTestUtils.setField(store, "maxOpen", 4);
+        ReflectionTestUtils.setField(store, "maxDiskMb", 16L);
+        store.init();
+        gitHub = new FakeGitHub(metrics);
+        executor = Executors.newSingleThreadExecutor();
+        queue = new MergeQueueService(gitHub, new DeltaHistoryService(gitHub, store), store,
+                new AdmissionControl(metrics), metrics, executor);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        executor.shutdownNow();
+        FileSystemUtils.deleteRecursively(dir);
+    }
+
+    @Test
+    void workbookRenamedOnThePrIsMergedUnderItsNewPath() throws Exception {
+        gitHub.tree("base", "old.json", "b-base", BASE);
+        gitHub.tree("head", "new.json", "b-ours", OURS);
+        gitHub.tree("main", "old.json", "b-theirs", THEIRS);
+        gitHub.compare("base", "head", renamed("old.json", "new.json", "b-ours"));
+        gitHub.compare("base", "main", modified("old.json", "b-theirs"));
+
+        MergeStatus status = merge(7);
+
+        assertEquals(MergeQueueService.MERGED, status.getState());
+        assertTrue(gitHub.committed.containsKey("old.json"));
+        assertNull(gitHub.committed.get("old.json"));
+        assertEquals(cells(MappedSnapshot.parse(MERGED)),
+                cells(MappedSnapshot.parse(gitHub.blobs.get(gitHub.committed.get("new.json")))));
+        assertEquals(2, gitHub.committed.size());
+    }
+
+    @Test
+    void otherFilesRenamedOnThePrAreRemovedFromTheirOldPath() throws Exception {
+        gitHub.tree("base", "wb.json", "b-base", BASE);
+        gitHub.tree("head", "wb.json", "b-ours", OURS);
+        gitHub.tree("main", "wb.json", "b-theirs", THEIRS);
+        gitHub.compare("base", "head", modified("wb.json", "b-ours"),
+                renamed("notes.txt", "docs/notes.txt", "b-notes"));
+        gitHub.compare("base", "main", modified("wb.json", "b-theirs"));
+
+        MergeStatus status = merge(8);
+
+        assertEquals(MergeQueueService.MERGED, status.getState());
+        assertEquals("b-notes", gitHub.committed.get("docs/notes.txt"));
+        assertTrue(gitHub.committed.containsKey("notes.txt"));
+        assertNull(gitHub.committed.get("notes.txt"));
+        assertNotNull(gitHub.committed.get("wb.json"));
+    }
+
+    private MergeStatus merge(int prNumber) throws Exception {
+        queue.enqueue(prNumber);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertTrue(gitHub.merged, "PR was not merged: " + queue.status(prNumber).getMessage());
+        return queue.status(prNumber);
+    }
+
+    private static ChangedFile modified(String path, String headBlobSha) {
+        ChangedFile file = new ChangedFile();
+        file.setPath(path);
+        file.setStatus("modified");
+        file.setHeadBlobSha(headBlobSha);
+        return file;
+    }
+
+    private static ChangedFile renamed(String previousPath, String path, String headBlobSha) {
+        ChangedFile file = modified(path, headBlobSha);
+        file.setStatus("renamed");
+        file.setPreviousPath(previousPath);
+        return file;
+    }
+
+    private static String sheet(String... cells) {
+        return "{\"sheets\":[{\"name\":\"pacs.008\",\"cells\":[" + String.join(",", cells) + "]}],\"styles\":[]}";
+    }
+
+    /** One PR ("head", forked from "base") and main, as trees of blobs held in memory. */
+    private static final class FakeGitHub extends GitHubService {
+        final Map<String, Map<String, String>> trees = new HashMap<>();
+        final Map<String, String> blobs = new HashMap<>();
+        final Map<String, List<ChangedFile>> compares = new HashMap<>();
+        Map<String, String> committed;
+        boolean merged;
+
+        FakeGitHub(PipelineMetrics metrics) {
+            super(1, metrics);
+        }
+
+        void tree(String ref, String path, String blobSha, String content) {
+            trees.computeIfAbsent(ref, r -> new HashMap<>()).put(path, blobSha);
+            blobs.put(blobSha, content);
+        }
+
+        void compare(String baseRef, String headRef, ChangedFile... files) {
+            compares.put(baseRef + "..." + headRef, Arrays.asList(files));
+        }
+
+        @Override
+        public String getDefaultBranchSha() {
+            return "main";
+        }
+
+        @Override
+        public Map<String, Object> getPullRequestDetails(int prNumber) {
+            Map<String, Object> details = new HashMap<>();
+            details.put("head_sha", "head");
+            details.put("head_branch", "feature/" + prNumber);
+            return details;
+        }
+
+        @Override
+        public String getMergeBase(String baseRef, String headRef) {
+            return "base";
+        }
+
+        @Override
+        public List<ChangedFile> getChangedFiles(String baseRef, String headRef) {
+            return compares.get(baseRef + "..." + headRef);
+        }
+
+        @Override
+        public Map<String, String> getTreeBlobs(String ref) {
+            return trees.getOrDefault(ref, Collections.emptyMap());
+        }
+
+        @Override
+        public String getBlobContent(String blobSha) {
+            return blobs.get(blobSha);
+        }
+
+        @Override
+        public String createBlob(String content) {
+            String blobSha = "b-" + blobs.size();
+            blobs.put(blobSha, content);
+            return blobSha;
+        }
+
+        @Override
+        public String commitMerge(String branchName, String mergedRef, Map<String, String> blobs, String message,
+                String author) {
+            committed = blobs;
+            return "merge";
+        }
+
+        @Override
+        public void mergePullRequest(int prNumber, String commitMessage) {
+            merged = true;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.msslideapp.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.example.msslideapp.service.SequenceAligner.UNMATCHED;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SequenceAlignerTest {
+
+    @Test
+    void insertedEntryDoesNotShiftTheRest() {
+        SequenceAligner.Alignment a = SequenceAligner.align(keys("a", "b", "c"), keys("a", "x", "b", "c"), false);
+
+        assertEquals(0, a.newIndexOf(0));
+        assertEquals(2, a.newIndexOf(1));
+        assertEquals(3, a.newIndexOf(2));
+        assertEquals(UNMATCHED, a.oldIndexOf(1));
+        for (int i = 0; i < 3; i++) {
+            assertTrue(a.isKeyMatch(i));
+            assertFalse(a.isMoved(i));
+        }
+    }
+
+    @Test
+    void pairOutsideTheLongestIncreasingRunIsMoved() {
+        SequenceAligner.Alignment a = SequenceAligner.align(keys("a", "b", "c", "d"), keys("b", "c", "d", "a"), false);
+
+        // b, c, d stay in order and anchor; a is matched but moved
+        assertEquals(3, a.newIndexOf(0));
+        assertTrue(a.isMoved(0));
+        assertFalse(a.isMoved(1));
+        assertFalse(a.isMoved(2));
+        assertFalse(a.isMoved(3));
+    }
+
+    @Test
+    void duplicateKeysPairInOccurrenceOrder() {
+        SequenceAligner.Alignment a = SequenceAligner.align(keys("a", "a", "b"), keys("a", "b", "a"), false);
+
+        assertEquals(0, a.newIndexOf(0));
+        assertEquals(2, a.newIndexOf(1));
+        assertEquals(1, a.newIndexOf(2));
+    }
+
+    @Test
+    void leftoversBetweenAnchorsArePairedByPosition() {
+        SequenceAligner.Alignment a = SequenceAligner.align(keys("a", "b", "c", "z"), keys("a", "x", "y", "z"), true);
+
+        assertEquals(1, a.newIndexOf(1));
+        assertEquals(2, a.newIndexOf(2));
+        assertFalse(a.isKeyMatch(1));
+        assertTrue(a.isKeyMatch(0));
+    }
+
+    @Test
+    void changedKeysStayUnpairedWithoutGapPairing() {
+        SequenceAligner.Alignment a = SequenceAligner.align(keys("a", "b", "z"), keys("a", "x", "z"), false);
+
+        assertEquals(UNMATCHED, a.newIndexOf(1));
+        assertEquals(UNMATCHED, a.oldIndexOf(1));
+    }
+
+    @Test
+    void blankKeysArePairedByPositionWithoutGapPairing() {
+        List<String> rows = keys("h", null, "a", null, null, "b", null);
+        SequenceAligner.Alignment a = SequenceAligner.align(rows, rows, false);
+
+        for (int i = 0; i < rows.size(); i++) {
+            assertEquals(i, a.newIndexOf(i));
+            assertEquals(rows.get(i) != null, a.isKeyMatch(i));
+        }
+    }
+
+    @Test
+    void blankKeysOnlyPairWithBlankKeysInTheSameGap() {
+        SequenceAligner.Alignment a = SequenceAligner.align(keys("a", null, "b", "z"), keys("a", "x", null, "z"),
+                false);
+
+        assertEquals(2, a.newIndexOf(1));
+        assertEquals(UNMATCHED, a.newIndexOf(2));
+        assertEquals(UNMATCHED, a.oldIndexOf(1));
+    }
+
+    private static List<String> keys(String... keys) {
+        return Arrays.asList(keys);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.msslideapp.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.example.msslideapp.service.SnapshotPatchTest.BOLD;
+import static com.example.msslideapp.service.SnapshotPatchTest.cell;
+import static com.example.msslideapp.service.SnapshotPatchTest.cells;
+import static com.example.msslideapp.service.SnapshotPatchTest.snapshot;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotMergeTest {
+
+    private static final MappedSnapshot BASE = sheet(cell(0, 0, "Field", 0), cell(1, 0, "MsgId", -1),
+            cell(1, 1, "A1", -1), cell(2, 0, "Amount", -1), cell(2, 1, "100", -1));
+
+    @Test
+    void changesToDifferentCellsMergeCleanly() throws Exception {
+        MappedSnapshot ours = sheet(cell(0, 0, "Field", 0), cell(1, 0, "MsgId", -1), cell(1, 1, "A2", -1),
+                cell(2, 0, "Amount", -1), cell(2, 1, "100", -1));
+        MappedSnapshot theirs = sheet(cell(0, 0, "Field", 0), cell(1, 0, "MsgId", -1), cell(1, 1, "A1", -1),
+                cell(2, 0, "Amount", -1), cell(2, 1, "250", -1), cell(3, 0, "Currency", -1));
+
+        SnapshotMerge merge = SnapshotMerge.of(BASE, ours, theirs);
+
+        assertFalse(merge.hasConflicts());
+        assertEquals(1, merge.getMergedCount());
+        assertEquals(cells(sheet(cell(0, 0, "Field", 0), cell(1, 0, "MsgId", -1), cell(1, 1, "A2", -1),
+                cell(2, 0, "Amount", -1), cell(2, 1, "250", -1), cell(3, 0, "Currency", -1))),
+                cells(MappedSnapshot.parse(merge.toJson())));
+    }
+
+    @Test
+    void sameChangeOnBothSidesIsNoConflict() throws Exception {
+        MappedSnapshot both = sheet(cell(0, 0, "Field", 0), cell(1, 0, "MsgId", -1), cell(1, 1, "A2", -1),
+                cell(2, 0, "Amount", -1), cell(2, 1, "100", -1));
+
+        SnapshotMerge merge = SnapshotMerge.of(BASE, both, both);
+
+        assertFalse(merge.hasConflicts());
+        assertEquals(cells(both), cells(MappedSnapshot.parse(merge.toJson())));
+    }
+
+    @Test
+    void differentChangesToTheSameCellConflictAndKeepTheirs() throws Exception {
+        MappedSnapshot ours = sheet(cell(0, 0, "Field", 0), cell(1, 0, "MsgId", -1), cell(1, 1, "OURS", -1),
+                cell(2, 0, "Amount", -1), cell(2, 1, "100", -1));
+        MappedSnapshot theirs = sheet(cell(0, 0, "Field", 0), cell(1, 0, "MsgId", -1), cell(1, 1, "THEIRS", -1),
+                cell(2, 0, "Amount", -1), cell(2, 1, "100", -1));
+
+        SnapshotMerge merge = SnapshotMerge.of(BASE, ours, theirs);
+
+        List<SnapshotMerge.Conflict> conflicts = merge.getConflicts();
+        assertEquals(1, conflicts.size());
+        SnapshotMerge.Conflict conflict = conflicts.get(0);
+        assertEquals("pacs.008", conflict.sheet);
+        assertEquals(1, conflict.row);
+        assertEquals(1, conflict.col);
+        assertEquals("A1", conflict.baseValue);
+        assertEquals("OURS", conflict.ourValue);
+        assertEquals("THEIRS", conflict.theirValue);
+        assertEquals(cells(theirs), cells(MappedSnapshot.parse(merge.toJson())));
+    }
+
+    private static MappedSnapshot sheet(String... cells) {
+        return snapshot("[{\"name\":\"pacs.008\",\"cells\":[" + String.join(",", cells) + "]}]", BOLD);
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.msslideapp.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotPatchTest {
+
+    static final String BOLD = "{\"bold\":true}";
+    static final String RED = "{\"fontColor\":\"#C00000\"}";
+
+    private static final MappedSnapshot V0 = snapshot(
+            "[{\"name\":\"pacs.008\",\"cells\":[" + cell(0, 0, "Field", 0) + "," + cell(0, 1, "Value", 0) + ","
+                    + cell(1, 0, "MsgId", -1) + "," + cell(1, 1, "A1", -1) + "]},"
+                    + "{\"name\":\"Codes\",\"cells\":[" + cell(0, 0, "EUR", -1) + "]}]",
+            BOLD);
+
+    @Test
+    void patchRoundTripsThroughJsonAndRebuildsTheTarget() throws Exception {
+        MappedSnapshot target = snapshot(
+                "[{\"name\":\"pacs.008\",\"cells\":[" + cell(0, 0, "Field", 0) + "," + cell(0, 1, "Value", 0) + ","
+                        + cell(1, 1, "A2", 1) + "," + cell(2, 0, "EndToEndId", -1) + "]},"
+                        + "{\"name\":\"Summary\",\"cells\":[" + cell(0, 0, "1 change", -1) + "]}]",
+                BOLD, RED);
+
+        SnapshotPatch patch = SnapshotPatch.parse(SnapshotPatch.between(V0, target, "cp", "cp", 1).toJson());
+
+        assertEquals("cp", patch.getCheckpoint());
+        assertEquals(1, patch.getSeq());
+        assertEquals(List.of("pacs.008", "Summary"), patch.getSheets());
+        assertEquals(List.of("Codes"), patch.getRemovedSheets());
+        // pacs.008: MsgId removed, A1 -> A2 restyled, EndToEndId added
+        assertEquals(3, patch.changes("pacs.008").size());
+        assertEquals(cells(target), cells(MappedSnapshot.parse(patch.applyTo(V0))));
+    }
+
+    @Test
+    void replayFromTheCheckpointRebuildsEveryVersionWithoutGrowingTheStyleTable() throws Exception {
+        List<MappedSnapshot> versions = new ArrayList<>();
+        versions.add(V0);
+        for (int v = 1; v <= 5; v++) {
+            // alternate the value cell's style, so each patch carries a style the chain has already seen
+            versions.add(snapshot("[{\"name\":\"pacs.008\",\"cells\":[" + cell(0, 0, "Field", 0) + ","
+                    + cell(1, 1, "A" + v, v % 2) + "]}]", BOLD, RED));
+        }
+
+        List<SnapshotPatch> chain = new ArrayList<>();
+        String parent = "cp";
+        for (int v = 1; v < versions.size(); v++) {
+            SnapshotPatch patch = SnapshotPatch.between(versions.get(v - 1), versions.get(v), "cp", parent, v);
+            chain.add(SnapshotPatch.parse(patch.toJson()));
+            parent = "patch" + v;
+        }
+
+        MappedSnapshot replayed = V0;
+        for (int v = 1; v < versions.size(); v++) {
+            replayed = MappedSnapshot.parse(chain.get(v - 1).applyTo(replayed));
+            assertEquals(cells(versions.get(v)), cells(replayed), "version " + v);
+        }
+        assertEquals(2, replayed.styleCount());
+    }
+
+    @Test
+    void noChangesForEqualSnapshots() throws Exception {
+        SnapshotPatch patch = SnapshotPatch.between(V0, V0, "cp", "cp", 1);
+
+        assertEquals(0, patch.changeCount());
+        assertEquals(cells(V0), cells(MappedSnapshot.parse(patch.applyTo(V0))));
+    }
+
+    static MappedSnapshot snapshot(String sheets, String... styles) {
+        try {
+            return MappedSnapshot.parse("{\"sheets\":" + sheets + ",\"styles\":[" + String.join(",", styles) + "]}");
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String cell(int row, int col, String value, int style) {
+        return "{\"row\":" + row + ",\"col\":" + col + ",\"value\":\"" + value + "\""
+                + (style >= 0 ? ",\"styleId\":" + style : "") + "}";
+    }
+
+    /** Every cell as sheet!row,col=value with its style's JSON, so snapshots compare whatever their style ids. */
+    static List<String> cells(MappedSnapshot snapshot) {
+        List<String> cells = new ArrayList<>();
+        for (int s = 0; s < snapshot.sheetCount(); s++) {
+            for (int r = 0; r < snapshot.rowCount(s); r++) {
+                int first = snapshot.rowFirstCell(s, r);
+                for (int c = first; c < first + snapshot.rowCellCount(s, r); c++) {
+                    int style = snapshot.cellStyle(s, c);
+                    cells.add(snapshot.sheetName(s) + "!" + snapshot.rowAt(s, r) + "," + snapshot.cellCol(s, c) + "="
+                            + snapshot.cellValue(s, c) + (style >= 0 ? " " + snapshot.styleJson(style) : ""));
+                }
+            }
+        }
+        return cells;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.msslideapp.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotStoreTest {
+
+    private Path dir;
+    private SnapshotStore store;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dir = Files.createTempDirectory("snapshots");
+        store = new SnapshotStore(new PipelineMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(store, "dir", dir.toString());
+        ReflectionTestUtils.setField(store, "maxOpen", 1);
+        ReflectionTestUtils.setField(store, "maxDiskMb", 1L);
+        store.init();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        FileSystemUtils.deleteRecursively(dir);
+    }
+
+    @Test
+    void storedSnapshotsAreFoundByBlobSha() throws Exception {
+        String json = snapshot(0, 10);
+        store.put(json);
+
+        String blobSha = SnapshotStore.blobSha(json.getBytes("UTF-8"));
+        assertTrue(new File(dir.toFile(), blobSha + ".snap").isFile());
+        assertEquals(10, store.getIfPresent(blobSha).totalCells());
+    }
+
+    @Test
+    void leastRecentlyUsedFilesAreDeletedPastTheDiskBudget() throws Exception {
+        for (int i = 0; i < 40; i++)
+            store.put(snapshot(i, 2000));
+
+        long total = 0;
+        for (File f : dir.toFile().listFiles((d, name) -> name.endsWith(".snap")))
+            total += f.length();
+        assertTrue(total <= 1024 * 1024, "store holds " + total + " bytes");
+        assertNotNull(store.getIfPresent(SnapshotStore.blobSha(snapshot(39, 2000).getBytes("UTF-8"))));
+    }
+
+    /** One sheet of {@code cells} distinct values, different for every {@code seed}. */
+    private static String snapshot(int seed, int cells) {
+        StringBuilder json = new StringBuilder("{\"sheets\":[{\"name\":\"S\",\"cells\":[");
+        for (int c = 0; c < cells; c++) {
+            if (c > 0)
+                json.append(',');
+            json.append("{\"row\":").append(c / 10).append(",\"col\":").append(c % 10)
+                    .append(",\"value\":\"v").append(seed).append('-').append(c).append("\"}");
+        }
+        return json.append("]}],\"styles\":[]}").toString();
+    }
+}
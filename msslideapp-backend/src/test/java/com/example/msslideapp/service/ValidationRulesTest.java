@@ -0,0 +1,160 @@
+package com.example.msslideapp.service;
+
+import com.example.msslideapp.model.ValidationViolation;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ValidationRulesTest {
+
+    private static final String RULES = "{\"ruleSets\":[{\"files\":\"(?i).*\\\\.xlsx\",\"sheets\":\"Data.*\","
+            + "\"headerRow\":1,\"columns\":["
+            + "{\"header\":\"  Message ID \",\"required\":true,\"pattern\":\"[A-Z]{2}[0-9]+\"},"
+            + "{\"header\":\"Currency\",\"oneOf\":[\"EUR\",\"USD\"]},"
+            + "{\"column\":\"D\",\"required\":true,\"minLength\":2,\"maxLength\":4}]}]}";
+
+    @Test
+    void onlyMatchingFilesAndSheetsAreValidated() throws Exception {
+        ValidationRules rules = rules(RULES, 1000);
+
+        assertNull(rules.forFile("data.csv"));
+        assertNull(rules.forFile(null));
+        ValidationRules.Workbook workbook = rules.forFile("Data.XLSX");
+        assertNotNull(workbook);
+        assertNull(workbook.sheet("Notes"));
+        assertNotNull(workbook.sheet("Data 2024"));
+    }
+
+    @Test
+    void columnsAreFoundByHeaderTextOrByLetter() throws Exception {
+        ValidationRules.Workbook workbook = rules(RULES, 1000).forFile("a.xlsx");
+        ValidationRules.Sheet sheet = workbook.sheet("Data");
+        // the rule set's header row is the second row; headers match case- and whitespace-insensitively
+        sheet.cell(0, 0, "Title");
+        sheet.cell(1, 1, "CURRENCY");
+        sheet.cell(1, 2, "message id");
+        sheet.cell(2, 1, "GBP");
+        sheet.cell(2, 2, "AB1");
+        sheet.cell(2, 3, "abcde");
+        sheet.cell(3, 1, "EUR");
+        sheet.cell(3, 2, "ab1");
+        sheet.cell(3, 3, "abc");
+        sheet.finish();
+
+        assertEquals(Arrays.asList("2,1 Currency oneOf GBP", "2,3 D maxLength abcde",
+                "3,2   Message ID  pattern ab1"), describe(workbook.getViolations()));
+        assertEquals(3, workbook.getViolationCount());
+    }
+
+    @Test
+    void requiredColumnsAreCheckedOnEveryRowWithAValue() throws Exception {
+        ValidationRules.Workbook workbook = rules(RULES, 1000).forFile("a.xlsx");
+        ValidationRules.Sheet sheet = workbook.sheet("Data");
+        sheet.cell(1, 0, "Message ID");
+        sheet.cell(2, 0, "AB1");
+        sheet.cell(2, 3, "xy");
+        // a row of empty cells isn't checked
+        sheet.cell(3, 0, "");
+        sheet.cell(3, 3, "");
+        sheet.cell(4, 1, "EUR");
+        sheet.cell(5, 0, "CD2");
+        sheet.finish();
+
+        assertEquals(Arrays.asList("4,0   Message ID  required null", "4,3 D required null", "5,3 D required null"),
+                describe(workbook.getViolations()));
+    }
+
+    @Test
+    void missingRequiredHeaderIsReportedOnce() throws Exception {
+        ValidationRules.Workbook workbook = rules(RULES, 1000).forFile("a.xlsx");
+        ValidationRules.Sheet sheet = workbook.sheet("Data");
+        sheet.cell(1, 0, "Currency");
+        sheet.cell(2, 0, "EUR");
+        sheet.cell(2, 3, "abc");
+        sheet.cell(3, 0, "USD");
+        sheet.cell(3, 3, "abc");
+        sheet.finish();
+
+        List<ValidationViolation> violations = workbook.getViolations();
+        assertEquals(Collections.singletonList("1,-1   Message ID  missingColumn null"), describe(violations));
+        assertEquals("Required column is missing from header row 2", violations.get(0).getMessage());
+    }
+
+    @Test
+    void sheetWithOnlyAHeaderRowStillReportsMissingColumns() throws Exception {
+        ValidationRules.Workbook workbook = rules(RULES, 1000).forFile("a.xlsx");
+        ValidationRules.Sheet sheet = workbook.sheet("Data");
+        sheet.cell(1, 0, "Currency");
+        sheet.finish();
+
+        assertEquals(Collections.singletonList("1,-1   Message ID  missingColumn null"),
+                describe(workbook.getViolations()));
+    }
+
+    @Test
+    void violationsBeyondTheLimitAreCountedButNotKept() throws Exception {
+        ValidationRules.Workbook workbook = rules(RULES, 3).forFile("a.xlsx");
+        ValidationRules.Sheet first = workbook.sheet("Data 1");
+        ValidationRules.Sheet second = workbook.sheet("Data 2");
+        for (ValidationRules.Sheet sheet : Arrays.asList(first, second)) {
+            sheet.cell(1, 0, "Message ID");
+            for (int row = 2; row < 5; row++) {
+                sheet.cell(row, 0, "bad");
+                sheet.cell(row, 3, "ok");
+            }
+            sheet.finish();
+        }
+
+        assertEquals(3, workbook.getViolations().size());
+        assertEquals(6, workbook.getViolationCount());
+        for (ValidationViolation violation : workbook.getViolations())
+            assertEquals("Data 1", violation.getSheet());
+    }
+
+    @Test
+    void disabledValidationAppliesToNoFile() throws Exception {
+        ValidationRules rules = new ValidationRules(false, 1000, resource(RULES));
+
+        assertNull(rules.forFile("a.xlsx"));
+    }
+
+    @Test
+    void ruleNeedsEitherAHeaderOrAColumn() {
+        assertThrows(IllegalArgumentException.class, () -> rules(
+                "{\"ruleSets\":[{\"columns\":[{\"header\":\"A\",\"column\":\"A\"}]}]}", 1000));
+        assertThrows(IllegalArgumentException.class, () -> rules(
+                "{\"ruleSets\":[{\"columns\":[{\"required\":true}]}]}", 1000));
+    }
+
+    @Test
+    void bundledRulesCompile() throws Exception {
+        ValidationRules rules = new ValidationRules(true, 1000, new ClassPathResource("validation-rules.json"));
+
+        assertNotNull(rules.forFile("pacs.008 rules.xlsx"));
+        assertNull(rules.forFile("readme.xlsx"));
+    }
+
+    private static ValidationRules rules(String json, int maxViolations) throws Exception {
+        return new ValidationRules(true, maxViolations, resource(json));
+    }
+
+    private static ByteArrayResource resource(String json) {
+        return new ByteArrayResource(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Each violation as "row,col column rule value". */
+    private static List<String> describe(List<ValidationViolation> violations) {
+        List<String> described = new ArrayList<>();
+        for (ValidationViolation v : violations)
+            described.add(v.getRow() + "," + v.getCol() + " " + v.getColumn() + " " + v.getRule() + " " + v.getValue());
+        return described;
+    }
+}
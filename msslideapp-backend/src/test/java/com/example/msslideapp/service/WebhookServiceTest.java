@@ -0,0 +1,57 @@
+package com.example.msslideapp.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebhookServiceTest {
+
+    private static final byte[] BODY = "{\"zen\":\"Keep it logically awesome.\"}".getBytes(StandardCharsets.UTF_8);
+
+    private WebhookService webhooks;
+
+    @BeforeEach
+    void setUp() {
+        webhooks = new WebhookService(null, null, null, null, null);
+        ReflectionTestUtils.setField(webhooks, "secret", "s3cret");
+    }
+
+    @Test
+    void acceptsSignatureOfTheBody() throws Exception {
+        assertTrue(webhooks.verifySignature(BODY, sign("s3cret", BODY)));
+    }
+
+    @Test
+    void rejectsOtherBodyOrSecret() throws Exception {
+        assertFalse(webhooks.verifySignature("{}".getBytes(StandardCharsets.UTF_8), sign("s3cret", BODY)));
+        assertFalse(webhooks.verifySignature(BODY, sign("other", BODY)));
+    }
+
+    @Test
+    void rejectsMissingOrMalformedHeader() throws Exception {
+        assertFalse(webhooks.verifySignature(BODY, null));
+        assertFalse(webhooks.verifySignature(BODY, sign("s3cret", BODY).substring("sha256=".length())));
+        assertFalse(webhooks.verifySignature(BODY, sign("s3cret", BODY).toUpperCase()));
+    }
+
+    @Test
+    void rejectsEverythingWithoutASecret() throws Exception {
+        ReflectionTestUtils.setField(webhooks, "secret", "");
+        assertFalse(webhooks.verifySignature(BODY, sign("s3cret", BODY)));
+    }
+
+    private static String sign(String secret, byte[] body) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        StringBuilder hex = new StringBuilder("sha256=");
+        for (byte b : mac.doFinal(body))
+            hex.append(String.format("%02x", b));
+        return hex.toString();
+    }
+}
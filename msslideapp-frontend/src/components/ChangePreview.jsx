@@ -65,6 +65,19 @@ export default function ChangePreview({ changes }) {
         setVisibleCounts(counts);
     }, [safeChanges]);
 
+    // Row/column-level changes from the aligned diff count towards the matching cell-level bucket
+    const filterGroup = (changeType) => {
+        switch (changeType) {
+            case 'ROW_INSERTED':
+            case 'COLUMN_INSERTED': return 'ADDED';
+            case 'ROW_DELETED':
+            case 'COLUMN_DELETED': return 'DELETED';
+            case 'ROW_MOVED':
+            case 'COLUMN_MOVED': return 'MODIFIED';
+            default: return changeType;
+        }
+    };
+
     // Group and Filter changes
     const { hierarchy, summary } = useMemo(() => {
         const hierarchy = {}; // { fileName: { sheetName: [changes] } }
@@ -75,14 +88,15 @@ export default function ChangePreview({ changes }) {
         // 1. Global Summary
         safeChanges.forEach(c => {
             summary.total++;
-            if (c.changeType === 'MODIFIED') summary.modified++;
-            if (c.changeType === 'ADDED') summary.added++;
-            if (c.changeType === 'DELETED') summary.deleted++;
+            const group = filterGroup(c.changeType);
+            if (group === 'MODIFIED') summary.modified++;
+            if (group === 'ADDED') summary.added++;
+            if (group === 'DELETED') summary.deleted++;
         });
 
         // 2. Filtered Hierarchy
         safeChanges.forEach(change => {
-            if (selectedFilter !== 'All' && change.changeType !== selectedFilter.toUpperCase()) {
+            if (selectedFilter !== 'All' && filterGroup(change.changeType) !== selectedFilter.toUpperCase()) {
                 return;
             }
 
@@ -149,6 +163,12 @@ export default function ChangePreview({ changes }) {
             case 'ADDED': return '#10b981';
             case 'DELETED': return '#ef4444';
             case 'MODIFIED': return '#f59e0b';
+            case 'ROW_INSERTED':
+            case 'COLUMN_INSERTED': return '#059669';
+            case 'ROW_DELETED':
+            case 'COLUMN_DELETED': return '#dc2626';
+            case 'ROW_MOVED':
+            case 'COLUMN_MOVED': return '#3b82f6';
             default: return '#6b7280';
         }
     };
@@ -181,6 +201,12 @@ export default function ChangePreview({ changes }) {
 
         if (changeType === 'ADDED') return 'New cell added';
         if (changeType === 'DELETED') return 'Cell deleted';
+        if (changeType === 'ROW_INSERTED') return 'Row inserted';
+        if (changeType === 'ROW_DELETED') return 'Row deleted';
+        if (changeType === 'ROW_MOVED') return `Row moved from ${meta?.oldRow}`;
+        if (changeType === 'COLUMN_INSERTED') return 'Column inserted';
+        if (changeType === 'COLUMN_DELETED') return 'Column deleted';
+        if (changeType === 'COLUMN_MOVED') return `Column moved from ${meta?.oldCol}`;
 
         // Value Change
         if (oldValue !== newValue) {
@@ -327,7 +353,7 @@ export default function ChangePreview({ changes }) {
                                                                     {visibleChanges.map((change, idx) => (
                                                                         <tr key={idx}>
                                                                             <td style={{ width: '60px' }}>{change.row}</td>
-                                                                            <td style={{ width: '60px' }}>{change.col}</td>
+                                                                            <td style={{ width: '60px' }}>{change.col < 0 ? '—' : change.col}</td>
                                                                             <td className="value-cell">
                                                                                 {formatCellValue(change.oldValue, change.meta, true)}
                                                                             </td>
@@ -1,5 +1,6 @@
 import React, { useState, useEffect } from 'react';
 import { api } from '../utils/api';
+import { getReviewLabel } from '../utils/reviews';
 import ChangePreview from './ChangePreview';
 
 const PendingApprovalsPage = () => {
@@ -10,6 +11,8 @@ const PendingApprovalsPage = () => {
     const [loadingChanges, setLoadingChanges] = useState({});
     const [comments, setComments] = useState({});
     const [processing, setProcessing] = useState(false);
+    const [nextCursor, setNextCursor] = useState(null);
+    const [loadingMore, setLoadingMore] = useState(false);
 
     useEffect(() => {
         loadApprovals();
@@ -19,20 +22,36 @@ const PendingApprovalsPage = () => {
         setLoading(true);
         try {
             const data = await api.getPendingApprovals();
-            if (Array.isArray(data)) {
-                setApprovals(data);
+            if (data && Array.isArray(data.items)) {
+                setApprovals(data.items);
+                setNextCursor(data.endCursor);
             } else {
-                console.error('getPendingApprovals did not return an array:', data);
+                console.error('getPendingApprovals did not return a page:', data);
                 setApprovals([]);
+                setNextCursor(null);
             }
         } catch (error) {
             console.error('Failed to load approvals:', error);
             setApprovals([]);
+            setNextCursor(null);
         } finally {
             setLoading(false);
         }
     };
 
+    const loadMore = async () => {
+        setLoadingMore(true);
+        try {
+            const data = await api.getPendingApprovals(nextCursor);
+            setApprovals(prev => [...prev, ...data.items]);
+            setNextCursor(data.endCursor);
+        } catch (error) {
+            console.error('Failed to load more approvals:', error);
+        } finally {
+            setLoadingMore(false);
+        }
+    };
+
     const togglePR = async (prNumber) => {
         const isCurrentlyOpen = selectedPRs[prNumber];
 
@@ -60,8 +79,8 @@ const PendingApprovalsPage = () => {
         // Removed window.confirm to fix button responsiveness
         setProcessing(true);
         try {
-            await api.approvePR(prNumber, comments[prNumber] || '');
-            alert('Changes approved successfully!');
+            const result = await api.approvePR(prNumber, comments[prNumber] || '');
+            alert(`Changes approved! Queued for merge at position ${result.position}.`);
             setComments(prev => ({ ...prev, [prNumber]: '' }));
             loadApprovals();
         } catch (error) {
@@ -136,6 +155,12 @@ const PendingApprovalsPage = () => {
                                     <div style={{ fontSize: '0.875rem', color: '#666' }}>
                                         By {pr.user} • {new Date(pr.created_at).toLocaleDateString()}
                                     </div>
+                                    {pr.changed_files !== undefined && (
+                                        <div style={{ fontSize: '0.875rem', color: '#666', marginTop: '0.25rem' }}>
+                                            {getReviewLabel(pr.review_decision)} • {pr.changed_files} file{pr.changed_files === 1 ? '' : 's'}
+                                            {pr.requested_reviewers && pr.requested_reviewers.length > 0 && ` • Awaiting ${pr.requested_reviewers.join(', ')}`}
+                                        </div>
+                                    )}
                                 </div>
                                 <span className="badge badge-open">Open</span>
                             </div>
@@ -203,6 +228,17 @@ const PendingApprovalsPage = () => {
                     ))}
                 </div>
             )}
+            {nextCursor && (
+                <div style={{ textAlign: 'center', marginTop: '1.5rem' }}>
+                    <button
+                        className="btn btn-secondary"
+                        onClick={loadMore}
+                        disabled={loadingMore}
+                    >
+                        {loadingMore ? 'Loading...' : 'Load more'}
+                    </button>
+                </div>
+            )}
         </div>
     );
 };
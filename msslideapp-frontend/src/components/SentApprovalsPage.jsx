@@ -1,5 +1,6 @@
 import React, { useState, useEffect } from 'react';
 import { api } from '../utils/api';
+import { getReviewLabel } from '../utils/reviews';
 import ChangePreview from './ChangePreview';
 
 const SentApprovalsPage = () => {
@@ -8,6 +9,8 @@ const SentApprovalsPage = () => {
     const [selectedPRs, setSelectedPRs] = useState({});
     const [prChanges, setPrChanges] = useState({});
     const [loadingChanges, setLoadingChanges] = useState({});
+    const [nextCursor, setNextCursor] = useState(null);
+    const [loadingMore, setLoadingMore] = useState(false);
 
     useEffect(() => {
         loadApprovals();
@@ -17,7 +20,8 @@ const SentApprovalsPage = () => {
         setLoading(true);
         try {
             const data = await api.getSentApprovals();
-            setApprovals(data);
+            setApprovals(data.items);
+            setNextCursor(data.endCursor);
         } catch (error) {
             console.error('Failed to load sent approvals:', error);
         } finally {
@@ -25,6 +29,19 @@ const SentApprovalsPage = () => {
         }
     };
 
+    const loadMore = async () => {
+        setLoadingMore(true);
+        try {
+            const data = await api.getSentApprovals(nextCursor);
+            setApprovals(prev => [...prev, ...data.items]);
+            setNextCursor(data.endCursor);
+        } catch (error) {
+            console.error('Failed to load more sent approvals:', error);
+        } finally {
+            setLoadingMore(false);
+        }
+    };
+
     const togglePR = async (prNumber) => {
         const isCurrentlyOpen = selectedPRs[prNumber];
 
@@ -96,6 +113,12 @@ const SentApprovalsPage = () => {
                                     <div style={{ fontSize: '0.875rem', color: '#666' }}>
                                         By {pr.user} • {new Date(pr.created_at).toLocaleDateString()}
                                     </div>
+                                    {pr.changed_files !== undefined && (
+                                        <div style={{ fontSize: '0.875rem', color: '#666', marginTop: '0.25rem' }}>
+                                            {getReviewLabel(pr.review_decision)} • {pr.changed_files} file{pr.changed_files === 1 ? '' : 's'}
+                                            {pr.requested_reviewers && pr.requested_reviewers.length > 0 && ` • Awaiting ${pr.requested_reviewers.join(', ')}`}
+                                        </div>
+                                    )}
                                 </div>
                                 {getStatusBadge(pr.state)}
                             </div>
@@ -137,6 +160,17 @@ const SentApprovalsPage = () => {
                     ))}
                 </div>
             )}
+            {nextCursor && (
+                <div style={{ textAlign: 'center', marginTop: '1.5rem' }}>
+                    <button
+                        className="btn btn-secondary"
+                        onClick={loadMore}
+                        disabled={loadingMore}
+                    >
+                        {loadingMore ? 'Loading...' : 'Load more'}
+                    </button>
+                </div>
+            )}
         </div>
     );
 };
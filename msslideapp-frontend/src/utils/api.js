@@ -49,15 +49,19 @@ export const api = {
         return response.data;
     },
 
-    // Get pending approvals
-    getPendingApprovals: async () => {
-        const response = await axios.get(`${API_BASE}/approvals/pending`);
+    // Get a page of pending approvals: { items, hasNextPage, endCursor }
+    getPendingApprovals: async (after) => {
+        const response = await axios.get(`${API_BASE}/approvals/pending`, {
+            params: { after }
+        });
         return response.data;
     },
 
-    // Get sent approvals
-    getSentApprovals: async () => {
-        const response = await axios.get(`${API_BASE}/approvals/sent`);
+    // Get a page of sent approvals: { items, hasNextPage, endCursor }
+    getSentApprovals: async (after) => {
+        const response = await axios.get(`${API_BASE}/approvals/sent`, {
+            params: { after }
+        });
         return response.data;
     },
 
@@ -0,0 +1,7 @@
+// Label for a PR's review decision, as returned by /api/approvals/pending and /sent
+export const getReviewLabel = (decision) => {
+    if (decision === 'APPROVED') return '✅ Approved';
+    if (decision === 'CHANGES_REQUESTED') return '✏️ Changes requested';
+    if (decision === 'REVIEW_REQUIRED') return '⏳ Review required';
+    return 'No review required';
+};
@@ -0,0 +1,98 @@
+package com.example.msslideapp.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+
+/** The backend endpoints the harness drives, over the JDK HTTP client. */
+public class BackendClient {
+
+    private final String baseUrl;
+    private final String managementUrl;
+    private final HttpClient http;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Duration timeout;
+
+    public BackendClient(String baseUrl, String managementUrl, Duration timeout) {
+        this.baseUrl = baseUrl.replaceAll("/$", "");
+        this.managementUrl = managementUrl.replaceAll("/$", "");
+        this.timeout = timeout;
+        this.http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5)).build();
+    }
+
+    /** POST /api/upload with the given files (name → .xlsx bytes); returns the response JSON. */
+    public JsonNode upload(Map<String, byte[]> files, String commitMessage) throws Exception {
+        String boundary = "----loadtest" + UUID.randomUUID();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (Map.Entry<String, byte[]> file : files.entrySet()) {
+            part(body, boundary, "Content-Disposition: form-data; name=\"file\"; filename=\"" + file.getKey()
+                    + "\"\r\nContent-Type: application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+            body.write(file.getValue());
+            body.write("\r\n".getBytes(StandardCharsets.UTF_8));
+        }
+        part(body, boundary, "Content-Disposition: form-data; name=\"commitMessage\"");
+        body.write((commitMessage + "\r\n").getBytes(StandardCharsets.UTF_8));
+        body.write(("--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/upload")).timeout(timeout)
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray())).build();
+        return send(request);
+    }
+
+    public JsonNode prChanges(int prNumber) throws Exception {
+        return getJson("/api/approvals/" + prNumber + "/changes");
+    }
+
+    public JsonNode commitChanges(String sha) throws Exception {
+        return getJson("/api/commits/" + sha + "/changes");
+    }
+
+    /** POST /api/approvals/{pr}/approve: approves the PR and queues it for merging. */
+    public JsonNode approve(int prNumber) throws Exception {
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/approvals/" + prNumber + "/approve"))
+                .timeout(timeout).header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{}")).build());
+    }
+
+    public JsonNode mergeStatus(int prNumber) throws Exception {
+        return getJson("/api/approvals/" + prNumber + "/merge");
+    }
+
+    public JsonNode getJson(String path) throws Exception {
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(timeout).GET().build());
+    }
+
+    /** GET on the backend's management server (Actuator), e.g. /actuator/health. */
+    public JsonNode getManagementJson(String path) throws Exception {
+        return send(HttpRequest.newBuilder(URI.create(managementUrl + path)).timeout(timeout).GET().build());
+    }
+
+    private JsonNode send(HttpRequest request) throws Exception {
+        HttpResponse<byte[]> response = http.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() / 100 != 2)
+            throw new IllegalStateException(request.method() + " " + request.uri().getPath() + " returned "
+                    + response.statusCode());
+        return mapper.readTree(response.body());
+    }
+
+    private static void part(ByteArrayOutputStream body, String boundary, String headers) throws Exception {
+        body.write(("--" + boundary + "\r\n" + headers + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Number of change items in an upload or changes response. */
+    public static int changeCount(JsonNode response) {
+        JsonNode changes = response.isArray() ? response : response.path("changes");
+        return changes.size();
+    }
+}
@@ -0,0 +1,507 @@
+package com.example.msslideapp.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory stand-in for the parts of the GitHub REST API the backend uses to
+ * upload snapshots, diff PRs and commits and merge approved PRs: refs, blobs,
+ * trees, commits, contents, compare, pulls, reviews and merges. Objects are content-addressed like git's, so
+ * blob SHAs behave the same way for the backend's blob cache. Owner and repo in
+ * the URL are ignored; there is one repository with a "main" branch.
+ *
+ * It answers from memory with no artificial latency, so measured time is the
+ * backend's own; {@link #setLatencyMs} adds a fixed delay per call to
+ * approximate api.github.com round trips.
+ */
+public class FakeGitHub {
+
+    private static final Pattern REPO_PATH = Pattern.compile("^/repos/[^/]+/[^/]+/(.+)$");
+
+    private static final class Commit {
+        final String tree;
+        final List<String> parents;
+
+        Commit(String tree, List<String> parents) {
+            this.tree = tree;
+            this.parents = parents;
+        }
+    }
+
+    private static final class Pull {
+        final int number;
+        final String title;
+        final String head;
+        final String base;
+        boolean merged;
+
+        Pull(int number, String title, String head, String base) {
+            this.number = number;
+            this.title = title;
+            this.head = head;
+            this.base = base;
+        }
+    }
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<String, byte[]> blobs = new HashMap<>();
+    private final Map<String, TreeMap<String, String>> trees = new HashMap<>();
+    private final Map<String, Commit> commits = new HashMap<>();
+    private final Map<String, String> refs = new HashMap<>();
+    private final Map<Integer, Pull> pulls = new LinkedHashMap<>();
+    private long commitCounter;
+    private long requests;
+
+    private volatile int latencyMs;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public FakeGitHub() {
+        String emptyTree = putTree(new TreeMap<String, String>());
+        refs.put("main", putCommit(emptyTree, Collections.<String>emptyList()));
+    }
+
+    public void start(int port, int threads) throws IOException {
+        // the JDK server closes keep-alive connections beyond 200 idle ones, which a backend
+        // with more connections than that reuses and sees reset; read once, before the first server
+        System.setProperty("sun.net.httpserver.maxIdleConnections", String.valueOf(Math.max(200, threads)));
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 256);
+        executor = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    public synchronized long requestCount() {
+        return requests;
+    }
+
+    /** The PR opened from {@code branch}, or -1. */
+    public synchronized int pullForBranch(String branch) {
+        for (Pull pull : pulls.values())
+            if (pull.head.equals(branch))
+                return pull.number;
+        return -1;
+    }
+
+    public synchronized String branchHead(String branch) {
+        return refs.get(branch);
+    }
+
+    public void setLatencyMs(int latencyMs) {
+        this.latencyMs = latencyMs;
+    }
+
+    /** Applies a PR's head files onto main as one new commit (no conflict handling; last write wins). */
+    public synchronized String merge(int number) {
+        Pull pull = pulls.get(number);
+        String mainSha = refs.get(pull.base);
+        TreeMap<String, String> merged = new TreeMap<>(trees.get(commits.get(mainSha).tree));
+        merged.putAll(trees.get(commits.get(refs.get(pull.head)).tree));
+        pull.merged = true;
+        String sha = putCommit(putTree(merged), Arrays.asList(mainSha, refs.get(pull.head)));
+        refs.put(pull.base, sha);
+        return sha;
+    }
+
+    // ---------------------------------------------------------------- HTTP
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (latencyMs > 0)
+                Thread.sleep(latencyMs);
+            String path = exchange.getRequestURI().getRawPath();
+            Matcher m = REPO_PATH.matcher(path);
+            if (!m.matches()) {
+                send(exchange, 404, error("Not Found"));
+                return;
+            }
+            JsonNode body = null;
+            try (InputStream in = exchange.getRequestBody()) {
+                byte[] bytes = in.readAllBytes();
+                if (bytes.length > 0)
+                    body = mapper.readTree(bytes);
+            }
+            route(exchange, exchange.getRequestMethod(), m.group(1), query(exchange), body);
+        } catch (Exception e) {
+            send(exchange, 500, error(String.valueOf(e)));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void route(HttpExchange ex, String method, String path, Map<String, String> query, JsonNode body)
+            throws Exception {
+        synchronized (this) {
+            requests++;
+        }
+        String[] seg = path.split("/");
+        if (path.startsWith("git/refs/heads/")) {
+            String branch = URLDecoder.decode(path.substring("git/refs/heads/".length()), StandardCharsets.UTF_8);
+            if ("GET".equals(method))
+                sendRef(ex, 200, branch, branchHead(branch));
+            else
+                sendRef(ex, 200, branch, updateRef(branch, body.get("sha").asText()));
+        } else if (path.equals("git/refs") && "POST".equals(method)) {
+            String branch = body.get("ref").asText().substring("refs/heads/".length());
+            String sha = createRef(branch, body.get("sha").asText());
+            if (sha == null)
+                send(ex, 422, error("Reference already exists"));
+            else
+                sendRef(ex, 201, branch, sha);
+        } else if (path.equals("git/blobs") && "POST".equals(method)) {
+            byte[] content = Base64.getMimeDecoder().decode(body.get("content").asText());
+            send(ex, 201, sha(putBlob(content)));
+        } else if (seg.length == 3 && path.startsWith("git/blobs/")) {
+            sendBlob(ex, seg[2]);
+        } else if (path.equals("git/trees") && "POST".equals(method)) {
+            send(ex, 201, sha(createTree(body)));
+        } else if (path.startsWith("git/trees/")) {
+            // branch names may contain slashes
+            sendTree(ex, URLDecoder.decode(path.substring("git/trees/".length()), StandardCharsets.UTF_8));
+        } else if (path.equals("git/commits") && "POST".equals(method)) {
+            List<String> parents = new ArrayList<>();
+            for (JsonNode p : body.path("parents"))
+                parents.add(p.asText());
+            send(ex, 201, sha(createCommit(body.get("tree").asText(), parents)));
+        } else if (seg.length == 3 && path.startsWith("git/commits/")) {
+            sendCommit(ex, seg[2]);
+        } else if (path.startsWith("contents/")) {
+            sendContents(ex, URLDecoder.decode(path.substring("contents/".length()), StandardCharsets.UTF_8),
+                    query.getOrDefault("ref", "main"));
+        } else if (path.startsWith("compare/")) {
+            String[] range = URLDecoder.decode(path.substring("compare/".length()), StandardCharsets.UTF_8)
+                    .split("\\.\\.\\.", 2);
+            sendCompare(ex, range[0], range[1]);
+        } else if (path.equals("pulls") && "POST".equals(method)) {
+            send(ex, 201, mapper.createObjectNode().put("number",
+                    createPull(body.path("title").asText(), body.get("head").asText(), body.get("base").asText())));
+        } else if (path.equals("pulls") && "GET".equals(method)) {
+            sendPulls(ex);
+        } else if (seg.length == 3 && seg[0].equals("pulls") && seg[2].equals("requested_reviewers")) {
+            send(ex, 201, mapper.createObjectNode());
+        } else if (seg.length == 3 && seg[0].equals("pulls") && seg[2].equals("reviews") && "POST".equals(method)) {
+            send(ex, 200, mapper.createObjectNode().put("state", body.path("event").asText()));
+        } else if (seg.length == 3 && seg[0].equals("pulls") && seg[2].equals("merge") && "PUT".equals(method)) {
+            sendMerge(ex, Integer.parseInt(seg[1]));
+        } else if (seg.length == 2 && seg[0].equals("pulls")) {
+            sendPull(ex, Integer.parseInt(seg[1]));
+        } else {
+            send(ex, 404, error("Not Found"));
+        }
+    }
+
+    // ---------------------------------------------------------------- object store
+
+    private synchronized String updateRef(String branch, String sha) {
+        refs.put(branch, sha);
+        return sha;
+    }
+
+    private synchronized String createRef(String branch, String sha) {
+        if (refs.containsKey(branch))
+            return null;
+        refs.put(branch, sha);
+        return sha;
+    }
+
+    private synchronized String putBlob(byte[] content) {
+        String sha = hash("blob " + content.length + "\0", content);
+        blobs.put(sha, content);
+        return sha;
+    }
+
+    private synchronized String putTree(TreeMap<String, String> entries) {
+        StringBuilder canonical = new StringBuilder();
+        for (Map.Entry<String, String> e : entries.entrySet())
+            canonical.append(e.getKey()).append(' ').append(e.getValue()).append('\n');
+        String sha = hash("tree ", canonical.toString().getBytes(StandardCharsets.UTF_8));
+        trees.put(sha, entries);
+        return sha;
+    }
+
+    private synchronized String putCommit(String tree, List<String> parents) {
+        String sha = hash("commit ", (tree + parents + (commitCounter++)).getBytes(StandardCharsets.UTF_8));
+        commits.put(sha, new Commit(tree, parents));
+        return sha;
+    }
+
+    private synchronized String createTree(JsonNode body) {
+        TreeMap<String, String> entries = new TreeMap<>();
+        if (body.hasNonNull("base_tree"))
+            entries.putAll(treeOf(body.get("base_tree").asText()));
+        for (JsonNode item : body.path("tree")) {
+            if (item.path("sha").isNull())
+                entries.remove(item.get("path").asText());
+            else
+                entries.put(item.get("path").asText(), item.get("sha").asText());
+        }
+        return putTree(entries);
+    }
+
+    private synchronized String createCommit(String tree, List<String> parents) {
+        return putCommit(tree, parents);
+    }
+
+    private synchronized int createPull(String title, String head, String base) {
+        int number = pulls.size() + 1;
+        pulls.put(number, new Pull(number, title, head, base));
+        return number;
+    }
+
+    /** The first ancestor of {@code head} (itself included) that {@code base} also reaches; null if none. */
+    private synchronized String mergeBase(String base, String head) {
+        Set<String> baseAncestors = ancestors(refs.containsKey(base) ? refs.get(base) : base);
+        Deque<String> pending = new ArrayDeque<>();
+        Set<String> seen = new HashSet<>();
+        pending.add(refs.containsKey(head) ? refs.get(head) : head);
+        while (!pending.isEmpty()) {
+            String sha = pending.poll();
+            if (!seen.add(sha) || !commits.containsKey(sha))
+                continue;
+            if (baseAncestors.contains(sha))
+                return sha;
+            pending.addAll(commits.get(sha).parents);
+        }
+        return null;
+    }
+
+    private Set<String> ancestors(String sha) {
+        Set<String> seen = new HashSet<>();
+        Deque<String> pending = new ArrayDeque<>();
+        pending.add(sha);
+        while (!pending.isEmpty()) {
+            String next = pending.poll();
+            if (commits.containsKey(next) && seen.add(next))
+                pending.addAll(commits.get(next).parents);
+        }
+        return seen;
+    }
+
+    /** Tree entries for a tree SHA, commit SHA or branch name; null if unknown. */
+    private synchronized TreeMap<String, String> treeOf(String ref) {
+        if (trees.containsKey(ref))
+            return trees.get(ref);
+        String commit = commits.containsKey(ref) ? ref : refs.get(ref);
+        return commit == null ? null : trees.get(commits.get(commit).tree);
+    }
+
+    // ---------------------------------------------------------------- responses
+
+    private void sendRef(HttpExchange ex, int status, String branch, String sha) throws IOException {
+        if (sha == null) {
+            send(ex, 404, error("Not Found"));
+            return;
+        }
+        ObjectNode ref = mapper.createObjectNode().put("ref", "refs/heads/" + branch);
+        ref.putObject("object").put("sha", sha).put("type", "commit");
+        send(ex, status, ref);
+    }
+
+    private void sendBlob(HttpExchange ex, String sha) throws IOException {
+        byte[] content;
+        synchronized (this) {
+            content = blobs.get(sha);
+        }
+        if (content == null) {
+            send(ex, 404, error("Not Found"));
+        } else if (String.valueOf(ex.getRequestHeaders().getFirst("Accept")).contains("raw")) {
+            ex.getResponseHeaders().set("Content-Type", "application/vnd.github.raw");
+            ex.sendResponseHeaders(200, content.length);
+            try (OutputStream out = ex.getResponseBody()) {
+                out.write(content);
+            }
+        } else {
+            send(ex, 200, mapper.createObjectNode().put("sha", sha).put("size", content.length)
+                    .put("encoding", "base64").put("content", Base64.getMimeEncoder().encodeToString(content)));
+        }
+    }
+
+    private void sendTree(HttpExchange ex, String ref) throws IOException {
+        TreeMap<String, String> entries = treeOf(ref);
+        if (entries == null) {
+            send(ex, 404, error("Not Found"));
+            return;
+        }
+        ObjectNode tree = mapper.createObjectNode().put("truncated", false);
+        ArrayNode items = tree.putArray("tree");
+        for (Map.Entry<String, String> e : entries.entrySet())
+            items.addObject().put("path", e.getKey()).put("mode", "100644").put("type", "blob")
+                    .put("sha", e.getValue());
+        send(ex, 200, tree);
+    }
+
+    private void sendCommit(HttpExchange ex, String sha) throws IOException {
+        Commit commit;
+        synchronized (this) {
+            commit = commits.get(sha);
+        }
+        if (commit == null) {
+            send(ex, 404, error("Not Found"));
+            return;
+        }
+        ObjectNode json = mapper.createObjectNode().put("sha", sha);
+        json.putObject("tree").put("sha", commit.tree);
+        ArrayNode parents = json.putArray("parents");
+        for (String p : commit.parents)
+            parents.addObject().put("sha", p);
+        send(ex, 200, json);
+    }
+
+    private void sendContents(HttpExchange ex, String path, String ref) throws IOException {
+        TreeMap<String, String> entries = treeOf(ref);
+        String sha = entries == null ? null : entries.get(path);
+        byte[] content;
+        synchronized (this) {
+            content = sha == null ? null : blobs.get(sha);
+        }
+        if (content == null) {
+            send(ex, 404, error("Not Found"));
+            return;
+        }
+        send(ex, 200, mapper.createObjectNode().put("path", path).put("sha", sha).put("encoding", "base64")
+                .put("content", Base64.getMimeEncoder().encodeToString(content)));
+    }
+
+    private void sendCompare(HttpExchange ex, String base, String head) throws IOException {
+        TreeMap<String, String> baseTree = treeOf(base);
+        TreeMap<String, String> headTree = treeOf(head);
+        if (baseTree == null || headTree == null) {
+            send(ex, 404, error("Not Found"));
+            return;
+        }
+        ObjectNode json = mapper.createObjectNode().put("status", "ahead");
+        String mergeBase = mergeBase(base, head);
+        if (mergeBase != null)
+            json.putObject("merge_base_commit").put("sha", mergeBase);
+        ArrayNode files = json.putArray("files");
+        for (Map.Entry<String, String> e : headTree.entrySet()) {
+            String old = baseTree.get(e.getKey());
+            if (old == null)
+                files.addObject().put("filename", e.getKey()).put("status", "added").put("sha", e.getValue());
+            else if (!old.equals(e.getValue()))
+                files.addObject().put("filename", e.getKey()).put("status", "modified").put("sha", e.getValue());
+        }
+        for (Map.Entry<String, String> e : baseTree.entrySet()) {
+            if (!headTree.containsKey(e.getKey()))
+                files.addObject().put("filename", e.getKey()).put("status", "removed").put("sha", e.getValue());
+        }
+        send(ex, 200, json);
+    }
+
+    private void sendPull(HttpExchange ex, int number) throws IOException {
+        ObjectNode json;
+        synchronized (this) {
+            Pull pull = pulls.get(number);
+            if (pull == null) {
+                json = null;
+            } else {
+                json = pullJson(pull);
+            }
+        }
+        if (json == null)
+            send(ex, 404, error("Not Found"));
+        else
+            send(ex, 200, json);
+    }
+
+    private void sendMerge(HttpExchange ex, int number) throws IOException {
+        String sha;
+        synchronized (this) {
+            Pull pull = pulls.get(number);
+            sha = pull == null || pull.merged ? null : merge(number);
+        }
+        if (sha == null)
+            send(ex, 405, error("Pull Request is not mergeable"));
+        else
+            send(ex, 200, mapper.createObjectNode().put("sha", sha).put("merged", true));
+    }
+
+    private void sendPulls(HttpExchange ex) throws IOException {
+        ArrayNode list = mapper.createArrayNode();
+        synchronized (this) {
+            for (Pull pull : pulls.values())
+                list.add(pullJson(pull));
+        }
+        send(ex, 200, list);
+    }
+
+    private ObjectNode pullJson(Pull pull) {
+        ObjectNode json = mapper.createObjectNode().put("number", pull.number).put("title", pull.title)
+                .put("state", pull.merged ? "closed" : "open").put("created_at", "2025-01-01T00:00:00Z")
+                .put("html_url", "http://localhost/pull/" + pull.number);
+        json.putObject("user").put("login", "loadtest");
+        json.putObject("head").put("ref", pull.head).put("sha", refs.get(pull.head));
+        json.putObject("base").put("ref", pull.base).put("sha", refs.get(pull.base));
+        return json;
+    }
+
+    private ObjectNode sha(String sha) {
+        return mapper.createObjectNode().put("sha", sha);
+    }
+
+    private ObjectNode error(String message) {
+        return mapper.createObjectNode().put("message", message);
+    }
+
+    private void send(HttpExchange ex, int status, JsonNode json) throws IOException {
+        byte[] bytes = mapper.writeValueAsBytes(json);
+        ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        ex.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> query(HttpExchange ex) {
+        Map<String, String> params = new HashMap<>();
+        String raw = ex.getRequestURI().getRawQuery();
+        if (raw != null) {
+            for (String pair : raw.split("&")) {
+                int eq = pair.indexOf('=');
+                if (eq > 0)
+                    params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                            URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private static String hash(String header, byte[] content) {
+        try {
+            MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+            sha1.update(header.getBytes(StandardCharsets.UTF_8));
+            sha1.update(content);
+            StringBuilder hex = new StringBuilder(40);
+            for (byte b : sha1.digest())
+                hex.append(String.format("%02x", b));
+            return hex.toString();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
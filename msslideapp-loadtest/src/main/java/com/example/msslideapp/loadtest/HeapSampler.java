@@ -0,0 +1,69 @@
+package com.example.msslideapp.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Polls the backend's used heap through Actuator (jvm.memory.used, area=heap)
+ * and keeps the high-water mark. A poll interval well below a GC cycle catches
+ * the peaks between collections; the first sample is the baseline.
+ */
+public class HeapSampler implements Runnable {
+
+    private final BackendClient backend;
+    private final long intervalMs;
+    private volatile boolean running = true;
+    private volatile long baseline = -1;
+    private volatile long highWater;
+    private volatile long last;
+    private volatile int failures;
+
+    public HeapSampler(BackendClient backend, long intervalMs) {
+        this.backend = backend;
+        this.intervalMs = intervalMs;
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                long used = sample();
+                if (baseline < 0)
+                    baseline = used;
+                highWater = Math.max(highWater, used);
+                last = used;
+            } catch (Exception e) {
+                failures++;
+            }
+            try {
+                Thread.sleep(intervalMs);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private long sample() throws Exception {
+        JsonNode metric = backend.getManagementJson("/actuator/metrics/jvm.memory.used?tag=area:heap");
+        return metric.path("measurements").get(0).path("value").asLong();
+    }
+
+    public void stop() {
+        running = false;
+    }
+
+    public long baselineBytes() {
+        return baseline;
+    }
+
+    public long highWaterBytes() {
+        return highWater;
+    }
+
+    public long lastBytes() {
+        return last;
+    }
+
+    public int failures() {
+        return failures;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.msslideapp.loadtest;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Latencies of one operation. Every sample is kept (a long per request), so
+ * percentiles are exact rather than bucketed; a run of a few hundred thousand
+ * requests needs only a few MB.
+ */
+public class LatencyStats {
+
+    private long[] samples = new long[1024];
+    private int count;
+    private long errors;
+
+    public synchronized void record(long nanos, boolean ok) {
+        if (!ok) {
+            errors++;
+            return;
+        }
+        if (count == samples.length)
+            samples = Arrays.copyOf(samples, count * 2);
+        samples[count++] = nanos;
+    }
+
+    /** count, errors, throughput and latency percentiles in milliseconds over {@code elapsedNanos}. */
+    public synchronized Map<String, Object> summary(long elapsedNanos) {
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("count", count);
+        out.put("errors", errors);
+        out.put("throughputPerSec", round(count / (elapsedNanos / 1e9)));
+        long total = 0;
+        for (long s : sorted)
+            total += s;
+        out.put("meanMs", count == 0 ? 0 : round(total / (double) count / 1e6));
+        out.put("p50Ms", percentile(sorted, 50));
+        out.put("p90Ms", percentile(sorted, 90));
+        out.put("p99Ms", percentile(sorted, 99));
+        out.put("p999Ms", percentile(sorted, 99.9));
+        out.put("maxMs", count == 0 ? 0 : round(sorted[count - 1] / 1e6));
+        return out;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0)
+            return 0;
+        int rank = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return round(sorted[Math.max(0, Math.min(sorted.length - 1, rank))] / 1e6);
+    }
+
+    private static double round(double v) {
+        return Math.round(v * 100) / 100.0;
+    }
+}
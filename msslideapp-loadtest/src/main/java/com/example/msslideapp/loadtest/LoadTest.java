@@ -0,0 +1,340 @@
+package com.example.msslideapp.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drives uploads, PR views, commit views and approvals against a running
+ * backend that talks to this harness's GitHub stand-in, then reports latency
+ * percentiles, throughput, the backend's heap high-water mark and, when PRs
+ * were approved, how the merge queue settled them.
+ *
+ * Start the backend with the loadtest profile (GitHub calls go to
+ * localhost:9911), then run e.g.
+ * {@code mvn -q compile exec:java -Dexec.args="concurrency=16 duration=120 rows=2000"}.
+ * Options are key=value pairs; see {@link #DEFAULTS}.
+ */
+public class LoadTest {
+
+    static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("backend", "http://localhost:8080");
+        DEFAULTS.put("management", "http://localhost:8081"); // Actuator, on the backend's management port
+        DEFAULTS.put("githubPort", "9911");
+        DEFAULTS.put("githubLatencyMs", "0");      // added to every stand-in response after seeding
+        DEFAULTS.put("workbooks", "4");            // distinct files in the repo
+        DEFAULTS.put("sheets", "3");
+        DEFAULTS.put("rows", "500");
+        DEFAULTS.put("cols", "20");
+        DEFAULTS.put("styles", "12");              // distinct cell styles per workbook
+        DEFAULTS.put("editRatio", "0.02");         // fraction of body cells changed per revision
+        DEFAULTS.put("revisions", "3");            // revisions per workbook cycled through by uploads
+        DEFAULTS.put("seed", "42");
+        DEFAULTS.put("concurrency", "8");
+        DEFAULTS.put("warmup", "10");              // seconds, not recorded
+        DEFAULTS.put("duration", "60");            // seconds, recorded
+        DEFAULTS.put("mix", "upload:1,pr:4,commit:2"); // approve:n approves the oldest unapproved PR
+        DEFAULTS.put("timeoutSec", "120");
+        DEFAULTS.put("heapIntervalMs", "200");
+        DEFAULTS.put("report", "");                // optional JSON report path
+    }
+
+    private static final String[] OPS = { "upload", "pr", "commit", "approve" };
+
+    private final Map<String, String> options;
+    private final BackendClient backend;
+    private final FakeGitHub github;
+    private final WorkbookGenerator generator;
+
+    private final List<Integer> pullRequests = new CopyOnWriteArrayList<>();
+    private final List<String> commits = new CopyOnWriteArrayList<>();
+    private final Deque<Integer> unapproved = new ConcurrentLinkedDeque<>();
+    private final List<Integer> approved = new CopyOnWriteArrayList<>();
+    private final List<String> uploadNames = new ArrayList<>();
+    private final List<byte[]> uploadFiles = new ArrayList<>();
+    private final Map<String, LatencyStats> stats = new LinkedHashMap<>();
+    private final List<String> errorSamples = new CopyOnWriteArrayList<>();
+    private final AtomicInteger uploadCounter = new AtomicInteger();
+
+    LoadTest(Map<String, String> options) {
+        this.options = options;
+        this.backend = new BackendClient(options.get("backend"), options.get("management"),
+                Duration.ofSeconds(integer("timeoutSec")));
+        this.github = new FakeGitHub();
+        this.generator = new WorkbookGenerator(Long.parseLong(options.get("seed")), integer("sheets"),
+                integer("rows"), integer("cols"), integer("styles"), Double.parseDouble(options.get("editRatio")));
+        for (String op : OPS)
+            stats.put(op, new LatencyStats());
+    }
+
+    public static void main(String[] args) throws Exception {
+        // POI logs through log4j-api; keep its "no implementation" notice off the report
+        System.setProperty("log4j2.loggerContextFactory", "org.apache.logging.log4j.simple.SimpleLoggerContextFactory");
+        Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+        for (String arg : args) {
+            String[] kv = arg.replaceFirst("^--", "").split("=", 2);
+            if (kv.length != 2 || !DEFAULTS.containsKey(kv[0]))
+                throw new IllegalArgumentException("Unknown option " + arg + "; options: " + DEFAULTS.keySet());
+            options.put(kv[0], kv[1]);
+        }
+        new LoadTest(options).run();
+    }
+
+    void run() throws Exception {
+        github.start(integer("githubPort"), Math.max(8, integer("concurrency") * 2));
+        try {
+            awaitBackend();
+            seed();
+            // seeding is setup, not measured; it runs without the simulated round trip
+            github.setLatencyMs(integer("githubLatencyMs"));
+            Map<String, Object> report = measure();
+            print(report);
+            if (!options.get("report").isEmpty()) {
+                new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT)
+                        .writeValue(new File(options.get("report")), report);
+                System.out.println("Report written to " + options.get("report"));
+            }
+        } finally {
+            github.stop();
+        }
+    }
+
+    private void awaitBackend() throws Exception {
+        long deadline = System.currentTimeMillis() + 120_000;
+        while (true) {
+            try {
+                if ("UP".equals(backend.getManagementJson("/actuator/health").path("status").asText()))
+                    return;
+            } catch (Exception e) {
+                if (System.currentTimeMillis() > deadline)
+                    throw new IllegalStateException("Backend at " + options.get("backend") + " is not up", e);
+            }
+            Thread.sleep(1000);
+        }
+    }
+
+    /**
+     * Puts the base workbooks on main (one upload, merged), then opens one PR per
+     * workbook with its first revision; those PRs and their head commits are the
+     * initial view targets. Later revisions are generated up front for uploads.
+     */
+    private void seed() throws Exception {
+        int workbooks = integer("workbooks");
+        long start = System.nanoTime();
+
+        Map<String, byte[]> baseFiles = new LinkedHashMap<>();
+        List<WorkbookGenerator.Workbook> bases = new ArrayList<>();
+        for (int i = 0; i < workbooks; i++) {
+            WorkbookGenerator.Workbook base = generator.base(i);
+            bases.add(base);
+            baseFiles.put(base.fileName, generator.toXlsx(base));
+        }
+        JsonNode baseUpload = backend.upload(baseFiles, "loadtest: base workbooks");
+        github.merge(github.pullForBranch(baseUpload.path("id").asText()));
+
+        for (WorkbookGenerator.Workbook base : bases) {
+            for (int round = 0; round <= Math.max(1, integer("revisions")); round++) {
+                WorkbookGenerator.Workbook revision = generator.edit(base, round);
+                byte[] xlsx = generator.toXlsx(revision);
+                if (round == 0) {
+                    JsonNode upload = backend.upload(Collections.singletonMap(base.fileName, xlsx),
+                            "loadtest: seed " + base.fileName);
+                    registerUpload(upload);
+                } else {
+                    uploadNames.add(base.fileName);
+                    uploadFiles.add(xlsx);
+                }
+            }
+        }
+        System.out.printf("Seeded %d workbooks of %d cells (%d KB each), %d PRs in %d ms%n", workbooks,
+                bases.get(0).cells(), baseFiles.values().iterator().next().length / 1024, pullRequests.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private void registerUpload(JsonNode upload) {
+        String branch = upload.path("id").asText();
+        int pr = github.pullForBranch(branch);
+        if (pr > 0) {
+            pullRequests.add(pr);
+            unapproved.add(pr);
+            commits.add(github.branchHead(branch));
+        }
+    }
+
+    private Map<String, Object> measure() throws Exception {
+        final String[] schedule = schedule(options.get("mix"));
+        final long warmupNanos = TimeUnit.SECONDS.toNanos(integer("warmup"));
+        final long startNanos = System.nanoTime();
+        final long measureFrom = startNanos + warmupNanos;
+        final long endNanos = measureFrom + TimeUnit.SECONDS.toNanos(integer("duration"));
+
+        HeapSampler heap = new HeapSampler(backend, integer("heapIntervalMs"));
+        Thread heapThread = new Thread(heap, "heap-sampler");
+        heapThread.setDaemon(true);
+
+        int concurrency = integer("concurrency");
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        System.out.printf("Running %d workers: %ds warmup, %ds measured, mix %s%n", concurrency,
+                integer("warmup"), integer("duration"), options.get("mix"));
+        for (int w = 0; w < concurrency; w++) {
+            workers.submit(() -> {
+                ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                long now;
+                while ((now = System.nanoTime()) < endNanos) {
+                    String op = schedule[rnd.nextInt(schedule.length)];
+                    // every PR is approved once; with none left, open one instead
+                    if ("approve".equals(op) && unapproved.isEmpty())
+                        op = "upload";
+                    boolean ok;
+                    try {
+                        ok = execute(op, rnd);
+                    } catch (Exception e) {
+                        ok = false;
+                        if (errorSamples.size() < 10)
+                            errorSamples.add(op + ": " + e.getMessage());
+                    }
+                    if (now >= measureFrom)
+                        stats.get(op).record(System.nanoTime() - now, ok);
+                }
+            });
+        }
+        // the heap baseline is taken once warmup is over, so seeding and JIT warmup do not count
+        long wait = TimeUnit.NANOSECONDS.toMillis(measureFrom - System.nanoTime());
+        if (wait > 0)
+            Thread.sleep(wait);
+        heapThread.start();
+        workers.shutdown();
+        workers.awaitTermination(integer("duration") + integer("timeoutSec") + 60, TimeUnit.SECONDS);
+        heap.stop();
+
+        long elapsed = Math.max(1, System.nanoTime() - measureFrom);
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("options", options);
+        Map<String, Object> ops = new LinkedHashMap<>();
+        long total = 0;
+        for (Map.Entry<String, LatencyStats> e : stats.entrySet()) {
+            Map<String, Object> summary = e.getValue().summary(elapsed);
+            total += ((Number) summary.get("count")).longValue();
+            ops.put(e.getKey(), summary);
+        }
+        report.put("operations", ops);
+        report.put("totalThroughputPerSec", Math.round(total / (elapsed / 1e9) * 100) / 100.0);
+        Map<String, Object> heapReport = new LinkedHashMap<>();
+        heapReport.put("baselineMb", mb(heap.baselineBytes()));
+        heapReport.put("highWaterMb", mb(heap.highWaterBytes()));
+        heapReport.put("endMb", mb(heap.lastBytes()));
+        heapReport.put("sampleFailures", heap.failures());
+        report.put("backendHeap", heapReport);
+        report.put("githubRequests", github.requestCount());
+        report.put("pullRequestsAtEnd", pullRequests.size());
+        if (!approved.isEmpty())
+            report.put("merges", merges());
+        report.put("errorSamples", errorSamples);
+        return report;
+    }
+
+    /**
+     * One operation; false when the backend answered but the result is wrong.
+     * Every target has edits, so an empty change list means the backend
+     * swallowed a failure.
+     */
+    private boolean execute(String op, ThreadLocalRandom rnd) throws Exception {
+        switch (op) {
+            case "upload": {
+                int i = rnd.nextInt(uploadFiles.size());
+                JsonNode upload = backend.upload(Collections.singletonMap(uploadNames.get(i), uploadFiles.get(i)),
+                        "loadtest: upload " + uploadCounter.incrementAndGet());
+                registerUpload(upload);
+                return BackendClient.changeCount(upload) > 0;
+            }
+            case "pr":
+                return BackendClient.changeCount(
+                        backend.prChanges(pullRequests.get(rnd.nextInt(pullRequests.size())))) > 0;
+            case "approve": {
+                Integer pr = unapproved.pollFirst();
+                if (pr == null)
+                    return false;
+                approved.add(pr);
+                return !backend.approve(pr).path("mergeState").asText().isEmpty();
+            }
+            default:
+                return BackendClient.changeCount(backend.commitChanges(commits.get(rnd.nextInt(commits.size())))) > 0;
+        }
+    }
+
+    /**
+     * Waits for the merge queue to settle every approved PR, then counts the
+     * outcomes. drainMs is how long merging went on after the last approval.
+     */
+    private Map<String, Object> merges() throws Exception {
+        long start = System.nanoTime();
+        long deadline = System.currentTimeMillis() + integer("timeoutSec") * 1000L;
+        while (backend.getJson("/api/approvals/queue").size() > 0 && System.currentTimeMillis() < deadline)
+            Thread.sleep(200);
+        Map<String, Object> merges = new LinkedHashMap<>();
+        merges.put("approved", approved.size());
+        for (int pr : approved) {
+            String state = backend.mergeStatus(pr).path("state").asText();
+            merges.put(state, ((Integer) merges.getOrDefault(state, 0)) + 1);
+        }
+        merges.put("drainMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return merges;
+    }
+
+    /** Expands "upload:1,pr:4" into a lookup table the workers draw from uniformly. */
+    private static String[] schedule(String mix) {
+        List<String> table = new ArrayList<>();
+        for (String entry : mix.split(",")) {
+            String[] kv = entry.trim().split(":");
+            if (!Arrays.asList(OPS).contains(kv[0]))
+                throw new IllegalArgumentException("Unknown operation " + kv[0] + " in mix; use " + Arrays.toString(OPS));
+            for (int i = 0; i < Integer.parseInt(kv[1]); i++)
+                table.add(kv[0]);
+        }
+        if (table.isEmpty())
+            throw new IllegalArgumentException("Empty mix " + mix);
+        return table.toArray(new String[0]);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void print(Map<String, Object> report) {
+        System.out.println();
+        System.out.printf("%-8s %8s %7s %9s %9s %9s %9s %9s %9s%n", "op", "count", "errors", "req/s", "p50 ms",
+                "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Map.Entry<String, Object> e : ((Map<String, Object>) report.get("operations")).entrySet()) {
+            Map<String, Object> s = (Map<String, Object>) e.getValue();
+            System.out.printf("%-8s %8s %7s %9s %9s %9s %9s %9s %9s%n", e.getKey(), s.get("count"), s.get("errors"),
+                    s.get("throughputPerSec"), s.get("p50Ms"), s.get("p90Ms"), s.get("p99Ms"), s.get("p999Ms"),
+                    s.get("maxMs"));
+        }
+        Map<String, Object> heap = (Map<String, Object>) report.get("backendHeap");
+        System.out.printf("%nTotal %s req/s; backend heap %s MB baseline, %s MB high-water, %s MB at end; "
+                + "%s GitHub calls%n", report.get("totalThroughputPerSec"), heap.get("baselineMb"),
+                heap.get("highWaterMb"), heap.get("endMb"), report.get("githubRequests"));
+        if (report.containsKey("merges"))
+            System.out.println("Merge queue: " + report.get("merges"));
+        for (String error : (List<String>) report.get("errorSamples"))
+            System.out.println("  error: " + error);
+    }
+
+    private int integer(String key) {
+        return Integer.parseInt(options.get(key));
+    }
+
+    private static double mb(long bytes) {
+        return Math.round(bytes / 1024.0 / 1024.0 * 10) / 10.0;
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.msslideapp.loadtest;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.*;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compares the encodings the backend offers for change lists: plain JSON, Smile
+ * (with the shared name and value back-references the backend enables) and
+ * CBOR, each as is and gzip-compressed. Reports payload size and the median
+ * time to serialize (and compress) the list.
+ *
+ * The list is synthetic, shaped like the diff's ChangeItems with their style
+ * meta, unless {@code from} names a saved response, e.g.
+ * {@code curl localhost:8080/api/approvals/12/changes > changes.json}. Run with
+ * {@code mvn -q compile exec:java@payload-benchmark -Dexec.args="items=20000"}.
+ * Options are key=value pairs; see {@link #DEFAULTS}.
+ */
+public class PayloadBenchmark {
+
+    static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("items", "10000");        // synthetic changes
+        DEFAULTS.put("styleChanges", "0.2");   // fraction of synthetic changes that also restyle the cell
+        DEFAULTS.put("seed", "42");
+        DEFAULTS.put("warmup", "20");          // serializations per encoding, not recorded
+        DEFAULTS.put("iterations", "50");      // serializations per encoding, recorded
+        DEFAULTS.put("from", "");              // saved JSON change list instead of synthetic changes
+    }
+
+    private static final String[] SHEETS = { "pacs.008", "pacs.009", "Codes", "Summary" };
+    private static final String[] TYPES = { "MODIFIED", "MODIFIED", "MODIFIED", "ADDED", "DELETED" };
+    private static final String[] COLORS = { "#000000", "#FFFFFF", "#FFF2CC", "#DDEBF7", "#E2EFDA", "#FCE4D6",
+            "#C00000" };
+    private static final String[] ALIGNS = { "GENERAL", "LEFT", "CENTER", "RIGHT" };
+    private static final String[] BORDERS = { "NONE, NONE, NONE, NONE", "THIN, THIN, THIN, THIN",
+            "NONE, THIN, NONE, NONE", "MEDIUM, MEDIUM, NONE, NONE" };
+
+    private final Map<String, String> options;
+
+    PayloadBenchmark(Map<String, String> options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+        for (String arg : args) {
+            String[] kv = arg.replaceFirst("^--", "").split("=", 2);
+            if (kv.length != 2 || !DEFAULTS.containsKey(kv[0]))
+                throw new IllegalArgumentException("Unknown option " + arg + "; options: " + DEFAULTS.keySet());
+            options.put(kv[0], kv[1]);
+        }
+        new PayloadBenchmark(options).run();
+    }
+
+    void run() throws Exception {
+        List<Map<String, Object>> changes = options.get("from").isEmpty() ? synthetic()
+                : new ObjectMapper().readValue(new File(options.get("from")),
+                        new TypeReference<List<Map<String, Object>>>() {
+                        });
+
+        Map<String, ObjectMapper> encodings = new LinkedHashMap<>();
+        encodings.put("json", new ObjectMapper());
+        encodings.put("smile", new ObjectMapper(SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_NAMES)
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build()));
+        encodings.put("cbor", new ObjectMapper(new CBORFactory()));
+
+        System.out.printf("%d changes, %d warmup and %d measured serializations per encoding%n%n", changes.size(),
+                Integer.parseInt(options.get("warmup")), Integer.parseInt(options.get("iterations")));
+        System.out.printf("%-12s %12s %9s %12s%n", "encoding", "bytes", "vs json", "median ms");
+        long jsonBytes = 0;
+        for (Map.Entry<String, ObjectMapper> encoding : encodings.entrySet()) {
+            for (boolean gzip : new boolean[] { false, true }) {
+                long[] result = measure(encoding.getValue(), changes, gzip);
+                if (jsonBytes == 0)
+                    jsonBytes = result[0];
+                System.out.printf("%-12s %12d %8.1f%% %12.2f%n", encoding.getKey() + (gzip ? "+gzip" : ""),
+                        result[0], 100.0 * result[0] / jsonBytes, result[1] / 1e6);
+            }
+        }
+    }
+
+    /** Payload size in bytes and median serialize (and compress) time in ns. */
+    private long[] measure(ObjectMapper mapper, List<Map<String, Object>> changes, boolean gzip) throws Exception {
+        int warmup = Integer.parseInt(options.get("warmup"));
+        int iterations = Math.max(1, Integer.parseInt(options.get("iterations")));
+        long[] times = new long[iterations];
+        int size = 0;
+        for (int i = -warmup; i < iterations; i++) {
+            long start = System.nanoTime();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            if (gzip) {
+                try (GZIPOutputStream zip = new GZIPOutputStream(out)) {
+                    mapper.writeValue(zip, changes);
+                }
+            } else {
+                mapper.writeValue(out, changes);
+            }
+            if (i >= 0)
+                times[i] = System.nanoTime() - start;
+            size = out.size();
+        }
+        Arrays.sort(times);
+        return new long[] { size, times[iterations / 2] };
+    }
+
+    /** Changes as the backend serializes ChangeItems, with the diff's old/new style meta on each. */
+    private List<Map<String, Object>> synthetic() {
+        Random random = new Random(Long.parseLong(options.get("seed")));
+        double styleChanges = Double.parseDouble(options.get("styleChanges"));
+        int items = Integer.parseInt(options.get("items"));
+        List<Map<String, Object>> changes = new ArrayList<>(items);
+        for (int i = 0; i < items; i++) {
+            String type = TYPES[random.nextInt(TYPES.length)];
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("sheet", SHEETS[random.nextInt(SHEETS.length)]);
+            item.put("row", random.nextInt(5000));
+            item.put("col", random.nextInt(40));
+            item.put("oldValue", "ADDED".equals(type) ? null : value(random));
+            item.put("newValue", "DELETED".equals(type) ? null : value(random));
+            item.put("color", null);
+            item.put("strike", "DELETED".equals(type));
+            item.put("changeType", type);
+            item.put("fileName", "Masterslide_" + (1 + random.nextInt(3)) + ".xlsx");
+
+            Map<String, Object> meta = new HashMap<>();
+            boolean restyled = random.nextDouble() < styleChanges;
+            for (String side : new String[] { "old", "new" }) {
+                boolean other = restyled && side.equals("new");
+                meta.put(side + "FontColor", other ? COLORS[random.nextInt(COLORS.length)] : COLORS[0]);
+                meta.put(side + "BgColor", other ? COLORS[random.nextInt(COLORS.length)] : COLORS[1]);
+                meta.put(side + "FontSize", other ? 10 + random.nextInt(4) : 11);
+                meta.put(side + "Bold", other && random.nextBoolean());
+                meta.put(side + "Strike", false);
+                meta.put(side + "Align", other ? ALIGNS[random.nextInt(ALIGNS.length)] : ALIGNS[0]);
+                meta.put(side + "Borders", other ? BORDERS[random.nextInt(BORDERS.length)] : BORDERS[0]);
+            }
+            item.put("meta", meta);
+            changes.add(item);
+        }
+        return changes;
+    }
+
+    private static String value(Random random) {
+        switch (random.nextInt(3)) {
+        case 0:
+            return String.valueOf(random.nextInt(100000));
+        case 1:
+            return String.format(Locale.ROOT, "%.2f", random.nextDouble() * 1000);
+        default:
+            return "TXN-" + Integer.toHexString(random.nextInt()).toUpperCase();
+        }
+    }
+}
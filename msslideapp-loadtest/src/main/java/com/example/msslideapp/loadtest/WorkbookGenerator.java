@@ -0,0 +1,200 @@
+package com.example.msslideapp.loadtest;
+
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.apache.poi.xssf.usermodel.XSSFColor;
+import org.apache.poi.xssf.usermodel.XSSFFont;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+/**
+ * Synthetic Masterslide-like workbooks: a header row over rows of slide ids,
+ * titles, owners, statuses and figures, with a configurable number of distinct
+ * cell styles. Edited variants change a fraction of the body cells (values and,
+ * for one edit in five, the style), which is what the backend's diff sees when
+ * someone uploads a revised deck. Everything is derived from the seed, so runs
+ * are repeatable.
+ */
+public class WorkbookGenerator {
+
+    private static final String[] HEADERS = { "Slide ID", "Title", "Owner", "Status", "Revenue", "Margin %",
+            "Due" };
+    private static final String[] WORDS = { "Quarterly", "Review", "Pipeline", "Forecast", "Region", "Launch",
+            "Roadmap", "Budget", "Hiring", "Summary", "Risks", "Targets", "Partners", "Pricing" };
+    private static final String[] OWNERS = { "asha", "ben", "chen", "dana", "emeka", "fatima", "goran" };
+    private static final String[] STATUSES = { "Draft", "In review", "Approved", "Archived" };
+    private static final String[] COLORS = { "#FFFFFF", "#FFF2CC", "#DDEBF7", "#E2EFDA", "#FCE4D6", "#EDEDED",
+            "#D9E1F2", "#F8CBAD" };
+
+    /** One sheet: values are String or Double, styles index into the workbook's style list. */
+    public static final class Sheet {
+        final String name;
+        final Object[][] values;
+        final int[][] styles;
+
+        Sheet(String name, Object[][] values, int[][] styles) {
+            this.name = name;
+            this.values = values;
+            this.styles = styles;
+        }
+
+        Sheet copy() {
+            Object[][] v = new Object[values.length][];
+            int[][] s = new int[styles.length][];
+            for (int r = 0; r < values.length; r++) {
+                v[r] = values[r].clone();
+                s[r] = styles[r].clone();
+            }
+            return new Sheet(name, v, s);
+        }
+    }
+
+    public static final class Workbook {
+        public final String fileName;
+        final Sheet[] sheets;
+
+        Workbook(String fileName, Sheet[] sheets) {
+            this.fileName = fileName;
+            this.sheets = sheets;
+        }
+
+        public long cells() {
+            long n = 0;
+            for (Sheet s : sheets)
+                n += (long) s.values.length * s.values[0].length;
+            return n;
+        }
+    }
+
+    private final long seed;
+    private final int sheets;
+    private final int rows;
+    private final int cols;
+    private final int styleVariety;
+    private final double editRatio;
+
+    public WorkbookGenerator(long seed, int sheets, int rows, int cols, int styleVariety, double editRatio) {
+        this.seed = seed;
+        this.sheets = Math.max(1, sheets);
+        this.rows = Math.max(2, rows);
+        this.cols = Math.max(1, cols);
+        this.styleVariety = Math.max(1, styleVariety);
+        this.editRatio = editRatio;
+    }
+
+    /** The original version of workbook {@code index}. */
+    public Workbook base(int index) {
+        Random rnd = new Random(seed * 31 + index);
+        Sheet[] out = new Sheet[sheets];
+        for (int s = 0; s < sheets; s++) {
+            Object[][] values = new Object[rows][cols];
+            int[][] styles = new int[rows][cols];
+            for (int c = 0; c < cols; c++) {
+                values[0][c] = c < HEADERS.length ? HEADERS[c] : "Field " + (c + 1);
+                styles[0][c] = 0;
+            }
+            for (int r = 1; r < rows; r++) {
+                for (int c = 0; c < cols; c++) {
+                    values[r][c] = value(rnd, s, r, c);
+                    // mostly one style per column, like a formatted table, with some one-off highlights
+                    styles[r][c] = rnd.nextInt(10) == 0 ? rnd.nextInt(styleVariety) : c % styleVariety;
+                }
+            }
+            out[s] = new Sheet("Deck " + (s + 1), values, styles);
+        }
+        return new Workbook("loadtest-" + index + ".xlsx", out);
+    }
+
+    /** Revision {@code round} of a workbook: editRatio of its body cells changed. */
+    public Workbook edit(Workbook base, int round) {
+        Random rnd = new Random(seed * 31 + base.fileName.hashCode() * 17L + round);
+        Sheet[] out = new Sheet[base.sheets.length];
+        for (int s = 0; s < out.length; s++)
+            out[s] = base.sheets[s].copy();
+
+        long edits = Math.max(1, Math.round((base.cells() - (long) out.length * cols) * editRatio));
+        for (long e = 0; e < edits; e++) {
+            Sheet sheet = out[rnd.nextInt(out.length)];
+            int r = 1 + rnd.nextInt(rows - 1);
+            int c = rnd.nextInt(cols);
+            if (rnd.nextInt(5) == 0)
+                sheet.styles[r][c] = (sheet.styles[r][c] + 1 + rnd.nextInt(styleVariety)) % styleVariety;
+            else
+                sheet.values[r][c] = value(rnd, round, r, c);
+        }
+        return new Workbook(base.fileName, out);
+    }
+
+    private static Object value(Random rnd, int salt, int r, int c) {
+        switch (c % HEADERS.length) {
+            case 0:
+                return String.format("SLD-%05d", r + salt * 100000);
+            case 1:
+                return WORDS[rnd.nextInt(WORDS.length)] + " " + WORDS[rnd.nextInt(WORDS.length)];
+            case 2:
+                return OWNERS[rnd.nextInt(OWNERS.length)];
+            case 3:
+                return STATUSES[rnd.nextInt(STATUSES.length)];
+            case 4:
+                return rnd.nextInt(5000000) / 100.0;
+            case 5:
+                return rnd.nextInt(1000) / 10.0;
+            default:
+                return String.format("2025-%02d-%02d", 1 + rnd.nextInt(12), 1 + rnd.nextInt(28));
+        }
+    }
+
+    /** Writes the workbook as .xlsx, streaming rows so large sizes fit in memory. */
+    public byte[] toXlsx(Workbook workbook) throws Exception {
+        try (SXSSFWorkbook wb = new SXSSFWorkbook(200)) {
+            CellStyle[] styles = createStyles(wb);
+            for (Sheet sheet : workbook.sheets) {
+                org.apache.poi.ss.usermodel.Sheet out = wb.createSheet(sheet.name);
+                for (int r = 0; r < sheet.values.length; r++) {
+                    Row row = out.createRow(r);
+                    for (int c = 0; c < sheet.values[r].length; c++) {
+                        Cell cell = row.createCell(c);
+                        Object v = sheet.values[r][c];
+                        if (v instanceof Double)
+                            cell.setCellValue((Double) v);
+                        else
+                            cell.setCellValue((String) v);
+                        cell.setCellStyle(styles[sheet.styles[r][c]]);
+                    }
+                }
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            wb.write(bytes);
+            wb.dispose();
+            return bytes.toByteArray();
+        }
+    }
+
+    private CellStyle[] createStyles(SXSSFWorkbook wb) {
+        CellStyle[] styles = new CellStyle[styleVariety];
+        HorizontalAlignment[] alignments = { HorizontalAlignment.LEFT, HorizontalAlignment.CENTER,
+                HorizontalAlignment.RIGHT };
+        for (int i = 0; i < styleVariety; i++) {
+            XSSFCellStyle style = (XSSFCellStyle) wb.createCellStyle();
+            XSSFFont font = (XSSFFont) wb.createFont();
+            font.setBold(i == 0 || i % 5 == 0);
+            font.setFontHeightInPoints((short) (i == 0 ? 12 : 10 + i % 3));
+            if (i % 4 == 3)
+                font.setColor(new XSSFColor(new byte[] { (byte) 0xC0, 0, 0 }, null));
+            style.setFont(font);
+            java.awt.Color fill = java.awt.Color.decode(COLORS[i % COLORS.length]);
+            style.setFillForegroundColor(new XSSFColor(fill, null));
+            style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+            style.setAlignment(alignments[i % alignments.length]);
+            BorderStyle border = i % 2 == 0 ? BorderStyle.THIN : BorderStyle.NONE;
+            style.setBorderTop(border);
+            style.setBorderBottom(border);
+            style.setBorderLeft(i % 3 == 0 ? BorderStyle.MEDIUM : border);
+            style.setBorderRight(border);
+            styles[i] = style;
+        }
+        return styles;
+    }
+}